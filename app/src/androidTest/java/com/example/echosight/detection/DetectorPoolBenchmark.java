@@ -0,0 +1,81 @@
+package com.example.echosight.detection;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Throughput of the bundled model for pool sizes 1..N on the same stream of
+ * synthetic frames. Run on a device; results go to logcat under ECHO_SIGHT.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DetectorPoolBenchmark {
+
+    private static final String TAG = "ECHO_SIGHT";
+    private static final int DISTINCT_FRAMES = 8;
+    private static final int STREAM_LENGTH = 120;
+
+    @Test
+    public void throughput_byPoolSize() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        int maxPool = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+        for (int size = 1; size <= maxPool; size++) {
+            DetectorPool pool = new DetectorPool(context, size);
+            ByteBuffer[] frames = syntheticFrames(pool.primary());
+
+            // Warm-up: one inference per interpreter
+            for (int i = 0; i < pool.size(); i++) {
+                pool.get(i).detect(frames[0], 640, 480, pool.get(i).newResults());
+            }
+
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger done = new AtomicInteger();
+            Thread[] workers = new Thread[pool.size()];
+
+            long start = System.nanoTime();
+            for (int w = 0; w < workers.length; w++) {
+                ObjectDetector detector = pool.get(w);
+                DetectionResults results = detector.newResults();
+                workers[w] = new Thread(() -> {
+                    int frame;
+                    while ((frame = next.getAndIncrement()) < STREAM_LENGTH) {
+                        detector.detect(frames[frame % DISTINCT_FRAMES], 640, 480, results);
+                        done.incrementAndGet();
+                    }
+                });
+                workers[w].start();
+            }
+            for (Thread worker : workers) worker.join();
+            float seconds = (System.nanoTime() - start) / 1e9f;
+
+            Log.d(TAG, "POOL BENCHMARK: size=" + pool.size() + " → "
+                    + (STREAM_LENGTH / seconds) + " frames/s");
+            assertEquals(STREAM_LENGTH, done.get());
+        }
+    }
+
+    private static ByteBuffer[] syntheticFrames(ObjectDetector detector) {
+        Random random = new Random(7);
+        ByteBuffer[] frames = new ByteBuffer[DISTINCT_FRAMES];
+        for (int i = 0; i < DISTINCT_FRAMES; i++) {
+            frames[i] = detector.newInputBuffer();
+            byte[] noise = new byte[frames[i].capacity()];
+            random.nextBytes(noise);
+            frames[i].put(noise);
+            frames[i].rewind();
+        }
+        return frames;
+    }
+}
@@ -2,6 +2,8 @@ package com.example.echosight;
 
 import android.graphics.Bitmap;
 import android.util.Log;
+
+import com.example.echosight.narration.StreamingSceneModel;
 import com.google.ai.client.generativeai.GenerativeModel;
 import com.google.ai.client.generativeai.java.GenerativeModelFutures;
 import com.google.ai.client.generativeai.type.Content;
@@ -10,14 +12,33 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
-public class EnvironmentNarrator {
+public class EnvironmentNarrator implements StreamingSceneModel<Bitmap> {
     private GenerativeModelFutures model;
     private final Executor executor = Executors.newSingleThreadExecutor();
 
+    private static final String PROMPT =
+            "You are a close, sighted friend standing next to me, speaking naturally and calmly. " +
+                    "Describe what’s around the way a real person would, without dramatizing or sounding poetic. " +
+
+                    "DO start with how the place feels overall, like whether it’s quiet, busy, focused, or relaxed. " +
+                    "DO mention only socially or spatially useful information: who is nearby, how close they are, " +
+                    "what they’re generally doing, and sometimes let me know whether anyone seems aware of me  " +
+
+                    "DO NOT exaggerate, over-explain, or add decorative language. " +
+                    "DO NOT list objects or describe everything you notice. " +
+                    "DO NOT use phrases like 'I see', 'there is', or formal scene descriptions. " +
+
+                    "If you mention color, keep it minimal and practical, using simple terms like warm or cool only when relevant. " +
+                    "Respond in 2 to 5 short, natural sentences. " +
+                    "Speak plainly, like you would to a friend who just wants to know what’s going on.";
+
     public interface DescriptionCallback {
         void onDescriptionReady(String description);
         void onError(String error);
@@ -32,28 +53,14 @@ public class EnvironmentNarrator {
         }
     }
 
+    @Override
+    public void describe(Bitmap image, DescriptionCallback callback) {
+        describeScene(image, callback);
+    }
+
     // Inside EnvironmentNarrator.java
     public void describeScene(Bitmap bitmap, DescriptionCallback callback) {
-        String prompt =
-                "You are a close, sighted friend standing next to me, speaking naturally and calmly. " +
-                        "Describe what’s around the way a real person would, without dramatizing or sounding poetic. " +
-
-                        "DO start with how the place feels overall, like whether it’s quiet, busy, focused, or relaxed. " +
-                        "DO mention only socially or spatially useful information: who is nearby, how close they are, " +
-                        "what they’re generally doing, and sometimes let me know whether anyone seems aware of me  " +
-
-                        "DO NOT exaggerate, over-explain, or add decorative language. " +
-                        "DO NOT list objects or describe everything you notice. " +
-                        "DO NOT use phrases like 'I see', 'there is', or formal scene descriptions. " +
-
-                        "If you mention color, keep it minimal and practical, using simple terms like warm or cool only when relevant. " +
-                        "Respond in 2 to 5 short, natural sentences. " +
-                        "Speak plainly, like you would to a friend who just wants to know what’s going on.";
-
-        Content content = new Content.Builder()
-                .addImage(bitmap)
-                .addText(prompt)
-                .build();
+        Content content = content(bitmap);
 
         // Generate content asynchronously
         ListenableFuture<GenerateContentResponse> response = model.generateContent(content);
@@ -70,4 +77,60 @@ public class EnvironmentNarrator {
             }
         }, Executors.newSingleThreadExecutor()); // Always use a background executor
     }
-}
\ No newline at end of file
+
+    /**
+     * The same request through the streaming API: text arrives in chunks as
+     * it is generated. Cancelling the stream cancels the subscription, which
+     * stops the request.
+     */
+    @Override
+    public Stream stream(Bitmap bitmap, Listener listener) {
+        final Subscription[] subscription = new Subscription[1];
+        final boolean[] cancelled = new boolean[1];
+
+        model.generateContentStream(content(bitmap)).subscribe(new Subscriber<GenerateContentResponse>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                synchronized (subscription) {
+                    if (cancelled[0]) {
+                        s.cancel();
+                        return;
+                    }
+                    subscription[0] = s;
+                }
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(GenerateContentResponse response) {
+                listener.onText(response.getText());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                listener.onError(t.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                listener.onComplete();
+            }
+        });
+
+        return () -> {
+            Subscription s;
+            synchronized (subscription) {
+                cancelled[0] = true;
+                s = subscription[0];
+            }
+            if (s != null) s.cancel();
+        };
+    }
+
+    private static Content content(Bitmap bitmap) {
+        return new Content.Builder()
+                .addImage(bitmap)
+                .addText(PROMPT)
+                .build();
+    }
+}
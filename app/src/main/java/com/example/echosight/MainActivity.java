@@ -24,39 +24,61 @@ import com.bumptech.glide.Glide;
 import com.example.echosight.camera.CameraManager;
 import com.example.echosight.camera.FrameAnalyzer;
 import com.example.echosight.camera.OverlayView;
-import com.example.echosight.detection.ObjectDetector;
+import com.example.echosight.detection.DetectorPool;
+import com.example.echosight.feedback.AudioCues;
 import com.example.echosight.feedback.AudioFeedback;
 import com.example.echosight.feedback.FeedbackController;
 import com.example.echosight.feedback.HapticManager;
+import com.example.echosight.feedback.SpatialAudioFeedback;
 import com.example.echosight.EnvironmentNarrator;
+import com.example.echosight.narration.CachedNarrator;
+import com.example.echosight.narration.NarrationCache;
+import com.example.echosight.narration.PerceptualHash;
+import com.example.echosight.narration.SceneModel;
+import com.example.echosight.narration.StreamingNarrator;
 import com.example.echosight.voice.SpeechOutput;
 import com.example.echosight.voice.VoiceCommandManager;
+import com.example.echosight.utils.Constants;
 import com.example.echosight.utils.PermissionUtils;
+import com.example.echosight.utils.StartupGraph;
 
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors; // Only one import needed
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @ExperimentalGetImage
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "ECHO_SIGHT";
+    // Debug action: adb shell am start -n com.example.echosight/.MainActivity --ez force_retune true
+    private static final String EXTRA_FORCE_RETUNE = "force_retune";
 
     private PreviewView previewView;
     private OverlayView overlayView;
     private ImageView loadingGif;
     private Button btnToggle;
 
-    private ObjectDetector detector;
+    private DetectorPool detectors;
     private SpeechOutput speechOutput;
     private VoiceCommandManager voiceManager;
     private CameraManager cameraManager;
-    private EnvironmentNarrator environmentNarrator;
+    private CachedNarrator<Bitmap> environmentNarrator;
+    private StreamingNarrator<Bitmap> streamingNarrator;   // null: whole descriptions
     private FeedbackController feedbackController;
-    private AudioFeedback audioFeedback; // Declare here so it is accessible everywhere
+    private AudioCues audioFeedback; // Declare here so it is accessible everywhere
     private HapticManager hapticManager;
 
     private boolean isRunning = false;
     private final Handler handler = new Handler(Looper.getMainLooper());
 
+    // ---------- STARTUP ----------
+    private long createdAtNs;
+    private boolean firstAlertLogged = false;
+    private boolean systemsReady = false;
+    private boolean startWhenReady = false;   // START pressed while still loading
+
     private final ActivityResultLauncher<String[]> permissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestMultiplePermissions(), result -> {
                 boolean allGranted = true;
@@ -70,6 +92,7 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtNs = System.nanoTime();
         setContentView(R.layout.activity_main);
 
         previewView = findViewById(R.id.previewView);
@@ -101,37 +124,95 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Brings the subsystems up as a dependency graph: model loading, warm-up
+     * inferences, haptics and the Gemini client run in parallel in the
+     * background while the main-thread-only parts (TTS, audio Handler,
+     * SpeechRecognizer) are created on the UI thread.
+     */
     private void initializeEchoSight() {
         Log.d(TAG, "SYSTEM: Starting initialization...");
-        try {
-            speechOutput = new SpeechOutput(this);
-            detector = new ObjectDetector(this);
+        ExecutorService startupExecutor = Executors.newFixedThreadPool(
+                Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+        new StartupGraph(startupExecutor, handler::post)
+                .addOnMain("speech", () -> speechOutput = new SpeechOutput(this))
+                .add("detectors", () -> detectors = new DetectorPool(this, Constants.DETECTOR_POOL_SIZE,
+                        getIntent().getBooleanExtra(EXTRA_FORCE_RETUNE, false)))
+                // The first inference pays for the interpreter's lazy allocations; do it now
+                .add("warmup", () -> detectors.warmUp(Constants.WARMUP_INFERENCES), "detectors")
+                .addOnMain("audio", () -> audioFeedback = Constants.SPATIAL_AUDIO
+                        ? new SpatialAudioFeedback(this) : new AudioFeedback())
+                .add("haptics", () -> hapticManager = new HapticManager(this))
+                // FIX: Initialize the class-level variables, don't re-declare them
+                .add("feedback", () -> feedbackController = new FeedbackController(hapticManager, audioFeedback),
+                        "audio", "haptics")
+                .add("narrator", () -> {
+                    try {
+                        String myKey = BuildConfig.GEMINI_API_KEY;
+                        // Asking again about an unchanged scene is answered from this cache
+                        NarrationCache narrationCache = new NarrationCache(
+                                new File(getFilesDir(), "narration_cache.bin"),
+                                Constants.NARRATION_CACHE_ENTRIES, Constants.NARRATION_CACHE_TTL_MS,
+                                Constants.NARRATION_HASH_DISTANCE, System.currentTimeMillis());
+                        EnvironmentNarrator gemini = new EnvironmentNarrator(myKey);
+                        SceneModel<Bitmap> model = gemini;
+                        if (Constants.STREAMING_NARRATION) {
+                            streamingNarrator = new StreamingNarrator<>(gemini,
+                                    new StreamingNarrator.Speaker() {
+                                @Override
+                                public void narrate(String sentence) {
+                                    runOnUiThread(() -> speechOutput.narrate(sentence));
+                                }
+                                @Override
+                                public void stopNarration() {
+                                    runOnUiThread(() -> speechOutput.stopNarration());
+                                }
+                            });
+                            model = streamingNarrator;
+                        }
+                        environmentNarrator = new CachedNarrator<>(model, narrationCache);
+                        Log.d(TAG, "GEMINI: Narrator initialized.");
+                    } catch (Exception aiEx) {
+                        Log.e(TAG, "GEMINI ERROR: " + aiEx.getMessage());
+                    }
+                })
+                .addOnMain("camera", () -> {
+                    cameraManager = new CameraManager(this, this, previewView);
+                    cameraManager.warmUp();
+                })
+                .addOnMain("voice", () -> voiceManager = new VoiceCommandManager(this, command -> {
+                    if (command.equals("START")) startSystem();
+                    else if (command.equals("STOP")) stopSystem();
+                    else if (command.equals("DESCRIBE")) handleDescribeEnvironment();
+                }))
+                .start((failed, report) -> {
+                    startupExecutor.shutdown();
+                    onInitialized(failed, report);
+                });
+    }
 
-            // FIX: Initialize the class-level variables, don't re-declare them
-            audioFeedback = new AudioFeedback();
-            hapticManager = new HapticManager(this);
-            feedbackController = new FeedbackController(hapticManager, audioFeedback);
+    private void onInitialized(List<String> failed, String report) {
+        Log.d(TAG, "STARTUP:\n" + report);
+        Log.d(TAG, "STARTUP: cold start to ready "
+                + (System.nanoTime() - createdAtNs) / 1_000_000 + " ms");
 
-            try {
-                String myKey = BuildConfig.GEMINI_API_KEY;
-                environmentNarrator = new EnvironmentNarrator(myKey);
-                Log.d(TAG, "GEMINI: Narrator initialized.");
-            } catch (Exception aiEx) {
-                Log.e(TAG, "GEMINI ERROR: " + aiEx.getMessage());
-            }
+        if (isDestroyed()) return;
 
-            cameraManager = new CameraManager(this, this, previewView);
-            voiceManager = new VoiceCommandManager(this, command -> {
-                if (command.equals("START")) startSystem();
-                else if (command.equals("STOP")) stopSystem();
-                else if (command.equals("DESCRIBE")) handleDescribeEnvironment();
-            });
+        if (!failed.isEmpty()) {
+            Log.e(TAG, "FATAL ERROR during init: " + failed);
+        }
+
+        if (voiceManager != null) voiceManager.startListening();
 
-            voiceManager.startListening();
-            speechOutput.speak("Systems ready.");
+        systemsReady = !failed.contains("speech") && !failed.contains("detectors")
+                && !failed.contains("feedback") && !failed.contains("camera");
+        if (!systemsReady) return;
 
-        } catch (Exception e) {
-            Log.e(TAG, "FATAL ERROR during init: " + e.getMessage());
+        speechOutput.speak("Systems ready.");
+        if (startWhenReady) {
+            startWhenReady = false;
+            handleStartNavigation();
         }
     }
 
@@ -174,24 +255,44 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        speechOutput.speak("Analyzing the room. Please hold still.");
         final Bitmap fullFrame = previewView.getBitmap();
 
         if (fullFrame == null) return;
 
         Executors.newSingleThreadExecutor().execute(() -> {
             try {
-                Bitmap tinyBitmap = Bitmap.createScaledBitmap(fullFrame, 640, 480, true);
-                environmentNarrator.describeScene(tinyBitmap, new EnvironmentNarrator.DescriptionCallback() {
+                // A new question replaces one still being answered
+                if (streamingNarrator != null) streamingNarrator.cancel();
+
+                // The hash only needs a thumbnail; it averages down to 9x8 cells
+                Bitmap thumbnail = Bitmap.createScaledBitmap(fullFrame, 72, 64, true);
+                int[] pixels = new int[72 * 64];
+                thumbnail.getPixels(pixels, 0, 72, 0, 0, 72, 64);
+                long hash = PerceptualHash.hash(pixels, 72, 64);
+
+                // The image is only made on a miss, which a streaming narrator speaks as it goes
+                AtomicBoolean live = new AtomicBoolean(false);
+                environmentNarrator.describe(hash,
+                        () -> {
+                            live.set(true);
+                            // Queued as narration before the request starts, so the first
+                            // sentence follows it instead of being cut off by it
+                            runOnUiThread(() -> speechOutput.narrate(streamingNarrator != null
+                                    ? "Analyzing." : "Analyzing the room. Please hold still."));
+                            return Bitmap.createScaledBitmap(fullFrame, 640, 480, true);
+                        },
+                        new EnvironmentNarrator.DescriptionCallback() {
                     @Override
                     public void onDescriptionReady(String description) {
-                        runOnUiThread(() -> speechOutput.speak(description));
+                        if (live.get() && streamingNarrator != null) return;
+                        runOnUiThread(() -> speechOutput.narrate(description));
                     }
                     @Override
                     public void onError(String error) {
                         runOnUiThread(() -> speechOutput.speak("Analysis failed."));
                     }
                 });
+                Log.d(TAG, environmentNarrator.report());
             } catch (Exception e) {
                 Log.e(TAG, "AI Error: " + e.getMessage());
             }
@@ -199,17 +300,50 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void handleStartNavigation() {
+        if (!systemsReady) {
+            // Picked up by onInitialized as soon as the detectors are warm
+            startWhenReady = true;
+            return;
+        }
         speechOutput.speak("Navigation started");
         if (cameraManager != null) {
-            cameraManager.startCamera(new FrameAnalyzer(detector, speechOutput, overlayView, feedbackController));
+            FrameAnalyzer analyzer = new FrameAnalyzer(detectors, speechOutput, overlayView, feedbackController);
+            if (!firstAlertLogged) {
+                // What the user waits for: launch to the first thing tracked in front of them
+                firstAlertLogged = true;
+                long navigationStartNs = System.nanoTime();
+                analyzer.setFirstAlertListener(() -> {
+                    long nowNs = System.nanoTime();
+                    Log.d(TAG, "STARTUP: cold start to first alert " + (nowNs - createdAtNs) / 1_000_000
+                            + " ms (" + (nowNs - navigationStartNs) / 1_000_000 + " ms after navigation started)");
+                });
+            }
+            cameraManager.startCamera(analyzer);
         }
     }
 
     private void handleStopNavigation() {
-        speechOutput.speak("Navigation stopped");
+        startWhenReady = false;
+        if (streamingNarrator != null) {
+            // Stops generation; the speech already queued goes with stopAll below
+            streamingNarrator.cancel();
+            Log.i(TAG, streamingNarrator.report());
+        }
+        if (speechOutput != null) {
+            // Alerts still queued are about a walk that has ended
+            speechOutput.stopAll();
+            speechOutput.speak("Navigation stopped");
+            Log.i(TAG, speechOutput.cacheReport());
+            Log.i(TAG, speechOutput.speechReport());
+        }
         if (cameraManager != null) cameraManager.stopCamera();
         if (overlayView != null) overlayView.setResults(null);
-        if (hapticManager != null) hapticManager.stop();
+        if (feedbackController != null) {
+            // Also silences haptics and the audio cue, on the feedback thread
+            feedbackController.stop();
+            Log.i(TAG, feedbackController.report());
+        }
+        if (audioFeedback != null) Log.i(TAG, audioFeedback.latencyReport());
     }
 
     @Override
@@ -217,7 +351,9 @@ public class MainActivity extends AppCompatActivity {
         super.onDestroy();
         if (speechOutput != null) speechOutput.shutdown();
         if (voiceManager != null) voiceManager.stop();
-        if (cameraManager != null) cameraManager.stopCamera();
+        if (cameraManager != null) cameraManager.release();
+        if (detectors != null) detectors.close();
+        if (feedbackController != null) feedbackController.release();
         if (audioFeedback != null) audioFeedback.release();
     }
 }
\ No newline at end of file
@@ -0,0 +1,640 @@
+package com.example.echosight.camera;
+
+import android.media.Image;
+import android.util.Log;
+
+import com.example.echosight.detection.DetectionResult;
+import com.example.echosight.detection.DetectionResults;
+import com.example.echosight.detection.DetectorPool;
+import com.example.echosight.detection.ObjectDetector;
+import com.example.echosight.detection.PatchTracker;
+import com.example.echosight.utils.Constants;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Three-stage frame pipeline:
+ *
+ * 1. Conversion  – caller's thread (the CameraX analysis executor): YUV → model input
+ * 2. Inference   – one worker thread per detector in the {@link DetectorPool}
+ * 3. Decision    – dedicated thread: filtering, feedback and speech
+ *
+ * Stages hand pooled {@link FrameSlot}s over bounded queues, so frame N+1 can be
+ * converted while frame N is in inference. With more than one detector, idle
+ * workers take frames in arrival order and a {@link Resequencer} restores camera
+ * order before the decision stage. When a queue is full the oldest
+ * waiting frame is dropped, which keeps the KEEP_ONLY_LATEST behaviour of the
+ * camera all the way down the pipeline.
+ *
+ * In corridor mode only the central walking corridor is fed to the model
+ * (at a higher effective resolution, in the model's aspect ratio), with a full-frame scan every
+ * {@link Constants#FULL_SCAN_INTERVAL} inferences for side awareness.
+ * Inference time and smallest detected box are tracked per region so the
+ * two modes can be compared on the same recording.
+ *
+ * In detect-then-track mode the model only runs on every
+ * {@link Constants#DETECT_INTERVAL}th frame. The frames in between skip
+ * inference: the decision thread moves the last boxes with a
+ * {@link PatchTracker} on a luma thumbnail, so the decision stage still gets
+ * fresh boxes every frame. A weak or lost track brings the next detection forward.
+ */
+public class AnalysisPipeline {
+
+    private static final String TAG = "ECHO_SIGHT";
+
+    /**
+     * Final stage, called on the decision thread. The results are only valid
+     * for the duration of the call. {@code cropLeft..cropBottom} is the part
+     * of the frame the last inference looked at (the corridor crop or the
+     * whole frame), in frame pixels. {@code reused} is true when the frame was
+     * skipped by the motion gate and the last inferred detections are passed again.
+     */
+    public interface DecisionStage {
+        void onDetections(DetectionResults results, int cropLeft, int cropTop, int cropRight, int cropBottom,
+                          int frameWidth, int frameHeight, boolean reused);
+    }
+
+    /**
+     * One inference worker's model: an {@link ObjectDetector} in the app, a
+     * fake in the JVM tests (see DetectTrackReplayTest).
+     */
+    interface Detector {
+        int inputWidth();
+        int inputHeight();
+        ByteBuffer newInputBuffer();
+        DetectionResults newResults();
+        void detect(ByteBuffer input, int cropLeft, int cropTop, int cropWidth, int cropHeight, DetectionResults out);
+    }
+
+    /** A camera frame as the conversion stage sees it: an {@link Image} in the app, synthetic in tests. */
+    interface Frame {
+        int width();
+        int height();
+        /** Luma averaged over {@code scale}-pixel cells, row-major into {@code out}. */
+        void downsampleLuma(int scale, byte[] out);
+        /** Converts the crop into the model input. */
+        void convert(int cropLeft, int cropTop, int cropWidth, int cropHeight, ByteBuffer input);
+    }
+
+    /** Which part of the frame an inference looked at. */
+    public enum Region {
+        FULL_FRAME,
+        CORRIDOR
+    }
+
+    private static final int DECISION_QUEUE_CAPACITY = 2;
+
+    private static final int STATS_LOG_INTERVAL = 100;
+
+    private final Detector primary;
+    private final DecisionStage decisionStage;
+    private final CameraFrame cameraFrame;   // conversion thread only; null without a DetectorPool
+
+    private final BlockingQueue<FrameSlot> freeSlots;
+    private final BlockingQueue<FrameSlot> inferenceQueue;
+    private final BlockingQueue<FrameSlot> decisionQueue = new ArrayBlockingQueue<>(DECISION_QUEUE_CAPACITY);
+    private final Resequencer resequencer;
+    private long nextSequence = 0; // conversion thread only
+
+    private volatile FrameScheduler scheduler;
+
+    // ---------- CORRIDOR MODE ----------
+    private volatile boolean corridorMode = false;
+    private int inferencesSinceFullScan = 0; // conversion thread only
+
+    // ---------- DETECT-THEN-TRACK ----------
+    private volatile boolean trackingMode = false;
+    private volatile boolean detectionRequested = true;
+    private int framesSinceDetection = 0; // conversion thread only
+    private final PatchTracker tracker;   // decision thread only
+
+    // Last inferred frame, replayed for frames the motion gate skipped (decision thread only)
+    private final DetectionResults lastResults;
+    private int lastFrameWidth;
+    private int lastFrameHeight;
+    private int lastCropLeft;
+    private int lastCropTop;
+    private int lastCropRight;
+    private int lastCropBottom;
+
+    private final Thread[] inferenceThreads;
+    private final Thread decisionThread;
+    private volatile boolean running = true;
+
+    // ---------- STATS ----------
+    private final AtomicLong framesSubmitted = new AtomicLong();
+    private final AtomicLong framesCompleted = new AtomicLong();
+    private final AtomicLong framesReused = new AtomicLong();
+    private final AtomicLong conversionDrops = new AtomicLong();
+    private final AtomicLong inferenceDrops = new AtomicLong();
+    private final AtomicLong decisionDrops = new AtomicLong();
+    private final AtomicLong lateDrops = new AtomicLong();
+    private final AtomicLong totalLatencyNs = new AtomicLong();
+    private final AtomicLong framesTracked = new AtomicLong();
+    private final AtomicLong totalTrackingNs = new AtomicLong();
+    private final AtomicLong earlyDetections = new AtomicLong();
+
+    // Per-region inference stats, indexed by Region.ordinal() (guarded by the arrays' owner, this)
+    private final long[] regionInferences = new long[Region.values().length];
+    private final long[] regionInferenceNs = new long[Region.values().length];
+    private final float[] regionSmallestBoxPx = {Float.MAX_VALUE, Float.MAX_VALUE};
+
+    public AnalysisPipeline(ObjectDetector detector, DecisionStage decisionStage) {
+        this(new DetectorPool(detector), decisionStage);
+    }
+
+    public AnalysisPipeline(DetectorPool detectors, DecisionStage decisionStage) {
+        this(modelDetectors(detectors), decisionStage, new CameraFrame(detectors.primary()));
+    }
+
+    AnalysisPipeline(List<Detector> detectors, DecisionStage decisionStage) {
+        this(detectors, decisionStage, null);
+    }
+
+    private AnalysisPipeline(List<Detector> detectors, DecisionStage decisionStage, CameraFrame cameraFrame) {
+        this.primary = detectors.get(0);
+        this.decisionStage = decisionStage;
+        this.cameraFrame = cameraFrame;
+
+        int workers = detectors.size();
+        // One queued frame per worker; slots for every queue plus one per stage and worker
+        int inferenceCapacity = workers;
+        int slotCount = inferenceCapacity + DECISION_QUEUE_CAPACITY + workers + 2;
+
+        inferenceQueue = new ArrayBlockingQueue<>(inferenceCapacity);
+        freeSlots = new ArrayBlockingQueue<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            freeSlots.add(new FrameSlot(primary.newInputBuffer(), primary.newResults()));
+        }
+        lastResults = primary.newResults();
+        tracker = new PatchTracker(lastResults.capacity());
+
+        resequencer = new Resequencer(
+                slotCount * 2,
+                slot -> handOff(slot, decisionQueue, decisionDrops),
+                slot -> {
+                    lateDrops.incrementAndGet();
+                    freeSlots.offer(slot);
+                }
+        );
+
+        inferenceThreads = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            Detector detector = detectors.get(i);
+            inferenceThreads[i] = new Thread(() -> runInferenceStage(detector), "EchoSight-Inference-" + i);
+            inferenceThreads[i].start();
+        }
+        decisionThread = new Thread(this::runDecisionStage, "EchoSight-Decision");
+        decisionThread.start();
+    }
+
+    private static List<Detector> modelDetectors(DetectorPool pool) {
+        List<Detector> detectors = new ArrayList<>(pool.size());
+        for (int i = 0; i < pool.size(); i++) {
+            ObjectDetector detector = pool.get(i);
+            detectors.add(new Detector() {
+                @Override
+                public int inputWidth() { return detector.getSpec().inputWidth; }
+
+                @Override
+                public int inputHeight() { return detector.getSpec().inputHeight; }
+
+                @Override
+                public ByteBuffer newInputBuffer() { return detector.newInputBuffer(); }
+
+                @Override
+                public DetectionResults newResults() { return detector.newResults(); }
+
+                @Override
+                public void detect(ByteBuffer input, int cropLeft, int cropTop, int cropWidth, int cropHeight,
+                                   DetectionResults out) {
+                    detector.detect(input, cropLeft, cropTop, cropWidth, cropHeight, out);
+                }
+            });
+        }
+        return detectors;
+    }
+
+    /** Adapts the camera's Image; reused for every frame so submitting allocates nothing. */
+    private static final class CameraFrame implements Frame {
+        private final ObjectDetector preprocessor;
+        Image image;
+
+        CameraFrame(ObjectDetector preprocessor) {
+            this.preprocessor = preprocessor;
+        }
+
+        @Override
+        public int width() { return image.getWidth(); }
+
+        @Override
+        public int height() { return image.getHeight(); }
+
+        @Override
+        public void downsampleLuma(int scale, byte[] out) {
+            Image.Plane yPlane = image.getPlanes()[0];
+            ImageUtils.downsampleLuma(yPlane.getBuffer(), yPlane.getRowStride(), yPlane.getPixelStride(),
+                    image.getWidth(), image.getHeight(), scale, out);
+        }
+
+        @Override
+        public void convert(int cropLeft, int cropTop, int cropWidth, int cropHeight, ByteBuffer input) {
+            preprocessor.preprocess(image, cropLeft, cropTop, cropWidth, cropHeight, input);
+        }
+    }
+
+    // ---------- STAGE 1: CONVERSION ----------
+
+    /**
+     * Converts the frame into a free slot and queues it for inference.
+     * The image can be closed as soon as this returns.
+     *
+     * @return false if the frame was dropped
+     */
+    public boolean submit(Image image, long timestampNs) {
+        cameraFrame.image = image;
+        try {
+            return submit(cameraFrame, timestampNs);
+        } finally {
+            cameraFrame.image = null;
+        }
+    }
+
+    boolean submit(Frame frame, long timestampNs) {
+        if (!running) return false;
+        framesSubmitted.incrementAndGet();
+
+        FrameSlot slot = freeSlots.poll();
+        if (slot == null) {
+            conversionDrops.incrementAndGet();
+            return false;
+        }
+
+        slot.submittedAtNs = System.nanoTime();
+        slot.timestampNs = timestampNs;
+        slot.frameWidth = frame.width();
+        slot.frameHeight = frame.height();
+        slot.reused = false;
+
+        boolean tracking = trackingMode;
+        if (tracking) captureLuma(frame, slot);
+        else slot.lumaWidth = 0;
+
+        if (tracking && !detectionRequested && framesSinceDetection < Constants.DETECT_INTERVAL - 1) {
+            // Between detections: the decision thread tracks, no inference
+            framesSinceDetection++;
+            slot.tracked = true;
+            slot.sequence = nextSequence++;
+            resequencer.complete(slot);
+            return true;
+        }
+        framesSinceDetection = 0;
+        detectionRequested = false;
+        slot.tracked = false;
+
+        selectRegion(slot);
+        frame.convert(slot.cropLeft, slot.cropTop, slot.cropWidth, slot.cropHeight, slot.input);
+
+        slot.sequence = nextSequence++;
+        // Only this thread takes from freeSlots, so the dropped slot can't be reused before skip()
+        FrameSlot stale = handOff(slot, inferenceQueue, inferenceDrops);
+        if (stale != null) {
+            resequencer.skip(stale.sequence);
+            // The tracker would otherwise coast on boxes that never got refreshed
+            detectionRequested = true;
+        }
+        return true;
+    }
+
+    private static void captureLuma(Frame frame, FrameSlot slot) {
+        int scale = Constants.TRACK_LUMA_SCALE;
+        slot.lumaWidth = frame.width() / scale;
+        slot.lumaHeight = frame.height() / scale;
+        if (slot.luma.length < slot.lumaWidth * slot.lumaHeight) {
+            slot.luma = new byte[slot.lumaWidth * slot.lumaHeight];
+        }
+        frame.downsampleLuma(scale, slot.luma);
+    }
+
+    /**
+     * Makes the next submitted frame go through the model, whatever the
+     * detect-then-track cadence says.
+     */
+    public void requestDetection() {
+        detectionRequested = true;
+    }
+
+    private void selectRegion(FrameSlot slot) {
+        boolean fullScanDue = inferencesSinceFullScan >= Constants.FULL_SCAN_INTERVAL - 1;
+
+        if (corridorMode && !fullScanDue) {
+            corridorCrop(slot.frameWidth, slot.frameHeight, primary.inputWidth(), primary.inputHeight(), slot);
+            inferencesSinceFullScan++;
+        } else {
+            slot.region = Region.FULL_FRAME;
+            slot.cropLeft = 0;
+            slot.cropTop = 0;
+            slot.cropWidth = slot.frameWidth;
+            slot.cropHeight = slot.frameHeight;
+            inferencesSinceFullScan = 0;
+        }
+    }
+
+    /**
+     * The corridor crop: {@link Constants#CORRIDOR_LEFT} to
+     * {@link Constants#CORRIDOR_RIGHT} of the width, centred in the frame, and
+     * as tall as the model input's aspect ratio makes it (square for a square
+     * input), so the model sees objects magnified but not stretched. Narrower
+     * if the frame is not tall enough.
+     */
+    static void corridorCrop(int frameWidth, int frameHeight, int inputWidth, int inputHeight, FrameSlot slot) {
+        int width = (int) (frameWidth * (Constants.CORRIDOR_RIGHT - Constants.CORRIDOR_LEFT));
+        int height = (int) ((long) width * inputHeight / inputWidth);
+        if (height > frameHeight) {
+            height = frameHeight;
+            width = (int) ((long) height * inputWidth / inputHeight);
+        }
+        slot.region = Region.CORRIDOR;
+        slot.cropLeft = (frameWidth - width) / 2;
+        slot.cropTop = (frameHeight - height) / 2;
+        slot.cropWidth = width;
+        slot.cropHeight = height;
+    }
+
+    /**
+     * Sends a frame the motion gate skipped straight to the decision stage,
+     * which sees the last inferred detections again.
+     *
+     * @return false if the frame was dropped
+     */
+    public boolean submitReused(long timestampNs) {
+        if (!running) return false;
+        framesSubmitted.incrementAndGet();
+
+        FrameSlot slot = freeSlots.poll();
+        if (slot == null) {
+            conversionDrops.incrementAndGet();
+            return false;
+        }
+
+        slot.submittedAtNs = System.nanoTime();
+        slot.timestampNs = timestampNs;
+        slot.reused = true;
+        slot.tracked = false;
+
+        // Still goes through the resequencer so it can't overtake frames in inference
+        slot.sequence = nextSequence++;
+        resequencer.complete(slot);
+        return true;
+    }
+
+    // ---------- STAGE 2: INFERENCE ----------
+
+    private void runInferenceStage(Detector detector) {
+        while (running) {
+            FrameSlot slot;
+            try {
+                slot = inferenceQueue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            // A bad frame is dropped and logged; it must not end the worker
+            try {
+                long startNs = System.nanoTime();
+                detector.detect(slot.input, slot.cropLeft, slot.cropTop, slot.cropWidth, slot.cropHeight,
+                        slot.results);
+                long inferenceNs = System.nanoTime() - startNs;
+                recordRegionStats(slot, inferenceNs);
+                FrameScheduler frameScheduler = scheduler;
+                if (frameScheduler != null) frameScheduler.recordInferenceTime(inferenceNs);
+            } catch (Exception e) {
+                Log.e(TAG, "Inference error", e);
+                resequencer.skip(slot.sequence);
+                freeSlots.offer(slot);
+                continue;
+            }
+
+            resequencer.complete(slot);
+        }
+    }
+
+    // ---------- STAGE 3: DECISION ----------
+
+    private void runDecisionStage() {
+        while (running) {
+            FrameSlot slot;
+            try {
+                slot = decisionQueue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            boolean reused = slot.reused;
+            // A bad frame is logged and its slot recycled; it must not end the thread
+            try {
+                if (slot.tracked) {
+                    trackInto(lastResults, slot);
+                } else if (!reused) {
+                    lastResults.copyFrom(slot.results);
+                    lastFrameWidth = slot.frameWidth;
+                    lastFrameHeight = slot.frameHeight;
+                    lastCropLeft = slot.cropLeft;
+                    lastCropTop = slot.cropTop;
+                    lastCropRight = slot.cropLeft + slot.cropWidth;
+                    lastCropBottom = slot.cropTop + slot.cropHeight;
+                    // Tracking mode may have been switched on after this frame was converted
+                    if (slot.lumaWidth > 0 && trackingMode) {
+                        tracker.reset(lastResults, slot.luma, slot.lumaWidth, slot.lumaHeight,
+                                Constants.TRACK_LUMA_SCALE);
+                    }
+                }
+
+                decisionStage.onDetections(lastResults, lastCropLeft, lastCropTop, lastCropRight, lastCropBottom,
+                        lastFrameWidth, lastFrameHeight, reused);
+            } catch (Exception e) {
+                Log.e(TAG, "Decision error", e);
+            }
+
+            long latencyNs = System.nanoTime() - slot.submittedAtNs;
+            freeSlots.offer(slot);
+
+            if (reused) {
+                framesReused.incrementAndGet();
+            } else if (!slot.tracked) {
+                // End to end, queueing included: a stat only, the scheduler gets inference time
+                totalLatencyNs.addAndGet(latencyNs);
+            }
+
+            if (framesCompleted.incrementAndGet() % STATS_LOG_INTERVAL == 0) {
+                logStats();
+            }
+        }
+    }
+
+    private void trackInto(DetectionResults results, FrameSlot slot) {
+        long startNs = System.nanoTime();
+
+        float confidence = tracker.update(slot.luma, slot.lumaWidth, slot.lumaHeight);
+        tracker.writeTo(results);
+        lastFrameWidth = slot.frameWidth;
+        lastFrameHeight = slot.frameHeight;
+
+        if (confidence < Constants.TRACK_REDETECT_CONFIDENCE && !detectionRequested) {
+            detectionRequested = true;
+            earlyDetections.incrementAndGet();
+        }
+
+        framesTracked.incrementAndGet();
+        totalTrackingNs.addAndGet(System.nanoTime() - startNs);
+    }
+
+    private synchronized void recordRegionStats(FrameSlot slot, long inferenceNs) {
+        int region = slot.region.ordinal();
+        regionInferences[region]++;
+        regionInferenceNs[region] += inferenceNs;
+
+        for (int i = 0; i < slot.results.size(); i++) {
+            DetectionResult d = slot.results.get(i);
+            float size = Math.min(d.getRight() - d.getLeft(), d.getBottom() - d.getTop());
+            if (size > 0 && size < regionSmallestBoxPx[region]) {
+                regionSmallestBoxPx[region] = size;
+            }
+        }
+    }
+
+    /**
+     * Queues the slot, dropping the oldest waiting frame while the queue is full.
+     *
+     * @return the last frame dropped to make room, already back in the free pool, or null
+     */
+    private FrameSlot handOff(FrameSlot slot, BlockingQueue<FrameSlot> queue, AtomicLong drops) {
+        FrameSlot dropped = null;
+        while (!queue.offer(slot)) {
+            FrameSlot stale = queue.poll();
+            if (stale != null) {
+                drops.incrementAndGet();
+                freeSlots.offer(stale);
+                dropped = stale;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Scheduler that receives the inference time of every frame that ran the model.
+     */
+    public void setScheduler(FrameScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Turns the walking-corridor crop on or off. Off means every inference sees the full frame.
+     */
+    public void setCorridorMode(boolean enabled) {
+        corridorMode = enabled;
+    }
+
+    public boolean isCorridorMode() {
+        return corridorMode;
+    }
+
+    /**
+     * Turns detect-then-track on or off. Off means every analysed frame goes through the model.
+     */
+    public void setTrackingMode(boolean enabled) {
+        trackingMode = enabled;
+        detectionRequested = true;
+    }
+
+    public boolean isTrackingMode() {
+        return trackingMode;
+    }
+
+    /**
+     * Stops both stages and waits briefly for them, so the detectors can be
+     * closed once this returns.
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread thread : inferenceThreads) thread.interrupt();
+        decisionThread.interrupt();
+        try {
+            for (Thread thread : inferenceThreads) thread.join(500);
+            decisionThread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------- STATS ----------
+
+    public int getInferenceQueueDepth() { return inferenceQueue.size(); }
+    public int getDecisionQueueDepth() { return decisionQueue.size(); }
+    public long getFramesSubmitted() { return framesSubmitted.get(); }
+    public long getFramesCompleted() { return framesCompleted.get(); }
+    public long getConversionDrops() { return conversionDrops.get(); }
+    public long getInferenceDrops() { return inferenceDrops.get(); }
+    public long getDecisionDrops() { return decisionDrops.get(); }
+    public long getLateDrops() { return lateDrops.get(); }
+    public int getWorkerCount() { return inferenceThreads.length; }
+
+    public long getFramesReused() { return framesReused.get(); }
+
+    public long getFramesTracked() { return framesTracked.get(); }
+    public long getEarlyDetections() { return earlyDetections.get(); }
+
+    /** Average end-to-end latency of inferred (not reused or tracked) frames. */
+    public float getAverageLatencyMs() {
+        long inferred = framesCompleted.get() - framesReused.get() - framesTracked.get();
+        return inferred <= 0 ? 0f : totalLatencyNs.get() / 1e6f / inferred;
+    }
+
+    /** Average time the tracker took per tracked frame. */
+    public float getAverageTrackingMs() {
+        long tracked = framesTracked.get();
+        return tracked == 0 ? 0f : totalTrackingNs.get() / 1e6f / tracked;
+    }
+
+    public synchronized long getInferences(Region region) { return regionInferences[region.ordinal()]; }
+
+    public synchronized float getAverageInferenceMs(Region region) {
+        long count = regionInferences[region.ordinal()];
+        return count == 0 ? 0f : regionInferenceNs[region.ordinal()] / 1e6f / count;
+    }
+
+    /**
+     * Shorter side, in frame pixels, of the smallest box detected in this region
+     * (0 if nothing was detected yet).
+     */
+    public synchronized float getSmallestBoxPx(Region region) {
+        float size = regionSmallestBoxPx[region.ordinal()];
+        return size == Float.MAX_VALUE ? 0f : size;
+    }
+
+    private void logStats() {
+        Log.d(TAG, "PIPELINE → submitted=" + getFramesSubmitted()
+                + " completed=" + getFramesCompleted()
+                + " reused=" + getFramesReused()
+                + " tracked=" + getFramesTracked() + " (" + getAverageTrackingMs() + "ms, early det="
+                + getEarlyDetections() + ")"
+                + " | depth inf=" + getInferenceQueueDepth() + " dec=" + getDecisionQueueDepth()
+                + " | drops conv=" + getConversionDrops()
+                + " inf=" + getInferenceDrops() + " dec=" + getDecisionDrops() + " late=" + getLateDrops()
+                + " | workers=" + getWorkerCount()
+                + " | avg latency=" + getAverageLatencyMs() + "ms"
+                + " | full: " + getAverageInferenceMs(Region.FULL_FRAME) + "ms min "
+                + getSmallestBoxPx(Region.FULL_FRAME) + "px"
+                + " corridor: " + getAverageInferenceMs(Region.CORRIDOR) + "ms min "
+                + getSmallestBoxPx(Region.CORRIDOR) + "px"
+                + (scheduler == null ? "" : " | scheduler " + scheduler.getMode()
+                        + " interval=" + scheduler.getCurrentIntervalMs() + "ms"
+                        + " inference=" + scheduler.getInferenceMs() + "ms"
+                        + " admitted=" + scheduler.getAdmitRatio()));
+    }
+}
@@ -14,6 +14,9 @@ import androidx.lifecycle.LifecycleOwner;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class CameraManager {
 
     private final Context context;
@@ -21,13 +24,28 @@ public class CameraManager {
     private final PreviewView previewView;
     private ProcessCameraProvider cameraProvider; // Store this to unbind later
 
+    // Frame analysis runs off the main thread so it never competes with the preview or TTS
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
+    private FrameAnalyzer analyzer;
+
     public CameraManager(Context context, LifecycleOwner owner, PreviewView previewView) {
         this.context = context;
         this.lifecycleOwner = owner;
         this.previewView = previewView;
     }
+
+    /**
+     * Starts CameraX initialization ahead of time; {@link #startCamera} then
+     * gets the already initialized provider.
+     */
+    public void warmUp() {
+        ProcessCameraProvider.getInstance(context);
+    }
+
     @androidx.camera.core.ExperimentalGetImage
     public void startCamera(FrameAnalyzer analyzer) {
+        this.analyzer = analyzer;
+
         ListenableFuture<ProcessCameraProvider> future =
                 ProcessCameraProvider.getInstance(context);
 
@@ -45,10 +63,7 @@ public class CameraManager {
                                         ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                                 .build();
 
-                analysis.setAnalyzer(
-                        ContextCompat.getMainExecutor(context),
-                        analyzer
-                );
+                analysis.setAnalyzer(analysisExecutor, analyzer);
 
                 CameraSelector selector = CameraSelector.DEFAULT_BACK_CAMERA;
 
@@ -75,5 +90,14 @@ public class CameraManager {
             cameraProvider.unbindAll();
             Log.d("ECHO_SIGHT", "Camera Unbound (Stopped)");
         }
+        if (analyzer != null) {
+            analyzer.close();
+            analyzer = null;
+        }
+    }
+
+    public void release() {
+        stopCamera();
+        analysisExecutor.shutdown();
     }
 }
\ No newline at end of file
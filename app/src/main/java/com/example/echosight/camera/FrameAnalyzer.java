@@ -1,6 +1,5 @@
 package com.example.echosight.camera;
 
-import android.graphics.Bitmap;
 import android.media.Image;
 import android.util.Log;
 
@@ -9,34 +8,54 @@ import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 
-import com.example.echosight.detection.DetectionResult;
-import com.example.echosight.detection.ObjectDetector;
+import com.example.echosight.detection.DetectionResults;
+import com.example.echosight.detection.DetectorPool;
+import com.example.echosight.detection.LabelMap;
 import com.example.echosight.feedback.FeedbackController;
-import com.example.echosight.logic.DetectionFilter;
-import com.example.echosight.logic.DirectionEstimator;
+import com.example.echosight.logic.HazardMonitor;
 import com.example.echosight.logic.ProximityEstimator;
-import com.example.echosight.logic.SemanticMapper;
-import com.example.echosight.logic.ObstacleDecision;
+import com.example.echosight.utils.Constants;
 import com.example.echosight.voice.SpeechOutput;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
+/**
+ * CameraX analyzer. {@link #analyze(ImageProxy)} is the front of the
+ * {@link AnalysisPipeline} (runs on the camera's analysis executor);
+ * {@link #onDetections(DetectionResults, int, int, int, int, int, int, boolean)} is its last stage and runs
+ * on the pipeline's decision thread.
+ *
+ * After warm-up a frame allocates nothing unless it produces an
+ * announcement; the decision itself is {@link HazardMonitor}, which is
+ * checked for that by HazardMonitorTest.
+ */
 @ExperimentalGetImage
-public class FrameAnalyzer implements ImageAnalysis.Analyzer {
+public class FrameAnalyzer implements ImageAnalysis.Analyzer, AnalysisPipeline.DecisionStage {
 
     private static final String TAG = "ECHO_SIGHT";
 
-    private final ObjectDetector detector;
+    private final AnalysisPipeline pipeline;
+    private final FrameScheduler scheduler = new FrameScheduler();
+    private final MotionGate motionGate = new MotionGate();
     private final SpeechOutput speechOutput;
     private final OverlayView overlayView;
     private final FeedbackController feedbackController;
+    private final LabelMap labelMap;
+    private final HazardMonitor hazards;   // decision thread only
+    private Runnable firstAlertListener;   // decision thread only once set
 
-    private long lastSpeechTime = 0;
     private static final long SPEECH_COOLDOWN = 3000;
-    private String lastSpokenMessage = "";
     private final Random random = new Random();
 
+    private static final FeedbackController.ProximityLevel[] FEEDBACK_LEVELS = {
+            FeedbackController.ProximityLevel.FAR,
+            FeedbackController.ProximityLevel.MID,
+            FeedbackController.ProximityLevel.NEAR
+    };
+
     private static final String[] FAR_PHRASES = {
             "%s is far ahead",
             "There is a %s ahead",
@@ -56,24 +75,79 @@ public class FrameAnalyzer implements ImageAnalysis.Analyzer {
             "Watch out, %s nearby"
     };
 
+    // Indexed by ProximityEstimator.Proximity ordinal
+    private static final String[][] PHRASES = {FAR_PHRASES, MID_PHRASES, NEAR_PHRASES};
+
+    // Every alert message, formatted once: [classId + 1][proximity][phrase]
+    private final String[][][] messages;
+
     public FrameAnalyzer(
-            ObjectDetector detector,
+            DetectorPool detectors,
             SpeechOutput speechOutput,
             OverlayView overlayView,
             FeedbackController feedbackController
     ) {
-        this.detector = detector;
+        this.pipeline = new AnalysisPipeline(detectors, this);
+        this.pipeline.setScheduler(scheduler);
+        this.pipeline.setCorridorMode(Constants.CORRIDOR_MODE);
+        this.pipeline.setTrackingMode(Constants.DETECT_TRACK_MODE);
         this.speechOutput = speechOutput;
         this.overlayView = overlayView;
         this.feedbackController = feedbackController;
+        this.labelMap = detectors.primary().getLabelMap();
+        this.hazards = new HazardMonitor(detectors.primary().getSpec().numDetections, labelMap,
+                Constants.TTC_HORIZON_S, SPEECH_COOLDOWN);
+        this.messages = buildMessages(labelMap);
+
+        // Render the likeliest alerts ahead of time; anything else is cached the first time it is said
+        speechOutput.prepare(announcementsFor(labelMap, messages));
+    }
+
+    /**
+     * Runs {@code listener} on the decision thread with the first alert this
+     * analyzer gives, spoken or felt. Call before the camera is started.
+     */
+    public void setFirstAlertListener(Runnable listener) {
+        firstAlertListener = listener;
+    }
+
+    private static String[][][] buildMessages(LabelMap labelMap) {
+        String[][][] messages = new String[labelMap.size() + 1][PHRASES.length][];
+        for (int id = LabelMap.UNKNOWN; id < labelMap.size(); id++) {
+            String label = labelMap.displayName(id);
+            for (int p = 0; p < PHRASES.length; p++) {
+                messages[id + 1][p] = new String[PHRASES[p].length];
+                for (int k = 0; k < PHRASES[p].length; k++) {
+                    messages[id + 1][p][k] = String.format(PHRASES[p][k], label);
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Every alert message for people and the known obstacles, most important
+     * class and closest zone first.
+     */
+    static List<String> announcementsFor(LabelMap labelMap, String[][][] messages) {
+        List<String> announcements = new ArrayList<>();
+        for (int priority = 3; priority >= 2; priority--) {
+            for (int id = 0; id < labelMap.size(); id++) {
+                if (labelMap.priority(id) != priority) continue;
+
+                for (int p = PHRASES.length - 1; p >= 0; p--) {
+                    Collections.addAll(announcements, messages[id + 1][p]);
+                }
+            }
+        }
+        return announcements;
     }
 
     @Override
     public void analyze(@NonNull ImageProxy imageProxy) {
-        // ---------- GATEKEEPER: SPEECH SUPPRESSION ----------
-        // If the app is currently speaking (e.g., a lively description),
-        // we skip processing entirely to avoid audio clutter.
-        if (speechOutput.isSpeaking()) {
+        // ---------- GATEKEEPER: ADAPTIVE RATE ----------
+        // Only as many frames as the measured latency and current scene call for
+        if (!scheduler.shouldAnalyze(System.nanoTime())) {
             imageProxy.close();
             return;
         }
@@ -82,64 +156,20 @@ public class FrameAnalyzer implements ImageAnalysis.Analyzer {
             Image image = imageProxy.getImage();
             if (image == null) return;
 
-            // Use your utility to convert the camera frame to a Bitmap
-            Bitmap bitmap = ImageUtils.imageToBitmap(image);
-            if (bitmap == null) return;
-
-            // ---------- DETECTION ----------
-            List<DetectionResult> detections = detector.detect(bitmap);
-            if (detections == null || detections.isEmpty()) {
-                // Clear overlay if nothing is detected
-                if (overlayView != null) overlayView.post(() -> overlayView.setResults(null));
+            // ---------- GATEKEEPER: MOTION ----------
+            // Cheap luma signature on the raw Y plane; an unchanged scene reuses
+            // the last detections instead of running inference again.
+            Image.Plane yPlane = image.getPlanes()[0];
+            if (!motionGate.shouldInfer(yPlane.getBuffer(), yPlane.getRowStride(), yPlane.getPixelStride(),
+                    image.getWidth(), image.getHeight(), System.nanoTime())) {
+                pipeline.submitReused(imageProxy.getImageInfo().getTimestamp());
                 return;
             }
 
-            // ---------- OVERLAY ----------
-            if (overlayView != null) {
-                overlayView.post(() -> overlayView.setResults(detections));
-            }
-
-            // ---------- STABILITY FILTER ----------
-            DetectionResult stable = DetectionFilter.filter(detections);
-            if (stable == null) return;
-
-            // ---------- DIRECTION & PROXIMITY ----------
-            DirectionEstimator.Direction direction =
-                    DirectionEstimator.estimateDirection(stable, bitmap.getWidth());
-
-            ProximityEstimator.Proximity proximity =
-                    ProximityEstimator.estimateProximity(stable, bitmap.getWidth(), bitmap.getHeight());
-
-            // ---------- ACCESSIBILITY FEEDBACK ----------
-            try {
-                FeedbackController.ProximityLevel level =
-                        FeedbackController.ProximityLevel.valueOf(proximity.name());
-                feedbackController.handleProximity(level);
-            } catch (Exception e) {
-                Log.e(TAG, "Feedback error", e);
-            }
-
-            // ---------- SEMANTIC & OBSTACLE LOGIC ----------
-            SemanticMapper.SemanticType semanticType = SemanticMapper.classify(stable.getLabel());
-            if (semanticType == SemanticMapper.SemanticType.IGNORE) return;
-
-            if (!ObstacleDecision.isBlocking(stable, bitmap.getWidth(), bitmap.getHeight())) {
-                return;
-            }
-
-            // ---------- SPEECH OUTPUT ----------
-            long now = System.currentTimeMillis();
-            String message = buildProximityMessage(stable.getLabel(), proximity);
-
-            // Double-check isSpeaking right before calling tts.speak
-            // to catch any sudden voice commands.
-            if (!speechOutput.isSpeaking() && (now - lastSpeechTime > SPEECH_COOLDOWN || !message.equals(lastSpokenMessage))) {
-                Log.d(TAG, "LOCAL DETECTION SPEAKING → " + message);
-                speechOutput.speak(message);
-
-                lastSpeechTime = now;
-                lastSpokenMessage = message;
-            }
+            // ---------- CONVERSION ----------
+            // YUV planes go straight into the model input (no JPEG round-trip);
+            // inference and decisions continue on the pipeline's own threads.
+            pipeline.submit(image, imageProxy.getImageInfo().getTimestamp());
 
         } catch (Exception e) {
             Log.e(TAG, "Analyzer error", e);
@@ -148,31 +178,71 @@ public class FrameAnalyzer implements ImageAnalysis.Analyzer {
         }
     }
 
-    private String buildProximityMessage(
-            String label,
-            ProximityEstimator.Proximity proximity
-    ) {
-        String[] phrases;
+    @Override
+    public void onDetections(DetectionResults detections, int cropLeft, int cropTop, int cropRight, int cropBottom,
+                             int frameWidth, int frameHeight, boolean reused) {
+        // ---------- OVERLAY ----------
+        // The overlay copies what it draws, so this is safe off the UI thread
+        if (overlayView != null && !reused) overlayView.setResults(detections);
+
+        // ---------- TRACKING & OBSTACLE LOGIC ----------
+        // Frames the motion gate skipped carry no new evidence, so the tracks stay as they are.
+        // Feedback follows the nearest confirmed track; speech the most urgent blocking one.
+        // Anything in the path that will be reached within the horizon counts as NEAR,
+        // however small its box still is.
+        long nowNs = System.nanoTime();
+        boolean announce = reused
+                ? hazards.reuse(frameWidth, frameHeight, nowNs)
+                : hazards.update(detections, cropLeft, cropTop, cropRight, cropBottom,
+                        frameWidth, frameHeight, nowNs);
+        if (hazards.trackCount() == 0) {
+            scheduler.recordScene(!detections.isEmpty(), false, nowNs);
+            feedbackController.handleClear();
+            return;
+        }
+        ProximityEstimator.Proximity nearest = hazards.nearest();
+
+        // A NEAR obstacle raises the analysis rate for a while
+        scheduler.recordScene(true, nearest == ProximityEstimator.Proximity.NEAR, nowNs);
+
+        // ---------- ACCESSIBILITY FEEDBACK ----------
+        // The audio cue follows the nearest track's position and score on every frame.
+        // This only queues the state; haptics and sound run on the feedback thread.
+        feedbackController.handleFrame(FEEDBACK_LEVELS[nearest.ordinal()],
+                hazards.nearestPan(), hazards.nearestScore());
+        if (firstAlertListener != null) {
+            firstAlertListener.run();
+            firstAlertListener = null;
+        }
+
+        if (!announce) return;
 
-        switch (proximity) {
-            case FAR:
-                phrases = FAR_PHRASES;
-                break;
+        // ---------- SPEECH OUTPUT ----------
+        // Detection keeps running while anything is spoken; the speech arbiter
+        // lets NEAR and newly blocking alerts cut in and queues the rest.
+        String message = buildProximityMessage(hazards.announcedClassId(), hazards.announcedAlert());
+        Log.d(TAG, "LOCAL DETECTION SPEAKING → " + message + " (track " + hazards.announcedTrackId() + ")");
+        speechOutput.announce(message, hazards.isAnnouncementUrgent());
+    }
 
-            case MID:
-                phrases = MID_PHRASES;
-                break;
+    /**
+     * Stops the pipeline threads. Call once the analyzer is detached from the camera.
+     */
+    public void close() {
+        pipeline.shutdown();
+    }
 
-            case NEAR:
-                phrases = NEAR_PHRASES;
-                break;
+    public AnalysisPipeline getPipeline() {
+        return pipeline;
+    }
 
-            default:
-                return label + " ahead";
-        }
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
 
-        String template = phrases[random.nextInt(phrases.length)];
-        return String.format(template, label);
+    private String buildProximityMessage(int classId, ProximityEstimator.Proximity proximity) {
+        String[] phrases = messages[classId + 1][proximity.ordinal()];
+        return phrases[random.nextInt(phrases.length)];
     }
 
 }
\ No newline at end of file
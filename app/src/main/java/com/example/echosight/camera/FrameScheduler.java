@@ -0,0 +1,133 @@
+package com.example.echosight.camera;
+
+import com.example.echosight.utils.Constants;
+
+/**
+ * Decides which camera frames are worth analysing.
+ *
+ * The admitted rate is the lower of:
+ * - the mode rate (target FPS, boosted while a NEAR obstacle is tracked,
+ *   reduced after a while with no detections), and
+ * - what the measured model inference time allows within the CPU duty budget.
+ *
+ * The budget is fed only the time frames spent in the model: queueing is
+ * not CPU work, and tracked or reused frames cost next to nothing, so
+ * either would skew it away from what an admitted frame really costs.
+ *
+ * shouldAnalyze() runs on the camera thread, the record methods on the
+ * inference and decision threads.
+ */
+public class FrameScheduler {
+
+    private static final float INFERENCE_SMOOTHING = 0.2f;
+    private static final long NANOS_PER_MS = 1_000_000L;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // Camera frame timing jitters by a few ms; don't lose a whole frame period to it
+    private static final long JITTER_TOLERANCE_NS = 4 * NANOS_PER_MS;
+
+    public enum Mode {
+        IDLE,
+        NORMAL,
+        BOOST
+    }
+
+    private final long targetIntervalNs;
+    private final long boostIntervalNs;
+    private final long idleIntervalNs;
+    private final float maxDuty;
+    private final long nearHoldNs;
+    private final long idleTimeoutNs;
+
+    private float inferenceEmaNs = 0f;
+    private long lastAdmittedNs = Long.MIN_VALUE;
+    private long lastDetectionNs;
+    private long lastNearNs = Long.MIN_VALUE;
+    private long currentIntervalNs;
+    private Mode mode = Mode.NORMAL;
+
+    private long framesOffered = 0;
+    private long framesAdmitted = 0;
+
+    public FrameScheduler() {
+        this(Constants.TARGET_FPS, Constants.MAX_CPU_DUTY, Constants.NEAR_BOOST_FPS,
+                Constants.IDLE_FPS, Constants.NEAR_HOLD_MS, Constants.IDLE_TIMEOUT_MS);
+    }
+
+    public FrameScheduler(float targetFps, float maxDuty, float boostFps, float idleFps,
+                          long nearHoldMs, long idleTimeoutMs) {
+        this.targetIntervalNs = (long) (NANOS_PER_SECOND / targetFps);
+        this.boostIntervalNs = (long) (NANOS_PER_SECOND / boostFps);
+        this.idleIntervalNs = (long) (NANOS_PER_SECOND / idleFps);
+        this.maxDuty = maxDuty;
+        this.nearHoldNs = nearHoldMs * NANOS_PER_MS;
+        this.idleTimeoutNs = idleTimeoutMs * NANOS_PER_MS;
+        this.currentIntervalNs = targetIntervalNs;
+        this.lastDetectionNs = System.nanoTime();
+    }
+
+    /**
+     * @return true if the frame arriving at {@code nowNs} should go through the detector
+     */
+    public synchronized boolean shouldAnalyze(long nowNs) {
+        framesOffered++;
+        updateInterval(nowNs);
+
+        if (lastAdmittedNs != Long.MIN_VALUE && nowNs - lastAdmittedNs < currentIntervalNs - JITTER_TOLERANCE_NS) {
+            return false;
+        }
+
+        lastAdmittedNs = nowNs;
+        framesAdmitted++;
+        return true;
+    }
+
+    /**
+     * Feeds back how long one frame that ran the model spent in inference.
+     */
+    public synchronized void recordInferenceTime(long inferenceNs) {
+        if (inferenceEmaNs == 0f) {
+            inferenceEmaNs = inferenceNs;
+        } else {
+            inferenceEmaNs += INFERENCE_SMOOTHING * (inferenceNs - inferenceEmaNs);
+        }
+    }
+
+    /**
+     * Feeds back what the decision stage saw in a frame.
+     */
+    public synchronized void recordScene(boolean anyDetection, boolean nearObstacle, long nowNs) {
+        if (anyDetection) lastDetectionNs = nowNs;
+        if (nearObstacle) lastNearNs = nowNs;
+    }
+
+    private void updateInterval(long nowNs) {
+        long modeIntervalNs;
+        if (lastNearNs != Long.MIN_VALUE && nowNs - lastNearNs < nearHoldNs) {
+            mode = Mode.BOOST;
+            modeIntervalNs = boostIntervalNs;
+        } else if (nowNs - lastDetectionNs > idleTimeoutNs) {
+            mode = Mode.IDLE;
+            modeIntervalNs = idleIntervalNs;
+        } else {
+            mode = Mode.NORMAL;
+            modeIntervalNs = targetIntervalNs;
+        }
+
+        // Spend at most maxDuty of the wall clock on analysis
+        long budgetIntervalNs = (long) (inferenceEmaNs / maxDuty);
+
+        currentIntervalNs = Math.max(modeIntervalNs, budgetIntervalNs);
+    }
+
+    public synchronized Mode getMode() { return mode; }
+
+    public synchronized float getCurrentIntervalMs() { return currentIntervalNs / (float) NANOS_PER_MS; }
+
+    public synchronized float getTargetFps() { return NANOS_PER_SECOND / (float) currentIntervalNs; }
+
+    public synchronized float getInferenceMs() { return inferenceEmaNs / NANOS_PER_MS; }
+
+    public synchronized float getAdmitRatio() {
+        return framesOffered == 0 ? 1f : framesAdmitted / (float) framesOffered;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.echosight.camera;
+
+import com.example.echosight.detection.DetectionResults;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One frame in flight through {@link AnalysisPipeline}: the preprocessed model
+ * input plus the detections produced from it. Slots are pooled and recycled.
+ */
+class FrameSlot {
+    final ByteBuffer input;
+    final DetectionResults results;
+
+    int frameWidth;
+    int frameHeight;
+    long timestampNs;
+    // Position in camera order, used to put frames back in order after inference
+    long sequence;
+    long submittedAtNs;
+    // Part of the frame that was fed to the model
+    AnalysisPipeline.Region region;
+    int cropLeft;
+    int cropTop;
+    int cropWidth;
+    int cropHeight;
+    // Motion gate said nothing changed: no inference, reuse the last detections
+    boolean reused;
+    // Detect-then-track: boxes come from the tracker instead of the model
+    boolean tracked;
+    // Downsampled Y plane for the tracker, sized on first use
+    byte[] luma = new byte[0];
+    int lumaWidth;
+    int lumaHeight;
+
+    FrameSlot(ByteBuffer input, DetectionResults results) {
+        this.input = input;
+        this.results = results;
+    }
+}
@@ -1,58 +1,337 @@
 package com.example.echosight.camera;
 
-import android.graphics.Bitmap;
-import android.graphics.ImageFormat;
-import android.graphics.YuvImage;
 import android.media.Image;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 
 public class ImageUtils {
 
-    public static Bitmap imageToBitmap(Image image) {
-        try {
-            ByteBuffer yBuffer = image.getPlanes()[0].getBuffer();
-            ByteBuffer uBuffer = image.getPlanes()[1].getBuffer();
-            ByteBuffer vBuffer = image.getPlanes()[2].getBuffer();
-
-            int ySize = yBuffer.remaining();
-            int uSize = uBuffer.remaining();
-            int vSize = vBuffer.remaining();
-
-            byte[] nv21 = new byte[ySize + uSize + vSize];
-
-            yBuffer.get(nv21, 0, ySize);
-            vBuffer.get(nv21, ySize, vSize);
-            uBuffer.get(nv21, ySize + vSize, uSize);
-
-            YuvImage yuvImage =
-                    new YuvImage(
-                            nv21,
-                            ImageFormat.NV21,
-                            image.getWidth(),
-                            image.getHeight(),
-                            null
-                    );
-
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            yuvImage.compressToJpeg(
-                    new android.graphics.Rect(
-                            0,
-                            0,
-                            image.getWidth(),
-                            image.getHeight()
-                    ),
-                    70,
-                    out
-            );
-
-            byte[] bytes = out.toByteArray();
-            return android.graphics.BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-
-        } catch (Exception e) {
-            e.printStackTrace();
+    // Fixed-point (Q10) coefficients for full-range BT.601 / JFIF YCbCr → RGB,
+    // the same colour space the old NV21 → JPEG → Bitmap path decoded into.
+    private static final int CR_TO_R = 1436; // 1.402
+    private static final int CB_TO_G = 352;  // 0.344136
+    private static final int CR_TO_G = 731;  // 0.714136
+    private static final int CB_TO_B = 1815; // 1.772
+
+    /**
+     * Converts a YUV_420_888 camera frame straight into packed RGB888 bytes,
+     * resized to {@code outWidth x outHeight} (the detector's input layout).
+     *
+     * No JPEG encode/decode and no intermediate arrays: every output pixel is
+     * read directly from the Y, U and V planes using their row and pixel
+     * strides, so both planar (I420) and interleaved (NV21/NV12) chroma work.
+     * Luma is resized bilinearly, like the filtered createScaledBitmap the old
+     * path used; chroma, already at half resolution, is taken from the nearest
+     * sample.
+     *
+     * @param image     Camera frame in YUV_420_888
+     * @param out       Destination buffer, at least outWidth * outHeight * 3 bytes
+     * @param outWidth  Model input width
+     * @param outHeight Model input height
+     */
+    public static void yuvToRgb(Image image, ByteBuffer out, int outWidth, int outHeight) {
+        yuvToRgb(image, 0, 0, image.getWidth(), image.getHeight(), out, outWidth, outHeight);
+    }
+
+    /**
+     * Same as {@link #yuvToRgb(Image, ByteBuffer, int, int)} but only converts
+     * the given crop of the frame, scaled to fill the whole output.
+     */
+    public static void yuvToRgb(Image image, int cropLeft, int cropTop, int cropWidth, int cropHeight,
+                                ByteBuffer out, int outWidth, int outHeight) {
+        Image.Plane[] planes = image.getPlanes();
+
+        yuvToRgb(
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                cropLeft, cropTop, cropWidth, cropHeight,
+                out, outWidth, outHeight
+        );
+    }
+
+    /**
+     * Plane-level variant of {@link #yuvToRgb(Image, ByteBuffer, int, int)}.
+     * Reads the plane buffers with absolute gets, so their positions are left untouched.
+     */
+    public static void yuvToRgb(
+            ByteBuffer yPlane, int yRowStride, int yPixelStride,
+            ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+            int srcWidth, int srcHeight,
+            ByteBuffer out, int outWidth, int outHeight
+    ) {
+        yuvToRgb(yPlane, yRowStride, yPixelStride, uPlane, vPlane, uvRowStride, uvPixelStride,
+                0, 0, srcWidth, srcHeight, out, outWidth, outHeight);
+    }
+
+    /**
+     * Plane-level variant with a crop rectangle in frame pixels.
+     */
+    public static void yuvToRgb(
+            ByteBuffer yPlane, int yRowStride, int yPixelStride,
+            ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+            int cropLeft, int cropTop, int cropWidth, int cropHeight,
+            ByteBuffer out, int outWidth, int outHeight
+    ) {
+        yuvToRgb(yPlane, yRowStride, yPixelStride, uPlane, vPlane, uvRowStride, uvPixelStride,
+                cropLeft, cropTop, cropWidth, cropHeight, IDENTITY, out, outWidth, outHeight);
+    }
+
+    // ---------- DTYPE-SPECIALISED VARIANTS ----------
+    // Quantised and float models want different bytes for the same pixel. Rather
+    // than branching per pixel, every 0-255 channel value is mapped once through
+    // a 256-entry table built from the model's quantisation / normalisation
+    // (see detection.ModelSpec), and there is one loop per element width.
+
+    /** Channel table that writes pixels unchanged (uint8 models fed raw RGB). */
+    private static final byte[] IDENTITY = identity();
+
+    /**
+     * Converts a crop of the frame into one byte per channel, each value mapped
+     * through {@code lut} (uint8 or int8 model input).
+     */
+    public static void yuvToRgb(Image image, int cropLeft, int cropTop, int cropWidth, int cropHeight,
+                                byte[] lut, ByteBuffer out, int outWidth, int outHeight) {
+        Image.Plane[] planes = image.getPlanes();
+
+        yuvToRgb(
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                cropLeft, cropTop, cropWidth, cropHeight,
+                lut, out, outWidth, outHeight
+        );
+    }
+
+    /**
+     * Converts a crop of the frame into one float per channel, each value
+     * mapped through {@code lut} (float32 model input).
+     */
+    public static void yuvToRgb(Image image, int cropLeft, int cropTop, int cropWidth, int cropHeight,
+                                float[] lut, ByteBuffer out, int outWidth, int outHeight) {
+        Image.Plane[] planes = image.getPlanes();
+
+        yuvToRgb(
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                cropLeft, cropTop, cropWidth, cropHeight,
+                lut, out, outWidth, outHeight
+        );
+    }
+
+    /** Plane-level byte variant; {@code out} needs outWidth * outHeight * 3 bytes. */
+    public static void yuvToRgb(
+            ByteBuffer yPlane, int yRowStride, int yPixelStride,
+            ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+            int cropLeft, int cropTop, int cropWidth, int cropHeight,
+            byte[] lut, ByteBuffer out, int outWidth, int outHeight
+    ) {
+        out.rewind();
+        int cropRight = cropLeft + cropWidth - 1;
+        int cropBottom = cropTop + cropHeight - 1;
+
+        for (int oy = 0; oy < outHeight; oy++) {
+            // Chroma is half resolution already: sampled at the centre of each destination pixel
+            int sy = cropTop + ((2 * oy + 1) * cropHeight) / (2 * outHeight);
+            int uvRow = (sy >> 1) * uvRowStride;
+            int fy = sourcePosition(oy, cropHeight, outHeight);
+            int y0 = cropTop + (fy >> 8);
+            int row0 = y0 * yRowStride;
+            int row1 = Math.min(y0 + 1, cropBottom) * yRowStride;
+            int wy = fy & 0xFF;
+
+            for (int ox = 0; ox < outWidth; ox++) {
+                int sx = cropLeft + ((2 * ox + 1) * cropWidth) / (2 * outWidth);
+                int uvIndex = uvRow + (sx >> 1) * uvPixelStride;
+                int fx = sourcePosition(ox, cropWidth, outWidth);
+                int x0 = cropLeft + (fx >> 8);
+                int col0 = x0 * yPixelStride;
+                int col1 = Math.min(x0 + 1, cropRight) * yPixelStride;
+
+                int y = bilinear(yPlane, row0 + col0, row0 + col1, row1 + col0, row1 + col1, fx & 0xFF, wy);
+                int u = (uPlane.get(uvIndex) & 0xFF) - 128;
+                int v = (vPlane.get(uvIndex) & 0xFF) - 128;
+
+                int r = y + ((CR_TO_R * v) >> 10);
+                int g = y - ((CB_TO_G * u + CR_TO_G * v) >> 10);
+                int b = y + ((CB_TO_B * u) >> 10);
+
+                out.put(lut[clamp(r)]);
+                out.put(lut[clamp(g)]);
+                out.put(lut[clamp(b)]);
+            }
+        }
+
+        out.rewind();
+    }
+
+    /** Plane-level float variant; {@code out} needs outWidth * outHeight * 12 bytes. */
+    public static void yuvToRgb(
+            ByteBuffer yPlane, int yRowStride, int yPixelStride,
+            ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+            int cropLeft, int cropTop, int cropWidth, int cropHeight,
+            float[] lut, ByteBuffer out, int outWidth, int outHeight
+    ) {
+        out.rewind();
+        int cropRight = cropLeft + cropWidth - 1;
+        int cropBottom = cropTop + cropHeight - 1;
+
+        for (int oy = 0; oy < outHeight; oy++) {
+            int sy = cropTop + ((2 * oy + 1) * cropHeight) / (2 * outHeight);
+            int uvRow = (sy >> 1) * uvRowStride;
+            int fy = sourcePosition(oy, cropHeight, outHeight);
+            int y0 = cropTop + (fy >> 8);
+            int row0 = y0 * yRowStride;
+            int row1 = Math.min(y0 + 1, cropBottom) * yRowStride;
+            int wy = fy & 0xFF;
+
+            for (int ox = 0; ox < outWidth; ox++) {
+                int sx = cropLeft + ((2 * ox + 1) * cropWidth) / (2 * outWidth);
+                int uvIndex = uvRow + (sx >> 1) * uvPixelStride;
+                int fx = sourcePosition(ox, cropWidth, outWidth);
+                int x0 = cropLeft + (fx >> 8);
+                int col0 = x0 * yPixelStride;
+                int col1 = Math.min(x0 + 1, cropRight) * yPixelStride;
+
+                int y = bilinear(yPlane, row0 + col0, row0 + col1, row1 + col0, row1 + col1, fx & 0xFF, wy);
+                int u = (uPlane.get(uvIndex) & 0xFF) - 128;
+                int v = (vPlane.get(uvIndex) & 0xFF) - 128;
+
+                int r = y + ((CR_TO_R * v) >> 10);
+                int g = y - ((CB_TO_G * u + CR_TO_G * v) >> 10);
+                int b = y + ((CB_TO_B * u) >> 10);
+
+                out.putFloat(lut[clamp(r)]);
+                out.putFloat(lut[clamp(g)]);
+                out.putFloat(lut[clamp(b)]);
+            }
+        }
+
+        out.rewind();
+    }
+
+    // ---------- ARGB SOURCES ----------
+
+    /**
+     * Resizes ARGB pixels (as from Bitmap.getPixels) bilinearly into one byte
+     * per RGB channel, each value mapped through {@code lut}; the filtered
+     * equivalent of createScaledBitmap followed by packing, in one pass.
+     */
+    public static void argbToRgb(int[] pixels, int width, int height,
+                                 byte[] lut, ByteBuffer out, int outWidth, int outHeight) {
+        out.rewind();
+        for (int oy = 0; oy < outHeight; oy++) {
+            int fy = sourcePosition(oy, height, outHeight);
+            int row0 = (fy >> 8) * width;
+            int row1 = Math.min((fy >> 8) + 1, height - 1) * width;
+            int wy = fy & 0xFF;
+
+            for (int ox = 0; ox < outWidth; ox++) {
+                int fx = sourcePosition(ox, width, outWidth);
+                int x0 = fx >> 8;
+                int x1 = Math.min(x0 + 1, width - 1);
+                int wx = fx & 0xFF;
+                int p00 = pixels[row0 + x0], p01 = pixels[row0 + x1];
+                int p10 = pixels[row1 + x0], p11 = pixels[row1 + x1];
+
+                out.put(lut[blend(p00, p01, p10, p11, 16, wx, wy)]);
+                out.put(lut[blend(p00, p01, p10, p11, 8, wx, wy)]);
+                out.put(lut[blend(p00, p01, p10, p11, 0, wx, wy)]);
+            }
+        }
+        out.rewind();
+    }
+
+    /** Float variant of {@link #argbToRgb(int[], int, int, byte[], ByteBuffer, int, int)}. */
+    public static void argbToRgb(int[] pixels, int width, int height,
+                                 float[] lut, ByteBuffer out, int outWidth, int outHeight) {
+        out.rewind();
+        for (int oy = 0; oy < outHeight; oy++) {
+            int fy = sourcePosition(oy, height, outHeight);
+            int row0 = (fy >> 8) * width;
+            int row1 = Math.min((fy >> 8) + 1, height - 1) * width;
+            int wy = fy & 0xFF;
+
+            for (int ox = 0; ox < outWidth; ox++) {
+                int fx = sourcePosition(ox, width, outWidth);
+                int x0 = fx >> 8;
+                int x1 = Math.min(x0 + 1, width - 1);
+                int wx = fx & 0xFF;
+                int p00 = pixels[row0 + x0], p01 = pixels[row0 + x1];
+                int p10 = pixels[row1 + x0], p11 = pixels[row1 + x1];
+
+                out.putFloat(lut[blend(p00, p01, p10, p11, 16, wx, wy)]);
+                out.putFloat(lut[blend(p00, p01, p10, p11, 8, wx, wy)]);
+                out.putFloat(lut[blend(p00, p01, p10, p11, 0, wx, wy)]);
+            }
+        }
+        out.rewind();
+    }
+
+    /** One 8-bit channel, at {@code shift}, of four ARGB pixels blended with Q8 weights. */
+    private static int blend(int p00, int p01, int p10, int p11, int shift, int wx, int wy) {
+        int top = ((p00 >> shift) & 0xFF) * (256 - wx) + ((p01 >> shift) & 0xFF) * wx;
+        int bottom = ((p10 >> shift) & 0xFF) * (256 - wx) + ((p11 >> shift) & 0xFF) * wx;
+        return (top * (256 - wy) + bottom * wy + (1 << 15)) >> 16;
+    }
+
+    // ---------- LUMA THUMBNAIL ----------
+
+    /**
+     * Box-filters the Y plane down by {@code factor} in each direction into
+     * {@code out} ((srcWidth / factor) x (srcHeight / factor) bytes, row-major).
+     * Used by the tracker between detector runs; reads with absolute gets.
+     */
+    public static void downsampleLuma(ByteBuffer yPlane, int rowStride, int pixelStride,
+                                      int srcWidth, int srcHeight, int factor, byte[] out) {
+        int outWidth = srcWidth / factor;
+        int outHeight = srcHeight / factor;
+        int area = factor * factor;
+
+        for (int oy = 0; oy < outHeight; oy++) {
+            int rowBase = oy * factor * rowStride;
+            for (int ox = 0; ox < outWidth; ox++) {
+                int colBase = rowBase + ox * factor * pixelStride;
+
+                int sum = 0;
+                for (int dy = 0; dy < factor; dy++) {
+                    int index = colBase + dy * rowStride;
+                    for (int dx = 0; dx < factor; dx++) {
+                        sum += yPlane.get(index) & 0xFF;
+                        index += pixelStride;
+                    }
+                }
+                out[oy * outWidth + ox] = (byte) (sum / area);
+            }
         }
-        return null;
+    }
+
+    /**
+     * Where the centre of destination pixel {@code index} falls in the source,
+     * less half a pixel, in Q8 source pixels relative to the crop: the integer
+     * part is the first of the two samples to blend, the fraction the weight
+     * of the second. Clamped at the leading edge.
+     */
+    private static int sourcePosition(int index, int cropSize, int outSize) {
+        long centre = ((2L * index + 1) * cropSize << 8) / (2L * outSize);
+        return (int) Math.max(0, centre - 128);
+    }
+
+    /** Luma blended from four samples with Q8 weights, rounded. */
+    private static int bilinear(ByteBuffer plane, int i00, int i01, int i10, int i11, int wx, int wy) {
+        int top = (plane.get(i00) & 0xFF) * (256 - wx) + (plane.get(i01) & 0xFF) * wx;
+        int bottom = (plane.get(i10) & 0xFF) * (256 - wx) + (plane.get(i11) & 0xFF) * wx;
+        return (top * (256 - wy) + bottom * wy + (1 << 15)) >> 16;
+    }
+
+    private static byte[] identity() {
+        byte[] lut = new byte[256];
+        for (int i = 0; i < 256; i++) lut[i] = (byte) i;
+        return lut;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
     }
 }
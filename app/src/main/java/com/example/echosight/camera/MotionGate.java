@@ -0,0 +1,110 @@
+package com.example.echosight.camera;
+
+import com.example.echosight.utils.Constants;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pre-inference gate that skips frames which look the same as the last
+ * inferred one.
+ *
+ * Works on the raw Y plane before any RGB conversion: a coarse grid of luma
+ * samples is compared with the signature of the last frame that went through
+ * the detector. The mean level is removed first so auto-exposure drift alone
+ * doesn't count as motion. A forced refresh interval bounds how stale the
+ * reused detections can get.
+ */
+public class MotionGate {
+
+    private static final int GRID_WIDTH = 32;
+    private static final int GRID_HEIGHT = 24;
+    private static final long NANOS_PER_MS = 1_000_000L;
+
+    private final float threshold;
+    private final long refreshIntervalNs;
+
+    private final int[] current = new int[GRID_WIDTH * GRID_HEIGHT];
+    private final int[] reference = new int[GRID_WIDTH * GRID_HEIGHT];
+    private boolean hasReference = false;
+    private long lastInferenceNs;
+
+    private float lastDifference = 0f;
+    private long framesSeen = 0;
+    private long framesSkipped = 0;
+
+    public MotionGate() {
+        this(Constants.MOTION_THRESHOLD, Constants.MOTION_REFRESH_MS);
+    }
+
+    public MotionGate(float threshold, long refreshIntervalMs) {
+        this.threshold = threshold;
+        this.refreshIntervalNs = refreshIntervalMs * NANOS_PER_MS;
+    }
+
+    /**
+     * @return true if the frame should be inferred; false if the previous
+     * detections can be reused
+     */
+    public boolean shouldInfer(ByteBuffer yPlane, int rowStride, int pixelStride,
+                               int width, int height, long nowNs) {
+        framesSeen++;
+        int mean = sample(yPlane, rowStride, pixelStride, width, height, current);
+
+        boolean infer;
+        if (!hasReference || nowNs - lastInferenceNs >= refreshIntervalNs) {
+            infer = true;
+            lastDifference = Float.NaN;
+        } else {
+            lastDifference = difference(mean);
+            infer = lastDifference >= threshold;
+        }
+
+        if (infer) {
+            // Keep the mean-removed signature of the frame we are about to infer
+            for (int i = 0; i < current.length; i++) {
+                reference[i] = current[i] - mean;
+            }
+            hasReference = true;
+            lastInferenceNs = nowNs;
+        } else {
+            framesSkipped++;
+        }
+        return infer;
+    }
+
+    /** Forces the next frame through the detector. */
+    public void reset() {
+        hasReference = false;
+    }
+
+    private static int sample(ByteBuffer yPlane, int rowStride, int pixelStride,
+                              int width, int height, int[] out) {
+        int sum = 0;
+        for (int gy = 0; gy < GRID_HEIGHT; gy++) {
+            int row = ((2 * gy + 1) * height / (2 * GRID_HEIGHT)) * rowStride;
+            for (int gx = 0; gx < GRID_WIDTH; gx++) {
+                int x = (2 * gx + 1) * width / (2 * GRID_WIDTH);
+                int luma = yPlane.get(row + x * pixelStride) & 0xFF;
+                out[gy * GRID_WIDTH + gx] = luma;
+                sum += luma;
+            }
+        }
+        return sum / out.length;
+    }
+
+    private float difference(int mean) {
+        long total = 0;
+        for (int i = 0; i < current.length; i++) {
+            total += Math.abs(current[i] - mean - reference[i]);
+        }
+        return total / (float) current.length;
+    }
+
+    public float getLastDifference() { return lastDifference; }
+
+    public float getSkipRatio() {
+        return framesSeen == 0 ? 0f : framesSkipped / (float) framesSeen;
+    }
+
+    public long getFramesSkipped() { return framesSkipped; }
+}
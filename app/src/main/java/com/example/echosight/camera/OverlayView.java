@@ -4,13 +4,22 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.View;
 import com.example.echosight.detection.DetectionResult;
-import java.util.List;
+import com.example.echosight.detection.DetectionResults;
 
 public class OverlayView extends View {
-    private List<DetectionResult> results;
+    private static final int MAX_BOXES = 32;
+
+    // Snapshot of the last frame; detector results are reused, so we copy them
+    private final float[] boxes = new float[MAX_BOXES * 4];
+    private final String[] labels = new String[MAX_BOXES];
+    private final int[] percents = new int[MAX_BOXES];
+    private int count = 0;
+
+    private final RectF drawRect = new RectF();
     private final Paint paint = new Paint();
 
     public OverlayView(Context context, AttributeSet attrs) {
@@ -21,24 +30,36 @@ public class OverlayView extends View {
         paint.setTextSize(50.0f);
     }
 
-    public void setResults(List<DetectionResult> results) {
-        this.results = results;
-        invalidate(); // Force redraw on the UI thread
+    /**
+     * Copies the detections and schedules a redraw. Safe to call from any thread.
+     */
+    public void setResults(DetectionResults results) {
+        synchronized (boxes) {
+            count = results == null ? 0 : Math.min(results.size(), MAX_BOXES);
+            for (int i = 0; i < count; i++) {
+                DetectionResult res = results.get(i);
+                boxes[i * 4] = res.getLeft();
+                boxes[i * 4 + 1] = res.getTop();
+                boxes[i * 4 + 2] = res.getRight();
+                boxes[i * 4 + 3] = res.getBottom();
+                labels[i] = res.getLabel();
+                percents[i] = Math.round(res.getConfidence() * 100);
+            }
+        }
+        postInvalidate(); // Force redraw on the UI thread
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        if (results == null) return;
-
-        // Inside OverlayView.java -> onDraw()
-        for (DetectionResult res : results) {
-            // FIXED: Using getBoundingBox()
-            canvas.drawRect(res.getBoundingBox(), paint);
 
-            // FIXED: Using getLabel() and getBoundingBox()
-            canvas.drawText(res.getLabel() + " " + Math.round(res.getConfidence() * 100) + "%",
-                    res.getBoundingBox().left, res.getBoundingBox().top, paint);
+        synchronized (boxes) {
+            for (int i = 0; i < count; i++) {
+                drawRect.set(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+                canvas.drawRect(drawRect, paint);
+                canvas.drawText(labels[i] + " " + percents[i] + "%",
+                        drawRect.left, drawRect.top, paint);
+            }
         }
     }
-}
\ No newline at end of file
+}
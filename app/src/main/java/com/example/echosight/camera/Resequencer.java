@@ -0,0 +1,88 @@
+package com.example.echosight.camera;
+
+/**
+ * Puts frames back in submission order after parallel inference.
+ *
+ * Every frame gets a sequence number when it enters the pipeline (in camera
+ * timestamp order). Workers may finish out of order; slots are held here
+ * until all earlier sequence numbers have either completed or been
+ * {@link #skip skipped} (dropped on the way). A frame that turns up after
+ * its turn was given away is handed to the late sink instead.
+ */
+class Resequencer {
+
+    interface Sink {
+        void accept(FrameSlot slot);
+    }
+
+    private final FrameSlot[] pending;
+    private final boolean[] skipped;
+    private final Sink inOrder;
+    private final Sink late;
+
+    private long next = 0;
+
+    /**
+     * @param window  how many sequence numbers may be outstanding at once;
+     *                beyond that the oldest gap is given up on
+     * @param inOrder receives slots in sequence order
+     * @param late    receives slots whose turn has already passed
+     */
+    Resequencer(int window, Sink inOrder, Sink late) {
+        this.pending = new FrameSlot[window];
+        this.skipped = new boolean[window];
+        this.inOrder = inOrder;
+        this.late = late;
+    }
+
+    synchronized void complete(FrameSlot slot) {
+        long sequence = slot.sequence;
+        if (sequence < next) {
+            late.accept(slot);
+            return;
+        }
+
+        makeRoom(sequence);
+        pending[index(sequence)] = slot;
+        drain();
+    }
+
+    /** The frame with this sequence number will never complete. */
+    synchronized void skip(long sequence) {
+        if (sequence < next) return;
+
+        makeRoom(sequence);
+        skipped[index(sequence)] = true;
+        drain();
+    }
+
+    private void makeRoom(long sequence) {
+        while (sequence - next >= pending.length) {
+            // Oldest frame is still in flight and holding everything up: give up on it
+            skipped[index(next)] = false;
+            next++;
+            drain();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            int i = index(next);
+            if (pending[i] != null) {
+                FrameSlot slot = pending[i];
+                pending[i] = null;
+                next++;
+                inOrder.accept(slot);
+            } else if (skipped[i]) {
+                skipped[i] = false;
+                next++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % pending.length);
+    }
+}
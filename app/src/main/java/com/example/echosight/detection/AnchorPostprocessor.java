@@ -0,0 +1,250 @@
+package com.example.echosight.detection;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Decodes models that emit raw candidates without built-in NMS (YOLOv8
+ * style exports): one output of cx, cy, w, h and one score per class for
+ * every candidate, either [1, 4 + classes, candidates] or transposed.
+ * Layouts with an objectness channel before the class scores (YOLOv5) are
+ * not supported.
+ *
+ * Works straight on the output buffer in three steps:
+ * <ol>
+ *   <li>best class per candidate, keeping only those above the score
+ *       threshold; boxes of everything else are never read</li>
+ *   <li>survivors sorted by score as packed (score bits, index) longs</li>
+ *   <li>greedy class-aware NMS against the boxes kept so far, stopping at
+ *       maxDetections</li>
+ * </ol>
+ * All scratch space is sized once for the full candidate count, so decoding
+ * allocates nothing and boxes nothing.
+ */
+class AnchorPostprocessor implements Postprocessor {
+
+    private final ByteBuffer output;
+    private final FloatBuffer values;
+    private final Map<Integer, Object> outputs;
+    private final LabelMap labelMap;
+
+    private final int candidates;
+    private final int classes;
+    private final boolean channelsFirst;
+    private final float boxScaleX;
+    private final float boxScaleY;
+    private final float scoreThreshold;
+    private final float iouThreshold;
+    private final int maxDetections;
+
+    // ---------- SCRATCH ----------
+    private final float[] bestScores;
+    private final int[] bestClasses;
+    private final long[] order;            // score bits << 32 | candidate index
+
+    // ---------- KEPT (normalised l, t, r, b) ----------
+    private final float[] keptBoxes;
+    private final float[] keptScores;
+    private final int[] keptClasses;
+    private int keptCount = 0;
+
+    AnchorPostprocessor(Interpreter interpreter, ModelSpec spec, LabelMap labelMap) {
+        this(ObjectDetector.allocate(interpreter.getOutputTensor(0)), spec.anchorCount, spec.anchorClasses,
+                spec.anchorChannelsFirst, spec.normalizedBoxes ? 1 : spec.inputWidth,
+                spec.normalizedBoxes ? 1 : spec.inputHeight,
+                spec.scoreThreshold, spec.iouThreshold, spec.numDetections, labelMap);
+    }
+
+    /**
+     * @param boxUnitsX model box units per input width (1 for normalised boxes)
+     * @param boxUnitsY model box units per input height
+     */
+    AnchorPostprocessor(ByteBuffer output, int candidates, int classes, boolean channelsFirst,
+                        float boxUnitsX, float boxUnitsY,
+                        float scoreThreshold, float iouThreshold, int maxDetections, LabelMap labelMap) {
+        this.output = output.order(ByteOrder.nativeOrder());
+        this.values = this.output.asFloatBuffer();
+        this.outputs = Collections.<Integer, Object>singletonMap(0, this.output);
+        this.labelMap = labelMap;
+
+        this.candidates = candidates;
+        this.classes = classes;
+        this.channelsFirst = channelsFirst;
+        this.boxScaleX = 1f / boxUnitsX;
+        this.boxScaleY = 1f / boxUnitsY;
+        this.scoreThreshold = scoreThreshold;
+        this.iouThreshold = iouThreshold;
+        this.maxDetections = maxDetections;
+
+        bestScores = new float[candidates];
+        bestClasses = new int[candidates];
+        order = new long[candidates];
+
+        keptBoxes = new float[maxDetections * 4];
+        keptScores = new float[maxDetections];
+        keptClasses = new int[maxDetections];
+    }
+
+    @Override
+    public Map<Integer, Object> outputs() {
+        return outputs;
+    }
+
+    @Override
+    public void rewind() {
+        output.rewind();
+    }
+
+    @Override
+    public int maxDetections() {
+        return maxDetections;
+    }
+
+    @Override
+    public void decode(int offsetX, int offsetY, int cropWidth, int cropHeight, DetectionResults results) {
+        run();
+
+        results.clear();
+        for (int k = 0; k < keptCount; k++) {
+            int classId = labelMap.classIdFor(keptClasses[k]);
+            results.add(offsetX + keptBoxes[k * 4] * cropWidth,
+                    offsetY + keptBoxes[k * 4 + 1] * cropHeight,
+                    offsetX + keptBoxes[k * 4 + 2] * cropWidth,
+                    offsetY + keptBoxes[k * 4 + 3] * cropHeight,
+                    keptScores[k], classId, labelMap.displayName(classId));
+        }
+    }
+
+    /**
+     * Score filter, sort and NMS on the current output.
+     *
+     * @return the number of detections kept
+     */
+    int run() {
+        int survivors = channelsFirst ? bestClassChannelsFirst() : bestClassChannelsLast();
+
+        // Scores are positive, so their IEEE bits sort like the values
+        Arrays.sort(order, 0, survivors);
+
+        keptCount = 0;
+        for (int s = survivors - 1; s >= 0 && keptCount < maxDetections; s--) {
+            int n = (int) (order[s] & 0xFFFFFFFFL);
+            suppressOrKeep(n);
+        }
+        return keptCount;
+    }
+
+    // Class-major: every pass reads one contiguous row of the output
+    private int bestClassChannelsFirst() {
+        float floor = Math.nextDown(scoreThreshold);
+        Arrays.fill(bestScores, floor);
+        Arrays.fill(bestClasses, -1);
+
+        for (int c = 0; c < classes; c++) {
+            int row = (4 + c) * candidates;
+            for (int n = 0; n < candidates; n++) {
+                float score = values.get(row + n);
+                if (score > bestScores[n]) {
+                    bestScores[n] = score;
+                    bestClasses[n] = c;
+                }
+            }
+        }
+
+        int survivors = 0;
+        for (int n = 0; n < candidates; n++) {
+            if (bestClasses[n] >= 0) order[survivors++] = pack(bestScores[n], n);
+        }
+        return survivors;
+    }
+
+    private int bestClassChannelsLast() {
+        int stride = 4 + classes;
+        int survivors = 0;
+
+        for (int n = 0; n < candidates; n++) {
+            int base = n * stride + 4;
+            float best = Math.nextDown(scoreThreshold);
+            int bestClass = -1;
+            for (int c = 0; c < classes; c++) {
+                float score = values.get(base + c);
+                if (score > best) {
+                    best = score;
+                    bestClass = c;
+                }
+            }
+            if (bestClass < 0) continue;
+
+            bestScores[n] = best;
+            bestClasses[n] = bestClass;
+            order[survivors++] = pack(best, n);
+        }
+        return survivors;
+    }
+
+    private static long pack(float score, int index) {
+        return ((long) Float.floatToIntBits(score) << 32) | index;
+    }
+
+    private void suppressOrKeep(int n) {
+        float cx;
+        float cy;
+        float w;
+        float h;
+        if (channelsFirst) {
+            cx = values.get(n);
+            cy = values.get(candidates + n);
+            w = values.get(2 * candidates + n);
+            h = values.get(3 * candidates + n);
+        } else {
+            int base = n * (4 + classes);
+            cx = values.get(base);
+            cy = values.get(base + 1);
+            w = values.get(base + 2);
+            h = values.get(base + 3);
+        }
+        float left = (cx - w * 0.5f) * boxScaleX;
+        float top = (cy - h * 0.5f) * boxScaleY;
+        float right = (cx + w * 0.5f) * boxScaleX;
+        float bottom = (cy + h * 0.5f) * boxScaleY;
+        float area = (right - left) * (bottom - top);
+        int cls = bestClasses[n];
+
+        for (int k = 0; k < keptCount; k++) {
+            if (keptClasses[k] != cls) continue;
+
+            int base = k * 4;
+            float iw = Math.min(right, keptBoxes[base + 2]) - Math.max(left, keptBoxes[base]);
+            if (iw <= 0f) continue;
+            float ih = Math.min(bottom, keptBoxes[base + 3]) - Math.max(top, keptBoxes[base + 1]);
+            if (ih <= 0f) continue;
+
+            float intersection = iw * ih;
+            float keptArea = (keptBoxes[base + 2] - keptBoxes[base]) * (keptBoxes[base + 3] - keptBoxes[base + 1]);
+            if (intersection > iouThreshold * (area + keptArea - intersection)) return;
+        }
+
+        int k = keptCount++;
+        keptBoxes[k * 4] = left;
+        keptBoxes[k * 4 + 1] = top;
+        keptBoxes[k * 4 + 2] = right;
+        keptBoxes[k * 4 + 3] = bottom;
+        keptScores[k] = bestScores[n];
+        keptClasses[k] = cls;
+    }
+
+    // ---------- KEPT DETECTIONS (after run) ----------
+
+    float keptLeft(int k) { return keptBoxes[k * 4]; }
+    float keptTop(int k) { return keptBoxes[k * 4 + 1]; }
+    float keptRight(int k) { return keptBoxes[k * 4 + 2]; }
+    float keptBottom(int k) { return keptBoxes[k * 4 + 3]; }
+    float keptScore(int k) { return keptScores[k]; }
+    int keptClass(int k) { return keptClasses[k]; }
+}
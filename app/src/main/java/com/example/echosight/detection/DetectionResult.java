@@ -1,19 +1,57 @@
 package com.example.echosight.detection;
 
-import android.graphics.RectF;
-
+/**
+ * One detection or track. The box is kept as plain floats (px) so pooled
+ * results can be refilled without touching android.graphics.
+ */
 public class DetectionResult {
-    private final String title;
-    private final float confidence;
-    private final RectF location;
+    /** Track id of raw detections that don't belong to a track. */
+    public static final int NO_TRACK = -1;
 
-    public DetectionResult(RectF location, float confidence, String title) {
-        this.title = title;
+    private int classId;
+    private int trackId = NO_TRACK;
+    private float timeToCollision = Float.POSITIVE_INFINITY;
+    private String title;
+    private float confidence;
+    private float left;
+    private float top;
+    private float right;
+    private float bottom;
+
+    /**
+     * @param classId id in the detector's {@link LabelMap}
+     * @param title   display name of that class (from the same LabelMap)
+     */
+    public DetectionResult(float left, float top, float right, float bottom, float confidence, int classId,
+                           String title) {
+        set(left, top, right, bottom, confidence, classId, title, NO_TRACK, Float.POSITIVE_INFINITY);
+    }
+
+    // Used by DetectionResults to refill pooled instances in place
+    void set(float left, float top, float right, float bottom, float confidence, int classId, String title,
+             int trackId, float timeToCollision) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
         this.confidence = confidence;
-        this.location = location;
+        this.classId = classId;
+        this.title = title;
+        this.trackId = trackId;
+        this.timeToCollision = timeToCollision;
     }
 
+    /** Compare and look up classes by id; the label is only for display and speech. */
+    public int getClassId() { return classId; }
     public String getLabel() { return title; }
+    /** Persistent id from logic.ObjectTracker, or NO_TRACK for a raw detection. */
+    public int getTrackId() { return trackId; }
+    /** Seconds until predicted contact (tracks only), or positive infinity. */
+    public float getTimeToCollision() { return timeToCollision; }
     public float getConfidence() { return confidence; }
-    public RectF getBoundingBox() { return location; }
-}
\ No newline at end of file
+    /** Box edges in frame pixels. */
+    public float getLeft() { return left; }
+    public float getTop() { return top; }
+    public float getRight() { return right; }
+    public float getBottom() { return bottom; }
+}
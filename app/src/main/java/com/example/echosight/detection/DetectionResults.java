@@ -0,0 +1,66 @@
+package com.example.echosight.detection;
+
+
+/**
+ * Reusable, fixed-capacity container for the detections of one frame.
+ *
+ * The {@link DetectionResult} instances are pooled and refilled in place,
+ * so callers must copy anything they want to keep beyond the next frame.
+ * Only producers (the detector and the trackers) fill it.
+ */
+public class DetectionResults {
+
+    private final DetectionResult[] items;
+    private int count = 0;
+
+    public DetectionResults(int capacity) {
+        items = new DetectionResult[capacity];
+        for (int i = 0; i < capacity; i++) {
+            items[i] = new DetectionResult(0f, 0f, 0f, 0f, 0f, LabelMap.UNKNOWN, null);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public DetectionResult get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + count);
+        }
+        return items[index];
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    /** Replaces the contents with a copy of {@code other}. */
+    public void copyFrom(DetectionResults other) {
+        count = 0;
+        for (int i = 0; i < other.count && i < items.length; i++) {
+            DetectionResult src = other.items[i];
+            add(src.getLeft(), src.getTop(), src.getRight(), src.getBottom(), src.getConfidence(), src.getClassId(), src.getLabel(),
+                    src.getTrackId(), src.getTimeToCollision());
+        }
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    void add(float left, float top, float right, float bottom, float confidence, int classId, String label) {
+        add(left, top, right, bottom, confidence, classId, label, DetectionResult.NO_TRACK, Float.POSITIVE_INFINITY);
+    }
+
+    /** Appends a result; ignored once the container is full. */
+    public void add(float left, float top, float right, float bottom, float confidence, int classId, String label,
+                    int trackId, float timeToCollision) {
+        if (count == items.length) return;
+        items[count++].set(left, top, right, bottom, confidence, classId, label, trackId, timeToCollision);
+    }
+}
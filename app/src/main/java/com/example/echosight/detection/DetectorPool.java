@@ -0,0 +1,98 @@
+package com.example.echosight.detection;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A fixed set of {@link ObjectDetector}s sharing one memory-mapped model
+ * (the one selected in {@link ModelRegistry}) and label list, so several frames can be in inference at once.
+ *
+ * Each detector has its own interpreter and buffers and must only be used by
+ * one thread at a time (AnalysisPipeline gives each one its own worker).
+ * The cores are split across the pool and the interpreter options are tuned
+ * within one detector's share, so the interpreters don't oversubscribe the
+ * cores and the tuner times them the way they will run.
+ */
+public class DetectorPool {
+
+    private static final String TAG = "ECHO_SIGHT";
+
+    private final List<ObjectDetector> detectors;
+
+    public DetectorPool(Context context, int size) throws IOException {
+        this(context, size, false);
+    }
+
+    /**
+     * @param forceRetune re-run the interpreter options benchmark even if a
+     *                    result is saved for this device, model and pool size
+     */
+    public DetectorPool(Context context, int size, boolean forceRetune) throws IOException {
+        ModelDescriptor descriptor = ModelRegistry.load(context);
+        ByteBuffer model = ObjectDetector.loadModel(context, descriptor.modelPath);
+        LabelMap labels = ObjectDetector.loadLabels(context, descriptor);
+
+        // Never more interpreters than cores
+        int cores = Runtime.getRuntime().availableProcessors();
+        int poolSize = Math.max(1, Math.min(size, cores));
+        int threadBudget = Math.max(1, cores / poolSize);
+
+        InterpreterTuner tuner = new InterpreterTuner(context);
+        InterpreterTuner.Config perDetector = tuner.getConfig(model, threadBudget, forceRetune);
+        Log.d(TAG, "TUNER: " + perDetector + " (at most " + threadBudget + " threads each)\n"
+                + tuner.getReport(model, threadBudget));
+
+        List<ObjectDetector> list = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            list.add(new ObjectDetector(model, descriptor, labels, perDetector));
+        }
+        detectors = Collections.unmodifiableList(list);
+
+        Log.d(TAG, "DETECTOR POOL: " + poolSize + " x (" + perDetector + ")");
+    }
+
+    /** Wraps a single detector, i.e. a pool of size 1. */
+    public DetectorPool(ObjectDetector detector) {
+        detectors = Collections.singletonList(detector);
+    }
+
+    /**
+     * Runs {@code runs} inferences on a blank input through every detector, so
+     * the interpreters' lazy tensor allocation happens before the first real frame.
+     * The blank frame is taken to be the model's own input size.
+     */
+    public void warmUp(int runs) {
+        for (ObjectDetector detector : detectors) {
+            ByteBuffer input = detector.newInputBuffer();
+            DetectionResults results = detector.newResults();
+            ModelSpec spec = detector.getSpec();
+            for (int i = 0; i < runs; i++) {
+                detector.detect(input, spec.inputWidth, spec.inputHeight, results);
+            }
+        }
+    }
+
+    public int size() {
+        return detectors.size();
+    }
+
+    public ObjectDetector get(int index) {
+        return detectors.get(index);
+    }
+
+    /** Any detector can preprocess; this one is used for that and for sizing buffers. */
+    public ObjectDetector primary() {
+        return detectors.get(0);
+    }
+
+    /** Closes every detector. Call only once the pipeline's threads have stopped. */
+    public void close() {
+        for (ObjectDetector detector : detectors) detector.close();
+    }
+}
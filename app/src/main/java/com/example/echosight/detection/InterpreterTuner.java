@@ -0,0 +1,230 @@
+package com.example.echosight.detection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Picks the fastest {@link Interpreter.Options} for this phone.
+ *
+ * On first launch every candidate (thread count × XNNPACK × FP16 relaxation)
+ * is benchmarked on the bundled model with a synthetic input. The winner is
+ * persisted keyed by device model, model file hash and thread budget, so
+ * later launches only pay for hashing the model file. Swapping the model re-runs
+ * the search. Callers log {@link #getReport} to see the measured candidates.
+ */
+public class InterpreterTuner {
+
+    private static final String PREFS = "interpreter_tuner";
+    private static final String KEY_REPORT_SUFFIX = "|report";
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int TIMED_RUNS = 5;
+
+    /** One candidate configuration. */
+    public static final class Config {
+        public final int numThreads;
+        public final boolean useXnnpack;
+        public final boolean allowFp16;
+
+        public Config(int numThreads, boolean useXnnpack, boolean allowFp16) {
+            this.numThreads = numThreads;
+            this.useXnnpack = useXnnpack;
+            this.allowFp16 = allowFp16;
+        }
+
+        public Interpreter.Options toOptions() {
+            return new Interpreter.Options()
+                    .setNumThreads(numThreads)
+                    .setUseXNNPACK(useXnnpack)
+                    .setAllowFp16PrecisionForFp32(allowFp16);
+        }
+
+        String encode() {
+            return numThreads + "," + useXnnpack + "," + allowFp16;
+        }
+
+        static Config decode(String value) {
+            String[] parts = value.split(",");
+            return new Config(
+                    Integer.parseInt(parts[0]),
+                    Boolean.parseBoolean(parts[1]),
+                    Boolean.parseBoolean(parts[2])
+            );
+        }
+
+        @Override
+        public String toString() {
+            return "threads=" + numThreads + " xnnpack=" + useXnnpack + " fp16=" + allowFp16;
+        }
+    }
+
+    /** Times one candidate; the real one runs the interpreter, tests substitute a fake. */
+    interface Benchmark {
+        float run(ByteBuffer model, Config config) throws Exception;
+    }
+
+    private final SharedPreferences prefs;
+    private final String device;
+    private final Benchmark benchmark;
+
+    public InterpreterTuner(Context context) {
+        this(context.getSharedPreferences(PREFS, Context.MODE_PRIVATE), Build.MODEL, InterpreterTuner::benchmark);
+    }
+
+    InterpreterTuner(SharedPreferences prefs, String device, Benchmark benchmark) {
+        this.prefs = prefs;
+        this.device = device;
+        this.benchmark = benchmark;
+    }
+
+    /** Tunes for a single interpreter that may use every core. */
+    public Config getConfig(ByteBuffer model, boolean forceRetune) {
+        return getConfig(model, Runtime.getRuntime().availableProcessors(), forceRetune);
+    }
+
+    /**
+     * Returns the persisted configuration for this device, model and thread
+     * budget, or runs the benchmark if there is none (or {@code forceRetune}
+     * is set). Only candidates with at most {@code maxThreads} threads are
+     * tried, so a pooled interpreter is timed the way it will run.
+     */
+    public Config getConfig(ByteBuffer model, int maxThreads, boolean forceRetune) {
+        String key = key(model, maxThreads);
+
+        StringBuilder report = new StringBuilder();
+        String saved = prefs.getString(key, null);
+        if (saved != null && !forceRetune) {
+            try {
+                return Config.decode(saved);
+            } catch (RuntimeException e) {
+                report.append("discarded bad entry ").append(saved).append('\n');
+            }
+        }
+
+        Config best = tune(model, maxThreads, report);
+
+        prefs.edit()
+                .putString(key, best.encode())
+                .putString(key + KEY_REPORT_SUFFIX, report.toString())
+                .apply();
+
+        return best;
+    }
+
+    /**
+     * Measured numbers from the last tuning run for this device, model and
+     * thread budget, one line per candidate, or null if it was never tuned.
+     */
+    public String getReport(ByteBuffer model, int maxThreads) {
+        return prefs.getString(key(model, maxThreads) + KEY_REPORT_SUFFIX, null);
+    }
+
+    private String key(ByteBuffer model, int maxThreads) {
+        return device + "|" + hash(model) + "|" + maxThreads;
+    }
+
+    private Config tune(ByteBuffer model, int maxThreads, StringBuilder report) {
+        Config best = null;
+        float bestMs = Float.MAX_VALUE;
+
+        for (Config candidate : candidates(maxThreads)) {
+            float ms;
+            try {
+                ms = benchmark.run(model, candidate);
+            } catch (Exception e) {
+                // Some delegates refuse some models; just skip the candidate
+                report.append(candidate).append(": failed (").append(e.getMessage()).append(")\n");
+                continue;
+            }
+
+            report.append(candidate).append(": ").append(ms).append(" ms\n");
+            if (ms < bestMs) {
+                bestMs = ms;
+                best = candidate;
+            }
+        }
+
+        return best != null ? best : new Config(1, true, false);
+    }
+
+    private static List<Config> candidates(int maxThreads) {
+        List<Config> configs = new ArrayList<>();
+
+        for (int threads = 1; threads <= Math.min(maxThreads, 8); threads *= 2) {
+            for (boolean xnnpack : new boolean[]{true, false}) {
+                for (boolean fp16 : new boolean[]{false, true}) {
+                    configs.add(new Config(threads, xnnpack, fp16));
+                }
+            }
+        }
+        return configs;
+    }
+
+    /** Median latency of TIMED_RUNS inferences on a random input. */
+    private static float benchmark(ByteBuffer model, Config config) {
+        Interpreter interpreter = new Interpreter(model, config.toOptions());
+        try {
+            Tensor inputTensor = interpreter.getInputTensor(0);
+            ByteBuffer input = ByteBuffer.allocateDirect(inputTensor.numBytes()).order(ByteOrder.nativeOrder());
+            byte[] noise = new byte[inputTensor.numBytes()];
+            new Random(42).nextBytes(noise);
+            input.put(noise);
+
+            Map<Integer, Object> outputs = new HashMap<>();
+            for (int i = 0; i < interpreter.getOutputTensorCount(); i++) {
+                Tensor tensor = interpreter.getOutputTensor(i);
+                outputs.put(i, ByteBuffer.allocateDirect(tensor.numBytes()).order(ByteOrder.nativeOrder()));
+            }
+            Object[] inputs = {input};
+
+            long[] timings = new long[TIMED_RUNS];
+            for (int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++) {
+                input.rewind();
+                for (Object output : outputs.values()) ((ByteBuffer) output).rewind();
+
+                long start = System.nanoTime();
+                interpreter.runForMultipleInputsOutputs(inputs, outputs);
+                if (run >= WARMUP_RUNS) timings[run - WARMUP_RUNS] = System.nanoTime() - start;
+            }
+
+            Arrays.sort(timings);
+            return timings[TIMED_RUNS / 2] / 1e6f;
+        } finally {
+            interpreter.close();
+        }
+    }
+
+    /** SHA-256 of the model bytes, so a swapped model triggers a new search. */
+    static String hash(ByteBuffer model) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer bytesToHash = model.duplicate();
+            bytesToHash.rewind();
+            digest.update(bytesToHash);
+            byte[] bytes = digest.digest();
+
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", bytes[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return "model-" + model.capacity();
+        }
+    }
+}
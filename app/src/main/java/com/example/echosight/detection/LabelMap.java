@@ -0,0 +1,84 @@
+package com.example.echosight.detection;
+
+import com.example.echosight.logic.SemanticMapper;
+
+import java.util.List;
+
+/**
+ * The model's classes as compact ids with everything the per-frame path
+ * needs precomputed into arrays: semantic type, obstacle priority and the
+ * name to speak. Built once when the label file loads, so after that no
+ * frame hashes or compares a string. A new label file only changes the data.
+ *
+ * A class id is the class index the model outputs; the descriptor's label
+ * offset is applied here, once.
+ */
+public class LabelMap {
+
+    /** Class id of detections whose class is outside the label file. */
+    public static final int UNKNOWN = -1;
+
+    private static final String UNKNOWN_NAME = "Unknown";
+
+    private final String[] names;
+    private final SemanticMapper.SemanticType[] types;
+    private final int[] priorities;
+
+    private final SemanticMapper.SemanticType unknownType;
+    private final int unknownPriority;
+
+    public LabelMap(List<String> labels, int labelOffset) {
+        if (labelOffset < 0) {
+            throw new IllegalArgumentException("Negative label offset " + labelOffset);
+        }
+        int size = Math.max(0, labels.size() - labelOffset);
+        names = new String[size];
+        types = new SemanticMapper.SemanticType[size];
+        priorities = new int[size];
+
+        for (int id = 0; id < size; id++) {
+            String label = labels.get(id + labelOffset).trim();
+            names[id] = displayName(label);
+            types[id] = SemanticMapper.classify(label);
+            priorities[id] = SemanticMapper.priority(label);
+        }
+
+        unknownType = SemanticMapper.classify(UNKNOWN_NAME);
+        unknownPriority = SemanticMapper.priority(UNKNOWN_NAME);
+    }
+
+    /** Maps the model's raw class output to a class id. */
+    public int classIdFor(int modelClass) {
+        return modelClass >= 0 && modelClass < names.length ? modelClass : UNKNOWN;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /** Name used in speech and on the overlay. */
+    public String displayName(int classId) {
+        return classId == UNKNOWN ? UNKNOWN_NAME : names[classId];
+    }
+
+    public SemanticMapper.SemanticType semanticType(int classId) {
+        return classId == UNKNOWN ? unknownType : types[classId];
+    }
+
+    public int priority(int classId) {
+        return classId == UNKNOWN ? unknownPriority : priorities[classId];
+    }
+
+    /** Class id of a label name, or UNKNOWN. Linear; for setup code, not per frame. */
+    public int classIdOf(String name) {
+        for (int id = 0; id < names.length; id++) {
+            if (names[id].equals(name)) return id;
+        }
+        return UNKNOWN;
+    }
+
+    // Placeholder lines ("???") in COCO label files still need something speakable
+    private static String displayName(String label) {
+        return label.isEmpty() || label.equals("???") ? "object" : label;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.echosight.detection;
+
+import com.example.echosight.utils.Constants;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * What the interpreter can't tell us about a model, read from a small JSON
+ * file shipped next to it ({@code detect.tflite} → {@code detect.json}):
+ *
+ * <pre>
+ * {
+ *   "labels": "labelmap.txt",
+ *   "labelOffset": 1,
+ *   "scoreThreshold": 0.5,
+ *   "outputs": { "boxes": 0, "classes": 1, "scores": 2, "count": 3 },
+ *   "normalization": { "mean": 127.5, "std": 127.5 },
+ *   "postprocess": { "type": "ssd", "iouThreshold": 0.45, "maxDetections": 10, "normalizedBoxes": true }
+ * }
+ * </pre>
+ *
+ * Every field is optional. Missing output indices are inferred from the
+ * tensor shapes and a missing normalization falls back to the usual
+ * convention for the input dtype (see {@link ModelSpec}). The postprocess
+ * type is "ssd" for models with the 4-tensor detection postprocess op, or
+ * "anchors" for models that emit raw candidates without NMS (YOLO-style
+ * [1, 4 + classes, candidates] output); the other postprocess fields only
+ * apply to "anchors".
+ */
+public class ModelDescriptor {
+
+    /** Marks an output index that should be inferred from the tensors. */
+    public static final int AUTO = -1;
+
+    public static final String POSTPROCESS_SSD = "ssd";
+    public static final String POSTPROCESS_ANCHORS = "anchors";
+
+    private static final float DEFAULT_IOU_THRESHOLD = 0.45f;
+    private static final int DEFAULT_MAX_DETECTIONS = 10;
+
+    public final String modelPath;
+    public final String labelPath;
+    /** Added to the model's class id to index the label file (1 for a "???" background line). */
+    public final int labelOffset;
+    public final float scoreThreshold;
+
+    public final int boxesIndex;
+    public final int classesIndex;
+    public final int scoresIndex;
+    public final int countIndex;
+
+    /** Pixel normalization, or NaN to use the dtype's default. */
+    public final float mean;
+    public final float std;
+
+    /** POSTPROCESS_SSD or POSTPROCESS_ANCHORS. */
+    public final String postprocess;
+    public final float iouThreshold;
+    public final int maxDetections;
+    /** Whether raw anchor boxes are in 0-1 rather than model input pixels. */
+    public final boolean normalizedBoxes;
+
+    ModelDescriptor(String modelPath, String labelPath, int labelOffset, float scoreThreshold,
+                    int boxesIndex, int classesIndex, int scoresIndex, int countIndex,
+                    float mean, float std,
+                    String postprocess, float iouThreshold, int maxDetections, boolean normalizedBoxes) {
+        this.modelPath = modelPath;
+        this.labelPath = labelPath;
+        this.labelOffset = labelOffset;
+        this.scoreThreshold = scoreThreshold;
+        this.boxesIndex = boxesIndex;
+        this.classesIndex = classesIndex;
+        this.scoresIndex = scoresIndex;
+        this.countIndex = countIndex;
+        this.mean = mean;
+        this.std = std;
+        this.postprocess = postprocess;
+        this.iouThreshold = iouThreshold;
+        this.maxDetections = maxDetections;
+        this.normalizedBoxes = normalizedBoxes;
+    }
+
+    /** Descriptor for a model shipped without one: Constants and inferred layout. */
+    public static ModelDescriptor defaults(String modelPath) {
+        return new ModelDescriptor(modelPath, Constants.LABEL_PATH, 1, Constants.CONFIDENCE_THRESHOLD,
+                AUTO, AUTO, AUTO, AUTO, Float.NaN, Float.NaN,
+                POSTPROCESS_SSD, DEFAULT_IOU_THRESHOLD, DEFAULT_MAX_DETECTIONS, true);
+    }
+
+    public static ModelDescriptor parse(String modelPath, String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+
+        JSONObject outputs = root.optJSONObject("outputs");
+        JSONObject normalization = root.optJSONObject("normalization");
+        JSONObject postprocess = root.optJSONObject("postprocess");
+        if (postprocess == null) postprocess = new JSONObject();
+
+        String type = postprocess.optString("type", POSTPROCESS_SSD);
+        if (!POSTPROCESS_SSD.equals(type) && !POSTPROCESS_ANCHORS.equals(type)) {
+            throw new JSONException("Unknown postprocess type " + type);
+        }
+
+        return new ModelDescriptor(
+                modelPath,
+                root.optString("labels", Constants.LABEL_PATH),
+                root.optInt("labelOffset", 1),
+                (float) root.optDouble("scoreThreshold", Constants.CONFIDENCE_THRESHOLD),
+                outputs != null ? outputs.optInt("boxes", AUTO) : AUTO,
+                outputs != null ? outputs.optInt("classes", AUTO) : AUTO,
+                outputs != null ? outputs.optInt("scores", AUTO) : AUTO,
+                outputs != null ? outputs.optInt("count", AUTO) : AUTO,
+                normalization != null ? (float) normalization.getDouble("mean") : Float.NaN,
+                normalization != null ? (float) normalization.getDouble("std") : Float.NaN,
+                type,
+                (float) postprocess.optDouble("iouThreshold", DEFAULT_IOU_THRESHOLD),
+                postprocess.optInt("maxDetections", DEFAULT_MAX_DETECTIONS),
+                postprocess.optBoolean("normalizedBoxes", true)
+        );
+    }
+
+    public boolean isRawAnchors() {
+        return POSTPROCESS_ANCHORS.equals(postprocess);
+    }
+
+    /** Asset path of the descriptor for {@code modelPath}. */
+    static String descriptorPath(String modelPath) {
+        int dot = modelPath.lastIndexOf('.');
+        return (dot > 0 ? modelPath.substring(0, dot) : modelPath) + ".json";
+    }
+
+    @Override
+    public String toString() {
+        return modelPath + " labels=" + labelPath + "+" + labelOffset + " threshold=" + scoreThreshold
+                + " postprocess=" + postprocess;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.echosight.detection;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.echosight.utils.Constants;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The detection models bundled in assets and which one to run.
+ *
+ * Each {@code *.tflite} may ship with a descriptor (see {@link ModelDescriptor});
+ * everything else — input size, dtype, quantization, detection count — is read
+ * from the interpreter by {@link ModelSpec}. Dropping a smaller int8 or a larger
+ * float model into assets and selecting it here needs no code change.
+ */
+public class ModelRegistry {
+
+    private static final String TAG = "ECHO_SIGHT";
+    private static final String PREFS = "model_registry";
+    private static final String KEY_SELECTED = "selected_model";
+
+    private ModelRegistry() {
+    }
+
+    /** Every model file in assets. */
+    public static List<String> availableModels(Context context) throws IOException {
+        List<String> models = new ArrayList<>();
+        String[] files = context.getAssets().list("");
+        if (files == null) return models;
+
+        for (String file : files) {
+            if (file.endsWith(".tflite")) models.add(file);
+        }
+        return models;
+    }
+
+    /** The model picked for this device, {@link Constants#MODEL_PATH} unless overridden. */
+    public static String selectedModel(Context context) {
+        return prefs(context).getString(KEY_SELECTED, Constants.MODEL_PATH);
+    }
+
+    /** Overrides the model for this device; null goes back to the default. */
+    public static void selectModel(Context context, String modelPath) {
+        prefs(context).edit().putString(KEY_SELECTED, modelPath).apply();
+    }
+
+    /** Descriptor of the selected model. */
+    public static ModelDescriptor load(Context context) throws IOException {
+        return load(context, selectedModel(context));
+    }
+
+    /** Reads the descriptor next to {@code modelPath}, or falls back to defaults. */
+    public static ModelDescriptor load(Context context, String modelPath) throws IOException {
+        String path = ModelDescriptor.descriptorPath(modelPath);
+        String json;
+        try {
+            json = readAsset(context, path);
+        } catch (FileNotFoundException e) {
+            Log.d(TAG, "MODEL: no " + path + ", using defaults");
+            return ModelDescriptor.defaults(modelPath);
+        }
+
+        try {
+            ModelDescriptor descriptor = ModelDescriptor.parse(modelPath, json);
+            Log.d(TAG, "MODEL: " + descriptor);
+            return descriptor;
+        } catch (JSONException e) {
+            throw new IOException("Bad model descriptor " + path, e);
+        }
+    }
+
+    private static String readAsset(Context context, String path) throws IOException {
+        try (InputStream in = context.getAssets().open(path)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                bytes.write(chunk, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
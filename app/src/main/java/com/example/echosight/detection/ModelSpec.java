@@ -0,0 +1,221 @@
+package com.example.echosight.detection;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.util.Arrays;
+
+/**
+ * Input and output layout of a loaded detection model, read from the
+ * interpreter's tensors and completed by its {@link ModelDescriptor}.
+ *
+ * The input dtype decides how a 0-255 channel value is written into the
+ * input tensor. That mapping is baked into a 256-entry table here, so the
+ * preprocessing loops never branch on dtype per pixel:
+ * <ul>
+ *   <li>uint8: the raw value, or quantized normalization if the descriptor sets one</li>
+ *   <li>int8: value - 128 (zero point -128), or quantized normalization</li>
+ *   <li>float32: (value - mean) / std, [-1, 1] by default</li>
+ * </ul>
+ *
+ * Outputs are either the four SSD postprocess tensors or, for descriptors with
+ * the "anchors" postprocess, one tensor of raw candidates.
+ */
+public class ModelSpec {
+
+    private static final float DEFAULT_FLOAT_MEAN = 127.5f;
+    private static final float DEFAULT_FLOAT_STD = 127.5f;
+
+    public final int inputWidth;
+    public final int inputHeight;
+    public final DataType inputType;
+    public final float inputScale;
+    public final int inputZeroPoint;
+
+    public final int boxesIndex;
+    public final int classesIndex;
+    public final int scoresIndex;
+    public final int countIndex;
+    /** Most detections one inference can return. */
+    public final int numDetections;
+
+    public final float scoreThreshold;
+
+    // ---------- RAW ANCHOR OUTPUT (see AnchorPostprocessor) ----------
+    public final boolean rawAnchors;
+    public final int anchorCount;
+    public final int anchorClasses;
+    /** [1, 4 + classes, candidates] rather than [1, candidates, 4 + classes]. */
+    public final boolean anchorChannelsFirst;
+    public final boolean normalizedBoxes;
+    public final float iouThreshold;
+
+    /** Channel table for byte inputs, null for float inputs. */
+    final byte[] byteTable;
+    /** Channel table for float inputs, null for byte inputs. */
+    final float[] floatTable;
+
+    private ModelSpec(Interpreter interpreter, ModelDescriptor descriptor) {
+        // Input is [1, height, width, 3]
+        Tensor input = interpreter.getInputTensor(0);
+        int[] shape = input.shape();
+        if (shape.length != 4 || shape[3] != 3) {
+            throw new IllegalArgumentException("Expected a [1, h, w, 3] input, got " + Arrays.toString(shape));
+        }
+        inputHeight = shape[1];
+        inputWidth = shape[2];
+        inputType = input.dataType();
+        inputScale = input.quantizationParams().getScale();
+        inputZeroPoint = input.quantizationParams().getZeroPoint();
+
+        switch (inputType) {
+            case UINT8:
+                byteTable = quantizedTable(descriptor.mean, descriptor.std, inputScale, inputZeroPoint, 0, 255, 0);
+                floatTable = null;
+                break;
+            case INT8:
+                byteTable = quantizedTable(descriptor.mean, descriptor.std, inputScale, inputZeroPoint, -128, 127, -128);
+                floatTable = null;
+                break;
+            case FLOAT32:
+                byteTable = null;
+                floatTable = floatTable(
+                        Float.isNaN(descriptor.mean) ? DEFAULT_FLOAT_MEAN : descriptor.mean,
+                        Float.isNaN(descriptor.std) ? DEFAULT_FLOAT_STD : descriptor.std);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported input type " + inputType);
+        }
+
+        if (descriptor.isRawAnchors()) {
+            // One [1, 4 + classes, candidates] or [1, candidates, 4 + classes] output
+            if (interpreter.getOutputTensorCount() != 1) {
+                throw new IllegalArgumentException("Expected one raw anchor output, got "
+                        + interpreter.getOutputTensorCount());
+            }
+            Tensor output = interpreter.getOutputTensor(0);
+            int[] outShape = output.shape();
+            if (output.dataType() != DataType.FLOAT32 || outShape.length != 3) {
+                throw new IllegalArgumentException("Expected a FLOAT32 [1, a, b] anchor output, got "
+                        + output.dataType() + " " + Arrays.toString(outShape));
+            }
+            // There are always far more candidates than classes
+            anchorChannelsFirst = outShape[1] < outShape[2];
+            anchorCount = Math.max(outShape[1], outShape[2]);
+            anchorClasses = Math.min(outShape[1], outShape[2]) - 4;
+            if (anchorClasses < 1) {
+                throw new IllegalArgumentException("No class scores in " + Arrays.toString(outShape));
+            }
+            boxesIndex = ModelDescriptor.AUTO;
+            classesIndex = ModelDescriptor.AUTO;
+            scoresIndex = ModelDescriptor.AUTO;
+            countIndex = ModelDescriptor.AUTO;
+            numDetections = descriptor.maxDetections;
+        } else {
+            anchorChannelsFirst = false;
+            anchorCount = 0;
+            anchorClasses = 0;
+
+            // Output layout: descriptor first, otherwise inferred from the shapes
+            int outputCount = interpreter.getOutputTensorCount();
+            if (outputCount < 4) {
+                throw new IllegalArgumentException("Expected 4 SSD outputs, got " + outputCount);
+            }
+            int boxes = descriptor.boxesIndex;
+            int count = descriptor.countIndex;
+            int classes = descriptor.classesIndex;
+            int scores = descriptor.scoresIndex;
+
+            for (int i = 0; i < outputCount; i++) {
+                Tensor tensor = interpreter.getOutputTensor(i);
+                if (tensor.dataType() != DataType.FLOAT32) {
+                    throw new IllegalArgumentException("Output " + i + " is " + tensor.dataType() + ", expected FLOAT32");
+                }
+                int[] outShape = tensor.shape();
+                if (boxes == ModelDescriptor.AUTO && outShape.length == 3 && outShape[2] == 4) {
+                    boxes = i;
+                } else if (count == ModelDescriptor.AUTO && tensor.numElements() == 1) {
+                    count = i;
+                }
+            }
+            // The SSD postprocess op emits classes before scores
+            for (int i = 0; i < outputCount; i++) {
+                if (i == boxes || i == count || i == classes || i == scores) continue;
+                if (classes == ModelDescriptor.AUTO) classes = i;
+                else if (scores == ModelDescriptor.AUTO) scores = i;
+            }
+            if (boxes < 0 || classes < 0 || scores < 0 || count < 0) {
+                throw new IllegalArgumentException("Can't infer the output layout of " + descriptor.modelPath);
+            }
+            boxesIndex = boxes;
+            classesIndex = classes;
+            scoresIndex = scores;
+            countIndex = count;
+
+            // Boxes are [1, N, 4]
+            numDetections = interpreter.getOutputTensor(boxesIndex).shape()[1];
+        }
+
+        rawAnchors = descriptor.isRawAnchors();
+        iouThreshold = descriptor.iouThreshold;
+        normalizedBoxes = descriptor.normalizedBoxes;
+        scoreThreshold = descriptor.scoreThreshold;
+    }
+
+    public static ModelSpec from(Interpreter interpreter, ModelDescriptor descriptor) {
+        return new ModelSpec(interpreter, descriptor);
+    }
+
+    public boolean isFloatInput() {
+        return floatTable != null;
+    }
+
+    /** Bytes per input pixel channel. */
+    public int bytesPerChannel() {
+        return isFloatInput() ? 4 : 1;
+    }
+
+    /**
+     * Byte table for a quantized input. Without a normalization the model is
+     * fed raw pixels shifted into its range ({@code rawOffset}); with one,
+     * {@code q = (value - mean) / std / scale + zeroPoint}.
+     */
+    static byte[] quantizedTable(float mean, float std, float scale, int zeroPoint,
+                                 int min, int max, int rawOffset) {
+        byte[] table = new byte[256];
+        boolean normalize = !Float.isNaN(mean) && !Float.isNaN(std);
+        float quantScale = scale > 0f ? scale : 1f;
+
+        for (int value = 0; value < 256; value++) {
+            int q = normalize
+                    ? Math.round((value - mean) / std / quantScale + zeroPoint)
+                    : value + rawOffset;
+            table[value] = (byte) Math.max(min, Math.min(max, q));
+        }
+        return table;
+    }
+
+    static float[] floatTable(float mean, float std) {
+        float[] table = new float[256];
+        for (int value = 0; value < 256; value++) {
+            table[value] = (value - mean) / std;
+        }
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        if (rawAnchors) {
+            return "input " + inputWidth + "x" + inputHeight + " " + inputType
+                    + ", raw anchors " + anchorCount + " x " + anchorClasses + " classes"
+                    + (anchorChannelsFirst ? " (channels first)" : "")
+                    + ", up to " + numDetections + " detections";
+        }
+        return "input " + inputWidth + "x" + inputHeight + " " + inputType
+                + (isFloatInput() ? "" : " (scale " + inputScale + ", zero point " + inputZeroPoint + ")")
+                + ", outputs boxes=" + boxesIndex + " classes=" + classesIndex
+                + " scores=" + scoresIndex + " count=" + countIndex
+                + ", " + numDetections + " detections";
+    }
+}
@@ -1,114 +1,234 @@
 package com.example.echosight.detection;
 
 import android.content.Context;
-import android.content.res.AssetFileDescriptor;
 import android.graphics.Bitmap;
-import android.graphics.RectF;
+import android.media.Image;
 import android.util.Log;
 
+import com.example.echosight.camera.ImageUtils;
+
 import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
-import java.io.IOException;
 
+/**
+ * Object detector for SSD-style models (boxes / classes / scores / count
+ * outputs) and raw-anchor models without built-in NMS; the output is decoded
+ * by the matching {@link Postprocessor}.
+ *
+ * Input size, dtype and output layout come from the model itself and its
+ * descriptor (see {@link ModelRegistry} and {@link ModelSpec}), so any such
+ * model selected in the registry runs without code changes. All buffers
+ * (model input, the output tensors and the result container) are sized
+ * once from the interpreter's tensor shapes and reused, so a warmed-up
+ * detector allocates nothing per frame. The returned
+ * {@link DetectionResults} is owned by the detector and is only valid until
+ * the next call to {@code detect}.
+ *
+ * Inference is not thread-safe: call the {@code detect} methods from one
+ * thread. {@link #preprocess(Image, ByteBuffer)} only touches the buffer it is
+ * given and may run on another thread (see AnalysisPipeline).
+ */
 public class ObjectDetector {
 
     private static final String TAG = "ECHO_SIGHT";
-    private static final int INPUT_SIZE = 300;
-    private static final int NUM_DETECTIONS = 10;
 
-    private Interpreter interpreter;
-    private List<String> labels = new ArrayList<>(); // To store the names
+    private final Interpreter interpreter;
+    private final InterpreterTuner.Config tuning;
+    private final ModelSpec spec;
+    private final LabelMap labelMap;
+
+    // ---------- REUSABLE BUFFERS ----------
+    private final int inputWidth;
+    private final int inputHeight;
+    private final int numDetections;
+
+    private final ByteBuffer inputBuffer;
+    private final Object[] inputs;
+
+    private final Postprocessor postprocessor;
+
+    private final DetectionResults results;
+
+    // Source pixels for the Bitmap path, grown only when the frame size changes
+    private int[] pixels = new int[0];
+
+    /**
+     * Builds a detector on an already loaded model; several detectors may
+     * share the same model buffer and label map (see DetectorPool).
+     */
+    ObjectDetector(ByteBuffer model, ModelDescriptor descriptor, LabelMap labelMap,
+                   InterpreterTuner.Config tuning) {
+        this.tuning = tuning;
+        this.labelMap = labelMap;
+        interpreter = new Interpreter(model, tuning.toOptions());
+        spec = ModelSpec.from(interpreter, descriptor);
+
+        inputHeight = spec.inputHeight;
+        inputWidth = spec.inputWidth;
+        inputBuffer = allocate(interpreter.getInputTensor(0));
+        inputs = new Object[]{inputBuffer};
+
+        postprocessor = Postprocessor.forModel(interpreter, spec, labelMap);
+        numDetections = postprocessor.maxDetections();
+
+        results = new DetectionResults(numDetections);
+
+        Log.e(TAG, "DETECTOR INITIALIZED WITH " + labelMap.size() + " LABELS, " + spec + ", " + tuning);
+    }
+
+    /** Interpreter options chosen by the autotuner. */
+    public InterpreterTuner.Config getTuning() {
+        return tuning;
+    }
+
+    /** Class ids of this model's detections. */
+    public LabelMap getLabelMap() {
+        return labelMap;
+    }
+
+    /** Input and output layout of the loaded model. */
+    public ModelSpec getSpec() {
+        return spec;
+    }
 
-    public ObjectDetector(Context context) throws IOException {
-        interpreter = new Interpreter(loadModel(context));
-        loadLabels(context); // Load the words during initialization
-        Log.e(TAG, "DETECTOR INITIALIZED WITH " + labels.size() + " LABELS");
+    static ByteBuffer allocate(Tensor tensor) {
+        return ByteBuffer.allocateDirect(tensor.numBytes()).order(ByteOrder.nativeOrder());
     }
 
-    // New method to read labelmap.txt
-    private void loadLabels(Context context) throws IOException {
+    // Reads the label file named by the model descriptor and builds the per-class tables
+    static LabelMap loadLabels(Context context, ModelDescriptor descriptor) throws IOException {
+        List<String> labels = new ArrayList<>();
         BufferedReader reader = new BufferedReader(
-                new InputStreamReader(context.getAssets().open("labelmap.txt")));
+                new InputStreamReader(context.getAssets().open(descriptor.labelPath)));
         String line;
         while ((line = reader.readLine()) != null) {
             labels.add(line);
         }
         reader.close();
+        return new LabelMap(labels, descriptor.labelOffset);
     }
 
-    private ByteBuffer loadModel(Context context) throws IOException {
-        AssetFileDescriptor fileDescriptor = context.getAssets().openFd("detect.tflite");
-        FileInputStream inputStream = new FileInputStream(fileDescriptor.getFileDescriptor());
-        FileChannel fileChannel = inputStream.getChannel();
-        return fileChannel.map(FileChannel.MapMode.READ_ONLY, fileDescriptor.getStartOffset(), fileDescriptor.getDeclaredLength());
+    static ByteBuffer loadModel(Context context, String modelPath) throws IOException {
+        return TFLiteModel.loadModelFile(context.getAssets(), modelPath);
     }
 
-    public List<DetectionResult> detect(Bitmap bitmap) {
-        Bitmap resized = Bitmap.createScaledBitmap(bitmap, 300, 300, true);
-
-        ByteBuffer inputBuffer = ByteBuffer.allocateDirect(300 * 300 * 3);
-        inputBuffer.order(ByteOrder.nativeOrder());
-
-        int[] pixels = new int[300 * 300];
-        resized.getPixels(pixels, 0, 300, 0, 0, 300, 300);
-
-        for (int pixel : pixels) {
-            inputBuffer.put((byte) ((pixel >> 16) & 0xFF));
-            inputBuffer.put((byte) ((pixel >> 8) & 0xFF));
-            inputBuffer.put((byte) (pixel & 0xFF));
+    /**
+     * Detects on a Bitmap. The bilinear resize the old createScaledBitmap call
+     * did and the packing into the model's dtype are fused into one pass over
+     * the source pixels (no scaled Bitmap).
+     */
+    public DetectionResults detect(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
         }
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
 
-        Object[] inputs = {inputBuffer};
-
-        float[][][] boxes = new float[1][NUM_DETECTIONS][4];
-        float[][] scores = new float[1][NUM_DETECTIONS];
-        float[][] classes = new float[1][NUM_DETECTIONS];
-        float[] num = new float[1];
+        if (spec.isFloatInput()) {
+            ImageUtils.argbToRgb(pixels, width, height, spec.floatTable, inputBuffer, inputWidth, inputHeight);
+        } else {
+            ImageUtils.argbToRgb(pixels, width, height, spec.byteTable, inputBuffer, inputWidth, inputHeight);
+        }
 
-        java.util.Map<Integer, Object> outputs = new java.util.HashMap<>();
-        outputs.put(0, boxes);
-        outputs.put(1, classes);
-        outputs.put(2, scores);
-        outputs.put(3, num);
+        return runInference(width, height);
+    }
 
-        interpreter.runForMultipleInputsOutputs(inputs, outputs);
+    /**
+     * Detects directly on a YUV_420_888 camera frame. The frame is converted
+     * and resized into the model input in a single pass (no JPEG, no Bitmap).
+     */
+    public DetectionResults detect(Image image) {
+        preprocess(image, inputBuffer);
 
-        List<DetectionResult> results = new ArrayList<>();
+        return runInference(image.getWidth(), image.getHeight());
+    }
 
-        for (int i = 0; i < NUM_DETECTIONS; i++) {
-            float score = scores[0][i];
-            if (score < 0.5f) continue;
+    /**
+     * Allocates a buffer in the model's input layout, for callers that
+     * preprocess frames ahead of inference.
+     */
+    public ByteBuffer newInputBuffer() {
+        return ByteBuffer.allocateDirect(inputBuffer.capacity()).order(ByteOrder.nativeOrder());
+    }
 
-            // FIX: Get the actual label name from our list
-            int classIndex = (int) classes[0][i];
-            String labelName = "Unknown";
+    /**
+     * Allocates a result container large enough for one inference.
+     */
+    public DetectionResults newResults() {
+        return new DetectionResults(numDetections);
+    }
 
-            // Most SSD models use index + 1 for the label map
-            if (classIndex + 1 < labels.size()) {
-                labelName = labels.get(classIndex + 1);
-            }
+    /**
+     * Writes the frame into {@code input} in the model's input layout.
+     * Does not use the interpreter, so it is safe to call concurrently with detect.
+     */
+    public void preprocess(Image image, ByteBuffer input) {
+        preprocess(image, 0, 0, image.getWidth(), image.getHeight(), input);
+    }
 
-            float top = boxes[0][i][0] * bitmap.getHeight();
-            float left = boxes[0][i][1] * bitmap.getWidth();
-            float bottom = boxes[0][i][2] * bitmap.getHeight();
-            float right = boxes[0][i][3] * bitmap.getWidth();
+    /**
+     * Writes only a crop of the frame into {@code input}, scaled to the full
+     * model input, so the crop is seen at a higher effective resolution.
+     */
+    public void preprocess(Image image, int cropLeft, int cropTop, int cropWidth, int cropHeight,
+                           ByteBuffer input) {
+        // One branch per frame; each variant has its own tight loop
+        if (spec.isFloatInput()) {
+            ImageUtils.yuvToRgb(image, cropLeft, cropTop, cropWidth, cropHeight,
+                    spec.floatTable, input, inputWidth, inputHeight);
+        } else {
+            ImageUtils.yuvToRgb(image, cropLeft, cropTop, cropWidth, cropHeight,
+                    spec.byteTable, input, inputWidth, inputHeight);
+        }
+    }
 
-            RectF rect = new RectF(left, top, right, bottom);
+    /**
+     * Runs inference on an input produced by {@link #preprocess(Image, ByteBuffer)}
+     * and writes the hits into {@code out}, in frame coordinates.
+     */
+    public void detect(ByteBuffer input, int frameWidth, int frameHeight, DetectionResults out) {
+        detect(input, 0, 0, frameWidth, frameHeight, out);
+    }
 
-            // FIX: Pass the real labelName instead of the string "object"
-            results.add(new DetectionResult(rect, score, labelName));
+    /**
+     * Runs inference on a cropped input and maps the boxes back from the crop
+     * to full-frame coordinates.
+     */
+    public void detect(ByteBuffer input, int cropLeft, int cropTop, int cropWidth, int cropHeight,
+                       DetectionResults out) {
+        inputs[0] = input;
+        try {
+            runInference(cropLeft, cropTop, cropWidth, cropHeight, out);
+        } finally {
+            inputs[0] = inputBuffer;
         }
+    }
 
+    private DetectionResults runInference(int frameWidth, int frameHeight) {
+        runInference(0, 0, frameWidth, frameHeight, results);
         return results;
     }
-}
\ No newline at end of file
+
+    private void runInference(int offsetX, int offsetY, int frameWidth, int frameHeight,
+                              DetectionResults results) {
+        postprocessor.rewind();
+        interpreter.runForMultipleInputsOutputs(inputs, postprocessor.outputs());
+        postprocessor.decode(offsetX, offsetY, frameWidth, frameHeight, results);
+    }
+
+    /** Frees the interpreter's native memory; the detector can't be used afterwards. */
+    public void close() {
+        interpreter.close();
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.echosight.detection;
+
+/**
+ * Cheap frame-to-frame box tracker for the frames between two detector runs.
+ *
+ * Works on a downsampled luma thumbnail (see ImageUtils.downsampleLuma). Each
+ * track keeps a PATCH x PATCH grid of luma samples taken over its box, with
+ * the mean removed so exposure changes don't matter. On the next frame the
+ * grid is searched over nearby positions and three scales (objects grow as
+ * they approach), coarse then fine, by sum of absolute differences. The best
+ * candidate becomes the new box and the template is re-sampled there.
+ *
+ * Tracking confidence is the match error relative to the template's own
+ * contrast: 1 for a perfect match, 0 for no better than a random patch.
+ * Tracks below LOST_CONFIDENCE are dropped; callers re-run the detector when
+ * {@link #update} reports low confidence. All state is in fixed arrays, so
+ * tracking allocates nothing. Not thread-safe.
+ */
+public class PatchTracker {
+
+    private static final int PATCH = 12;
+    private static final int SAMPLES = PATCH * PATCH;
+    private static final int SEARCH_RADIUS = 6;     // thumbnail pixels per frame
+    private static final int COARSE_STEP = 2;
+    private static final float[] SCALES = {1f / 1.06f, 1f, 1.06f};
+    private static final float LOST_CONFIDENCE = 0.3f;
+    private static final float MIN_BOX = 3f;        // thumbnail pixels
+    private static final float NOISE_FLOOR = 4f;    // luma levels, keeps flat patches from looking perfect
+
+    private final int capacity;
+    private int count = 0;
+    private int scale = 1;
+
+    // Boxes in thumbnail pixels
+    private final float[] left;
+    private final float[] top;
+    private final float[] right;
+    private final float[] bottom;
+    private final float[] detectionConfidence;
+    private final float[] trackConfidence;
+    private final int[] classIds;
+    private final String[] labels;
+
+    // Mean-removed samples, SAMPLES per track, and their mean absolute deviation
+    private final int[] templates;
+    private final float[] templateSpread;
+
+    private final int[] candidate = new int[SAMPLES];
+
+    public PatchTracker(int capacity) {
+        this.capacity = capacity;
+        left = new float[capacity];
+        top = new float[capacity];
+        right = new float[capacity];
+        bottom = new float[capacity];
+        detectionConfidence = new float[capacity];
+        trackConfidence = new float[capacity];
+        classIds = new int[capacity];
+        labels = new String[capacity];
+        templates = new int[capacity * SAMPLES];
+        templateSpread = new float[capacity];
+    }
+
+    /**
+     * Drops all tracks.
+     *
+     * @param scale frame pixels per thumbnail pixel
+     */
+    public void reset(int scale) {
+        this.scale = scale;
+        count = 0;
+    }
+
+    /**
+     * Replaces the tracks with fresh detections from the frame the thumbnail was taken from.
+     */
+    public void reset(DetectionResults detections, byte[] luma, int lumaWidth, int lumaHeight, int scale) {
+        reset(scale);
+        for (int i = 0; i < detections.size(); i++) {
+            DetectionResult d = detections.get(i);
+            addTrack(luma, lumaWidth, lumaHeight,
+                    d.getLeft(), d.getTop(), d.getRight(), d.getBottom(),
+                    d.getConfidence(), d.getClassId(), d.getLabel());
+        }
+    }
+
+    /**
+     * Starts a track for a box given in frame pixels and samples its template.
+     *
+     * @return false if the box is too small to track or there is no room left
+     */
+    public boolean addTrack(byte[] luma, int lumaWidth, int lumaHeight,
+                            float boxLeft, float boxTop, float boxRight, float boxBottom,
+                            float confidence, int classId, String label) {
+        if (count == capacity) return false;
+
+        float l = Math.max(0f, boxLeft / scale);
+        float t = Math.max(0f, boxTop / scale);
+        float r = Math.min(lumaWidth, boxRight / scale);
+        float b = Math.min(lumaHeight, boxBottom / scale);
+        if (r - l < MIN_BOX || b - t < MIN_BOX) return false;
+
+        int i = count++;
+        left[i] = l;
+        top[i] = t;
+        right[i] = r;
+        bottom[i] = b;
+        detectionConfidence[i] = confidence;
+        trackConfidence[i] = 1f;
+        classIds[i] = classId;
+        labels[i] = label;
+        captureTemplate(i, luma, lumaWidth, lumaHeight);
+        return true;
+    }
+
+    /**
+     * Moves every track to its best match in the new thumbnail.
+     *
+     * @return the lowest tracking confidence this frame, including tracks that
+     *         were just lost, or 1 if there was nothing to track
+     */
+    public float update(byte[] luma, int lumaWidth, int lumaHeight) {
+        float lowest = 1f;
+        int kept = 0;
+
+        for (int i = 0; i < count; i++) {
+            float confidence = track(i, luma, lumaWidth, lumaHeight);
+            lowest = Math.min(lowest, confidence);
+            if (confidence < LOST_CONFIDENCE) continue;
+
+            if (kept != i) move(i, kept);
+            kept++;
+        }
+        count = kept;
+        return lowest;
+    }
+
+    /** Writes the current tracks into {@code out}, in frame pixels. */
+    public void writeTo(DetectionResults out) {
+        out.clear();
+        for (int i = 0; i < count; i++) {
+            out.add(left(i), top(i), right(i), bottom(i), detectionConfidence[i], classIds[i], labels[i]);
+        }
+    }
+
+    public int size() { return count; }
+
+    public float left(int i) { return left[i] * scale; }
+    public float top(int i) { return top[i] * scale; }
+    public float right(int i) { return right[i] * scale; }
+    public float bottom(int i) { return bottom[i] * scale; }
+    public float trackConfidence(int i) { return trackConfidence[i]; }
+    public int classId(int i) { return classIds[i]; }
+
+    // ---------- MATCHING ----------
+
+    private float track(int i, byte[] luma, int w, int h) {
+        float centerX = (left[i] + right[i]) * 0.5f;
+        float centerY = (top[i] + bottom[i]) * 0.5f;
+        float width = right[i] - left[i];
+        float height = bottom[i] - top[i];
+
+        float bestError = Float.MAX_VALUE;
+        float bestDx = 0f;
+        float bestDy = 0f;
+        float bestScale = 1f;
+
+        // Coarse grid over every scale
+        for (float s : SCALES) {
+            for (int dy = -SEARCH_RADIUS; dy <= SEARCH_RADIUS; dy += COARSE_STEP) {
+                for (int dx = -SEARCH_RADIUS; dx <= SEARCH_RADIUS; dx += COARSE_STEP) {
+                    float error = error(i, luma, w, h, centerX + dx, centerY + dy, width * s, height * s);
+                    if (error < bestError) {
+                        bestError = error;
+                        bestDx = dx;
+                        bestDy = dy;
+                        bestScale = s;
+                    }
+                }
+            }
+        }
+
+        // Refine around the coarse winner at that scale
+        float coarseDx = bestDx;
+        float coarseDy = bestDy;
+        for (int fy = -1; fy <= 1; fy++) {
+            for (int fx = -1; fx <= 1; fx++) {
+                if (fx == 0 && fy == 0) continue;
+                float dx = coarseDx + fx;
+                float dy = coarseDy + fy;
+                float error = error(i, luma, w, h, centerX + dx, centerY + dy, width * bestScale, height * bestScale);
+                if (error < bestError) {
+                    bestError = error;
+                    bestDx = dx;
+                    bestDy = dy;
+                }
+            }
+        }
+
+        float confidence = 1f - bestError / (templateSpread[i] + NOISE_FLOOR);
+        confidence = Math.max(0f, Math.min(1f, confidence));
+        trackConfidence[i] = confidence;
+
+        float newWidth = width * bestScale;
+        float newHeight = height * bestScale;
+        float newCenterX = centerX + bestDx;
+        float newCenterY = centerY + bestDy;
+        left[i] = Math.max(0f, newCenterX - newWidth * 0.5f);
+        top[i] = Math.max(0f, newCenterY - newHeight * 0.5f);
+        right[i] = Math.min(w, newCenterX + newWidth * 0.5f);
+        bottom[i] = Math.min(h, newCenterY + newHeight * 0.5f);
+
+        if (right[i] - left[i] < MIN_BOX || bottom[i] - top[i] < MIN_BOX) {
+            // Walked off the frame
+            trackConfidence[i] = 0f;
+            return 0f;
+        }
+
+        // Follow appearance changes; the detector corrects any drift
+        captureTemplate(i, luma, w, h);
+        return confidence;
+    }
+
+    /** Mean absolute difference between track i's template and the candidate box. */
+    private float error(int i, byte[] luma, int w, int h,
+                        float centerX, float centerY, float width, float height) {
+        sample(luma, w, h, centerX - width * 0.5f, centerY - height * 0.5f, width, height, candidate);
+
+        int base = i * SAMPLES;
+        long sum = 0;
+        for (int k = 0; k < SAMPLES; k++) {
+            sum += Math.abs(candidate[k] - templates[base + k]);
+        }
+        return (float) sum / SAMPLES;
+    }
+
+    private void captureTemplate(int i, byte[] luma, int w, int h) {
+        sample(luma, w, h, left[i], top[i], right[i] - left[i], bottom[i] - top[i], candidate);
+
+        int base = i * SAMPLES;
+        long spread = 0;
+        for (int k = 0; k < SAMPLES; k++) {
+            templates[base + k] = candidate[k];
+            spread += Math.abs(candidate[k]);
+        }
+        templateSpread[i] = (float) spread / SAMPLES;
+    }
+
+    /**
+     * Nearest-neighbour samples at the centre of each grid cell, mean removed.
+     * Cells outside the thumbnail are clamped to its edge.
+     */
+    private static void sample(byte[] luma, int w, int h,
+                               float boxLeft, float boxTop, float width, float height, int[] out) {
+        float stepX = width / PATCH;
+        float stepY = height / PATCH;
+
+        int sum = 0;
+        int k = 0;
+        for (int py = 0; py < PATCH; py++) {
+            int y = clamp((int) (boxTop + (py + 0.5f) * stepY), h - 1);
+            int row = y * w;
+            for (int px = 0; px < PATCH; px++) {
+                int x = clamp((int) (boxLeft + (px + 0.5f) * stepX), w - 1);
+                int value = luma[row + x] & 0xFF;
+                out[k++] = value;
+                sum += value;
+            }
+        }
+
+        int mean = sum / SAMPLES;
+        for (k = 0; k < SAMPLES; k++) {
+            out[k] -= mean;
+        }
+    }
+
+    private void move(int from, int to) {
+        left[to] = left[from];
+        top[to] = top[from];
+        right[to] = right[from];
+        bottom[to] = bottom[from];
+        detectionConfidence[to] = detectionConfidence[from];
+        trackConfidence[to] = trackConfidence[from];
+        classIds[to] = classIds[from];
+        labels[to] = labels[from];
+        templateSpread[to] = templateSpread[from];
+        System.arraycopy(templates, from * SAMPLES, templates, to * SAMPLES, SAMPLES);
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.echosight.detection;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.util.Map;
+
+/**
+ * Turns a detection model's output tensors into boxes in frame coordinates.
+ *
+ * Each implementation owns the output buffers it reads; one instance per
+ * interpreter, used from the inference thread only.
+ */
+public interface Postprocessor {
+
+    /** Output buffers by tensor index, for Interpreter.runForMultipleInputsOutputs. */
+    Map<Integer, Object> outputs();
+
+    /** Resets the output buffers before an inference writes into them. */
+    void rewind();
+
+    /** Most detections {@link #decode} can produce. */
+    int maxDetections();
+
+    /**
+     * Decodes the last inference into {@code out}. Boxes are mapped from the
+     * model input to the crop it was taken from, offset into the full frame.
+     */
+    void decode(int offsetX, int offsetY, int cropWidth, int cropHeight, DetectionResults out);
+
+    /** Postprocessor for the model's output layout. */
+    static Postprocessor forModel(Interpreter interpreter, ModelSpec spec, LabelMap labelMap) {
+        return spec.rawAnchors
+                ? new AnchorPostprocessor(interpreter, spec, labelMap)
+                : new SsdPostprocessor(interpreter, spec, labelMap);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.echosight.detection;
+
+import org.tensorflow.lite.Interpreter;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the 4-tensor output of the TFLite detection postprocess op (boxes,
+ * classes, scores, count). NMS already ran inside the model.
+ */
+class SsdPostprocessor implements Postprocessor {
+
+    private final ModelSpec spec;
+    private final LabelMap labelMap;
+
+    private final ByteBuffer boxesBuffer;
+    private final ByteBuffer classesBuffer;
+    private final ByteBuffer scoresBuffer;
+    private final ByteBuffer countBuffer;
+    private final Map<Integer, Object> outputs = new HashMap<>();
+
+    SsdPostprocessor(Interpreter interpreter, ModelSpec spec, LabelMap labelMap) {
+        this.spec = spec;
+        this.labelMap = labelMap;
+
+        boxesBuffer = ObjectDetector.allocate(interpreter.getOutputTensor(spec.boxesIndex));
+        classesBuffer = ObjectDetector.allocate(interpreter.getOutputTensor(spec.classesIndex));
+        scoresBuffer = ObjectDetector.allocate(interpreter.getOutputTensor(spec.scoresIndex));
+        countBuffer = ObjectDetector.allocate(interpreter.getOutputTensor(spec.countIndex));
+
+        outputs.put(spec.boxesIndex, boxesBuffer);
+        outputs.put(spec.classesIndex, classesBuffer);
+        outputs.put(spec.scoresIndex, scoresBuffer);
+        outputs.put(spec.countIndex, countBuffer);
+    }
+
+    @Override
+    public Map<Integer, Object> outputs() {
+        return outputs;
+    }
+
+    @Override
+    public void rewind() {
+        boxesBuffer.rewind();
+        classesBuffer.rewind();
+        scoresBuffer.rewind();
+        countBuffer.rewind();
+    }
+
+    @Override
+    public int maxDetections() {
+        return spec.numDetections;
+    }
+
+    @Override
+    public void decode(int offsetX, int offsetY, int cropWidth, int cropHeight, DetectionResults results) {
+        results.clear();
+
+        for (int i = 0; i < spec.numDetections; i++) {
+            float score = scoresBuffer.getFloat(i * 4);
+            if (score < spec.scoreThreshold) continue;
+
+            // Class id only; the label map already holds its name (no lookup per frame)
+            int classId = labelMap.classIdFor((int) classesBuffer.getFloat(i * 4));
+
+            // Box i is [top, left, bottom, right], normalised
+            int box = i * 16;
+            float top = offsetY + boxesBuffer.getFloat(box) * cropHeight;
+            float left = offsetX + boxesBuffer.getFloat(box + 4) * cropWidth;
+            float bottom = offsetY + boxesBuffer.getFloat(box + 8) * cropHeight;
+            float right = offsetX + boxesBuffer.getFloat(box + 12) * cropWidth;
+
+            results.add(left, top, right, bottom, score, classId, labelMap.displayName(classId));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.echosight.feedback;
+
+/**
+ * Sound side of the proximity feedback, driven by {@link FeedbackController}.
+ */
+public interface AudioCues {
+
+    /** The nearest object moved into another zone. */
+    void onLevelChanged(FeedbackController.ProximityLevel level);
+
+    /**
+     * Every analysed frame with something tracked.
+     *
+     * @param pan   where the nearest object is, -1 (left) to 1 (right)
+     * @param score its proximity score (see logic.ProximityEstimator)
+     */
+    void onNearest(float pan, float score);
+
+    /** Nothing is tracked any more. */
+    void onClear();
+
+    /** Average time from a cue being requested to it being handed to the output. */
+    String latencyReport();
+
+    void release();
+}
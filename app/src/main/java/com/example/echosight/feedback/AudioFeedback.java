@@ -3,9 +3,20 @@ package com.example.echosight.feedback;
 import android.media.AudioManager;
 import android.media.ToneGenerator;
 import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-public class AudioFeedback {
+import java.util.Locale;
+
+/**
+ * Mono ToneGenerator beeps on zone changes: one, two or three beeps for FAR,
+ * MID and NEAR. See SpatialAudioFeedback for the continuous, panned cue.
+ *
+ * Onset is measured from the request to the hand-off to the output
+ * (startTone), the same point as SpatialAudioFeedback's write; ToneGenerator
+ * has no timestamps, so there is no DAC figure here.
+ */
+public class AudioFeedback implements AudioCues {
 
     private static final String TAG = "AudioFeedback";
 
@@ -13,7 +24,12 @@ public class AudioFeedback {
     private static final int BEEP_GAP_MS = 200;
 
     private final ToneGenerator toneGenerator;
-    private final Handler handler = new Handler();
+    // Cues arrive on the feedback thread; the beeps are timed on the main looper
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Request to startTone() returning; ToneGenerator's own output buffer comes on top
+    private long onsetTotalNs = 0;
+    private int onsetCount = 0;
 
     public AudioFeedback() {
         toneGenerator = new ToneGenerator(
@@ -38,19 +54,59 @@ public class AudioFeedback {
     }
 
     private void playBeeps(int count) {
+        long requestedNs = System.nanoTime();
         for (int i = 0; i < count; i++) {
             int delay = i * (BEEP_DURATION_MS + BEEP_GAP_MS);
+            boolean first = i == 0;
 
             handler.postDelayed(() -> {
                 toneGenerator.startTone(
                         ToneGenerator.TONE_PROP_BEEP,
                         BEEP_DURATION_MS
                 );
+                if (first) recordOnset(System.nanoTime() - requestedNs);
             }, delay);
         }
     }
 
+    private synchronized void recordOnset(long latencyNs) {
+        onsetTotalNs += latencyNs;
+        onsetCount++;
+    }
+
+    @Override
+    public void onLevelChanged(FeedbackController.ProximityLevel level) {
+        switch (level) {
+            case FAR:
+                playFar();
+                break;
+            case MID:
+                playMid();
+                break;
+            case NEAR:
+                playNear();
+                break;
+        }
+    }
+
+    @Override
+    public void onNearest(float pan, float score) {
+        // Beeps only mark zone changes
+    }
+
+    @Override
+    public void onClear() {
+    }
+
+    @Override
+    public synchronized String latencyReport() {
+        return String.format(Locale.US, "beep onset: %.1f ms average over %d cues to the output (startTone)",
+                onsetCount == 0 ? 0f : onsetTotalNs / 1e6f / onsetCount, onsetCount);
+    }
+
+    @Override
     public void release() {
+        Log.i(TAG, latencyReport());
         toneGenerator.release();
     }
 }
\ No newline at end of file
@@ -1,56 +1,168 @@
 package com.example.echosight.feedback;
 
+import android.os.Process;
 import android.util.Log;
-import android.util.Log;
 
+import com.example.echosight.utils.Constants;
+
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Haptic and audio feedback for the nearest tracked object.
+ *
+ * The analyzer only packs each frame's state into a {@link FeedbackQueue};
+ * everything that talks to system services runs on the "EchoSight-Feedback"
+ * thread. That thread keeps only the latest state of whatever arrived since
+ * it last looked, hands the audio cue the nearest object's position, and
+ * plays a haptic pulse when the zone changes, spaced by {@link PulseScheduler}.
+ */
 public class FeedbackController {
 
     private static final String TAG = "FeedbackController";
 
+    // While frames are arriving the thread looks every POLL_MS; after IDLE_MS
+    // without any it sleeps until the analyzer wakes it.
+    private static final long POLL_MS = 4;
+    private static final long IDLE_MS = 2000;
+    private static final long IDLE_PARK_MS = 100;
+
     public enum ProximityLevel {
         FAR,
         MID,
         NEAR
     }
 
+    private static final ProximityLevel[] LEVELS = ProximityLevel.values();
+
     private final HapticManager hapticManager;
-    private final AudioFeedback audioFeedback;
+    private final AudioCues audioCues;
+
+    private final FeedbackQueue queue = new FeedbackQueue(Constants.FEEDBACK_QUEUE_SIZE);
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean sleeping = false;
+    private volatile boolean stopRequested = false;
 
-    private ProximityLevel lastLevel = null;
+    // Feedback thread only
+    private final long[] batch = new long[Constants.FEEDBACK_QUEUE_SIZE];
+    private final PulseScheduler pulses;
+    private long events = 0;
+    private long wakeups = 0;
+    private long pulsesPlayed = 0;
 
     public FeedbackController(HapticManager hapticManager,
-                              AudioFeedback audioFeedback) {
+                              AudioCues audioCues) {
         this.hapticManager = hapticManager;
-        this.audioFeedback = audioFeedback;
+        this.audioCues = audioCues;
+        pulses = new PulseScheduler(HapticManager.durationsMs(), Constants.HAPTIC_MIN_GAP_MS);
+        thread = new Thread(this::runFeedback, "EchoSight-Feedback");
+        thread.start();
     }
 
-    public void handleProximity(ProximityLevel level) {
+    // ---------- ANALYZER SIDE ----------
+    // One thread (the analysis pipeline's decision thread) calls these; each is
+    // a store into the ring and, only after an idle spell, a wake-up.
 
-        // Debounce: ignore repeated values
-        if (level == lastLevel) {
-            return;
+    /**
+     * Every analysed frame with something tracked.
+     *
+     * @param level zone of the nearest object
+     * @param pan   -1 (left) to 1 (right)
+     * @param score proximity score of the nearest object
+     */
+    public void handleFrame(ProximityLevel level, float pan, float score) {
+        offer(FeedbackQueue.frame(level.ordinal(), pan, score));
+    }
+
+    /** Nothing tracked. */
+    public void handleClear() {
+        offer(FeedbackQueue.clear());
+    }
+
+    private void offer(long event) {
+        queue.offer(event);
+        if (sleeping) LockSupport.unpark(thread);
+    }
+
+    // ---------- ANY THREAD ----------
+
+    /** Silences everything and forgets the last zone, e.g. when navigation stops. */
+    public void stop() {
+        stopRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    public void release() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        Log.i(TAG, report());
+    }
+
+    public String report() {
+        return String.format(Locale.US, "feedback: %d events in %d wake-ups, %d dropped, %d pulses",
+                events, wakeups, queue.getDropped(), pulsesPlayed);
+    }
 
-        lastLevel = level;
+    // ---------- FEEDBACK THREAD ----------
 
-        Log.d(TAG, "Proximity: " + level);
+    private void runFeedback() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+        long lastEventNs = System.nanoTime();
 
-        switch (level) {
-            case FAR:
-                hapticManager.vibrateFar();
-                audioFeedback.playFar();
-                break;
+        while (running) {
+            int n = queue.drain(batch);
+            long now = System.nanoTime();
 
-            case MID:
-                hapticManager.vibrateMid();
-                audioFeedback.playMid();
-                break;
+            if (stopRequested) {
+                stopRequested = false;
+                pulses.reset();
+                hapticManager.stop();
+                audioCues.onClear();
+            } else if (n > 0) {
+                // Every event carries the whole state, so the last one is all that matters
+                apply(batch[n - 1]);
+            }
+            if (n > 0) {
+                lastEventNs = now;
+                events += n;
+                wakeups++;
+            }
 
-            case NEAR:
-                hapticManager.vibrateNear();
-                audioFeedback.playNear();
-                break;
+            int level = pulses.poll(now);
+            if (level != PulseScheduler.NONE) {
+                Log.d(TAG, "Proximity: " + LEVELS[level]);
+                hapticManager.play(level);
+                audioCues.onLevelChanged(LEVELS[level]);
+                pulsesPlayed++;
+            }
+
+            boolean idle = now - lastEventNs > IDLE_MS * 1_000_000L;
+            long dueNs = pulses.nextDueNs();
+            if (dueNs <= now) continue;
+            long waitNs = Math.min((idle ? IDLE_PARK_MS : POLL_MS) * 1_000_000L, dueNs - now);
+            if (idle) {
+                // A wake-up racing this flag is caught by the bounded park
+                sleeping = true;
+                if (queue.isEmpty() && !stopRequested && running) LockSupport.parkNanos(waitNs);
+                sleeping = false;
+            } else {
+                LockSupport.parkNanos(waitNs);
+            }
+        }
+    }
+
+    private void apply(long event) {
+        if (FeedbackQueue.type(event) == FeedbackQueue.CLEAR) {
+            audioCues.onClear();
+            return;
         }
+        pulses.request(FeedbackQueue.level(event));
+        audioCues.onNearest(FeedbackQueue.pan(event), FeedbackQueue.score(event));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package com.example.echosight.feedback;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of feedback events, each
+ * packed into one long so nothing is allocated or boxed.
+ *
+ * The analysis thread offers, the feedback thread drains. Both indices only
+ * grow; each side writes its own with a release store (lazySet) and reads
+ * the other's, and the producer keeps a cached copy of the consumer's index
+ * so a non-full offer touches no shared cache line but its own.
+ *
+ * The consumer only cares about the latest state, so the newest event is
+ * never lost: when the ring is full it goes into a single latest-state word
+ * instead, replacing (and counting as dropped) any event already there.
+ * drain() hands that word out after the ring once it has emptied the ring,
+ * and the producer withdraws it before queueing anything newer, so events
+ * still come out oldest first.
+ */
+public final class FeedbackQueue {
+
+    // ---------- EVENTS ----------
+    public static final int FRAME = 1;     // level, pan and score of the nearest object
+    public static final int CLEAR = 2;     // nothing tracked
+
+    // Not an event: frame() and clear() never produce it
+    private static final long NO_EVENT = Long.MIN_VALUE;
+
+    private final long[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();   // next slot to read; written by the consumer
+    private final AtomicLong tail = new AtomicLong();   // next slot to write; written by the producer
+    private final AtomicLong latest = new AtomicLong(NO_EVENT);   // newest event that found the ring full
+
+    // Producer only
+    private long producerTail = 0;
+    private long headCache = 0;
+    private boolean latestSet = false;    // may still be in the latest-state word
+    private volatile long dropped = 0;
+
+    /** @param capacity rounded up to a power of two */
+    public FeedbackQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Producer: queues the event, or keeps it as the latest state if the ring is full.
+     *
+     * @return false if the ring was full
+     */
+    public boolean offer(long event) {
+        long t = producerTail;
+        if (t - headCache >= slots.length) {
+            headCache = head.get();
+            if (t - headCache >= slots.length) {
+                if (latest.getAndSet(event) != NO_EVENT) dropped++;   // single writer
+                latestSet = true;
+                return false;
+            }
+        }
+        // Withdrawn before anything newer is visible, so it never ends up after it
+        if (latestSet) {
+            latestSet = false;
+            if (latest.getAndSet(NO_EVENT) != NO_EVENT) dropped++;
+        }
+        slots[(int) t & mask] = event;
+        producerTail = t + 1;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer: moves up to {@code out.length} events into {@code out}, oldest first.
+     *
+     * @return the number of events moved
+     */
+    public int drain(long[] out) {
+        long h = head.get();
+        long t = tail.get();
+        int n = (int) Math.min(t - h, out.length);
+        for (int i = 0; i < n; i++) out[i] = slots[(int) (h + i) & mask];
+        if (n > 0) head.lazySet(h + n);
+        // Newer than everything up to t; older events left in the ring must come out first
+        if (h + n == t && n < out.length) {
+            long event = latest.getAndSet(NO_EVENT);
+            if (event != NO_EVENT) out[n++] = event;
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return tail.get() == head.get() && latest.get() == NO_EVENT;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    // ---------- PACKING ----------
+    // type (8 bits) | level (8 bits) | pan as a signed 16-bit fraction | score float bits
+
+    public static long frame(int level, float pan, float score) {
+        int quantisedPan = (int) (Math.max(-1f, Math.min(1f, pan)) * Short.MAX_VALUE);
+        return ((long) FRAME << 56) | ((long) (level & 0xFF) << 48)
+                | ((long) (quantisedPan & 0xFFFF) << 32) | (Float.floatToRawIntBits(score) & 0xFFFFFFFFL);
+    }
+
+    public static long clear() {
+        return (long) CLEAR << 56;
+    }
+
+    public static int type(long event) {
+        return (int) (event >>> 56);
+    }
+
+    public static int level(long event) {
+        return (int) (event >>> 48) & 0xFF;
+    }
+
+    public static float pan(long event) {
+        return (short) (event >>> 32) / (float) Short.MAX_VALUE;
+    }
+
+    public static float score(long event) {
+        return Float.intBitsToFloat((int) event);
+    }
+}
@@ -2,34 +2,67 @@ package com.example.echosight.feedback;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.os.Vibrator;
+import android.os.Build;
+import android.os.VibrationEffect;
 import android.os.Vibrator;
 
+/**
+ * One vibration waveform per proximity level (indexed by
+ * {@link FeedbackController.ProximityLevel#ordinal()}). The VibrationEffects
+ * are built once here, so playing one allocates nothing; before API 26 the
+ * same timings go through the old pattern call.
+ */
 @SuppressWarnings("deprecation")
 @SuppressLint("MissingPermission")
 public class HapticManager {
 
+    // Off/on timings in ms, starting with the delay before the first pulse
+    private static final long[][] TIMINGS = {
+            {0, 150},                        // FAR
+            {0, 300, 400, 300},              // MID
+            {0, 150, 100, 150, 100, 150}     // NEAR
+    };
+    // Closer is stronger
+    private static final int[] STRENGTH = {120, 190, 255};
+
     private final Vibrator vibrator;
+    private final boolean available;
+    private final Object[] effects;   // VibrationEffect from API 26 on
 
     public HapticManager(Context context) {
         vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        available = vibrator != null && vibrator.hasVibrator();
+
+        effects = new Object[TIMINGS.length];
+        if (available && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            boolean amplitude = vibrator.hasAmplitudeControl();
+            for (int level = 0; level < TIMINGS.length; level++) {
+                effects[level] = VibrationEffect.createWaveform(TIMINGS[level],
+                        amplitudes(TIMINGS[level].length, amplitude ? STRENGTH[level] : VibrationEffect.DEFAULT_AMPLITUDE), -1);
+            }
+        }
+    }
+
+    /** Plays the waveform for a level; cheap enough for the feedback thread. */
+    public void play(int level) {
+        if (!available) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            vibrator.vibrate((VibrationEffect) effects[level]);
+        } else {
+            vibrator.vibrate(TIMINGS[level], -1);
+        }
     }
 
     public void vibrateFar() {
-        if (vibrator == null || !vibrator.hasVibrator()) return;
-        vibrator.vibrate(150);
+        play(FeedbackController.ProximityLevel.FAR.ordinal());
     }
 
     public void vibrateMid() {
-        if (vibrator == null || !vibrator.hasVibrator()) return;
-        long[] pattern = {0, 300, 400, 300};
-        vibrator.vibrate(pattern, -1);
+        play(FeedbackController.ProximityLevel.MID.ordinal());
     }
 
     public void vibrateNear() {
-        if (vibrator == null || !vibrator.hasVibrator()) return;
-        long[] pattern = {0, 150, 100, 150, 100, 150};
-        vibrator.vibrate(pattern, -1);
+        play(FeedbackController.ProximityLevel.NEAR.ordinal());
     }
 
     public void stop() {
@@ -37,4 +70,20 @@ public class HapticManager {
             vibrator.cancel();
         }
     }
-}
\ No newline at end of file
+
+    /** How long each level's waveform lasts, in ms. */
+    public static long[] durationsMs() {
+        long[] durations = new long[TIMINGS.length];
+        for (int level = 0; level < TIMINGS.length; level++) {
+            for (long t : TIMINGS[level]) durations[level] += t;
+        }
+        return durations;
+    }
+
+    /** Off segments silent, on segments at the given amplitude. */
+    private static int[] amplitudes(int segments, int strength) {
+        int[] amplitudes = new int[segments];
+        for (int i = 1; i < segments; i += 2) amplitudes[i] = strength;
+        return amplitudes;
+    }
+}
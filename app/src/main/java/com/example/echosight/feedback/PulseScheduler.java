@@ -0,0 +1,64 @@
+package com.example.echosight.feedback;
+
+/**
+ * Decides when the haptic pulse for a proximity level is played. Requests
+ * coalesce: only the latest level counts, and it is played only if it
+ * differs from the last one played. A rise to a higher level cuts in at
+ * once (the new waveform replaces the one playing); anything else waits
+ * until the previous waveform has finished plus a minimum gap, so a
+ * flickering level can't turn into a continuous buzz. Levels are ordered
+ * by urgency, so at most two rises can follow each other before a gap.
+ *
+ * Feedback thread only; allocation-free.
+ */
+public class PulseScheduler {
+
+    public static final int NONE = -1;
+
+    private final long[] durationsNs;   // per level, of the waveform played for it
+    private final long minGapNs;
+
+    private int requested = NONE;
+    private int played = NONE;
+    private long quietUntilNs = Long.MIN_VALUE;
+
+    public PulseScheduler(long[] durationsMs, long minGapMs) {
+        durationsNs = new long[durationsMs.length];
+        for (int i = 0; i < durationsMs.length; i++) durationsNs[i] = durationsMs[i] * 1_000_000L;
+        minGapNs = minGapMs * 1_000_000L;
+    }
+
+    /** The level the feedback should be at; replaces any earlier request. */
+    public void request(int level) {
+        requested = level;
+    }
+
+    /**
+     * @return the level to pulse now, or NONE
+     */
+    public int poll(long nowNs) {
+        if (requested == NONE || requested == played) return NONE;
+        if (nowNs < quietUntilNs && requested < played) return NONE;
+
+        int level = requested;
+        played = level;
+        quietUntilNs = nowNs + durationsNs[level] + minGapNs;
+        return level;
+    }
+
+    /**
+     * When a pending level can next be played: Long.MIN_VALUE if it can cut in
+     * now, Long.MAX_VALUE if nothing is pending.
+     */
+    public long nextDueNs() {
+        if (requested == NONE || requested == played) return Long.MAX_VALUE;
+        return requested > played ? Long.MIN_VALUE : quietUntilNs;
+    }
+
+    /** Forgets requests and what was played, e.g. when navigation stops. */
+    public void reset() {
+        requested = NONE;
+        played = NONE;
+        quietUntilNs = Long.MIN_VALUE;
+    }
+}
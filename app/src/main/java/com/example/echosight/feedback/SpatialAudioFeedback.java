@@ -0,0 +1,210 @@
+package com.example.echosight.feedback;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Continuous proximity cue streamed into a low-latency AudioTrack from its
+ * own audio-priority thread. The tone ({@link ToneSynth}) is panned to the
+ * nearest object and its pitch and pulse rate follow the object's proximity
+ * score on every frame, not only when the zone changes.
+ *
+ * The stream writes one device burst at a time, so a new target is heard
+ * within about a buffer. After a while with nothing to play the track is
+ * paused and the thread sleeps until the next cue.
+ *
+ * Cue onset is measured like AudioFeedback's beeps, from the request to the
+ * hand-off to the output (the write holding the first sounding frame), and
+ * also to when that frame reaches the DAC, from the track's timestamps.
+ */
+public class SpatialAudioFeedback implements AudioCues {
+
+    private static final String TAG = "AudioFeedback";
+    private static final long IDLE_PAUSE_MS = 2000;
+
+    private final AudioTrack track;
+    private final ToneSynth synth;
+    private final int sampleRate;
+    private final int burstFrames;
+    private final short[] block;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private boolean paused = false;                // waiting for a cue; guarded by this
+    private long framesWritten = 0;                // audio thread
+
+    // ---------- ONSET LATENCY ----------
+    private volatile long onsetRequestNs = 0;      // cue requested from silence, not yet rendered
+    private final AudioTimestamp timestamp = new AudioTimestamp();    // audio thread
+    private long pendingRequestNs = 0;             // audio thread: written, DAC time not known yet
+    private long pendingFrame = -1;
+    private long handoffTotalNs = 0;               // guarded by this
+    private int handoffCount = 0;
+    private long dacTotalNs = 0;
+    private int dacCount = 0;
+
+    public SpatialAudioFeedback(Context context) {
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        sampleRate = property(audioManager, AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE,
+                AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC));
+        int minBytes = AudioTrack.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_OUT_STEREO,
+                AudioFormat.ENCODING_PCM_16BIT);
+        // The device's burst; writing in bursts keeps the queue short
+        burstFrames = property(audioManager, AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER, minBytes / 8);
+
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ASSISTANCE_SONIFICATION)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                        .build())
+                .setAudioFormat(new AudioFormat.Builder()
+                        .setSampleRate(sampleRate)
+                        .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                        .setChannelMask(AudioFormat.CHANNEL_OUT_STEREO)
+                        .build())
+                .setTransferMode(AudioTrack.MODE_STREAM)
+                .setBufferSizeInBytes(Math.max(minBytes, burstFrames * 4 * 2));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        track = builder.build();
+
+        synth = new ToneSynth(sampleRate);
+        block = new short[burstFrames * 2];
+        thread = new Thread(this::runAudio, "EchoSight-Audio");
+        thread.start();
+        Log.d(TAG, "Spatial audio: " + sampleRate + " Hz, burst " + burstFrames + " frames");
+    }
+
+    @Override
+    public void onLevelChanged(FeedbackController.ProximityLevel level) {
+        // Pitch and rate already follow the score continuously
+    }
+
+    @Override
+    public void onNearest(float pan, float score) {
+        if (!synth.isActive()) onsetRequestNs = System.nanoTime();
+        synth.setTarget(pan, score);
+        synchronized (this) {
+            if (paused) notifyAll();
+        }
+    }
+
+    @Override
+    public void onClear() {
+        synth.silence();
+    }
+
+    // ---------- AUDIO THREAD ----------
+
+    private void runAudio() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+
+        while (waitForCue()) {
+            track.play();
+            long silentSinceNs = 0;
+            while (running) {
+                if (synth.isActive() || synth.isSounding()) {
+                    silentSinceNs = 0;
+                } else {
+                    long now = System.nanoTime();
+                    if (silentSinceNs == 0) silentSinceNs = now;
+                    else if (now - silentSinceNs > IDLE_PAUSE_MS * 1_000_000L) break;
+                }
+
+                int onset = synth.render(block, burstFrames);
+                track.write(block, 0, block.length);
+                if (onset >= 0) recordHandoff(framesWritten + onset);
+                framesWritten += burstFrames;
+                if (pendingFrame >= 0) recordDac();
+            }
+            track.pause();
+            track.flush();
+            framesWritten = 0;
+            pendingFrame = -1;
+        }
+    }
+
+    /** Sleeps until there is a cue to play; false once released. */
+    private synchronized boolean waitForCue() {
+        paused = true;
+        while (running && !synth.isActive()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        paused = false;
+        return running;
+    }
+
+    /** The block holding the first sounding frame of a cue was just written. */
+    private void recordHandoff(long onsetFrame) {
+        long requestedNs = onsetRequestNs;
+        if (requestedNs == 0) return;
+        onsetRequestNs = 0;
+
+        long latencyNs = System.nanoTime() - requestedNs;
+        synchronized (this) {
+            handoffTotalNs += latencyNs;
+            handoffCount++;
+        }
+        pendingRequestNs = requestedNs;
+        pendingFrame = onsetFrame;
+    }
+
+    /** Once the track reports a timestamp, extrapolates it to when the onset frame plays. */
+    private void recordDac() {
+        if (!track.getTimestamp(timestamp)) return;
+
+        long dacNs = timestamp.nanoTime
+                + (pendingFrame - timestamp.framePosition) * 1_000_000_000L / sampleRate;
+        synchronized (this) {
+            dacTotalNs += dacNs - pendingRequestNs;
+            dacCount++;
+        }
+        pendingFrame = -1;
+    }
+
+    @Override
+    public synchronized String latencyReport() {
+        return String.format(Locale.US, "spatial cue onset: %.1f ms average over %d cues to the output "
+                        + "(write), %.1f ms over %d to the DAC (track timestamp)",
+                handoffCount == 0 ? 0f : handoffTotalNs / 1e6f / handoffCount, handoffCount,
+                dacCount == 0 ? 0f : dacTotalNs / 1e6f / dacCount, dacCount);
+    }
+
+    @Override
+    public void release() {
+        running = false;
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            thread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.i(TAG, latencyReport());
+        track.release();
+    }
+
+    private static int property(AudioManager audioManager, String key, int fallback) {
+        String value = audioManager == null ? null : audioManager.getProperty(key);
+        if (value == null) return fallback;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.echosight.feedback;
+
+/**
+ * Renders the proximity cue as interleaved 16-bit stereo PCM: a train of
+ * short tone pulses whose pitch and repetition rate rise as the object gets
+ * closer, panned to where it is.
+ *
+ * Everything per sample is a table lookup: one cycle of the waveform (a
+ * fundamental with some second harmonic, which is easier to place left or
+ * right than a pure sine), equal-power pan gains and a raised-cosine
+ * attack/release. The target set by {@link #setTarget} is read once per
+ * block and approached smoothly, so the cue follows the object without
+ * clicks or zipper noise.
+ *
+ * {@link #setTarget} and {@link #silence} may be called from any thread;
+ * {@link #render} from one audio thread only. Rendering allocates nothing.
+ */
+public class ToneSynth {
+
+    // ---------- CUE MAPPING ----------
+    // Proximity score (see logic.ProximityEstimator) to closeness 0..1
+    static final float FAR_SCORE = 0.15f;
+    static final float FULL_SCORE = 0.8f;
+    static final float MIN_FREQUENCY = 330f;       // two octaves up at full closeness
+    static final float MIN_RATE = 1.5f;            // pulses per second
+    static final float MAX_RATE = 10f;
+    static final float MIN_GAIN = 0.25f;
+    static final float MAX_GAIN = 0.7f;
+    private static final float PULSE_MS = 60f;
+    private static final float RAMP_MS = 5f;
+    private static final float SMOOTHING_MS = 30f;  // time constant of parameter changes
+
+    // ---------- TABLES ----------
+    private static final int TABLE_BITS = 10;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final float[] WAVE = new float[TABLE_SIZE + 1];   // one guard sample for interpolation
+    private static final int PAN_STEPS = 128;
+    private static final float[] PAN_GAIN = new float[PAN_STEPS + 1]; // left gain; right reads it backwards
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            double phase = 2 * Math.PI * i / TABLE_SIZE;
+            WAVE[i] = (float) ((Math.sin(phase) + 0.35 * Math.sin(2 * phase)) / 1.25);
+        }
+        for (int i = 0; i <= PAN_STEPS; i++) {
+            PAN_GAIN[i] = (float) Math.cos(0.5 * Math.PI * i / PAN_STEPS);
+        }
+    }
+
+    private final int sampleRate;
+    private final float[] ramp;                    // attack shape; release reads it backwards
+
+    // ---------- TARGET (any thread) ----------
+    private volatile float targetPan = 0f;
+    private volatile float targetCloseness = 0f;
+    private volatile boolean active = false;
+
+    // ---------- RENDER STATE (audio thread) ----------
+    private float pan = 0f;
+    private float closeness = 0f;
+    private boolean sounding = false;
+    private long phase = 0;                        // 32.32 fixed point, in table samples
+    private int pulsePos = 0;                      // samples into the current pulse period
+    private int pulsePeriod = 1;
+    private int pulseLength = 0;
+
+    public ToneSynth(int sampleRate) {
+        this.sampleRate = sampleRate;
+        int rampLength = Math.max(2, Math.round(RAMP_MS * sampleRate / 1000f));
+        ramp = new float[rampLength];
+        for (int i = 0; i < rampLength; i++) {
+            ramp[i] = (float) (0.5 - 0.5 * Math.cos(Math.PI * (i + 0.5) / rampLength));
+        }
+    }
+
+    /**
+     * Where the cue should be.
+     *
+     * @param pan   -1 (left) to 1 (right)
+     * @param score proximity score of the object, 0 far away to about 1
+     */
+    public void setTarget(float pan, float score) {
+        targetPan = clamp(pan, -1f, 1f);
+        targetCloseness = clamp((score - FAR_SCORE) / (FULL_SCORE - FAR_SCORE), 0f, 1f);
+        active = true;
+    }
+
+    /** Fades out after the current pulse. */
+    public void silence() {
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Renders {@code frames} stereo frames into {@code out} (left, right interleaved).
+     *
+     * @return the frame at which a cue started from silence in this block, or -1
+     */
+    public int render(short[] out, int frames) {
+        boolean wasSounding = sounding;
+        boolean on = active;
+        if (on && !wasSounding) {
+            // Jump straight to the target so the first pulse is already in place
+            pan = targetPan;
+            closeness = targetCloseness;
+            pulsePos = 0;
+            sounding = true;
+        } else if (on) {
+            float k = 1f - (float) Math.exp(-frames * 1000f / (SMOOTHING_MS * sampleRate));
+            pan += (targetPan - pan) * k;
+            closeness += (targetCloseness - closeness) * k;
+        }
+
+        if (!sounding) {
+            for (int i = 0; i < frames * 2; i++) out[i] = 0;
+            return -1;
+        }
+
+        float frequency = MIN_FREQUENCY * (1f + 3f * closeness);   // 330 to 1320 Hz
+        float rate = MIN_RATE + (MAX_RATE - MIN_RATE) * closeness * closeness;
+        float gain = (MIN_GAIN + (MAX_GAIN - MIN_GAIN) * closeness) * Short.MAX_VALUE;
+        long increment = (long) ((double) frequency * TABLE_SIZE / sampleRate * (1L << 32));
+        pulsePeriod = Math.max(1, Math.round(sampleRate / rate));
+        pulseLength = Math.min(Math.round(PULSE_MS * sampleRate / 1000f), pulsePeriod / 2);
+
+        int panIndex = Math.round((pan + 1f) * 0.5f * PAN_STEPS);
+        float leftGain = gain * PAN_GAIN[panIndex];
+        float rightGain = gain * PAN_GAIN[PAN_STEPS - panIndex];
+        int rampLength = ramp.length;
+
+        int onset = wasSounding ? -1 : 0;
+        for (int i = 0; i < frames; i++) {
+            if (pulsePos >= pulsePeriod) {
+                pulsePos = 0;
+                if (!on) {
+                    // Silenced: stop between pulses, never in the middle of one
+                    sounding = false;
+                    for (int j = i * 2; j < frames * 2; j++) out[j] = 0;
+                    return onset;
+                }
+            }
+
+            float sample = 0f;
+            if (pulsePos < pulseLength) {
+                int index = (int) (phase >>> 32) & (TABLE_SIZE - 1);
+                float frac = (phase & 0xFFFFFFFFL) * (1f / 4294967296f);
+                sample = WAVE[index] + (WAVE[index + 1] - WAVE[index]) * frac;
+                if (pulsePos < rampLength) {
+                    sample *= ramp[pulsePos];
+                } else if (pulsePos >= pulseLength - rampLength) {
+                    sample *= ramp[pulseLength - 1 - pulsePos];
+                }
+                phase += increment;
+            } else {
+                phase = 0;   // every pulse starts at a zero crossing
+            }
+            pulsePos++;
+
+            out[i * 2] = (short) (sample * leftGain);
+            out[i * 2 + 1] = (short) (sample * rightGain);
+        }
+        return onset;
+    }
+
+    // ---------- STATE (audio thread, for tests) ----------
+
+    float currentPan() { return pan; }
+    float currentCloseness() { return closeness; }
+    int pulsePeriod() { return pulsePeriod; }
+    boolean isSounding() { return sounding; }
+
+    private static float clamp(float value, float min, float max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.echosight.logic;
 
-import android.graphics.RectF;
 
 import com.example.echosight.detection.DetectionResult;
 
@@ -34,14 +33,19 @@ public class DirectionEstimator {
             int imageWidth
     ) {
         // Safety check
-        if (detection == null || detection.getBoundingBox() == null) {
+        if (detection == null) {
             return Direction.CENTER;
         }
 
-        RectF box = detection.getBoundingBox();
+        return estimateDirection(detection.getLeft(), detection.getRight(), imageWidth);
+    }
 
+    /**
+     * Same as above on raw box edges (px).
+     */
+    public static Direction estimateDirection(float left, float right, int imageWidth) {
         // Find center X of bounding box
-        float boxCenterX = (box.left + box.right) / 2f;
+        float boxCenterX = (left + right) / 2f;
 
         // Divide screen into 3 equal vertical zones
         float leftBoundary = imageWidth / 3f;
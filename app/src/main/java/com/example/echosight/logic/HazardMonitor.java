@@ -0,0 +1,180 @@
+package com.example.echosight.logic;
+
+import com.example.echosight.detection.DetectionResult;
+import com.example.echosight.detection.DetectionResults;
+import com.example.echosight.detection.LabelMap;
+
+/**
+ * The per-frame decision: feeds detections to the {@link ObjectTracker},
+ * evaluates the confirmed tracks with a {@link SceneEvaluator} and decides
+ * whether the most urgent hazard should be announced.
+ *
+ * A hazard is announced when it is a different track or alert level than
+ * the last announcement, or when the cooldown has passed. The announcement
+ * is urgent if it is NEAR (including by time to collision) or a track not
+ * announced just before.
+ *
+ * Works on arrays sized at construction, so a frame allocates nothing;
+ * only building the spoken message, which is the caller's job, does.
+ * One instance per analysis stream; not thread-safe.
+ */
+public class HazardMonitor {
+
+    private static final int NEAR = ProximityEstimator.Proximity.NEAR.ordinal();
+
+    private final ObjectTracker tracker;
+    private final SceneEvaluator scene;
+    private final LabelMap labelMap;
+    private final long cooldownNs;
+
+    // ---------- CONFIRMED TRACKS (scene input) ----------
+    private final float[] boxes;
+    private final float[] timeToCollision;
+    private final int[] priorities;
+    private final boolean[] ignored;
+    private final int[] trackIds;
+    private final int[] classIds;
+    private int trackCount = 0;
+    private float nearestPan = 0f;
+    private float nearestScore = 0f;
+
+    // ---------- ANNOUNCEMENTS ----------
+    private boolean announcedAny = false;
+    private long lastAnnouncedNs = 0;
+    private int lastTrackId = DetectionResult.NO_TRACK;
+    private int lastAlert = -1;
+    private int announced = -1;             // track index announced this frame
+    private boolean urgent = false;
+
+    public HazardMonitor(int capacity, LabelMap labelMap, float ttcHorizonS, long cooldownMs) {
+        this.tracker = new ObjectTracker(capacity);
+        this.scene = new SceneEvaluator(capacity, ttcHorizonS);
+        this.labelMap = labelMap;
+        this.cooldownNs = cooldownMs * 1_000_000L;
+
+        boxes = new float[capacity * 4];
+        timeToCollision = new float[capacity];
+        priorities = new int[capacity];
+        ignored = new boolean[capacity];
+        trackIds = new int[capacity];
+        classIds = new int[capacity];
+    }
+
+    /**
+     * Tracks a frame of new detections and evaluates it.
+     *
+     * @return whether {@link #announcedClassId()} should be announced now
+     */
+    public boolean update(DetectionResults detections, int frameWidth, int frameHeight, long nowNs) {
+        tracker.update(detections, nowNs);
+        return evaluate(frameWidth, frameHeight, nowNs);
+    }
+
+    /**
+     * Same as above for detections from part of the frame ({@code cropLeft..cropBottom}, px),
+     * e.g. a corridor inference; see {@link ObjectTracker}.
+     */
+    public boolean update(DetectionResults detections, int cropLeft, int cropTop, int cropRight, int cropBottom,
+                          int frameWidth, int frameHeight, long nowNs) {
+        tracker.update(detections, cropLeft, cropTop, cropRight, cropBottom, nowNs);
+        return evaluate(frameWidth, frameHeight, nowNs);
+    }
+
+    /** Primitive variant: {@code boxes} holds left, top, right, bottom per detection. */
+    public boolean update(int n, float[] boxes, float[] scores, int[] classes,
+                          int frameWidth, int frameHeight, long nowNs) {
+        tracker.update(n, boxes, scores, classes, nowNs);
+        return evaluate(frameWidth, frameHeight, nowNs);
+    }
+
+    /**
+     * Re-evaluates the current tracks for a frame that brought no new
+     * evidence (the motion gate reused the last detections).
+     */
+    public boolean reuse(int frameWidth, int frameHeight, long nowNs) {
+        return evaluate(frameWidth, frameHeight, nowNs);
+    }
+
+    private boolean evaluate(int frameWidth, int frameHeight, long nowNs) {
+        announced = -1;
+
+        trackCount = 0;
+        for (int i = 0; i < tracker.size(); i++) {
+            if (!tracker.isConfirmed(i)) continue;
+
+            int k = trackCount++;
+            boxes[k * 4] = tracker.left(i);
+            boxes[k * 4 + 1] = tracker.top(i);
+            boxes[k * 4 + 2] = tracker.right(i);
+            boxes[k * 4 + 3] = tracker.bottom(i);
+            timeToCollision[k] = tracker.timeToCollision(i);
+            int classId = tracker.classId(i);
+            classIds[k] = classId;
+            trackIds[k] = tracker.trackId(i);
+            priorities[k] = labelMap.priority(classId);
+            ignored[k] = labelMap.semanticType(classId) == SemanticMapper.SemanticType.IGNORE;
+        }
+        if (trackCount == 0) return false;
+
+        scene.evaluate(trackCount, boxes, timeToCollision, priorities, ignored, frameWidth, frameHeight);
+        locateNearest(frameWidth);
+        if (scene.hazardCount() == 0) return false;
+
+        int top = scene.hazard(0);
+        int alert = scene.alert(top).ordinal();
+        int trackId = trackIds[top];
+        boolean changed = trackId != lastTrackId || alert != lastAlert;
+        if (announcedAny && !changed && nowNs - lastAnnouncedNs <= cooldownNs) return false;
+
+        urgent = alert == NEAR || trackId != lastTrackId;
+        announced = top;
+        announcedAny = true;
+        lastAnnouncedNs = nowNs;
+        lastTrackId = trackId;
+        lastAlert = alert;
+        return true;
+    }
+
+    /** Highest alert level first, then the highest proximity score; ignored classes included. */
+    private void locateNearest(int frameWidth) {
+        int nearest = 0;
+        for (int i = 1; i < trackCount; i++) {
+            int alert = scene.alert(i).ordinal();
+            int best = scene.alert(nearest).ordinal();
+            if (alert > best || (alert == best && scene.proximityScore(i) > scene.proximityScore(nearest))) {
+                nearest = i;
+            }
+        }
+        float centerX = (boxes[nearest * 4] + boxes[nearest * 4 + 2]) * 0.5f;
+        nearestPan = frameWidth > 0 ? Math.max(-1f, Math.min(1f, centerX / frameWidth * 2f - 1f)) : 0f;
+        // Something about to be reached sounds at least as close as NEAR
+        nearestScore = scene.alert(nearest) == ProximityEstimator.Proximity.NEAR
+                ? Math.max(scene.proximityScore(nearest), ProximityEstimator.NEAR_SCORE)
+                : scene.proximityScore(nearest);
+    }
+
+    // ---------- RESULTS (last frame) ----------
+
+    /** Confirmed tracks in the last frame. */
+    public int trackCount() { return trackCount; }
+
+    /** Closest alert level among the confirmed tracks; FAR if there are none. */
+    public ProximityEstimator.Proximity nearest() {
+        return trackCount == 0 ? ProximityEstimator.Proximity.FAR : scene.nearest();
+    }
+
+    /** Horizontal position of the nearest track, -1 (left edge) to 1 (right edge). */
+    public float nearestPan() { return nearestPan; }
+    /** Proximity score of the nearest track, raised to NEAR_SCORE if it is imminent. */
+    public float nearestScore() { return nearestScore; }
+
+    /** Class of the hazard to announce; only valid when the last update returned true. */
+    public int announcedClassId() { return classIds[announced]; }
+    public int announcedTrackId() { return trackIds[announced]; }
+    public ProximityEstimator.Proximity announcedAlert() { return scene.alert(announced); }
+    /** NEAR, or a different track than the one announced before: should cut off other speech. */
+    public boolean isAnnouncementUrgent() { return urgent; }
+
+    public ObjectTracker getTracker() { return tracker; }
+    public SceneEvaluator getScene() { return scene; }
+}
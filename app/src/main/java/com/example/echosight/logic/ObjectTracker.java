@@ -0,0 +1,424 @@
+package com.example.echosight.logic;
+
+
+import com.example.echosight.detection.DetectionResult;
+import com.example.echosight.detection.DetectionResults;
+
+/**
+ * Multi-object tracker that turns per-frame detections into stable tracks.
+ *
+ * Each frame, predicted track boxes are matched to detections of the same
+ * class by IoU (greedy, best pair first). Matched tracks are corrected with
+ * a constant-velocity alpha-beta filter on centre and size, so boxes are
+ * smoothed without lagging behind a moving object. A track is confirmed
+ * after CONFIRM_HITS matches and retired after too many frames without one;
+ * unmatched confident detections start new tentative tracks. Track ids are
+ * never reused.
+ *
+ * Each track also keeps the measured box size of its last few matches, from
+ * which {@link TimeToCollision} predicts when an approaching object is reached.
+ *
+ * Each update says which part of the frame the detections come from (in
+ * corridor mode most inferences only see the middle). A track predicted
+ * outside that region is not counted as missed, and a box cut by the
+ * region's side keeps the track's width and time to collision as they were.
+ *
+ * Everything lives in arrays sized at construction, so a frame costs the same
+ * and allocates nothing however many objects are in view (up to capacity).
+ * One instance per analysis stream; not thread-safe.
+ */
+public class ObjectTracker {
+
+    private static final float MIN_CONFIDENCE = 0.60f;   // weaker detections never start a track
+    private static final float MIN_IOU = 0.3f;
+    private static final int CONFIRM_HITS = 3;
+    private static final int MAX_MISSES_TENTATIVE = 1;
+    private static final int MAX_MISSES_CONFIRMED = 3;
+
+    // Alpha-beta gains for position/size and their velocities
+    private static final float ALPHA = 0.6f;
+    private static final float BETA = 0.2f;
+
+    private static final float MIN_DT = 0.01f;
+    private static final float MAX_DT = 0.5f;
+
+    private static final int HISTORY = 8;   // matched frames kept for time to collision
+
+    // A box side this close (px) to the side of the region was cut by it
+    private static final float CLIP_MARGIN = 2f;
+
+    private final int capacity;
+    private int count = 0;
+    private int nextTrackId = 1;
+    private long lastUpdateNs = -1;
+
+    // Part of the frame this update's detections come from
+    private float regionLeft;
+    private float regionTop;
+    private float regionRight;
+    private float regionBottom;
+
+    // ---------- TRACK STATE ----------
+    private final int[] trackIds;
+    private final int[] classIds;
+    private final String[] labels;
+    private final float[] confidences;
+    private final int[] hits;
+    private final int[] misses;
+    private final int[] assigned;          // detection matched this frame, or -1
+    // Centre x/y, width, height and their velocities (per second)
+    private final float[] cx;
+    private final float[] cy;
+    private final float[] w;
+    private final float[] h;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] vw;
+    private final float[] vh;
+    // Measured box width per match, oldest first, HISTORY per track. Width rather
+    // than area: the bottom of a floor-standing object leaves the frame long
+    // before its sides do, and a clipped height stops growing.
+    private final long[] historyNs;
+    private final float[] historySizes;
+    private final int[] historyCount;
+    private final float[] timeToCollision;
+
+    // ---------- FRAME SCRATCH ----------
+    private final float[] detBoxes;        // l, t, r, b per detection
+    private final float[] detScores;
+    private final int[] detClassIds;
+    private final String[] detLabels;
+    private final boolean[] detUsed;
+    private final float[] iou;             // capacity x capacity, track-major
+
+    private DetectionResults confirmed;    // created on first use, see update(DetectionResults, long)
+
+    public ObjectTracker(int capacity) {
+        this.capacity = capacity;
+        trackIds = new int[capacity];
+        classIds = new int[capacity];
+        labels = new String[capacity];
+        confidences = new float[capacity];
+        hits = new int[capacity];
+        misses = new int[capacity];
+        assigned = new int[capacity];
+        cx = new float[capacity];
+        cy = new float[capacity];
+        w = new float[capacity];
+        h = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        vw = new float[capacity];
+        vh = new float[capacity];
+        historyNs = new long[capacity * HISTORY];
+        historySizes = new float[capacity * HISTORY];
+        historyCount = new int[capacity];
+        timeToCollision = new float[capacity];
+
+        detBoxes = new float[capacity * 4];
+        detScores = new float[capacity];
+        detClassIds = new int[capacity];
+        detLabels = new String[capacity];
+        detUsed = new boolean[capacity];
+        iou = new float[capacity * capacity];
+    }
+
+    /**
+     * Feeds one frame of detections from the whole frame and returns the
+     * confirmed tracks with smoothed boxes. The returned container is reused
+     * on every call.
+     */
+    public DetectionResults update(DetectionResults detections, long nowNs) {
+        return update(detections, -Float.MAX_VALUE, -Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, nowNs);
+    }
+
+    /**
+     * Same as above for detections from the given region of the frame (px),
+     * e.g. the corridor crop.
+     */
+    public DetectionResults update(DetectionResults detections,
+                                   float regionLeft, float regionTop, float regionRight, float regionBottom,
+                                   long nowNs) {
+        int n = detections == null ? 0 : Math.min(detections.size(), capacity);
+        for (int i = 0; i < n; i++) {
+            DetectionResult d = detections.get(i);
+            detBoxes[i * 4] = d.getLeft();
+            detBoxes[i * 4 + 1] = d.getTop();
+            detBoxes[i * 4 + 2] = d.getRight();
+            detBoxes[i * 4 + 3] = d.getBottom();
+            detScores[i] = d.getConfidence();
+            detClassIds[i] = d.getClassId();
+            detLabels[i] = d.getLabel();
+        }
+        setRegion(regionLeft, regionTop, regionRight, regionBottom);
+        step(n, nowNs);
+
+        return confirmed();
+    }
+
+    /**
+     * Primitive variant: {@code boxes} holds left, top, right, bottom per detection.
+     */
+    public void update(int n, float[] boxes, float[] scores, int[] classes, long nowNs) {
+        update(n, boxes, scores, classes, -Float.MAX_VALUE, -Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, nowNs);
+    }
+
+    /** Primitive variant for detections from the given region of the frame (px). */
+    public void update(int n, float[] boxes, float[] scores, int[] classes,
+                       float regionLeft, float regionTop, float regionRight, float regionBottom, long nowNs) {
+        n = Math.min(n, capacity);
+        System.arraycopy(boxes, 0, detBoxes, 0, n * 4);
+        System.arraycopy(scores, 0, detScores, 0, n);
+        System.arraycopy(classes, 0, detClassIds, 0, n);
+        for (int i = 0; i < n; i++) detLabels[i] = null;
+        setRegion(regionLeft, regionTop, regionRight, regionBottom);
+        step(n, nowNs);
+    }
+
+    private void setRegion(float left, float top, float right, float bottom) {
+        regionLeft = left;
+        regionTop = top;
+        regionRight = right;
+        regionBottom = bottom;
+    }
+
+    /** Confirmed tracks from the last update, without updating. */
+    public DetectionResults confirmed() {
+        if (confirmed == null) confirmed = new DetectionResults(capacity);
+        confirmed.clear();
+        for (int i = 0; i < count; i++) {
+            if (!isConfirmed(i)) continue;
+            confirmed.add(left(i), top(i), right(i), bottom(i), confidences[i], classIds[i], labels[i], trackIds[i],
+                    timeToCollision[i]);
+        }
+        return confirmed;
+    }
+
+    public void reset() {
+        count = 0;
+        lastUpdateNs = -1;
+    }
+
+    // ---------- PER-FRAME STEP ----------
+
+    private void step(int n, long nowNs) {
+        float dt = lastUpdateNs < 0 ? 0f : clamp((nowNs - lastUpdateNs) / 1e9f, MIN_DT, MAX_DT);
+        lastUpdateNs = nowNs;
+
+        predict(dt);
+        associate(n);
+        correct(dt, nowNs);
+        retire();
+        spawn(n, nowNs);
+    }
+
+    private void predict(float dt) {
+        for (int i = 0; i < count; i++) {
+            cx[i] += vx[i] * dt;
+            cy[i] += vy[i] * dt;
+            w[i] = Math.max(1f, w[i] + vw[i] * dt);
+            h[i] = Math.max(1f, h[i] + vh[i] * dt);
+            timeToCollision[i] = Math.max(0f, timeToCollision[i] - dt);
+            assigned[i] = -1;
+        }
+    }
+
+    /** Greedy IoU matching: repeatedly take the best remaining same-class pair. */
+    private void associate(int n) {
+        for (int d = 0; d < n; d++) detUsed[d] = false;
+
+        for (int t = 0; t < count; t++) {
+            for (int d = 0; d < n; d++) {
+                iou[t * capacity + d] = classIds[t] == detClassIds[d] ? iou(t, d) : 0f;
+            }
+        }
+
+        while (true) {
+            float best = MIN_IOU;
+            int bestTrack = -1;
+            int bestDet = -1;
+            for (int t = 0; t < count; t++) {
+                if (assigned[t] >= 0) continue;
+                for (int d = 0; d < n; d++) {
+                    if (detUsed[d]) continue;
+                    float value = iou[t * capacity + d];
+                    if (value >= best) {
+                        best = value;
+                        bestTrack = t;
+                        bestDet = d;
+                    }
+                }
+            }
+            if (bestTrack < 0) return;
+
+            assigned[bestTrack] = bestDet;
+            detUsed[bestDet] = true;
+        }
+    }
+
+    private void correct(float dt, long nowNs) {
+        for (int t = 0; t < count; t++) {
+            int d = assigned[t];
+            if (d < 0) {
+                // Where the model didn't look, not being detected says nothing
+                if (inRegion(t)) misses[t]++;
+                continue;
+            }
+            int base = d * 4;
+            float zx = (detBoxes[base] + detBoxes[base + 2]) * 0.5f;
+            float zy = (detBoxes[base + 1] + detBoxes[base + 3]) * 0.5f;
+            float zw = detBoxes[base + 2] - detBoxes[base];
+            float zh = detBoxes[base + 3] - detBoxes[base + 1];
+
+            // A box cut by the side of the region is as wide as what's left of it: keep
+            // the predicted width, placed by the side that was seen
+            boolean clippedLeft = detBoxes[base] <= regionLeft + CLIP_MARGIN;
+            boolean clippedRight = detBoxes[base + 2] >= regionRight - CLIP_MARGIN;
+            boolean clipped = isClipped(base);
+            if (clipped) {
+                zw = w[t];
+                if (!clippedLeft) zx = detBoxes[base] + zw * 0.5f;
+                else if (!clippedRight) zx = detBoxes[base + 2] - zw * 0.5f;
+                else zx = cx[t];
+            }
+
+            float rx = zx - cx[t];
+            float ry = zy - cy[t];
+            float rw = zw - w[t];
+            float rh = zh - h[t];
+
+            cx[t] += ALPHA * rx;
+            cy[t] += ALPHA * ry;
+            w[t] += ALPHA * rw;
+            h[t] += ALPHA * rh;
+            if (dt > 0f) {
+                vx[t] += BETA * rx / dt;
+                vy[t] += BETA * ry / dt;
+                vw[t] += BETA * rw / dt;
+                vh[t] += BETA * rh / dt;
+            }
+
+            confidences[t] = detScores[d];
+            labels[t] = detLabels[d];
+            hits[t]++;
+            misses[t] = 0;
+
+            // Raw sizes, not the smoothed ones: the fit does its own averaging
+            if (clipped) continue;
+            record(t, zw, nowNs);
+            timeToCollision[t] = TimeToCollision.estimate(historyNs, historySizes, t * HISTORY, historyCount[t]);
+        }
+    }
+
+    /** Whether the detection at {@code base} in detBoxes touches a side of this update's region. */
+    private boolean isClipped(int base) {
+        return detBoxes[base] <= regionLeft + CLIP_MARGIN || detBoxes[base + 2] >= regionRight - CLIP_MARGIN;
+    }
+
+    /** Whether the predicted centre of track {@code t} is in this update's region. */
+    private boolean inRegion(int t) {
+        return cx[t] >= regionLeft && cx[t] <= regionRight && cy[t] >= regionTop && cy[t] <= regionBottom;
+    }
+
+    private void record(int t, float width, long nowNs) {
+        int base = t * HISTORY;
+        if (historyCount[t] == HISTORY) {
+            System.arraycopy(historyNs, base + 1, historyNs, base, HISTORY - 1);
+            System.arraycopy(historySizes, base + 1, historySizes, base, HISTORY - 1);
+            historyCount[t]--;
+        }
+        int k = base + historyCount[t]++;
+        historyNs[k] = nowNs;
+        historySizes[k] = width;
+    }
+
+    private void retire() {
+        int kept = 0;
+        for (int t = 0; t < count; t++) {
+            int maxMisses = hits[t] >= CONFIRM_HITS ? MAX_MISSES_CONFIRMED : MAX_MISSES_TENTATIVE;
+            if (misses[t] > maxMisses) continue;
+            if (kept != t) move(t, kept);
+            kept++;
+        }
+        count = kept;
+    }
+
+    private void spawn(int n, long nowNs) {
+        for (int d = 0; d < n && count < capacity; d++) {
+            if (detUsed[d] || detScores[d] < MIN_CONFIDENCE) continue;
+
+            int t = count++;
+            int base = d * 4;
+            trackIds[t] = nextTrackId++;
+            classIds[t] = detClassIds[d];
+            labels[t] = detLabels[d];
+            confidences[t] = detScores[d];
+            hits[t] = 1;
+            misses[t] = 0;
+            cx[t] = (detBoxes[base] + detBoxes[base + 2]) * 0.5f;
+            cy[t] = (detBoxes[base + 1] + detBoxes[base + 3]) * 0.5f;
+            w[t] = detBoxes[base + 2] - detBoxes[base];
+            h[t] = detBoxes[base + 3] - detBoxes[base + 1];
+            vx[t] = 0f;
+            vy[t] = 0f;
+            vw[t] = 0f;
+            vh[t] = 0f;
+            historyCount[t] = 0;
+            if (!isClipped(base)) record(t, w[t], nowNs);
+            timeToCollision[t] = TimeToCollision.NONE;
+        }
+    }
+
+    private float iou(int t, int d) {
+        int base = d * 4;
+        float il = Math.max(left(t), detBoxes[base]);
+        float it = Math.max(top(t), detBoxes[base + 1]);
+        float ir = Math.min(right(t), detBoxes[base + 2]);
+        float ib = Math.min(bottom(t), detBoxes[base + 3]);
+        if (ir <= il || ib <= it) return 0f;
+
+        float intersection = (ir - il) * (ib - it);
+        float detArea = (detBoxes[base + 2] - detBoxes[base]) * (detBoxes[base + 3] - detBoxes[base + 1]);
+        return intersection / (w[t] * h[t] + detArea - intersection);
+    }
+
+    private void move(int from, int to) {
+        trackIds[to] = trackIds[from];
+        classIds[to] = classIds[from];
+        labels[to] = labels[from];
+        confidences[to] = confidences[from];
+        hits[to] = hits[from];
+        misses[to] = misses[from];
+        assigned[to] = assigned[from];
+        cx[to] = cx[from];
+        cy[to] = cy[from];
+        w[to] = w[from];
+        h[to] = h[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        vw[to] = vw[from];
+        vh[to] = vh[from];
+        historyCount[to] = historyCount[from];
+        timeToCollision[to] = timeToCollision[from];
+        System.arraycopy(historyNs, from * HISTORY, historyNs, to * HISTORY, HISTORY);
+        System.arraycopy(historySizes, from * HISTORY, historySizes, to * HISTORY, HISTORY);
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+
+    // ---------- TRACK ACCESS (all tracks, confirmed or not) ----------
+
+    public int size() { return count; }
+    public int trackId(int i) { return trackIds[i]; }
+    public int classId(int i) { return classIds[i]; }
+    public boolean isConfirmed(int i) { return hits[i] >= CONFIRM_HITS; }
+    public int misses(int i) { return misses[i]; }
+    /** Seconds until predicted contact, or {@link TimeToCollision#NONE}. */
+    public float timeToCollision(int i) { return timeToCollision[i]; }
+    public float left(int i) { return cx[i] - w[i] * 0.5f; }
+    public float top(int i) { return cy[i] - h[i] * 0.5f; }
+    public float right(int i) { return cx[i] + w[i] * 0.5f; }
+    public float bottom(int i) { return cy[i] + h[i] * 0.5f; }
+}
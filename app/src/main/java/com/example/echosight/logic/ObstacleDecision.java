@@ -1,28 +1,46 @@
 package com.example.echosight.logic;
 
-import android.graphics.RectF;
 import com.example.echosight.detection.DetectionResult;
 
 public class ObstacleDecision {
 
+    /** The path is the middle band of the frame, between these fractions of its width. */
+    public static final float PATH_LEFT = 0.3f;
+    public static final float PATH_RIGHT = 0.7f;
+
+    /** A box in the path blocks it once it covers more than this fraction of the frame. */
+    public static final float BLOCKING_AREA_RATIO = 0.08f;
+
     public static boolean isBlocking(
             DetectionResult d,
             int frameWidth,
             int frameHeight
     ) {
-        RectF box = d.getBoundingBox();
+        return isBlocking(d.getLeft(), d.getTop(), d.getRight(), d.getBottom(), frameWidth, frameHeight);
+    }
 
+    /** Same as above on raw box edges (px). */
+    public static boolean isBlocking(float left, float top, float right, float bottom,
+                                     int frameWidth, int frameHeight) {
         float areaRatio =
-                (box.width() * box.height()) /
+                ((right - left) * (bottom - top)) /
                         (frameWidth * frameHeight);
 
-        float centerX = box.centerX();
-        float left = frameWidth * 0.3f;
-        float right = frameWidth * 0.7f;
+        boolean largeEnough = areaRatio > BLOCKING_AREA_RATIO;
+
+        return isInPath(left, right, frameWidth) && largeEnough;
+    }
+
+    /** Whether the box centre is in the middle band of the frame, whatever its size. */
+    public static boolean isInPath(DetectionResult d, int frameWidth) {
+        return isInPath(d.getLeft(), d.getRight(), frameWidth);
+    }
 
-        boolean inPath = centerX > left && centerX < right;
-        boolean largeEnough = areaRatio > 0.08f;
+    public static boolean isInPath(float left, float right, int frameWidth) {
+        float centerX = (left + right) * 0.5f;
+        float pathLeft = frameWidth * PATH_LEFT;
+        float pathRight = frameWidth * PATH_RIGHT;
 
-        return inPath && largeEnough;
+        return centerX > pathLeft && centerX < pathRight;
     }
 }
@@ -1,6 +1,5 @@
 package com.example.echosight.logic;
 
-import android.graphics.RectF;
 
 import com.example.echosight.detection.DetectionResult;
 
@@ -39,17 +38,25 @@ public class ProximityEstimator {
     ) {
         // ---------- SAFETY ----------
         if (detection == null
-                || detection.getBoundingBox() == null
                 || imageWidth <= 0
                 || imageHeight <= 0) {
             return Proximity.FAR;
         }
 
-        RectF box = detection.getBoundingBox();
+        float score = score(detection.getLeft(), detection.getTop(), detection.getRight(), detection.getBottom(),
+                imageWidth, imageHeight);
 
+        // ---------- THRESHOLDS ----------
+        return fromScore(score);
+    }
+
+    /**
+     * Hybrid score on raw box edges (px): 0 far away, about 1 for a box filling the frame.
+     */
+    public static float score(float left, float top, float right, float bottom, int imageWidth, int imageHeight) {
         // ---------- AREA RATIO ----------
-        float boxWidth = Math.max(0, box.right - box.left);
-        float boxHeight = Math.max(0, box.bottom - box.top);
+        float boxWidth = Math.max(0, right - left);
+        float boxHeight = Math.max(0, bottom - top);
 
         float boxArea = boxWidth * boxHeight;
         float imageArea = imageWidth * imageHeight;
@@ -57,17 +64,27 @@ public class ProximityEstimator {
         float areaRatio = boxArea / imageArea;   // 0.0 → 1.0
 
         // ---------- BOTTOM POSITION ----------
-        float bottomRatio = box.bottom / imageHeight; // 0.0 (top) → 1.0 (bottom)
+        float bottomRatio = bottom / imageHeight; // 0.0 (top) → 1.0 (bottom)
 
         // ---------- HYBRID SCORE ----------
         // Area = size cue
         // Bottom = distance cue (ground plane)
-        float score = (0.6f * areaRatio) + (0.4f * bottomRatio);
+        return (AREA_WEIGHT * areaRatio) + (BOTTOM_WEIGHT * bottomRatio);
+    }
 
-        // ---------- THRESHOLDS ----------
-        if (score < 0.35f) {
+    /** Weights of the area and bottom-position cues in the hybrid score. */
+    public static final float AREA_WEIGHT = 0.6f;
+    public static final float BOTTOM_WEIGHT = 0.4f;
+
+    /** Lowest hybrid scores of the MID and NEAR zones. */
+    public static final float MID_SCORE = 0.35f;
+    public static final float NEAR_SCORE = 0.55f;
+
+    /** Proximity zone for a hybrid score. */
+    public static Proximity fromScore(float score) {
+        if (score < MID_SCORE) {
             return Proximity.FAR;
-        } else if (score < 0.55f) {
+        } else if (score < NEAR_SCORE) {
             return Proximity.MID;
         } else {
             return Proximity.NEAR;
@@ -0,0 +1,211 @@
+package com.example.echosight.logic;
+
+
+import com.example.echosight.detection.DetectionResult;
+import com.example.echosight.detection.DetectionResults;
+import com.example.echosight.detection.LabelMap;
+
+/**
+ * Evaluates every object of a frame in one pass: direction zone, proximity
+ * score and zone, path overlap, blocking flag and time-to-collision
+ * escalation, then ranks the hazards worth announcing.
+ *
+ * Works on packed boxes (left, top, right, bottom per object) with the frame
+ * constants computed once per frame size, instead of calling
+ * DirectionEstimator, ProximityEstimator and ObstacleDecision box by box.
+ * The arithmetic is the same as in those classes, so zones and flags match
+ * them exactly. Fixed arrays, no allocation per frame; not thread-safe.
+ */
+public class SceneEvaluator {
+
+    private static final DirectionEstimator.Direction[] DIRECTIONS = DirectionEstimator.Direction.values();
+    private static final ProximityEstimator.Proximity[] PROXIMITIES = ProximityEstimator.Proximity.values();
+    private static final int FAR = ProximityEstimator.Proximity.FAR.ordinal();
+    private static final int MID = ProximityEstimator.Proximity.MID.ordinal();
+    private static final int NEAR = ProximityEstimator.Proximity.NEAR.ordinal();
+
+    private final int capacity;
+    private final float ttcHorizonS;
+
+    // ---------- FRAME CONSTANTS ----------
+    private int frameWidth = -1;
+    private int frameHeight = -1;
+    private boolean validFrame;
+    private float imageArea;
+    private float directionLeft;
+    private float directionRight;
+    private float pathLeft;
+    private float pathRight;
+
+    // ---------- PACKED INPUT (for evaluate(DetectionResults, ...)) ----------
+    private final float[] boxes;
+    private final float[] timeToCollision;
+    private final int[] priorities;
+    private final boolean[] ignored;
+
+    // ---------- OUTPUT ----------
+    private int count = 0;
+    private final int[] directions;
+    private final float[] scores;
+    private final int[] proximities;
+    private final int[] alerts;
+    private final float[] pathOverlap;
+    private final boolean[] blocking;
+    private final boolean[] imminent;
+    private final float[] areas;
+    private int[] rankPriorities;          // the caller's array, for ranking only
+    private final int[] hazards;           // object indices, most urgent first
+    private int hazardCount = 0;
+    private int nearest = FAR;
+
+    /**
+     * @param ttcHorizonS objects in the path with predicted contact sooner than
+     *                    this are treated as NEAR and as blocking
+     */
+    public SceneEvaluator(int capacity, float ttcHorizonS) {
+        this.capacity = capacity;
+        this.ttcHorizonS = ttcHorizonS;
+        boxes = new float[capacity * 4];
+        timeToCollision = new float[capacity];
+        priorities = new int[capacity];
+        ignored = new boolean[capacity];
+
+        directions = new int[capacity];
+        scores = new float[capacity];
+        proximities = new int[capacity];
+        alerts = new int[capacity];
+        pathOverlap = new float[capacity];
+        blocking = new boolean[capacity];
+        imminent = new boolean[capacity];
+        areas = new float[capacity];
+        hazards = new int[capacity];
+    }
+
+    /**
+     * Packs a frame's detections (or tracks) and evaluates them. Results are
+     * indexed like {@code detections}.
+     */
+    public void evaluate(DetectionResults detections, int frameWidth, int frameHeight, LabelMap labelMap) {
+        int n = Math.min(detections.size(), capacity);
+        for (int i = 0; i < n; i++) {
+            DetectionResult d = detections.get(i);
+            boxes[i * 4] = d.getLeft();
+            boxes[i * 4 + 1] = d.getTop();
+            boxes[i * 4 + 2] = d.getRight();
+            boxes[i * 4 + 3] = d.getBottom();
+            timeToCollision[i] = d.getTimeToCollision();
+            priorities[i] = labelMap.priority(d.getClassId());
+            ignored[i] = labelMap.semanticType(d.getClassId()) == SemanticMapper.SemanticType.IGNORE;
+        }
+        evaluate(n, boxes, timeToCollision, priorities, ignored, frameWidth, frameHeight);
+    }
+
+    /**
+     * Primitive variant.
+     *
+     * @param boxes           left, top, right, bottom per object (px)
+     * @param timeToCollision seconds per object, positive infinity if unknown
+     * @param priorities      class priority per object (LabelMap.priority)
+     * @param ignored         classes that are never announced
+     */
+    public void evaluate(int n, float[] boxes, float[] timeToCollision, int[] priorities, boolean[] ignored,
+                         int frameWidth, int frameHeight) {
+        if (frameWidth != this.frameWidth || frameHeight != this.frameHeight) {
+            setFrame(frameWidth, frameHeight);
+        }
+        count = Math.min(n, capacity);
+        hazardCount = 0;
+        nearest = FAR;
+        rankPriorities = priorities;
+
+        for (int i = 0; i < count; i++) {
+            float left = boxes[i * 4];
+            float top = boxes[i * 4 + 1];
+            float right = boxes[i * 4 + 2];
+            float bottom = boxes[i * 4 + 3];
+            float centerX = (left + right) * 0.5f;
+
+            // ---------- DIRECTION ----------
+            int direction = centerX < directionLeft ? 0 : (centerX > directionRight ? 2 : 1);
+            directions[i] = direction;
+
+            // ---------- PROXIMITY ----------
+            int proximity = FAR;
+            if (validFrame) {
+                float area = Math.max(0, right - left) * Math.max(0, bottom - top);
+                float score = (ProximityEstimator.AREA_WEIGHT * (area / imageArea))
+                        + (ProximityEstimator.BOTTOM_WEIGHT * (bottom / frameHeight));
+                scores[i] = score;
+                proximity = score < ProximityEstimator.MID_SCORE ? FAR
+                        : (score < ProximityEstimator.NEAR_SCORE ? MID : NEAR);
+            } else {
+                scores[i] = 0f;
+            }
+            proximities[i] = proximity;
+
+            // ---------- PATH & BLOCKING ----------
+            float width = right - left;
+            float signedArea = width * (bottom - top);
+            boolean inPath = centerX > pathLeft && centerX < pathRight;
+            float overlap = Math.min(right, pathRight) - Math.max(left, pathLeft);
+            pathOverlap[i] = width > 0 && overlap > 0 ? overlap / width : 0f;
+            blocking[i] = inPath && signedArea / imageArea > ObstacleDecision.BLOCKING_AREA_RATIO;
+            imminent[i] = inPath && timeToCollision[i] < ttcHorizonS;
+            areas[i] = signedArea;
+
+            int alert = imminent[i] ? NEAR : proximity;
+            alerts[i] = alert;
+            if (alert > nearest) nearest = alert;
+
+            // ---------- RANKING ----------
+            if (ignored[i] || !(blocking[i] || imminent[i])) continue;
+
+            int k = hazardCount++;
+            while (k > 0 && moreUrgent(i, hazards[k - 1])) {
+                hazards[k] = hazards[k - 1];
+                k--;
+            }
+            hazards[k] = i;
+        }
+    }
+
+    // Nearer first, then the class priority, then the bigger box
+    private boolean moreUrgent(int a, int b) {
+        if (alerts[a] != alerts[b]) return alerts[a] > alerts[b];
+        if (rankPriorities[a] != rankPriorities[b]) return rankPriorities[a] > rankPriorities[b];
+        return areas[a] > areas[b];
+    }
+
+    private void setFrame(int frameWidth, int frameHeight) {
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        validFrame = frameWidth > 0 && frameHeight > 0;
+        imageArea = frameWidth * frameHeight;
+        directionLeft = frameWidth / 3f;
+        directionRight = 2f * frameWidth / 3f;
+        pathLeft = frameWidth * ObstacleDecision.PATH_LEFT;
+        pathRight = frameWidth * ObstacleDecision.PATH_RIGHT;
+    }
+
+    // ---------- RESULTS (valid until the next evaluate) ----------
+
+    public int size() { return count; }
+    public DirectionEstimator.Direction direction(int i) { return DIRECTIONS[directions[i]]; }
+    public float proximityScore(int i) { return scores[i]; }
+    /** Zone from the size and position thresholds alone, as ProximityEstimator. */
+    public ProximityEstimator.Proximity proximity(int i) { return PROXIMITIES[proximities[i]]; }
+    /** Zone after time-to-collision escalation; what feedback should use. */
+    public ProximityEstimator.Proximity alert(int i) { return PROXIMITIES[alerts[i]]; }
+    /** Fraction of the box width inside the walking path (0..1). */
+    public float pathOverlap(int i) { return pathOverlap[i]; }
+    /** As ObstacleDecision.isBlocking. */
+    public boolean isBlocking(int i) { return blocking[i]; }
+    public boolean isImminent(int i) { return imminent[i]; }
+
+    /** Highest alert over all objects, FAR if there are none. */
+    public ProximityEstimator.Proximity nearest() { return PROXIMITIES[nearest]; }
+    /** Objects worth announcing: not ignored, and blocking or imminent. */
+    public int hazardCount() { return hazardCount; }
+    /** Object index of the rank-th hazard, most urgent first. */
+    public int hazard(int rank) { return hazards[rank]; }
+}
@@ -24,6 +24,10 @@ public class SemanticMapper {
         IGNORE
     }
 
+    /**
+     * Called once per label when the label map loads (see detection.LabelMap);
+     * the per-frame path only indexes the resulting table.
+     */
     public static SemanticType classify(String label) {
         if (label == null) return SemanticType.IGNORE;
 
@@ -33,4 +37,18 @@ public class SemanticMapper {
         // Unknown objects → treat as obstacle for safety
         return SemanticType.OBSTACLE;
     }
+
+    /**
+     * How urgently a class should be announced when several compete, higher
+     * first: people, then the known obstacles, then unknown objects. Ignored
+     * classes are 0. Also computed once per label at load time.
+     */
+    public static int priority(String label) {
+        if (label == null) return 0;
+
+        if ("person".equals(label)) return 3;
+        if (OBSTACLES.contains(label)) return 2;
+        if (IGNORE.contains(label)) return 0;
+        return 1;
+    }
 }
@@ -0,0 +1,58 @@
+package com.example.echosight.logic;
+
+/**
+ * Time to collision from how fast an object's image grows.
+ *
+ * For an object approaching at a steady speed its image size s is
+ * proportional to 1/distance, so 1/s falls linearly in time and reaches zero
+ * at contact. A least-squares line through 1/s over the last few frames gives
+ * the time to contact without knowing the object's real size or distance,
+ * and averages out the detector jitter a two-frame ratio would amplify.
+ */
+public final class TimeToCollision {
+
+    /** No contact predicted: the object is receding, steady, or too far off. */
+    public static final float NONE = Float.POSITIVE_INFINITY;
+
+    private static final int MIN_SAMPLES = 3;
+    private static final float MIN_SPAN_S = 0.2f;
+    private static final float MAX_TTC_S = 30f;
+
+    private TimeToCollision() {}
+
+    /**
+     * @param timesNs sample times, oldest first
+     * @param sizes   image size of the object per sample, e.g. its box width
+     * @return seconds from the last sample to contact, or {@link #NONE}
+     */
+    public static float estimate(long[] timesNs, float[] sizes, int offset, int n) {
+        if (n < MIN_SAMPLES) return NONE;
+
+        long lastNs = timesNs[offset + n - 1];
+        if ((lastNs - timesNs[offset]) / 1e9f < MIN_SPAN_S) return NONE;
+
+        // Fit u = 1/s against t, in seconds relative to the last sample
+        double sumT = 0, sumU = 0, sumTT = 0, sumTU = 0;
+        for (int i = offset; i < offset + n; i++) {
+            if (sizes[i] <= 0f) return NONE;
+            double t = (timesNs[i] - lastNs) / 1e9;
+            double u = 1.0 / sizes[i];
+            sumT += t;
+            sumU += u;
+            sumTT += t * t;
+            sumTU += t * u;
+        }
+        double denominator = n * sumTT - sumT * sumT;
+        if (denominator <= 0) return NONE;
+
+        double slope = (n * sumTU - sumT * sumU) / denominator;
+        if (slope >= 0) return NONE;
+
+        // Fitted 1/s at the last sample, and when the line reaches zero
+        double intercept = (sumU - slope * sumT) / n;
+        if (intercept <= 0) return 0f;
+
+        double ttc = -intercept / slope;
+        return ttc > MAX_TTC_S ? NONE : (float) ttc;
+    }
+}
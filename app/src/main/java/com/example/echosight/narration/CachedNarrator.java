@@ -0,0 +1,85 @@
+package com.example.echosight.narration;
+
+import com.example.echosight.EnvironmentNarrator;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Scene descriptions through a {@link NarrationCache}: a frame whose hash is
+ * close to one described recently is answered locally, anything else goes
+ * to the model and its answer is cached. Keeps the response time of both.
+ *
+ * @param <I> the image type the model takes
+ */
+public class CachedNarrator<I> {
+
+    private final SceneModel<I> model;
+    private final NarrationCache cache;
+    private final LongSupplier clock;   // wall-clock ms, like the cache
+
+    // ---------- STATS ----------
+    private int cachedCount = 0;
+    private long cachedNs = 0;
+    private int liveCount = 0;
+    private long liveNs = 0;
+
+    public CachedNarrator(SceneModel<I> model, NarrationCache cache) {
+        this(model, cache, System::currentTimeMillis);
+    }
+
+    CachedNarrator(SceneModel<I> model, NarrationCache cache, LongSupplier clock) {
+        this.model = model;
+        this.cache = cache;
+        this.clock = clock;
+    }
+
+    /**
+     * @param hash  {@link PerceptualHash} of the frame
+     * @param image makes the model's input; only called on a miss
+     * @return true if answered from the cache, in which case the callback has already run
+     */
+    public boolean describe(long hash, Supplier<I> image, EnvironmentNarrator.DescriptionCallback callback) {
+        long startNs = System.nanoTime();
+        String cached = cache.lookup(hash, clock.getAsLong());
+        if (cached != null) {
+            record(true, System.nanoTime() - startNs);
+            callback.onDescriptionReady(cached);
+            return true;
+        }
+
+        model.describe(image.get(), new EnvironmentNarrator.DescriptionCallback() {
+            @Override
+            public void onDescriptionReady(String description) {
+                record(false, System.nanoTime() - startNs);
+                if (description != null && !description.trim().isEmpty()) {
+                    cache.put(hash, description, clock.getAsLong());
+                }
+                callback.onDescriptionReady(description);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+        });
+        return false;
+    }
+
+    private synchronized void record(boolean fromCache, long ns) {
+        if (fromCache) {
+            cachedCount++;
+            cachedNs += ns;
+        } else {
+            liveCount++;
+            liveNs += ns;
+        }
+    }
+
+    public synchronized String report() {
+        return String.format(Locale.US, "narrator: %d cached in %.2f ms average, %d live in %.0f ms average; %s",
+                cachedCount, cachedCount == 0 ? 0f : cachedNs / 1e6f / cachedCount,
+                liveCount, liveCount == 0 ? 0f : liveNs / 1e6f / liveCount, cache.report());
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.echosight.narration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Scene descriptions keyed by the {@link PerceptualHash} of the frame they
+ * describe. A lookup returns the closest entry within the configured
+ * Hamming distance, so asking again about the same unchanged place is
+ * answered locally.
+ *
+ * Entries expire after a TTL, since people move even when the room looks
+ * the same, and beyond the capacity the least recently used go first. The
+ * cache is written to a file whenever a description is added (hits stay in
+ * memory, so they cost no I/O) and read back on construction, so it
+ * survives restarts; times are wall-clock for that reason. Thread-safe.
+ */
+public class NarrationCache {
+
+    private static final int FORMAT = 1;
+
+    /** A description and when it was made, in wall-clock ms. */
+    static final class Entry {
+        final long hash;
+        final String text;
+        final long createdMs;
+
+        Entry(long hash, String text, long createdMs) {
+            this.hash = hash;
+            this.text = text;
+            this.createdMs = createdMs;
+        }
+    }
+
+    private final File file;
+    private final int capacity;
+    private final long ttlMs;
+    private final int maxDistance;
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // ---------- STATS ----------
+    private int hits = 0;
+    private int misses = 0;
+    private int expired = 0;
+    private int evicted = 0;
+
+    /**
+     * @param file        where the cache persists; null keeps it in memory
+     * @param maxDistance largest Hamming distance (of 64 bits) that still counts as the same scene
+     */
+    public NarrationCache(File file, int capacity, long ttlMs, int maxDistance, long nowMs) {
+        this.file = file;
+        this.capacity = capacity;
+        this.ttlMs = ttlMs;
+        this.maxDistance = maxDistance;
+        load(nowMs);
+    }
+
+    /** The description of the closest fresh scene within the distance, or null. */
+    public synchronized String lookup(long hash, long nowMs) {
+        dropExpired(nowMs);
+
+        Entry best = null;
+        int bestDistance = maxDistance + 1;
+        for (Entry entry : entries.values()) {
+            int distance = PerceptualHash.distance(hash, entry.hash);
+            if (distance < bestDistance) {
+                best = entry;
+                bestDistance = distance;
+            }
+        }
+        if (best == null) {
+            misses++;
+            return null;
+        }
+
+        entries.get(best.hash);   // most recently used
+        hits++;
+        return best.text;
+    }
+
+    /** Stores a fresh description, replacing any entry for a near-identical scene. */
+    public synchronized void put(long hash, String text, long nowMs) {
+        dropExpired(nowMs);
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (PerceptualHash.distance(hash, it.next().hash) <= maxDistance) it.remove();
+        }
+        entries.put(hash, new Entry(hash, text, nowMs));
+        trim();
+        save();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        save();
+    }
+
+    public synchronized String report() {
+        int lookups = hits + misses;
+        return String.format(Locale.US,
+                "narration cache: %d entries, %d/%d hits (%.0f%%), %d expired, %d evicted",
+                entries.size(), hits, lookups, lookups == 0 ? 0f : 100f * hits / lookups, expired, evicted);
+    }
+
+    private boolean dropExpired(long nowMs) {
+        boolean changed = false;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if (nowMs - it.next().createdMs > ttlMs) {
+                it.remove();
+                expired++;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+            evicted++;
+        }
+    }
+
+    // ---------- PERSISTENCE ----------
+    // Least recently used first, so reading back in order restores the LRU order
+
+    private void save() {
+        if (file == null) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeLong(entry.hash);
+                out.writeLong(entry.createdMs);
+                out.writeUTF(entry.text);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        // Replace in one step so a crash never leaves half a file
+        if (!tmp.renameTo(file)) tmp.delete();
+    }
+
+    private void load(long nowMs) {
+        if (file == null || !file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long hash = in.readLong();
+                long createdMs = in.readLong();
+                String text = in.readUTF();
+                entries.put(hash, new Entry(hash, text, createdMs));
+            }
+        } catch (IOException e) {
+            // Unreadable or cut short: keep what was read
+        }
+        if (dropExpired(nowMs) | entries.size() > capacity) {
+            trim();
+            save();
+        }
+    }
+}
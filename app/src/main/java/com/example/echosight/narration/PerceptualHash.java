@@ -0,0 +1,56 @@
+package com.example.echosight.narration;
+
+/**
+ * 64-bit difference hash of a frame: the image is box-averaged down to a
+ * 9x8 grid of luma values and each bit says whether a cell is brighter than
+ * its right-hand neighbour. Small changes in exposure, noise or framing flip
+ * few bits, so near-duplicate scenes are a short Hamming distance apart.
+ */
+public final class PerceptualHash {
+
+    private static final int COLS = 9;
+    private static final int ROWS = 8;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * @param argb   packed pixels, row-major (as from Bitmap.getPixels)
+     * @param width  in pixels, at least 9
+     * @param height in pixels, at least 8
+     */
+    public static long hash(int[] argb, int width, int height) {
+        float[] cells = new float[COLS * ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            int y0 = row * height / ROWS;
+            int y1 = Math.max(y0 + 1, (row + 1) * height / ROWS);
+            for (int col = 0; col < COLS; col++) {
+                int x0 = col * width / COLS;
+                int x1 = Math.max(x0 + 1, (col + 1) * width / COLS);
+                long sum = 0;
+                for (int y = y0; y < y1; y++) {
+                    for (int x = x0; x < x1; x++) sum += luma(argb[y * width + x]);
+                }
+                cells[row * COLS + col] = sum / (float) ((y1 - y0) * (x1 - x0));
+            }
+        }
+
+        long bits = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLS - 1; col++) {
+                bits <<= 1;
+                if (cells[row * COLS + col] > cells[row * COLS + col + 1]) bits |= 1;
+            }
+        }
+        return bits;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // BT.601 integer weights, 0-255
+    private static int luma(int pixel) {
+        return (77 * ((pixel >> 16) & 0xFF) + 150 * ((pixel >> 8) & 0xFF) + 29 * (pixel & 0xFF)) >> 8;
+    }
+}
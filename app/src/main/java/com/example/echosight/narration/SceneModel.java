@@ -0,0 +1,14 @@
+package com.example.echosight.narration;
+
+import com.example.echosight.EnvironmentNarrator;
+
+/**
+ * Something that describes a scene image, such as the remote model behind
+ * {@link EnvironmentNarrator}. The callback may come on any thread.
+ *
+ * @param <I> the image type it takes
+ */
+public interface SceneModel<I> {
+
+    void describe(I image, EnvironmentNarrator.DescriptionCallback callback);
+}
@@ -0,0 +1,93 @@
+package com.example.echosight.narration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Cuts streamed text into sentences as the chunks arrive, so each one can be
+ * spoken as soon as it is complete. A sentence ends at a line break, or at
+ * '.', '!', '?' or '…' (with any closing quotes or brackets) followed by
+ * white space. Text ending in one of those is held back until the next
+ * chunk shows what follows, so "3." + "5 metres" and "Mr." + " Lee" stay
+ * whole; common abbreviations never end a sentence.
+ *
+ * Each chunk is scanned once. Not thread-safe.
+ */
+public class SentenceSplitter {
+
+    private static final Set<String> ABBREVIATIONS = new HashSet<>(Arrays.asList(
+            "mr", "mrs", "ms", "dr", "st", "vs", "approx", "e.g", "i.e"));
+
+    private final StringBuilder pending = new StringBuilder();
+    private int scanned = 0;   // pending[0, scanned) holds no boundary
+
+    /** Adds a chunk; returns the sentences it completed, in order (often none). */
+    public List<String> accept(CharSequence chunk) {
+        pending.append(chunk);
+        List<String> sentences = new ArrayList<>(2);
+        int start = 0;
+        int i = scanned;
+        int length = pending.length();
+        while (i < length) {
+            char c = pending.charAt(i);
+            if (c == '\n') {
+                emit(start, i, sentences);
+                start = i + 1;
+                i++;
+                continue;
+            }
+            if (!isTerminator(c)) {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && (isTerminator(pending.charAt(end)) || isCloser(pending.charAt(end)))) end++;
+            // Wait for what follows: a digit, more dots or the end of the text
+            if (end == length) break;
+            if (Character.isWhitespace(pending.charAt(end)) && !(c == '.' && abbreviationBefore(i))) {
+                emit(start, end, sentences);
+                start = end;
+            }
+            i = end;
+        }
+        pending.delete(0, start);
+        scanned = i - start;
+        return sentences;
+    }
+
+    /** The text after the last sentence, e.g. once the stream ends; null if there is none. */
+    public String flush() {
+        String rest = pending.toString().trim();
+        reset();
+        return rest.isEmpty() ? null : rest;
+    }
+
+    public void reset() {
+        pending.setLength(0);
+        scanned = 0;
+    }
+
+    private void emit(int start, int end, List<String> sentences) {
+        String sentence = pending.substring(start, end).trim();
+        if (!sentence.isEmpty()) sentences.add(sentence);
+    }
+
+    /** Whether the word ending just before the '.' at {@code dot} is an abbreviation. */
+    private boolean abbreviationBefore(int dot) {
+        int from = dot;
+        while (from > 0 && (Character.isLetter(pending.charAt(from - 1)) || pending.charAt(from - 1) == '.')) from--;
+        return ABBREVIATIONS.contains(pending.substring(from, dot).toLowerCase(Locale.US));
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '…';
+    }
+
+    private static boolean isCloser(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '”' || c == '’';
+    }
+}
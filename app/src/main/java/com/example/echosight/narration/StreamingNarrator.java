@@ -0,0 +1,163 @@
+package com.example.echosight.narration;
+
+import com.example.echosight.EnvironmentNarrator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Speaks a scene description sentence by sentence while the model is still
+ * generating it, instead of after the last token: the text is streamed
+ * through a {@link SentenceSplitter} and each sentence goes to the
+ * {@link Speaker} as soon as it is complete. The callback of
+ * {@link #describe} gets the whole text at the end, for the
+ * {@link NarrationCache}, once it has all been queued.
+ *
+ * One description runs at a time; a new one, or {@link #cancel()}, stops
+ * the previous one's generation and its speech. A cancelled description
+ * never reaches its callback. Thread-safe.
+ *
+ * @param <I> the image type the model takes
+ */
+public class StreamingNarrator<I> implements SceneModel<I> {
+
+    /** Where sentences go. Called with the narrator's lock held, so hand off rather than block. */
+    public interface Speaker {
+        void narrate(String sentence);
+
+        /** Drops the narration queued or playing; other speech carries on. */
+        void stopNarration();
+    }
+
+    private final StreamingSceneModel<I> model;
+    private final Speaker speaker;
+    private Session active;
+
+    // ---------- STATS ----------
+    private int started = 0;
+    private int completed = 0;
+    private int cancelled = 0;
+    private int failed = 0;
+    private int firstCount = 0;
+    private long firstSentenceNs = 0;    // request to the first sentence queued for speech
+    private long fullTextNs = 0;         // request to the last sentence queued
+
+    public StreamingNarrator(StreamingSceneModel<I> model, Speaker speaker) {
+        this.model = model;
+        this.speaker = speaker;
+    }
+
+    @Override
+    public void describe(I image, EnvironmentNarrator.DescriptionCallback callback) {
+        Session session = new Session(callback);
+        synchronized (this) {
+            stopActive();
+            active = session;
+            started++;
+        }
+        StreamingSceneModel.Stream stream = model.stream(image, session);
+        synchronized (this) {
+            // Cancelled, or already over, before the model returned
+            if (session.done) {
+                if (session.cancelled) stream.cancel();
+                return;
+            }
+            session.stream = stream;
+        }
+    }
+
+    /** Stops the description in progress, if any: generation and speech. */
+    public synchronized void cancel() {
+        stopActive();
+        active = null;
+    }
+
+    public synchronized boolean isActive() {
+        return active != null;
+    }
+
+    private void stopActive() {
+        if (active == null) return;
+        Session session = active;
+        session.done = true;
+        session.cancelled = true;
+        cancelled++;
+        if (session.stream != null) session.stream.cancel();
+        if (session.sentences > 0) speaker.stopNarration();
+    }
+
+    private final class Session implements StreamingSceneModel.Listener {
+        final EnvironmentNarrator.DescriptionCallback callback;
+        final long startNs = System.nanoTime();
+        final SentenceSplitter splitter = new SentenceSplitter();
+        final StringBuilder text = new StringBuilder();
+        StreamingSceneModel.Stream stream;
+        boolean done;
+        boolean cancelled;
+        int sentences;
+
+        Session(EnvironmentNarrator.DescriptionCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onText(String chunk) {
+            if (chunk == null) return;
+            synchronized (StreamingNarrator.this) {
+                if (done) return;
+                text.append(chunk);
+                speak(splitter.accept(chunk));
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            String description;
+            synchronized (StreamingNarrator.this) {
+                if (done) return;
+                String rest = splitter.flush();
+                if (rest != null) speak(Collections.singletonList(rest));
+                finish();
+                completed++;
+                fullTextNs += System.nanoTime() - startNs;
+                description = text.toString().trim();
+            }
+            callback.onDescriptionReady(description);
+        }
+
+        @Override
+        public void onError(String error) {
+            synchronized (StreamingNarrator.this) {
+                if (done) return;
+                finish();
+                failed++;
+            }
+            callback.onError(error);
+        }
+
+        private void speak(List<String> ready) {
+            for (String sentence : ready) {
+                if (sentences++ == 0) {
+                    firstCount++;
+                    firstSentenceNs += System.nanoTime() - startNs;
+                }
+                speaker.narrate(sentence);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            if (active == this) active = null;
+        }
+    }
+
+    public synchronized String report() {
+        return String.format(Locale.US,
+                "streaming narration: %d started, %d complete, %d cancelled, %d failed; "
+                        + "%.0f ms to the first sentence, %.0f ms to the whole text",
+                started, completed, cancelled, failed,
+                firstCount == 0 ? 0f : firstSentenceNs / 1e6f / firstCount,
+                completed == 0 ? 0f : fullTextNs / 1e6f / completed);
+    }
+}
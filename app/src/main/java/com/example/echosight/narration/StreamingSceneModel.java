@@ -0,0 +1,31 @@
+package com.example.echosight.narration;
+
+import com.example.echosight.EnvironmentNarrator;
+
+/**
+ * A {@link SceneModel} that can also hand over its description while it is
+ * still being generated, as with the streaming API behind
+ * {@link EnvironmentNarrator}. Listener calls for one stream come one at a
+ * time, in order, on any thread.
+ *
+ * @param <I> the image type it takes
+ */
+public interface StreamingSceneModel<I> extends SceneModel<I> {
+
+    interface Listener {
+        /** The next piece of text; chunks do not line up with words or sentences. */
+        void onText(String chunk);
+
+        void onComplete();
+
+        void onError(String error);
+    }
+
+    /** A description being generated. */
+    interface Stream {
+        /** Stops generation; the listener may still see a call already under way. */
+        void cancel();
+    }
+
+    Stream stream(I image, Listener listener);
+}
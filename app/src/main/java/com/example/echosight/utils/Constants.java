@@ -1,8 +1,68 @@
 package com.example.echosight.utils;
 
 public class Constants {
+    // Default model; its descriptor (detect.json) may override the label file and
+    // threshold, and input size / dtype are read from the model (see detection.ModelRegistry)
     public static final String MODEL_PATH = "detect.tflite";
     public static final String LABEL_PATH = "labelmap.txt";
     public static final float CONFIDENCE_THRESHOLD = 0.5f;
-    public static final int INPUT_SIZE = 300; // SSD MobileNet standard
-}
\ No newline at end of file
+    public static final int DETECTOR_POOL_SIZE = 2;   // interpreters running in parallel
+    public static final int WARMUP_INFERENCES = 2;    // per interpreter, before "Systems ready"
+
+    // Adaptive frame scheduling (see camera.FrameScheduler)
+    public static final float TARGET_FPS = 10f;
+    public static final float MAX_CPU_DUTY = 0.6f;      // share of time spent analysing
+    public static final float NEAR_BOOST_FPS = 15f;     // while a NEAR obstacle is tracked
+    public static final float IDLE_FPS = 3f;            // after a while with nothing detected
+    public static final long NEAR_HOLD_MS = 1500;
+    public static final long IDLE_TIMEOUT_MS = 3000;
+
+    // Motion-gated inference (see camera.MotionGate)
+    public static final float MOTION_THRESHOLD = 6f;      // mean luma change, 0-255
+    public static final long MOTION_REFRESH_MS = 1000;    // always infer at least this often
+
+    // Walking-corridor detection mode (see camera.AnalysisPipeline)
+    // ObstacleDecision's path is 30-70% of the width; the crop adds a margin so
+    // boxes centred in the path are not cut off. Its height follows the model
+    // input's aspect ratio, centred vertically.
+    public static final boolean CORRIDOR_MODE = false;
+    public static final float CORRIDOR_LEFT = 0.2f;
+    public static final float CORRIDOR_RIGHT = 0.8f;
+    public static final int FULL_SCAN_INTERVAL = 5;       // every Nth inference sees the whole frame
+
+    // Detect-then-track mode (see camera.AnalysisPipeline, detection.PatchTracker)
+    public static final boolean DETECT_TRACK_MODE = false;
+    public static final int DETECT_INTERVAL = 3;                 // model runs on every Nth analysed frame
+    public static final float TRACK_REDETECT_CONFIDENCE = 0.6f;  // weaker tracks bring the next detection forward
+    public static final int TRACK_LUMA_SCALE = 4;                // tracker thumbnail is 1/4 of the frame
+
+    // An object in the path with predicted contact sooner than this is NEAR (see logic.TimeToCollision)
+    public static final float TTC_HORIZON_S = 2.5f;
+
+    // Continuous panned AudioTrack cue instead of ToneGenerator beeps (see feedback.SpatialAudioFeedback)
+    public static final boolean SPATIAL_AUDIO = true;
+
+    // Analyzer-to-feedback event ring and haptic spacing (see feedback.FeedbackController)
+    public static final int FEEDBACK_QUEUE_SIZE = 64;
+    public static final long HAPTIC_MIN_GAP_MS = 150;     // quiet time after one waveform ends
+
+    // Pre-rendered alert speech (see voice.SpeechOutput); about 100 KB per clip
+    public static final long SPEECH_CACHE_BYTES = 8 * 1024 * 1024;
+    // A queued alert not spoken within this is dropped (see voice.SpeechArbiter)
+    public static final long SPEECH_ALERT_TTL_MS = 1500;
+
+    // On-device keyword spotting for voice commands (see voice.KeywordSpotter). Off until
+    // a model ships in assets; the SpeechRecognizer loop is used instead.
+    public static final boolean KEYWORD_SPOTTING = false;
+    public static final String KWS_MODEL_PATH = "kws.tflite";
+    public static final String KWS_LABEL_PATH = "kws_labels.txt";
+    public static final float KEYWORD_THRESHOLD = 0.8f;   // averaged probability to fire
+
+    // Scene descriptions reused for near-identical frames (see narration.NarrationCache)
+    public static final int NARRATION_CACHE_ENTRIES = 32;
+    // Short: descriptions mention people, who move on while the room stays the same
+    public static final long NARRATION_CACHE_TTL_MS = 30 * 1000;
+    public static final int NARRATION_HASH_DISTANCE = 6;   // of 64 bits
+    // Speak each sentence of a description as it is generated (see narration.StreamingNarrator)
+    public static final boolean STREAMING_NARRATION = true;
+}
@@ -0,0 +1,200 @@
+package com.example.echosight.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs app initialization as a small dependency graph.
+ *
+ * Each step names the steps it needs; a step starts as soon as all of them
+ * have finished, so independent subsystems load in parallel on the background
+ * executor. Steps that must touch the main looper (TTS, SpeechRecognizer,
+ * Handlers) are marked and posted to the main executor instead.
+ *
+ * A step that throws fails itself and every step depending on it; the rest
+ * of the graph still runs. When everything has settled the listener gets the
+ * failed step names and a per-step timing breakdown, on the main executor.
+ */
+public class StartupGraph {
+
+    public interface Step {
+        void run() throws Exception;
+    }
+
+    public interface Listener {
+        void onFinished(List<String> failed, String report);
+    }
+
+    private static final class Node {
+        final String name;
+        final boolean onMain;
+        final Step step;
+        final List<Node> dependents = new ArrayList<>();
+        int pending;
+        boolean failed;
+        String error;
+        String thread;
+        long startNs;
+        long endNs;
+
+        Node(String name, boolean onMain, Step step) {
+            this.name = name;
+            this.onMain = onMain;
+            this.step = step;
+        }
+    }
+
+    private final Executor background;
+    private final Executor main;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    private Listener listener;
+    private long startedNs;
+    private int remaining;
+
+    public StartupGraph(Executor background, Executor main) {
+        this.background = background;
+        this.main = main;
+    }
+
+    /** Adds a step that runs on the background executor. */
+    public StartupGraph add(String name, Step step, String... dependsOn) {
+        return add(name, false, step, dependsOn);
+    }
+
+    /** Adds a step that must run on the main thread. */
+    public StartupGraph addOnMain(String name, Step step, String... dependsOn) {
+        return add(name, true, step, dependsOn);
+    }
+
+    private StartupGraph add(String name, boolean onMain, Step step, String... dependsOn) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate step " + name);
+        }
+        Node node = new Node(name, onMain, step);
+        for (String dependency : dependsOn) {
+            Node parent = nodes.get(dependency);
+            if (parent == null) {
+                // Steps are added in dependency order, which also rules out cycles
+                throw new IllegalArgumentException(name + " depends on unknown step " + dependency);
+            }
+            parent.dependents.add(node);
+            node.pending++;
+        }
+        nodes.put(name, node);
+        return this;
+    }
+
+    public void start(Listener listener) {
+        List<Node> ready = new ArrayList<>();
+        synchronized (this) {
+            if (this.listener != null) throw new IllegalStateException("Already started");
+            this.listener = listener;
+            startedNs = System.nanoTime();
+            remaining = nodes.size();
+
+            for (Node node : nodes.values()) {
+                if (node.pending == 0) ready.add(node);
+            }
+        }
+
+        if (nodes.isEmpty()) {
+            main.execute(() -> listener.onFinished(Collections.emptyList(), report()));
+            return;
+        }
+        for (Node node : ready) schedule(node);
+    }
+
+    private void schedule(Node node) {
+        (node.onMain ? main : background).execute(() -> run(node));
+    }
+
+    private void run(Node node) {
+        long start = System.nanoTime();
+        boolean failed = false;
+        String error = null;
+
+        // Skip the work if something it needs failed
+        boolean upstreamFailed;
+        synchronized (this) {
+            upstreamFailed = node.failed;
+        }
+        if (!upstreamFailed) {
+            try {
+                node.step.run();
+            } catch (Exception e) {
+                failed = true;
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+        }
+
+        finish(node, start, System.nanoTime(), failed, error);
+    }
+
+    private void finish(Node node, long startNs, long endNs, boolean failed, String error) {
+        List<Node> ready = new ArrayList<>();
+        boolean done;
+        synchronized (this) {
+            node.startNs = startNs;
+            node.endNs = endNs;
+            node.thread = Thread.currentThread().getName();
+            if (failed) {
+                node.failed = true;
+                node.error = error;
+            }
+
+            for (Node dependent : node.dependents) {
+                if (node.failed) {
+                    dependent.failed = true;
+                    if (dependent.error == null) dependent.error = "skipped, " + node.name + " failed";
+                }
+                if (--dependent.pending == 0) ready.add(dependent);
+            }
+            done = --remaining == 0;
+        }
+
+        for (Node dependent : ready) schedule(dependent);
+
+        if (done) {
+            List<String> failedSteps = new ArrayList<>();
+            synchronized (this) {
+                for (Node n : nodes.values()) {
+                    if (n.failed) failedSteps.add(n.name);
+                }
+            }
+            String report = report();
+            main.execute(() -> listener.onFinished(failedSteps, report));
+        }
+    }
+
+    /**
+     * One line per step (start offset, duration, thread), then the wall-clock
+     * total against what the same steps would take back to back.
+     */
+    public synchronized String report() {
+        List<Node> byStart = new ArrayList<>(nodes.values());
+        Collections.sort(byStart, (a, b) -> Long.compare(a.startNs, b.startNs));
+
+        StringBuilder out = new StringBuilder();
+        long sequentialNs = 0;
+        long lastEndNs = startedNs;
+        for (Node node : byStart) {
+            long durationNs = node.endNs - node.startNs;
+            sequentialNs += durationNs;
+            lastEndNs = Math.max(lastEndNs, node.endNs);
+
+            out.append(String.format(Locale.US, "%-12s +%6.1f ms %7.1f ms  [%s]",
+                    node.name, (node.startNs - startedNs) / 1e6, durationNs / 1e6, node.thread));
+            if (node.error != null) out.append("  FAILED: ").append(node.error);
+            out.append('\n');
+        }
+        out.append(String.format(Locale.US, "total %.1f ms (%.1f ms if run sequentially)",
+                (lastEndNs - startedNs) / 1e6, sequentialNs / 1e6));
+        return out.toString();
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.echosight.voice;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU index of pre-rendered speech clips (WAV files written by
+ * TextToSpeech.synthesizeToFile), keyed by the exact utterance text.
+ *
+ * Clips are named by a hash of their text, so the cache survives restarts:
+ * files left in the directory are picked up again, oldest use first. The use
+ * order is kept in memory and only written to the files' modification times
+ * by {@link #persistOrder()}, on eviction and shutdown, so a hit does no I/O.
+ * When the total size goes over the budget the least recently played clips
+ * are deleted. Also keeps the hit rate and time-to-first-audio of cached and
+ * live announcements. Thread-safe.
+ */
+public class ClipCache {
+
+    /** A clip on disk and, once loaded, its player handle. */
+    public static final class Clip {
+        public final String name;
+        public final File file;
+        public final long bytes;
+        public final long durationMs;
+        /** Player handle (SoundPool sample id), 0 until loaded. */
+        public volatile int soundId = 0;
+        public volatile boolean loaded = false;
+
+        Clip(String name, File file) {
+            this.name = name;
+            this.file = file;
+            this.bytes = file.length();
+            this.durationMs = wavDurationMs(file);
+        }
+    }
+
+    /** Told about clips dropped from the cache, after their file is deleted. */
+    public interface EvictionListener {
+        void onEvicted(Clip clip);
+    }
+
+    private static final String SUFFIX = ".wav";
+    private static final int WAV_HEADER = 44;
+
+    private final File dir;
+    private final long maxBytes;
+    private final Map<String, Clip> clips = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes = 0;
+    private boolean orderChanged = false;    // since the files' times were last written
+    private EvictionListener evictionListener;
+
+    // ---------- STATS ----------
+    private int hits = 0;
+    private int misses = 0;
+    private long cachedFirstAudioNs = 0;
+    private int cachedFirstAudioCount = 0;
+    private long liveFirstAudioNs = 0;
+    private int liveFirstAudioCount = 0;
+
+    public ClipCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        dir.mkdirs();
+
+        // Pick up clips from earlier runs, least recently used first
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (File file : files) {
+                if (file.length() <= WAV_HEADER) {
+                    file.delete();
+                    continue;
+                }
+                String name = file.getName().substring(0, file.getName().length() - SUFFIX.length());
+                Clip clip = new Clip(name, file);
+                clips.put(name, clip);
+                totalBytes += clip.bytes;
+            }
+        }
+        trim();
+    }
+
+    public synchronized void setEvictionListener(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Looks up a clip to play and counts the hit or miss. A clip that is
+     * still loading counts as a miss.
+     */
+    public synchronized Clip get(String text) {
+        Clip clip = clips.get(keyFor(text));
+        if (clip == null || !clip.loaded) {
+            misses++;
+            return null;
+        }
+        hits++;
+        orderChanged = true;
+        return clip;
+    }
+
+    /** Whether a clip exists for {@code text}, without touching the LRU order or stats. */
+    public synchronized boolean contains(String text) {
+        // containsKey doesn't count as an access in an access-ordered map
+        return clips.containsKey(keyFor(text));
+    }
+
+    /** Where the clip for {@code text} should be synthesised to. */
+    public File fileFor(String text) {
+        return new File(dir, keyFor(text) + SUFFIX);
+    }
+
+    /**
+     * Adds the clip just written to {@link #fileFor}, evicting old clips if needed.
+     *
+     * @return the new clip, or null if the file is missing or empty
+     */
+    public synchronized Clip put(String text) {
+        File file = fileFor(text);
+        if (file.length() <= WAV_HEADER) {
+            file.delete();
+            return null;
+        }
+        String name = keyFor(text);
+        Clip old = clips.remove(name);
+        if (old != null) totalBytes -= old.bytes;
+
+        Clip clip = new Clip(name, file);
+        clips.put(name, clip);
+        totalBytes += clip.bytes;
+        trim();
+        return clips.containsKey(name) ? clip : null;
+    }
+
+    /** Every clip currently cached, least recently used first. */
+    public synchronized Clip[] all() {
+        return clips.values().toArray(new Clip[0]);
+    }
+
+    private void trim() {
+        boolean evicted = false;
+        Iterator<Clip> eldest = clips.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Clip clip = eldest.next();
+            eldest.remove();
+            totalBytes -= clip.bytes;
+            clip.file.delete();
+            evicted = true;
+            if (evictionListener != null) evictionListener.onEvicted(clip);
+        }
+        if (evicted) persistOrder();
+    }
+
+    /**
+     * Writes the use order to the files' modification times, a second apart
+     * and all in the past, so the next start picks it up and clips written
+     * later count as newer. Does nothing if no hit changed the order.
+     */
+    public synchronized void persistOrder() {
+        if (!orderChanged) return;
+        long time = System.currentTimeMillis() - (clips.size() + 1) * 1000L;
+        for (Clip clip : clips.values()) {
+            time += 1000L;
+            clip.file.setLastModified(time);
+        }
+        orderChanged = false;
+    }
+
+    // ---------- STATS ----------
+
+    /**
+     * Time from the speak request until its first audio was handed to the
+     * output: SoundPool.play for a clip, the engine's first audio chunk for
+     * live speech. Neither includes the output's own buffering.
+     */
+    public synchronized void recordFirstAudio(boolean cached, long nanos) {
+        if (cached) {
+            cachedFirstAudioNs += nanos;
+            cachedFirstAudioCount++;
+        } else {
+            liveFirstAudioNs += nanos;
+            liveFirstAudioCount++;
+        }
+    }
+
+    public synchronized float getHitRate() {
+        int total = hits + misses;
+        return total == 0 ? 0f : (float) hits / total;
+    }
+
+    public synchronized float getAverageFirstAudioMs(boolean cached) {
+        return cached
+                ? (cachedFirstAudioCount == 0 ? 0f : cachedFirstAudioNs / 1e6f / cachedFirstAudioCount)
+                : (liveFirstAudioCount == 0 ? 0f : liveFirstAudioNs / 1e6f / liveFirstAudioCount);
+    }
+
+    public synchronized int size() {
+        return clips.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized String report() {
+        return String.format(Locale.US,
+                "speech clips: %d cached (%d KB), hit rate %.0f%% (%d/%d), "
+                        + "first audio to output %.0f ms cached vs %.0f ms live",
+                clips.size(), totalBytes / 1024, getHitRate() * 100, hits, hits + misses,
+                getAverageFirstAudioMs(true), getAverageFirstAudioMs(false));
+    }
+
+    // ---------- HELPERS ----------
+
+    static String keyFor(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Playing time of a PCM WAV file from its header, or 0 if it can't be read. */
+    static long wavDurationMs(File file) {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() <= WAV_HEADER) return 0;
+            in.seek(28);
+            int byteRate = Integer.reverseBytes(in.readInt());
+            if (byteRate <= 0) return 0;
+            return (in.length() - WAV_HEADER) * 1000 / byteRate;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
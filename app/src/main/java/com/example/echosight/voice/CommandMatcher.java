@@ -0,0 +1,180 @@
+package com.example.echosight.voice;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds a voice command in a recognizer hypothesis while it is still being
+ * spoken. The command grammar is a trie of word tokens; each partial result
+ * (the whole hypothesis so far) is scanned only from where it differs from
+ * the previous one, so the work per partial is the new words.
+ *
+ * A phrase matches whole words only. It fires as soon as nothing said later
+ * could change which command it means: straight away if every longer phrase
+ * starting with it means the same, otherwise once the next word rules them
+ * out or the result is final. The last word of a partial may still be
+ * growing ("stop" can become "stopped"), so a phrase ending on it waits for
+ * the next word, or the final result. One command fires per utterance; later
+ * partials and the final result repeating it are ignored until
+ * {@link #reset()}.
+ */
+public class CommandMatcher {
+
+    /** Phrase and command. Shared with the keyword spotter's labels. */
+    static final String[][] GRAMMAR = {
+            {"start", "START"},
+            {"start navigation", "START"},
+            {"stop", "STOP"},
+            {"stop navigation", "STOP"},
+            {"end", "STOP"},
+            {"describe", "DESCRIBE"},
+            {"what", "DESCRIBE"},
+            {"what's around", "DESCRIBE"}
+    };
+
+    private static final class Node {
+        final Map<String, Node> next = new HashMap<>();
+        String command;      // a phrase ends here
+        String unanimous;    // the one command every phrase through here means, or null
+    }
+
+    private final Node root = new Node();
+    private final int longestPhrase;
+    private final List<String> tokens = new ArrayList<>();
+    private int growing = 0;     // index of the last partial's unfinished word, or its length
+    private String fired;
+
+    public CommandMatcher() {
+        this(GRAMMAR);
+    }
+
+    CommandMatcher(String[][] grammar) {
+        int longest = 0;
+        for (String[] entry : grammar) {
+            List<String> phrase = tokenize(entry[0]);
+            longest = Math.max(longest, phrase.size());
+            Node node = root;
+            for (String token : phrase) {
+                node = node.next.computeIfAbsent(token, t -> new Node());
+            }
+            node.command = entry[1];
+        }
+        longestPhrase = longest;
+        unanimous(root);
+    }
+
+    /**
+     * @param hypothesis the recognizer's text so far
+     * @param isFinal    true for the final result, where nothing more will follow
+     * @return the command to run now, or null (also once one has already fired)
+     */
+    public String accept(String hypothesis, boolean isFinal) {
+        if (fired != null || hypothesis == null) return null;
+
+        // Partials repeat the hypothesis so far; only phrases reaching the first
+        // changed word, or the word that was still growing, need another look
+        List<String> now = tokenize(hypothesis);
+        int common = 0;
+        while (common < now.size() && common < tokens.size() && now.get(common).equals(tokens.get(common))) {
+            common++;
+        }
+        common = Math.min(common, growing);
+        tokens.clear();
+        tokens.addAll(now);
+
+        int n = tokens.size();
+        // The recognizer may still be in the middle of the last word
+        growing = !isFinal && endsInWord(hypothesis) ? n - 1 : n;
+        for (int start = Math.max(0, common - longestPhrase + 1); start < n; start++) {
+            Node node = root;
+            String candidate = null;
+            int i = start;
+            for (; i < n; i++) {
+                Node next = node.next.get(tokens.get(i));
+                if (next == null) break;
+                node = next;
+                if (node.command == null || i == growing) continue;
+                if (node.unanimous != null) return fire(node.command);
+                candidate = node.command;
+            }
+            // A longer phrase meaning something else is ruled out by the end, or by a
+            // word after that is not (the start of) its next word
+            if (candidate != null && (isFinal || (i < n && !couldBecome(tokens.get(i), node, i == growing)))) {
+                return fire(candidate);
+            }
+        }
+        return null;
+    }
+
+    /** A new utterance. */
+    public void reset() {
+        tokens.clear();
+        growing = 0;
+        fired = null;
+    }
+
+    /** The command fired in this utterance, or null. */
+    public String fired() {
+        return fired;
+    }
+
+    private String fire(String command) {
+        fired = command;
+        return command;
+    }
+
+    private static boolean endsInWord(String text) {
+        if (text.isEmpty()) return false;
+        char last = text.charAt(text.length() - 1);
+        return Character.isLetter(last) || last == '\'';
+    }
+
+    private static boolean couldBecome(String word, Node node, boolean growing) {
+        if (!growing) return false;
+        for (String next : node.next.keySet()) {
+            if (next.startsWith(word)) return true;
+        }
+        return false;
+    }
+
+    private static String unanimous(Node node) {
+        String agreed = node.command;
+        boolean split = false;
+        for (Node child : node.next.values()) {
+            String command = unanimous(child);
+            if (command == null || (agreed != null && !agreed.equals(command))) split = true;
+            else agreed = command;
+        }
+        node.unanimous = split ? null : agreed;
+        return node.unanimous;
+    }
+
+    /** The command a whole phrase (e.g. a keyword model label) stands for, or null. */
+    public static String commandFor(String phrase) {
+        String joined = String.join(" ", tokenize(phrase));
+        for (String[] entry : GRAMMAR) {
+            if (entry[0].equals(joined)) return entry[1];
+        }
+        return null;
+    }
+
+    /** Lower-case words; anything but letters and apostrophes separates them. */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        String lower = text.toLowerCase(Locale.US);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            boolean word = Character.isLetter(c) || c == '\'';
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.echosight.voice;
+
+/**
+ * Classifier behind the {@link KeywordSpotter}: a window of log-mel frames
+ * in, one probability per label out.
+ */
+public interface KeywordModel {
+
+    /** Feature frames per window (10 ms each). */
+    int frames();
+
+    /**
+     * Labels in output order. Keywords are lower-case words; anything else
+     * (such as "_silence_" or "_unknown_") is background.
+     */
+    String[] labels();
+
+    /**
+     * @param features      {@link #frames()} x {@link LogMelFrontend#MEL_BINS}, oldest first
+     * @param probabilities filled with one value per label
+     */
+    void run(float[][] features, float[] probabilities);
+
+    void close();
+}
@@ -0,0 +1,153 @@
+package com.example.echosight.voice;
+
+import java.util.Arrays;
+
+/**
+ * Streaming keyword spotting over 16 kHz PCM. Audio goes through
+ * {@link LogMelFrontend} into a ring of feature frames; every
+ * {@link #STRIDE_FRAMES} frames the last {@link KeywordModel#frames()} of
+ * them are classified. Probabilities are averaged over the last few
+ * evaluations, and a keyword fires once its average reaches the threshold,
+ * after which nothing fires for {@link #REFRACTORY_MS}.
+ *
+ * One thread; allocation-free after construction, so it can sit on the
+ * AudioRecord thread indefinitely.
+ */
+public class KeywordSpotter {
+
+    public static final int NONE = -1;
+    public static final int STRIDE_FRAMES = 3;       // classify every 30 ms
+    public static final int SMOOTHING = 3;           // evaluations averaged
+    public static final long REFRACTORY_MS = 1000;
+
+    private final KeywordModel model;
+    private final LogMelFrontend frontend = new LogMelFrontend();
+    private final float threshold;
+    private final String[] labels;
+    private final String[] commands;     // per label, null for background
+    private final long refractorySamples;
+
+    private final float[][] ring;        // feature frames, ringPos is the oldest
+    private int ringPos = 0;
+    private long frames = 0;
+    private final float[][] input;
+    private final float[][] history;     // last SMOOTHING outputs, zero where there are none yet
+
+    private long samples = 0;
+    private long quietUntilSample = 0;
+    private long detectedAtSample = -1;
+    private long evaluations = 0;
+    private long evaluationNs = 0;
+
+    /**
+     * @param threshold averaged probability a keyword needs to fire, 0-1
+     */
+    public KeywordSpotter(KeywordModel model, float threshold) {
+        this.model = model;
+        this.threshold = threshold;
+        labels = model.labels();
+        commands = new String[labels.length];
+        for (int i = 0; i < labels.length; i++) commands[i] = CommandMatcher.commandFor(labels[i]);
+        refractorySamples = REFRACTORY_MS * LogMelFrontend.SAMPLE_RATE / 1000;
+
+        ring = new float[model.frames()][LogMelFrontend.MEL_BINS];
+        input = new float[model.frames()][];
+        history = new float[SMOOTHING][labels.length];
+    }
+
+    /**
+     * Feeds a chunk of 16 kHz mono audio, as read from AudioRecord.
+     *
+     * @return the label index of a keyword that fired in this chunk, or NONE
+     */
+    public int accept(short[] pcm, int offset, int count) {
+        int detected = NONE;
+        for (int i = offset; i < offset + count; i++) {
+            samples++;
+            if (!frontend.accept(pcm[i])) continue;
+
+            System.arraycopy(frontend.frame(), 0, ring[ringPos], 0, LogMelFrontend.MEL_BINS);
+            ringPos = (ringPos + 1) % ring.length;
+            frames++;
+            if (frames >= ring.length && frames % STRIDE_FRAMES == 0) {
+                int label = evaluate();
+                if (label != NONE && detected == NONE) detected = label;
+            }
+        }
+        return detected;
+    }
+
+    private int evaluate() {
+        long start = System.nanoTime();
+        for (int i = 0; i < ring.length; i++) input[i] = ring[(ringPos + i) % ring.length];
+        float[] out = history[(int) (evaluations % SMOOTHING)];
+        model.run(input, out);
+        evaluations++;
+        evaluationNs += System.nanoTime() - start;
+
+        if (samples < quietUntilSample) return NONE;
+
+        int best = NONE;
+        float bestScore = threshold;
+        for (int label = 0; label < labels.length; label++) {
+            if (commands[label] == null) continue;
+            float sum = 0f;
+            for (float[] output : history) sum += output[label];
+            float score = sum / SMOOTHING;
+            if (score >= bestScore) {
+                best = label;
+                bestScore = score;
+            }
+        }
+        if (best == NONE) return NONE;
+
+        detectedAtSample = samples;
+        quietUntilSample = samples + refractorySamples;
+        clearHistory();
+        return best;
+    }
+
+    /** Clears the audio state, e.g. after the microphone was handed to another recogniser. */
+    public void reset() {
+        frontend.reset();
+        frames = 0;
+        quietUntilSample = 0;
+        clearHistory();
+    }
+
+    private void clearHistory() {
+        for (float[] output : history) Arrays.fill(output, 0f);
+    }
+
+    public void close() {
+        model.close();
+    }
+
+    public String label(int index) {
+        return labels[index];
+    }
+
+    /** The command a label maps to (START, STOP or DESCRIBE), or null. */
+    public String command(int index) {
+        return commands[index];
+    }
+
+    /** Samples fed since construction. */
+    public long samples() {
+        return samples;
+    }
+
+    /** Sample count at which the last keyword fired, or -1. */
+    public long detectedAtSample() {
+        return detectedAtSample;
+    }
+
+    public long evaluations() {
+        return evaluations;
+    }
+
+    /** Average model time per evaluation, in ms. */
+    public float averageEvaluationMs() {
+        return evaluations == 0 ? 0f : evaluationNs / 1e6f / evaluations;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.echosight.voice;
+
+/**
+ * Streaming log-mel features for the keyword spotter: 30 ms Hann windows
+ * every 10 ms, a 512-point FFT and 40 triangular mel bands, the usual
+ * front end of small keyword-spotting models.
+ *
+ * Samples go in one at a time; a new feature frame is ready every hop.
+ * Everything is preallocated, so feeding it allocates nothing.
+ */
+public class LogMelFrontend {
+
+    public static final int SAMPLE_RATE = 16000;
+    public static final int WINDOW = 480;          // 30 ms
+    public static final int HOP = 160;             // 10 ms
+    public static final int MEL_BINS = 40;
+
+    private static final int FFT_SIZE = 512;
+    private static final int LOG2_FFT = 9;
+    private static final float MIN_HZ = 20f;
+    private static final float MAX_HZ = 7600f;
+    private static final float FLOOR = 1e-6f;
+
+    // ---------- TABLES ----------
+    private static final float[] HANN = new float[WINDOW];
+    private static final float[] COS = new float[FFT_SIZE / 2];
+    private static final float[] SIN = new float[FFT_SIZE / 2];
+    private static final int[] BIT_REVERSE = new int[FFT_SIZE];
+    private static final int[] MEL_START = new int[MEL_BINS];    // first FFT bin of each band
+    private static final float[][] MEL_WEIGHTS = new float[MEL_BINS][];
+
+    static {
+        for (int i = 0; i < WINDOW; i++) HANN[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / WINDOW));
+        for (int i = 0; i < FFT_SIZE / 2; i++) {
+            COS[i] = (float) Math.cos(-2 * Math.PI * i / FFT_SIZE);
+            SIN[i] = (float) Math.sin(-2 * Math.PI * i / FFT_SIZE);
+        }
+        for (int i = 0; i < FFT_SIZE; i++) BIT_REVERSE[i] = Integer.reverse(i) >>> (32 - LOG2_FFT);
+
+        double minMel = mel(MIN_HZ);
+        double maxMel = mel(MAX_HZ);
+        double[] edges = new double[MEL_BINS + 2];   // in FFT bins
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = hz(minMel + (maxMel - minMel) * i / (MEL_BINS + 1)) * FFT_SIZE / SAMPLE_RATE;
+        }
+        for (int m = 0; m < MEL_BINS; m++) {
+            int start = (int) Math.ceil(edges[m]);
+            int end = (int) Math.floor(edges[m + 2]);
+            MEL_START[m] = start;
+            MEL_WEIGHTS[m] = new float[Math.max(0, end - start + 1)];
+            for (int k = start; k <= end; k++) {
+                double w = k <= edges[m + 1]
+                        ? (k - edges[m]) / (edges[m + 1] - edges[m])
+                        : (edges[m + 2] - k) / (edges[m + 2] - edges[m + 1]);
+                MEL_WEIGHTS[m][k - start] = (float) Math.max(0, w);
+            }
+        }
+    }
+
+    private final float[] window = new float[WINDOW];
+    private int filled = 0;
+    private final float[] re = new float[FFT_SIZE];
+    private final float[] im = new float[FFT_SIZE];
+    private final float[] frame = new float[MEL_BINS];
+
+    /**
+     * @return true if this sample completed a frame, now in {@link #frame()}
+     */
+    public boolean accept(short sample) {
+        window[filled++] = sample / 32768f;
+        if (filled < WINDOW) return false;
+
+        computeFrame();
+        System.arraycopy(window, HOP, window, 0, WINDOW - HOP);
+        filled = WINDOW - HOP;
+        return true;
+    }
+
+    /** The latest frame; overwritten by the next one. */
+    public float[] frame() {
+        return frame;
+    }
+
+    public void reset() {
+        filled = 0;
+    }
+
+    private void computeFrame() {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            int j = BIT_REVERSE[i];
+            re[j] = i < WINDOW ? window[i] * HANN[i] : 0f;
+            im[j] = 0f;
+        }
+        fft();
+
+        for (int m = 0; m < MEL_BINS; m++) {
+            float[] weights = MEL_WEIGHTS[m];
+            int start = MEL_START[m];
+            float energy = 0f;
+            for (int k = 0; k < weights.length; k++) {
+                float r = re[start + k];
+                float i = im[start + k];
+                energy += weights[k] * (r * r + i * i);
+            }
+            frame[m] = (float) Math.log(energy + FLOOR);
+        }
+    }
+
+    /** In-place iterative radix-2, input already in bit-reversed order. */
+    private void fft() {
+        for (int size = 2; size <= FFT_SIZE; size <<= 1) {
+            int half = size >> 1;
+            int step = FFT_SIZE / size;
+            for (int start = 0; start < FFT_SIZE; start += size) {
+                for (int k = 0; k < half; k++) {
+                    float c = COS[k * step];
+                    float s = SIN[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    float tr = re[b] * c - im[b] * s;
+                    float ti = re[b] * s + im[b] * c;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    private static double mel(double hz) {
+        return 2595 * Math.log10(1 + hz / 700);
+    }
+
+    private static double hz(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+
+    /** Mel band whose centre is closest to a frequency; for tests and tools. */
+    static int bandOf(float hz) {
+        double minMel = mel(MIN_HZ);
+        double step = (mel(MAX_HZ) - minMel) / (MEL_BINS + 1);
+        return (int) Math.max(0, Math.min(MEL_BINS - 1, Math.round((mel(hz) - minMel) / step) - 1));
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.echosight.voice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Decides what is spoken and when. One utterance plays at a time; everything
+ * else waits in a priority queue.
+ *
+ * <ul>
+ *   <li>A new utterance only interrupts the current one if its priority
+ *       preempts and ranks higher: an urgent alert cuts off anything, a
+ *       system message cuts off narration.</li>
+ *   <li>Interrupted narration and system messages go back to the front of
+ *       the queue; an interrupted alert is dropped.</li>
+ *   <li>Alerts describe the scene at one moment, so a new alert supersedes
+ *       any alert still queued, and one that has waited longer than the alert
+ *       TTL expires unspoken.</li>
+ * </ul>
+ *
+ * Pure bookkeeping: the caller plays the utterances this returns and reports
+ * back when each one finishes. Thread-safe.
+ */
+public class SpeechArbiter {
+
+    public enum Priority {
+        NARRATION(false, false),
+        SYSTEM(true, false),
+        ALERT(false, true),
+        URGENT(true, true);      // NEAR or newly blocking obstacle
+
+        final boolean preempts;
+        final boolean alert;
+
+        Priority(boolean preempts, boolean alert) {
+            this.preempts = preempts;
+            this.alert = alert;
+        }
+    }
+
+    public enum State { QUEUED, SPEAKING, DONE, PREEMPTED, SUPERSEDED, EXPIRED }
+
+    /** One request to speak. Only {@link #state} changes once submitted. */
+    public static final class Utterance {
+        public final String id;
+        public final String text;
+        public final Priority priority;
+        /** Whether the text may be played from the clip cache. */
+        public final boolean cacheable;
+        final long seq;
+        final long expiresAtMs;            // Long.MAX_VALUE: never
+        volatile State state = State.QUEUED;
+        /** When playback was requested, for time-to-first-audio; 0 once recorded. */
+        long playNs = 0;
+
+        Utterance(long seq, String text, Priority priority, boolean cacheable, long expiresAtMs) {
+            this.id = "speech-" + seq;
+            this.seq = seq;
+            this.text = text;
+            this.priority = priority;
+            this.cacheable = cacheable;
+            this.expiresAtMs = expiresAtMs;
+        }
+
+        public State getState() {
+            return state;
+        }
+    }
+
+    private static final int HISTORY = 32;   // finished utterances kept for state lookups
+
+    private final long alertTtlMs;
+    // Highest priority first, oldest first within a priority
+    private final PriorityQueue<Utterance> queue = new PriorityQueue<>(16, (a, b) ->
+            a.priority != b.priority ? b.priority.compareTo(a.priority) : Long.compare(a.seq, b.seq));
+    private final Map<String, Utterance> byId = new LinkedHashMap<String, Utterance>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Utterance> eldest) {
+            return size() > HISTORY && eldest.getValue().state != State.QUEUED
+                    && eldest.getValue().state != State.SPEAKING;
+        }
+    };
+    private Utterance current = null;
+    private long nextSeq = 1;
+
+    // ---------- STATS ----------
+    private int spoken = 0;
+    private int preempted = 0;
+    private int superseded = 0;
+    private int expired = 0;
+
+    public SpeechArbiter(long alertTtlMs) {
+        this.alertTtlMs = alertTtlMs;
+    }
+
+    /**
+     * Queues an utterance.
+     *
+     * @return the new utterance; if it is {@link State#SPEAKING} it starts
+     *         now (possibly preempting the current one), otherwise it waits
+     */
+    public synchronized Utterance submit(String text, Priority priority, boolean cacheable, long nowMs) {
+        long expires = priority.alert ? nowMs + alertTtlMs : Long.MAX_VALUE;
+        Utterance utterance = new Utterance(nextSeq++, text, priority, cacheable, expires);
+        byId.put(utterance.id, utterance);
+
+        if (priority.alert) {
+            // Whatever was waiting described an older scene
+            for (Utterance queued : queue.toArray(new Utterance[0])) {
+                if (queued.priority.alert) {
+                    queue.remove(queued);
+                    queued.state = State.SUPERSEDED;
+                    superseded++;
+                }
+            }
+        }
+
+        if (current != null && priority.preempts && priority.compareTo(current.priority) > 0) {
+            interrupt(current);
+            current = null;
+        }
+        if (current == null) return start(utterance);
+
+        queue.add(utterance);
+        return utterance;
+    }
+
+    /**
+     * Reports that an utterance stopped playing, normally or not. Calls for
+     * anything but the current utterance (e.g. the engine's onStop for one
+     * that was preempted) are ignored.
+     *
+     * @return the next utterance to play, or null if nothing is waiting or
+     *         another one is already playing
+     */
+    public synchronized Utterance finished(String id, long nowMs) {
+        if (current == null || !current.id.equals(id)) return null;
+
+        current.state = State.DONE;
+        spoken++;
+        current = null;
+        return dequeue(nowMs);
+    }
+
+    /**
+     * Drops everything queued and the current utterance, e.g. when
+     * navigation stops. The caller stops the playback.
+     */
+    public synchronized void clear() {
+        for (Utterance queued : queue) queued.state = State.SUPERSEDED;
+        queue.clear();
+        if (current != null) {
+            current.state = State.PREEMPTED;
+            current = null;
+        }
+    }
+
+    /**
+     * Drops the queued utterances of one priority, and the current one if it
+     * has that priority, e.g. narration the user asked to stop.
+     *
+     * @return whether the current utterance was dropped, so the caller stops
+     *         its playback and plays {@link #next(long)}
+     */
+    public synchronized boolean clear(Priority priority) {
+        for (Utterance queued : queue.toArray(new Utterance[0])) {
+            if (queued.priority == priority) {
+                queue.remove(queued);
+                queued.state = State.SUPERSEDED;
+            }
+        }
+        if (current == null || current.priority != priority) return false;
+        current.state = State.PREEMPTED;
+        current = null;
+        return true;
+    }
+
+    /** What to play after {@link #clear(Priority)} dropped the current utterance, or null. */
+    public synchronized Utterance next(long nowMs) {
+        return current == null ? dequeue(nowMs) : null;
+    }
+
+    private Utterance dequeue(long nowMs) {
+        Utterance next;
+        while ((next = queue.poll()) != null) {
+            if (nowMs <= next.expiresAtMs) return start(next);
+            next.state = State.EXPIRED;
+            expired++;
+        }
+        return null;
+    }
+
+    private Utterance start(Utterance utterance) {
+        utterance.state = State.SPEAKING;
+        current = utterance;
+        return utterance;
+    }
+
+    private void interrupt(Utterance utterance) {
+        preempted++;
+        if (utterance.priority.alert) {
+            utterance.state = State.PREEMPTED;
+        } else {
+            // Spoken again from the start once the interruption is over
+            utterance.state = State.QUEUED;
+            queue.add(utterance);
+        }
+    }
+
+    // ---------- QUERIES ----------
+
+    public synchronized boolean isSpeaking() {
+        return current != null;
+    }
+
+    /** The utterance playing now, or null. */
+    public synchronized Utterance current() {
+        return current;
+    }
+
+    /** Recent utterance by id, or null once it has dropped out of the history. */
+    public synchronized Utterance get(String id) {
+        return byId.get(id);
+    }
+
+    public synchronized State state(String id) {
+        Utterance utterance = byId.get(id);
+        return utterance == null ? null : utterance.state;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    public synchronized String report() {
+        return "speech: " + spoken + " spoken, " + preempted + " preempted, "
+                + superseded + " superseded, " + expired + " expired";
+    }
+}
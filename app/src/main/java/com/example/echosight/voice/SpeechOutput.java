@@ -1,19 +1,83 @@
 package com.example.echosight.voice;
 
 import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.SoundPool;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.speech.tts.TextToSpeech;
 import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import com.example.echosight.utils.Constants;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.Set;
 
+/**
+ * Text-to-speech output with a cache of pre-rendered obstacle announcements.
+ *
+ * Every utterance goes through a {@link SpeechArbiter}: system messages,
+ * alerts and narration are queued by priority, and an urgent alert cuts off
+ * whatever lower-priority speech is playing. Each utterance has its own id,
+ * so engine callbacks for one that was already interrupted are ignored.
+ *
+ * Alerts ({@link #announce}) come from a finite set of messages: if the text
+ * was synthesised before, the clip plays straight from memory through a
+ * SoundPool, skipping synthesis; otherwise it is spoken live and queued for
+ * synthesis to a file, so the next time it is instant. Synthesis runs one
+ * clip at a time and only while the engine is not speaking.
+ */
 public class SpeechOutput {
+
+    private static final String TAG = "ECHO_SIGHT";
+    private static final String CLIP_ID = "CLIP_ID";
+
     private TextToSpeech tts;
-    private boolean isSpeaking = false;
+    private volatile boolean ready = false;
+    private final SpeechArbiter arbiter = new SpeechArbiter(Constants.SPEECH_ALERT_TTL_MS);
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean liveSpeaking = false;     // the engine is speaking (not synthesising)
+
+    // ---------- CLIP CACHE ----------
+    private final ClipCache clips;
+    private final SoundPool soundPool;
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private final Set<String> queued = new HashSet<>();
+    private String synthesizing = null;       // text being written to a file
+    private int clipStream = 0;
 
     public SpeechOutput(Context context) {
+        clips = new ClipCache(new File(context.getCacheDir(), "speech_clips"), Constants.SPEECH_CACHE_BYTES);
+
+        soundPool = new SoundPool.Builder()
+                .setMaxStreams(1)
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ASSISTANCE_ACCESSIBILITY)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                        .build())
+                .build();
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> onClipLoaded(sampleId, status));
+        clips.setEvictionListener(clip -> {
+            if (clip.soundId != 0) soundPool.unload(clip.soundId);
+        });
+        // Clips from earlier sessions decode in the background
+        for (ClipCache.Clip clip : clips.all()) {
+            clip.soundId = soundPool.load(clip.file.getPath(), 1);
+        }
+
         tts = new TextToSpeech(context, status -> {
             if (status != TextToSpeech.ERROR) {
                 tts.setLanguage(Locale.US);
                 setupProgressListener();
+                ready = true;
+                synthesizeNext();
             }
         });
     }
@@ -22,34 +86,222 @@ public class SpeechOutput {
         tts.setOnUtteranceProgressListener(new UtteranceProgressListener() {
             @Override
             public void onStart(String utteranceId) {
-                isSpeaking = true; // Detection will pause
+            }
+
+            // The first chunk marks the same point as SoundPool.play for a clip: audio handed to the output
+            @Override
+            public void onAudioAvailable(String utteranceId, byte[] audio) {
+                if (CLIP_ID.equals(utteranceId)) return;
+
+                recordLiveFirstAudio(utteranceId);
             }
 
             @Override
             public void onDone(String utteranceId) {
-                isSpeaking = false; // Detection will resume
+                if (CLIP_ID.equals(utteranceId)) {
+                    onClipSynthesized(true, false);
+                } else {
+                    onUtteranceEnded(utteranceId);
+                }
+                synthesizeNext();
             }
 
             @Override
             public void onError(String utteranceId) {
-                isSpeaking = false;
+                if (CLIP_ID.equals(utteranceId)) {
+                    onClipSynthesized(false, false);
+                } else {
+                    onUtteranceEnded(utteranceId);
+                }
+                synthesizeNext();
+            }
+
+            @Override
+            public void onStop(String utteranceId, boolean interrupted) {
+                // A flushing speak() also drops a synthesis in progress; it is retried later
+                if (CLIP_ID.equals(utteranceId)) {
+                    onClipSynthesized(false, true);
+                } else {
+                    onUtteranceEnded(utteranceId);
+                }
+                synthesizeNext();
             }
         });
     }
 
+    /** System message: interrupts narration, waits for alerts. */
     public void speak(String text) {
-        // We provide a unique ID to trigger the ProgressListener
-        tts.speak(text, TextToSpeech.QUEUE_FLUSH, null, "UTTERANCE_ID");
+        submit(text, SpeechArbiter.Priority.SYSTEM, false);
+    }
+
+    /** Scene description: waits for everything else and is resumed after an interruption. */
+    public void narrate(String text) {
+        submit(text, SpeechArbiter.Priority.NARRATION, false);
+    }
+
+    /**
+     * Speaks one of the recurring alert messages, from the clip cache when possible.
+     *
+     * @param urgent NEAR or newly blocking: cuts off any other speech instead
+     *               of waiting (and expiring) in the queue
+     */
+    public void announce(String text, boolean urgent) {
+        submit(text, urgent ? SpeechArbiter.Priority.URGENT : SpeechArbiter.Priority.ALERT, true);
+    }
+
+    /** Drops queued speech and stops what is playing. */
+    public synchronized void stopAll() {
+        arbiter.clear();
+        haltPlayback();
+    }
+
+    /** Drops queued and playing narration, e.g. a description the user stopped. */
+    public synchronized void stopNarration() {
+        if (!arbiter.clear(SpeechArbiter.Priority.NARRATION)) return;
+        haltPlayback();
+        SpeechArbiter.Utterance next = arbiter.next(SystemClock.uptimeMillis());
+        if (next != null) play(next);
+    }
+
+    private synchronized void submit(String text, SpeechArbiter.Priority priority, boolean cacheable) {
+        SpeechArbiter.Utterance utterance = arbiter.submit(text, priority, cacheable, SystemClock.uptimeMillis());
+        if (utterance.getState() == SpeechArbiter.State.SPEAKING) play(utterance);
+    }
+
+    private synchronized void onUtteranceEnded(String utteranceId) {
+        SpeechArbiter.Utterance current = arbiter.current();
+        if (current != null && current.id.equals(utteranceId)) liveSpeaking = false;
+
+        SpeechArbiter.Utterance next = arbiter.finished(utteranceId, SystemClock.uptimeMillis());
+        if (next != null) play(next);
+    }
+
+    /** Starts an utterance the arbiter picked, cutting off whatever is still playing. */
+    private void play(SpeechArbiter.Utterance utterance) {
+        haltPlayback();
+
+        if (utterance.cacheable) {
+            long start = System.nanoTime();
+            ClipCache.Clip clip = clips.get(utterance.text);
+            if (clip != null) {
+                clipStream = soundPool.play(clip.soundId, 1f, 1f, 1, 0, 1f);
+                if (clipStream != 0) {
+                    clips.recordFirstAudio(true, System.nanoTime() - start);
+                    // SoundPool has no completion callback; the WAV header gives the length
+                    handler.postDelayed(() -> onUtteranceEnded(utterance.id), clip.durationMs);
+                    return;
+                }
+            }
+        }
+
+        utterance.playNs = System.nanoTime();
+        liveSpeaking = true;
+        if (tts.speak(utterance.text, TextToSpeech.QUEUE_FLUSH, null, utterance.id) != TextToSpeech.SUCCESS) {
+            onUtteranceEnded(utterance.id);
+            return;
+        }
+        // Synthesised once the engine is free again
+        if (utterance.cacheable) prepare(utterance.text);
+    }
+
+    /** Queues messages for synthesis to the cache, in order, skipping ones already there. */
+    public synchronized void prepare(Collection<String> texts) {
+        for (String text : texts) prepare(text);
+    }
+
+    private synchronized void prepare(String text) {
+        if (queued.contains(text) || clips.contains(text)) return;
+        queued.add(text);
+        pending.add(text);
+        synthesizeNext();
+    }
+
+    private synchronized void recordLiveFirstAudio(String utteranceId) {
+        SpeechArbiter.Utterance utterance = arbiter.get(utteranceId);
+        if (utterance == null || utterance.playNs == 0 || !utterance.cacheable) return;
+        clips.recordFirstAudio(false, System.nanoTime() - utterance.playNs);
+        utterance.playNs = 0;
+    }
+
+    private void haltPlayback() {
+        if (clipStream != 0) {
+            soundPool.stop(clipStream);
+            clipStream = 0;
+        }
+        if (liveSpeaking) {
+            // The interrupted utterance's onStop is ignored by the arbiter
+            tts.stop();
+            liveSpeaking = false;
+        }
+    }
+
+    // ---------- BACKGROUND SYNTHESIS ----------
+
+    private synchronized void synthesizeNext() {
+        // Live speech has priority; clip playback doesn't use the engine
+        if (!ready || synthesizing != null || liveSpeaking || pending.isEmpty()) return;
+
+        String text = pending.poll();
+        File file = clips.fileFor(text);
+        synthesizing = text;
+        if (tts.synthesizeToFile(text, new Bundle(), file, CLIP_ID) != TextToSpeech.SUCCESS) {
+            Log.w(TAG, "Couldn't queue speech clip: " + text);
+            synthesizing = null;
+            queued.remove(text);
+        }
+    }
+
+    private synchronized void onClipSynthesized(boolean success, boolean retry) {
+        String text = synthesizing;
+        synthesizing = null;
+        if (text == null) return;
+
+        if (retry) {
+            // Interrupted by live speech: try again once things are quiet
+            pending.addFirst(text);
+            return;
+        }
+        queued.remove(text);
+        if (!success) {
+            Log.w(TAG, "Speech clip synthesis failed: " + text);
+            return;
+        }
+        ClipCache.Clip clip = clips.put(text);
+        if (clip != null) clip.soundId = soundPool.load(clip.file.getPath(), 1);
+    }
+
+    private void onClipLoaded(int sampleId, int status) {
+        for (ClipCache.Clip clip : clips.all()) {
+            if (clip.soundId == sampleId) {
+                clip.loaded = status == 0;
+                return;
+            }
+        }
     }
 
     public boolean isSpeaking() {
-        return isSpeaking;
+        return arbiter.isSpeaking();
+    }
+
+    /** Clip cache size, hit rate and time-to-first-audio, cached vs live. */
+    public String cacheReport() {
+        return clips.report();
+    }
+
+    /** Utterances spoken, preempted, superseded and expired. */
+    public String speechReport() {
+        return arbiter.report();
     }
 
     public void shutdown() {
+        clips.persistOrder();
+        Log.i(TAG, clips.report());
+        Log.i(TAG, arbiter.report());
+        handler.removeCallbacksAndMessages(null);
         if (tts != null) {
             tts.stop();
             tts.shutdown();
         }
+        soundPool.release();
     }
-}
\ No newline at end of file
+}
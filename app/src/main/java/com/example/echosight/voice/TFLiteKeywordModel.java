@@ -0,0 +1,94 @@
+package com.example.echosight.voice;
+
+import android.content.Context;
+
+import com.example.echosight.detection.TFLiteModel;
+
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keyword classifier from assets: a float model taking
+ * [1, frames, {@link LogMelFrontend#MEL_BINS}] (optionally with a trailing
+ * channel of 1) log-mel features and giving [1, labels] probabilities, with
+ * one label per line in the label file.
+ */
+public class TFLiteKeywordModel implements KeywordModel {
+
+    private final Interpreter interpreter;
+    private final String[] labels;
+    private final int frames;
+    private final ByteBuffer inputBuffer;
+    private final FloatBuffer inputFloats;
+    private final float[][] output;
+
+    public TFLiteKeywordModel(Context context, String modelPath, String labelPath) throws IOException {
+        labels = loadLabels(context, labelPath);
+        interpreter = new Interpreter(TFLiteModel.loadModelFile(context.getAssets(), modelPath),
+                new Interpreter.Options().setNumThreads(1));
+
+        Tensor input = interpreter.getInputTensor(0);
+        int[] shape = input.shape();
+        if (shape.length < 3 || shape[2] != LogMelFrontend.MEL_BINS) {
+            interpreter.close();
+            throw new IOException("Keyword model wants " + Arrays.toString(shape)
+                    + ", expected [1, frames, " + LogMelFrontend.MEL_BINS + "(, 1)]");
+        }
+        frames = shape[1];
+        inputBuffer = ByteBuffer.allocateDirect(input.numBytes()).order(ByteOrder.nativeOrder());
+        inputFloats = inputBuffer.asFloatBuffer();
+
+        int outputs = interpreter.getOutputTensor(0).shape()[1];
+        if (outputs != labels.length) {
+            interpreter.close();
+            throw new IOException("Keyword model has " + outputs + " outputs for " + labels.length + " labels");
+        }
+        output = new float[1][outputs];
+    }
+
+    @Override
+    public int frames() {
+        return frames;
+    }
+
+    @Override
+    public String[] labels() {
+        return labels;
+    }
+
+    @Override
+    public void run(float[][] features, float[] probabilities) {
+        inputFloats.rewind();
+        for (float[] frame : features) inputFloats.put(frame);
+        inputBuffer.rewind();
+        interpreter.run(inputBuffer, output);
+        System.arraycopy(output[0], 0, probabilities, 0, probabilities.length);
+    }
+
+    @Override
+    public void close() {
+        interpreter.close();
+    }
+
+    private static String[] loadLabels(Context context, String labelPath) throws IOException {
+        List<String> labels = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(context.getAssets().open(labelPath)));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) labels.add(line.trim().toLowerCase());
+        }
+        reader.close();
+        return labels.toArray(new String[0]);
+    }
+}
@@ -1,68 +1,106 @@
 package com.example.echosight.voice;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.Intent;
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
 import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
 import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
 import android.util.Log;
 
+import com.example.echosight.utils.Constants;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 
+/**
+ * Voice commands. With a keyword model in assets, an on-device
+ * {@link KeywordSpotter} listens on its own AudioRecord thread for the
+ * fixed vocabulary, and the platform SpeechRecognizer only runs once per
+ * {@link #listenForFollowUp(FollowUpListener)} for free-form speech. Without
+ * one, the recognizer is restarted after every result as before, and its
+ * partial results go through a {@link CommandMatcher} so a command runs
+ * while it is still being said rather than after end-of-speech.
+ *
+ * Create on the main thread; commands are delivered on it.
+ */
+@SuppressLint("MissingPermission")
 public class VoiceCommandManager {
+
+    private static final String TAG = "EchoSightVoice";
+    private static final int CHUNK = LogMelFrontend.HOP * 2;   // 20 ms reads
+
     private SpeechRecognizer speechRecognizer;
     private Intent intent;
     private CommandListener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // ---------- KEYWORD SPOTTING ----------
+    private final KeywordSpotter spotter;          // null: recognizer loop
+    private Thread spotterThread;
+    private volatile boolean spotting = false;
+    private FollowUpListener followUp;             // main thread
+
+    // ---------- RECOGNIZER COMMANDS ----------
+    private final CommandMatcher matcher = new CommandMatcher();   // main thread
+    private long firedAtNs = 0;
+    private int partialHits = 0;
+    private int finalHits = 0;
+    private long hitToActionNs = 0;      // partial hit to the command having run
+    private long hitToFinalNs = 0;       // partial hit to the final result: time saved
+    private int finalsAfterHit = 0;
+
+    // Written by the spotter thread; guarded by this
+    private long spottedSamples = 0;
+    private long spotterCpuNs = 0;
+    private int detections = 0;
 
     public interface CommandListener {
         void onCommandReceived(String command) throws ExecutionException, InterruptedException;
     }
 
+    /** Free-form speech after a command; text is null if nothing was understood. */
+    public interface FollowUpListener {
+        void onFollowUp(String text);
+    }
+
     public VoiceCommandManager(Context context, CommandListener listener) {
         this.listener = listener;
+        spotter = Constants.KEYWORD_SPOTTING ? loadSpotter(context) : null;
         speechRecognizer = SpeechRecognizer.createSpeechRecognizer(context);
 
         intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
         intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
 
         speechRecognizer.setRecognitionListener(new RecognitionListener() {
-            // Inside your onResults method in VoiceCommandManager.java
             @Override
             public void onResults(Bundle results) {
                 ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-                if (matches != null) {
+                if (spotter != null) {
+                    finishFollowUp(matches == null || matches.isEmpty() ? null : matches.get(0));
+                    return;
+                }
+                long nowNs = System.nanoTime();
+                if (matcher.fired() != null) {
+                    // Already acted on from a partial; this is the duplicate
+                    recordFinalAfterHit(nowNs - firedAtNs);
+                } else if (matches != null) {
                     for (String match : matches) {
-                        String voiceInput = match.toLowerCase().trim();
-                        Log.d("EchoSightVoice", "Heard: " + voiceInput);
-
-                        if (voiceInput.contains("start")) {
-                            try {
-                                listener.onCommandReceived("START");
-                            } catch (ExecutionException e) {
-                                throw new RuntimeException(e);
-                            } catch (InterruptedException e) {
-                                throw new RuntimeException(e);
-                            }
-                            break;
-                        } else if (voiceInput.contains("stop") || voiceInput.contains("end")) {
-                            try {
-                                listener.onCommandReceived("STOP");
-                            } catch (ExecutionException e) {
-                                throw new RuntimeException(e);
-                            } catch (InterruptedException e) {
-                                throw new RuntimeException(e);
-                            }
-                            break;
-                        } else if (voiceInput.contains("describe") || voiceInput.contains("what")) {
-                            try {
-                                listener.onCommandReceived("DESCRIBE");
-                            } catch (ExecutionException e) {
-                                throw new RuntimeException(e);
-                            } catch (InterruptedException e) {
-                                throw new RuntimeException(e);
-                            }
+                        Log.d(TAG, "Heard: " + match.toLowerCase().trim());
+                        String command = matcher.accept(match, true);
+                        if (command != null) {
+                            run(command, nowNs, false);
                             break;
                         }
                     }
@@ -70,22 +108,190 @@ public class VoiceCommandManager {
                 startListening(); // Resume listening for the next command
             }
 
-            @Override public void onError(int error) { startListening(); }
+            @Override
+            public void onPartialResults(Bundle partialResults) {
+                // Follow-ups are free-form text, not commands
+                if (spotter != null) return;
+                ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+                if (matches == null || matches.isEmpty()) return;
+
+                long hitNs = System.nanoTime();
+                String command = matcher.accept(matches.get(0), false);
+                if (command != null) {
+                    Log.d(TAG, "Heard (partial): " + matches.get(0));
+                    run(command, hitNs, true);
+                }
+            }
+
+            @Override public void onError(int error) {
+                if (spotter != null) finishFollowUp(null);
+                else startListening();
+            }
             @Override public void onReadyForSpeech(Bundle params) {}
             @Override public void onBeginningOfSpeech() {}
             @Override public void onRmsChanged(float rmsdB) {}
             @Override public void onBufferReceived(byte[] buffer) {}
             @Override public void onEndOfSpeech() {}
-            @Override public void onPartialResults(Bundle partialResults) {}
             @Override public void onEvent(int eventType, Bundle params) {}
         });
     }
 
     public void startListening() {
+        if (spotter == null) {
+            matcher.reset();
+            speechRecognizer.startListening(intent);
+        } else if (followUp == null) {
+            startSpotting();
+        }
+    }
+
+    /**
+     * Hands the microphone to the platform recognizer for one utterance, then
+     * goes back to keyword spotting. Without a keyword model the recognizer
+     * loop is already listening and the next result is a command instead.
+     */
+    public void listenForFollowUp(FollowUpListener followUp) {
+        if (spotter == null) {
+            followUp.onFollowUp(null);
+            return;
+        }
+        this.followUp = followUp;
+        stopSpotting();
         speechRecognizer.startListening(intent);
     }
 
     public void stop() {
+        stopSpotting();
         speechRecognizer.destroy();
+        Log.i(TAG, commandReport());
+        if (spotter != null) {
+            Log.i(TAG, spotterReport());
+            spotter.close();
+        }
+    }
+
+    private void finishFollowUp(String text) {
+        FollowUpListener done = followUp;
+        followUp = null;
+        if (done != null) done.onFollowUp(text);
+        startSpotting();
+    }
+
+    private void run(String command, long hitNs, boolean partial) {
+        firedAtNs = hitNs;
+        dispatch(command);
+        long actionNs = System.nanoTime() - hitNs;
+        synchronized (this) {
+            if (partial) {
+                partialHits++;
+                hitToActionNs += actionNs;
+            } else {
+                finalHits++;
+            }
+        }
+    }
+
+    private synchronized void recordFinalAfterHit(long ns) {
+        hitToFinalNs += ns;
+        finalsAfterHit++;
+    }
+
+    public synchronized String commandReport() {
+        return String.format(Locale.US,
+                "recognizer commands: %d from partials (%.1f ms hit to action, %.0f ms before the final result), "
+                        + "%d from finals",
+                partialHits, partialHits == 0 ? 0f : hitToActionNs / 1e6f / partialHits,
+                finalsAfterHit == 0 ? 0f : hitToFinalNs / 1e6f / finalsAfterHit, finalHits);
+    }
+
+    private void dispatch(String command) {
+        try {
+            listener.onCommandReceived(command);
+        } catch (ExecutionException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // ---------- SPOTTER THREAD ----------
+
+    private static KeywordSpotter loadSpotter(Context context) {
+        try {
+            KeywordModel model = new TFLiteKeywordModel(context, Constants.KWS_MODEL_PATH, Constants.KWS_LABEL_PATH);
+            return new KeywordSpotter(model, Constants.KEYWORD_THRESHOLD);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "No keyword model (" + e.getMessage() + "); using the speech recognizer loop");
+            return null;
+        }
+    }
+
+    private void startSpotting() {
+        if (spotting) return;
+        spotting = true;
+        spotterThread = new Thread(this::runSpotter, "EchoSight-Keywords");
+        spotterThread.start();
+    }
+
+    private void stopSpotting() {
+        if (!spotting) return;
+        spotting = false;
+        try {
+            spotterThread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSpotter() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        int minBytes = AudioRecord.getMinBufferSize(LogMelFrontend.SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        AudioRecord record = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION,
+                LogMelFrontend.SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                Math.max(minBytes, CHUNK * 2 * 4));
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            Log.e(TAG, "Keyword spotter: microphone unavailable");
+            record.release();
+            spotting = false;
+            return;
+        }
+
+        // A new session starts from fresh audio
+        spotter.reset();
+        short[] chunk = new short[CHUNK];
+        long cpuStart = Debug.threadCpuTimeNanos();
+        long samplesStart = spotter.samples();
+        record.startRecording();
+        while (spotting) {
+            int n = record.read(chunk, 0, chunk.length);
+            if (n < 0) {
+                Log.e(TAG, "Keyword spotter: read error " + n);
+                break;
+            }
+            int label = spotter.accept(chunk, 0, n);
+            if (label == KeywordSpotter.NONE) continue;
+
+            synchronized (this) {
+                detections++;
+            }
+            String command = spotter.command(label);
+            Log.d(TAG, "Spotted: " + spotter.label(label));
+            handler.post(() -> dispatch(command));
+        }
+        record.stop();
+        record.release();
+
+        synchronized (this) {
+            spotterCpuNs += Debug.threadCpuTimeNanos() - cpuStart;
+            spottedSamples += spotter.samples() - samplesStart;
+        }
+    }
+
+    public synchronized String spotterReport() {
+        if (spotter == null) return "keyword spotter: off (recognizer loop)";
+        float audioS = spottedSamples / (float) LogMelFrontend.SAMPLE_RATE;
+        return String.format(Locale.US,
+                "keyword spotter: %d detections in %.0f s, %.2f ms per evaluation, %.1f%% of a core",
+                detections, audioS, spotter.averageEvaluationMs(),
+                audioS == 0 ? 0f : spotterCpuNs / 1e7f / audioS);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package com.example.echosight.camera;
+
+import com.example.echosight.detection.DetectionResults;
+import com.example.echosight.utils.Constants;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays one recording in full-frame and corridor mode and compares the
+ * smallest obstacle each can detect, in frame pixels.
+ *
+ * Recordings are raw I420 (.yuv, as written by e.g. ffmpeg -pix_fmt
+ * yuv420p), converted with the pipeline's real crop and converter. There is
+ * no detection model in the JVM, so {@link #MIN_INPUT_PX} stands in for it:
+ * an obstacle counts as detected once its shorter side covers that many
+ * model-input pixels. The clip written here is a dark obstacle approaching
+ * along the path over a fine texture.
+ */
+public class CorridorReplayTest {
+
+    private static final int W = 640;
+    private static final int H = 480;
+    private static final int INPUT = 300;
+    private static final int MIN_INPUT_PX = 6;
+    private static final int DARK = 60;        // obstacle luma is 20, background 90 and up
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void corridorCrop_isCentredAndKeepsTheModelAspect() {
+        FrameSlot slot = new FrameSlot(ByteBuffer.allocate(1), new DetectionResults(1));
+
+        AnalysisPipeline.corridorCrop(W, H, INPUT, INPUT, slot);
+        int expected = (int) (W * (Constants.CORRIDOR_RIGHT - Constants.CORRIDOR_LEFT));
+        assertEquals(AnalysisPipeline.Region.CORRIDOR, slot.region);
+        assertEquals(expected, slot.cropWidth);
+        assertEquals(expected, slot.cropHeight);
+        assertEquals((W - expected) / 2, slot.cropLeft);
+        assertEquals((H - expected) / 2, slot.cropTop);
+
+        // A wide input on a short frame: full height, narrower than the corridor
+        AnalysisPipeline.corridorCrop(W, 200, 320, 240, slot);
+        assertEquals(200, slot.cropHeight);
+        assertEquals(266, slot.cropWidth);
+    }
+
+    @Test
+    public void sameRecording_corridorDetectsSmallerObstacles_undistorted() throws IOException {
+        File clip = writeApproachClip(folder.newFile("approach.yuv"), 60);
+
+        Replay full = replay(clip, false);
+        Replay corridor = replay(clip, true);
+
+        assertTrue(corridor.smallestPx > 0 && full.smallestPx > 0);
+        assertTrue("smallest obstacle " + corridor.smallestPx + " px corridor, " + full.smallestPx + " px full frame",
+                corridor.smallestPx < full.smallestPx);
+        // A square obstacle stays square in the model input
+        assertEquals(1f, corridor.aspect, 0.2f);
+    }
+
+    // ---------- HARNESS ----------
+
+    private static class Replay {
+        int smallestPx;     // true side of the first obstacle detected
+        float aspect;       // its width / height as the model saw it
+    }
+
+    private static Replay replay(File clip, boolean corridor) throws IOException {
+        int frameBytes = W * H * 3 / 2;
+        byte[] frame = new byte[frameBytes];
+        ByteBuffer input = ByteBuffer.allocate(INPUT * INPUT * 3);
+        FrameSlot slot = new FrameSlot(input, new DetectionResults(1));
+        Replay replay = new Replay();
+
+        try (InputStream in = Files.newInputStream(clip.toPath())) {
+            for (int index = 0; in.readNBytes(frame, 0, frameBytes) == frameBytes; index++) {
+                if (corridor) {
+                    AnalysisPipeline.corridorCrop(W, H, INPUT, INPUT, slot);
+                } else {
+                    slot.cropLeft = 0;
+                    slot.cropTop = 0;
+                    slot.cropWidth = W;
+                    slot.cropHeight = H;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(frame);
+                ByteBuffer u = ByteBuffer.wrap(frame, W * H, W * H / 4).slice();
+                ByteBuffer v = ByteBuffer.wrap(frame, W * H * 5 / 4, W * H / 4).slice();
+                ImageUtils.yuvToRgb(buffer, W, 1, u, v, W / 2, 1,
+                        slot.cropLeft, slot.cropTop, slot.cropWidth, slot.cropHeight, input, INPUT, INPUT);
+
+                int[] box = darkBox(input);
+                if (box != null && Math.min(box[2] - box[0], box[3] - box[1]) >= MIN_INPUT_PX) {
+                    replay.smallestPx = obstacleSide(index);
+                    replay.aspect = (box[2] - box[0]) / (float) (box[3] - box[1]);
+                    return replay;
+                }
+            }
+        }
+        return replay;
+    }
+
+    /** Stand-in detector: bounding box {left, top, right, bottom} of the dark pixels in the input. */
+    private static int[] darkBox(ByteBuffer input) {
+        int left = INPUT, top = INPUT, right = -1, bottom = -1;
+        for (int y = 0; y < INPUT; y++) {
+            for (int x = 0; x < INPUT; x++) {
+                if ((input.get((y * INPUT + x) * 3 + 1) & 0xFF) >= DARK) continue;
+                left = Math.min(left, x);
+                top = Math.min(top, y);
+                right = Math.max(right, x + 1);
+                bottom = Math.max(bottom, y + 1);
+            }
+        }
+        return right < 0 ? null : new int[]{left, top, right, bottom};
+    }
+
+    private static int obstacleSide(int frame) {
+        return 3 + frame;
+    }
+
+    /** A square obstacle in the middle of the path growing by a pixel a frame, over gravel-like texture. */
+    private static File writeApproachClip(File file, int frames) throws IOException {
+        Random random = new Random(6);
+        byte[] background = new byte[W * H];
+        for (int i = 0; i < background.length; i++) background[i] = (byte) (90 + random.nextInt(110));
+
+        byte[] frame = new byte[W * H * 3 / 2];
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            for (int f = 0; f < frames; f++) {
+                System.arraycopy(background, 0, frame, 0, background.length);
+                Arrays.fill(frame, W * H, frame.length, (byte) 128);
+                int side = obstacleSide(f);
+                int left = W / 2 - side / 2;
+                int top = H / 2 - side / 2;
+                for (int y = top; y < top + side; y++) {
+                    for (int x = left; x < left + side; x++) frame[y * W + x] = 20;
+                }
+                out.write(frame);
+            }
+        }
+        return file;
+    }
+}
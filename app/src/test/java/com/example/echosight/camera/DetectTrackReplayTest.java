@@ -0,0 +1,328 @@
+package com.example.echosight.camera;
+
+import com.example.echosight.detection.DetectionResult;
+import com.example.echosight.detection.DetectionResults;
+import com.example.echosight.logic.ObstacleDecision;
+import com.example.echosight.logic.ProximityEstimator;
+import com.example.echosight.utils.Constants;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays a synthetic approach (a textured obstacle walking into the path
+ * and growing to NEAR, with camera shake and sensor noise) through
+ * {@link AnalysisPipeline} twice: detecting on every frame, and in
+ * detect-then-track mode. The "detector" is the ground-truth box with
+ * jitter, so the comparison isolates what tracking costs in box accuracy and
+ * alerts. Alerts are worked out with {@link ObstacleDecision} and
+ * {@link ProximityEstimator}, as FrameAnalyzer does before tracking and TTC.
+ */
+public class DetectTrackReplayTest {
+
+    private static final int FRAME_W = 640;
+    private static final int FRAME_H = 480;
+    private static final int SCALE = Constants.TRACK_LUMA_SCALE;
+    private static final int LUMA_W = FRAME_W / SCALE;
+    private static final int LUMA_H = FRAME_H / SCALE;
+
+    private static final int FRAMES = 60;
+    private static final long FRAME_NS = 33_000_000L;
+
+    @Test
+    public void detectThenTrack_matchesEveryFrameAlertsAtAFractionOfDetectorCalls() throws InterruptedException {
+        Scene scene = new Scene(7);
+
+        FakeDetector everyDetector = new FakeDetector(scene);
+        Recorder everyFrame = new Recorder();
+        replay(new AnalysisPipeline(Collections.singletonList(everyDetector), everyFrame), scene, everyFrame);
+
+        FakeDetector trackedDetector = new FakeDetector(scene);
+        Recorder tracked = new Recorder();
+        AnalysisPipeline pipeline = new AnalysisPipeline(Collections.singletonList(trackedDetector), tracked);
+        pipeline.setTrackingMode(true);
+        replay(pipeline, scene, tracked);
+
+        int agreeing = 0;
+        float trackedIou = 0f;
+        int firstNearEveryFrame = -1;
+        int firstNearTracked = -1;
+        for (int frame = 0; frame < FRAMES; frame++) {
+            float[] every = everyFrame.boxes.get(frame);
+            float[] box = tracked.boxes.get(frame);
+            ProximityEstimator.Proximity everyAlert = alert(every);
+            ProximityEstimator.Proximity trackedAlert = alert(box);
+
+            if (box != null) trackedIou += iou(box, scene.truth[frame]);
+            if (everyAlert == ProximityEstimator.Proximity.NEAR && firstNearEveryFrame < 0) firstNearEveryFrame = frame;
+            if (trackedAlert == ProximityEstimator.Proximity.NEAR && firstNearTracked < 0) firstNearTracked = frame;
+            if (Objects.equals(trackedAlert, everyAlert)) agreeing++;
+        }
+
+        int detectorCalls = trackedDetector.calls.get();
+        float agreement = (float) agreeing / FRAMES;
+        assertEquals(FRAMES, everyDetector.calls.get());
+        assertEquals(FRAMES, detectorCalls + pipeline.getFramesTracked());
+        assertTrue("detector calls " + detectorCalls, detectorCalls <= FRAMES / 2);
+        assertTrue("IoU " + trackedIou / FRAMES, trackedIou / FRAMES > 0.75f);
+        assertTrue("agreement " + agreement, agreement >= 0.9f);
+        assertTrue(firstNearEveryFrame >= 0);
+        assertTrue("NEAR at " + firstNearTracked + " vs " + firstNearEveryFrame,
+                Math.abs(firstNearTracked - firstNearEveryFrame) <= 1);
+    }
+
+    @Test
+    public void occludedTrack_bringsTheNextDetectionForward() throws InterruptedException {
+        Scene scene = new Scene(3);
+        scene.occlude(11);
+        FakeDetector detector = new FakeDetector(scene);
+        Recorder recorder = new Recorder();
+        AnalysisPipeline pipeline = new AnalysisPipeline(Collections.singletonList(detector), recorder);
+        pipeline.setTrackingMode(true);
+
+        try {
+            // 10 is detected, 11 tracked; 12 would be tracked too if 11 had gone well
+            for (int frame = 10; frame <= 12; frame++) submitAndWait(pipeline, scene, frame, recorder);
+        } finally {
+            pipeline.shutdown();
+        }
+
+        assertEquals(1, pipeline.getFramesTracked());
+        assertEquals(1, pipeline.getEarlyDetections());
+        assertEquals(2, detector.calls.get());
+        assertNotNull(recorder.boxes.get(2));
+        assertTrue(iou(recorder.boxes.get(2), scene.truth[12]) > 0.8f);
+    }
+
+    @Test
+    public void droppedInference_bringsTheNextDetectionForward() throws InterruptedException {
+        Scene scene = new Scene(5);
+        FakeDetector detector = new FakeDetector(scene);
+        detector.gate = new CountDownLatch(1);
+        Recorder recorder = new Recorder();
+        AnalysisPipeline pipeline = new AnalysisPipeline(Collections.singletonList(detector), recorder);
+        pipeline.setTrackingMode(true);
+
+        try {
+            // Frame 0 holds the only worker; 1 waits behind it and is dropped for 2
+            pipeline.submit(new SceneFrame(scene, 0), 0);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (detector.calls.get() == 0 && System.nanoTime() < deadline) Thread.sleep(1);
+            for (int frame = 1; frame <= 2; frame++) {
+                pipeline.requestDetection();
+                pipeline.submit(new SceneFrame(scene, frame), frame * FRAME_NS);
+            }
+            detector.gate.countDown();
+            assertTrue(recorder.decisions.tryAcquire(2, 5, TimeUnit.SECONDS));
+
+            // Right after a detection, so due to be tracked, but 1's boxes never arrived
+            submitAndWait(pipeline, scene, 3, recorder);
+        } finally {
+            pipeline.shutdown();
+        }
+
+        assertEquals(1, pipeline.getInferenceDrops());
+        assertEquals(0, pipeline.getFramesTracked());
+        // Frames 0, 2 and 3
+        assertEquals(3, detector.calls.get());
+    }
+
+    // ---------- HARNESS ----------
+
+    private static void replay(AnalysisPipeline pipeline, Scene scene, Recorder recorder) throws InterruptedException {
+        try {
+            for (int frame = 0; frame < FRAMES; frame++) submitAndWait(pipeline, scene, frame, recorder);
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    /** One frame at a time, so nothing is dropped and the cadence is the pipeline's own. */
+    private static void submitAndWait(AnalysisPipeline pipeline, Scene scene, int frame, Recorder recorder)
+            throws InterruptedException {
+        assertTrue(pipeline.submit(new SceneFrame(scene, frame), frame * FRAME_NS));
+        assertTrue("frame " + frame, recorder.decisions.tryAcquire(5, TimeUnit.SECONDS));
+    }
+
+    /** Null when nothing is blocking, as in FrameAnalyzer. */
+    private static ProximityEstimator.Proximity alert(float[] box) {
+        if (box == null || !ObstacleDecision.isBlocking(box[0], box[1], box[2], box[3], FRAME_W, FRAME_H)) {
+            return null;
+        }
+        return ProximityEstimator.fromScore(
+                ProximityEstimator.score(box[0], box[1], box[2], box[3], FRAME_W, FRAME_H));
+    }
+
+    private static float iou(float[] a, float[] b) {
+        float w = Math.min(a[2], b[2]) - Math.max(a[0], b[0]);
+        float h = Math.min(a[3], b[3]) - Math.max(a[1], b[1]);
+        if (w <= 0 || h <= 0) return 0f;
+        float inter = w * h;
+        float union = (a[2] - a[0]) * (a[3] - a[1]) + (b[2] - b[0]) * (b[3] - b[1]) - inter;
+        return inter / union;
+    }
+
+    /** Decision stage that keeps the first box of every frame (null if none). */
+    private static class Recorder implements AnalysisPipeline.DecisionStage {
+        final List<float[]> boxes = Collections.synchronizedList(new ArrayList<>());
+        final Semaphore decisions = new Semaphore(0);
+
+        @Override
+        public void onDetections(DetectionResults results, int cropLeft, int cropTop, int cropRight,
+                                 int cropBottom, int frameWidth, int frameHeight, boolean reused) {
+            if (results.isEmpty()) {
+                boxes.add(null);
+            } else {
+                DetectionResult d = results.get(0);
+                boxes.add(new float[]{d.getLeft(), d.getTop(), d.getRight(), d.getBottom()});
+            }
+            decisions.release();
+        }
+    }
+
+    /**
+     * Stand-in for the model: ground truth with the few-percent jitter of a
+     * real detector. The frame number travels in the model input.
+     */
+    private static class FakeDetector implements AnalysisPipeline.Detector {
+        final Scene scene;
+        final Random jitter = new Random(11);   // inference thread only
+        final AtomicInteger calls = new AtomicInteger();
+        volatile CountDownLatch gate;          // holds inference until released
+
+        FakeDetector(Scene scene) {
+            this.scene = scene;
+        }
+
+        @Override public int inputWidth() { return 300; }
+        @Override public int inputHeight() { return 300; }
+        @Override public ByteBuffer newInputBuffer() { return ByteBuffer.allocate(4); }
+        @Override public DetectionResults newResults() { return new DetectionResults(10); }
+
+        @Override
+        public void detect(ByteBuffer input, int cropLeft, int cropTop, int cropWidth, int cropHeight,
+                           DetectionResults out) {
+            calls.incrementAndGet();
+            CountDownLatch held = gate;
+            if (held != null) {
+                try {
+                    held.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            float[] truth = scene.truth[input.getInt(0)];
+            float width = truth[2] - truth[0];
+            float height = truth[3] - truth[1];
+            float[] box = new float[4];
+            for (int i = 0; i < 4; i++) {
+                float extent = i % 2 == 0 ? width : height;
+                box[i] = truth[i] + (jitter.nextFloat() - 0.5f) * 0.04f * extent;
+            }
+            out.clear();
+            out.add(box[0], box[1], box[2], box[3], 0.9f, 0, "chair", DetectionResult.NO_TRACK,
+                    Float.POSITIVE_INFINITY);
+        }
+    }
+
+    private static class SceneFrame implements AnalysisPipeline.Frame {
+        final Scene scene;
+        final int index;
+
+        SceneFrame(Scene scene, int index) {
+            this.scene = scene;
+            this.index = index;
+        }
+
+        @Override public int width() { return FRAME_W; }
+        @Override public int height() { return FRAME_H; }
+
+        @Override
+        public void downsampleLuma(int scale, byte[] out) {
+            assertEquals(SCALE, scale);
+            System.arraycopy(scene.luma[index], 0, out, 0, LUMA_W * LUMA_H);
+        }
+
+        @Override
+        public void convert(int cropLeft, int cropTop, int cropWidth, int cropHeight, ByteBuffer input) {
+            input.putInt(0, index);
+        }
+    }
+
+    /** Luma thumbnails of a textured obstacle approaching over a textured floor. */
+    private static final class Scene {
+        // Texture cells a few thumbnail pixels wide, like real surfaces at 1/4 resolution
+        static final int TEXTURE = 8;
+
+        final byte[][] luma = new byte[FRAMES][LUMA_W * LUMA_H];
+        final float[][] truth = new float[FRAMES][4];   // frame pixels
+        private final int[] texture = new int[TEXTURE * TEXTURE];
+
+        Scene(long seed) {
+            Random random = new Random(seed);
+            for (int i = 0; i < texture.length; i++) texture[i] = 40 + random.nextInt(180);
+            Random noise = new Random(seed + 1);
+            for (int frame = 0; frame < FRAMES; frame++) render(frame, noise);
+        }
+
+        private void render(int frame, Random noise) {
+            float t = (float) frame / (FRAMES - 1);
+            // Walking sway of the phone
+            float shakeX = 2f * (float) Math.sin(frame * 0.9);
+            float shakeY = 1.5f * (float) Math.cos(frame * 1.3);
+
+            // Obstacle drifts into the path while it grows from far to near
+            float centerX = 190f + 140f * t;
+            float centerY = 250f + 60f * t;
+            float size = (float) (70 * Math.pow(330.0 / 70, t));
+            float[] box = truth[frame];
+            box[0] = centerX - size * 0.45f + shakeX * SCALE;
+            box[1] = centerY - size * 0.6f + shakeY * SCALE;
+            box[2] = centerX + size * 0.45f + shakeX * SCALE;
+            box[3] = centerY + size * 0.6f + shakeY * SCALE;
+
+            byte[] out = luma[frame];
+            for (int y = 0; y < LUMA_H; y++) {
+                for (int x = 0; x < LUMA_W; x++) {
+                    float bx = x - shakeX;
+                    float by = y - shakeY;
+                    int value = (int) (110 + 30 * Math.sin(bx / 6.0) + 20 * Math.cos(by / 4.0));
+
+                    float fx = x * SCALE + SCALE / 2f;
+                    float fy = y * SCALE + SCALE / 2f;
+                    if (fx >= box[0] && fx < box[2] && fy >= box[1] && fy < box[3]) {
+                        int tx = (int) ((fx - box[0]) / (box[2] - box[0]) * TEXTURE);
+                        int ty = (int) ((fy - box[1]) / (box[3] - box[1]) * TEXTURE);
+                        value = texture[Math.min(TEXTURE - 1, ty) * TEXTURE + Math.min(TEXTURE - 1, tx)];
+                    }
+
+                    value += noise.nextInt(9) - 4;
+                    out[y * LUMA_W + x] = (byte) Math.max(0, Math.min(255, value));
+                }
+            }
+        }
+
+        /** Covers the obstacle in one frame with a flat patch. */
+        void occlude(int frame) {
+            float[] box = truth[frame];
+            for (int y = (int) (box[1] / SCALE); y < (int) (box[3] / SCALE) && y < LUMA_H; y++) {
+                for (int x = (int) (box[0] / SCALE); x < (int) (box[2] / SCALE) && x < LUMA_W; x++) {
+                    luma[frame][y * LUMA_W + x] = (byte) 128;
+                }
+            }
+        }
+    }
+}
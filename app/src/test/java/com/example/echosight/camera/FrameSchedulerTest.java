@@ -0,0 +1,76 @@
+package com.example.echosight.camera;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+
+    // 10 FPS target, 60% duty, 15 FPS boost, 3 FPS idle, 1.5 s near hold, 3 s idle timeout
+    private FrameScheduler newScheduler() {
+        return new FrameScheduler(10f, 0.6f, 15f, 3f, 1500, 3000);
+    }
+
+    private static int admittedOver(FrameScheduler scheduler, long startNs, long durationMs) {
+        int admitted = 0;
+        // Camera delivers 30 FPS
+        for (long t = 0; t < durationMs * MS; t += 33 * MS) {
+            if (scheduler.shouldAnalyze(startNs + t)) admitted++;
+        }
+        return admitted;
+    }
+
+    @Test
+    public void fastDevice_runsAtTargetRate() {
+        FrameScheduler scheduler = newScheduler();
+        long start = System.nanoTime();
+        scheduler.recordScene(true, false, start);
+        scheduler.recordInferenceTime(20 * MS);
+
+        int admitted = admittedOver(scheduler, start, 1000);
+
+        assertEquals(FrameScheduler.Mode.NORMAL, scheduler.getMode());
+        assertTrue("admitted " + admitted, admitted >= 9 && admitted <= 11);
+    }
+
+    @Test
+    public void slowDevice_isCappedByDutyBudget() {
+        FrameScheduler scheduler = newScheduler();
+        long start = System.nanoTime();
+        scheduler.recordScene(true, false, start);
+        scheduler.recordInferenceTime(300 * MS);
+
+        admittedOver(scheduler, start, 100);
+
+        // 300 ms at 60% duty → one frame every 500 ms
+        assertEquals(500f, scheduler.getCurrentIntervalMs(), 1f);
+    }
+
+    @Test
+    public void nearObstacle_boostsRate() {
+        FrameScheduler scheduler = newScheduler();
+        long start = System.nanoTime();
+        scheduler.recordInferenceTime(20 * MS);
+        scheduler.recordScene(true, true, start);
+
+        int admitted = admittedOver(scheduler, start, 1000);
+
+        assertEquals(FrameScheduler.Mode.BOOST, scheduler.getMode());
+        assertTrue("admitted " + admitted, admitted >= 13);
+    }
+
+    @Test
+    public void nothingDetected_fallsBackToIdleRate() {
+        FrameScheduler scheduler = newScheduler();
+        long start = System.nanoTime();
+        scheduler.recordInferenceTime(20 * MS);
+        scheduler.recordScene(true, false, start);
+
+        int admitted = admittedOver(scheduler, start + 4000 * MS, 1000);
+
+        assertEquals(FrameScheduler.Mode.IDLE, scheduler.getMode());
+        assertTrue("admitted " + admitted, admitted <= 4);
+    }
+}
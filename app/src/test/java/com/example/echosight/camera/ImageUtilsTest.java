@@ -0,0 +1,317 @@
+package com.example.echosight.camera;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side checks for the direct YUV_420_888 → RGB converter.
+ *
+ * The reference is a float YCbCr → RGB conversion at full resolution followed by a
+ * bilinear resize, i.e. what the old JPEG + createScaledBitmap path produced
+ * (minus the JPEG artefacts). A smooth gradient cannot tell bilinear from
+ * nearest-neighbour sampling, so a per-pixel random texture checks that too.
+ */
+public class ImageUtilsTest {
+
+    private static final int SRC_W = 640;
+    private static final int SRC_H = 480;
+    private static final int ROW_PADDING = 32;
+    private static final int OUT = 300;
+
+    @Test
+    public void interleavedAndPlanarChroma_produceIdenticalOutput() {
+        YuvFrame planar = YuvFrame.synthetic(SRC_W, SRC_H, false);
+        YuvFrame interleaved = YuvFrame.synthetic(SRC_W, SRC_H, true);
+
+        ByteBuffer a = convert(planar);
+        ByteBuffer b = convert(interleaved);
+
+        assertEquals(0, a.compareTo(b));
+    }
+
+    @Test
+    public void output_matchesReferenceWithinTolerance() {
+        YuvFrame frame = YuvFrame.synthetic(SRC_W, SRC_H, true);
+        ByteBuffer actual = convert(frame);
+        int[] expected = reference(frame);
+
+        long totalError = 0;
+        int maxError = 0;
+        for (int i = 0; i < expected.length; i++) {
+            int error = Math.abs((actual.get(i) & 0xFF) - expected[i]);
+            totalError += error;
+            maxError = Math.max(maxError, error);
+        }
+
+        double meanError = (double) totalError / expected.length;
+        assertTrue("mean error " + meanError, meanError < 2.0);
+        assertTrue("max error " + maxError, maxError <= 12);
+    }
+
+    @Test
+    public void fineTexture_matchesBilinearReference_whereNearestSamplingAliases() {
+        YuvFrame frame = YuvFrame.textured(SRC_W, SRC_H, 11);
+        int[] expected = reference(frame);
+
+        double meanError = meanError(convert(frame), expected);
+        double nearestError = meanError(nearest(frame), expected);
+
+        assertTrue("mean error " + meanError, meanError < 1.0);
+        // Picking one source pixel out of ~2x2 differs from the blend by tens of levels
+        assertTrue("nearest-neighbour mean error " + nearestError, nearestError > 10 * meanError);
+    }
+
+    @Test
+    public void argbPath_matchesBilinearReference() {
+        java.util.Random random = new java.util.Random(5);
+        int[] argb = new int[SRC_W * SRC_H];
+        float[] rgb = new float[SRC_W * SRC_H * 3];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xFF000000 | random.nextInt(0x1000000);
+            rgb[i * 3] = (argb[i] >> 16) & 0xFF;
+            rgb[i * 3 + 1] = (argb[i] >> 8) & 0xFF;
+            rgb[i * 3 + 2] = argb[i] & 0xFF;
+        }
+        byte[] identity = new byte[256];
+        for (int i = 0; i < 256; i++) identity[i] = (byte) i;
+        ByteBuffer out = ByteBuffer.allocate(OUT * OUT * 3);
+
+        ImageUtils.argbToRgb(argb, SRC_W, SRC_H, identity, out, OUT, OUT);
+
+        double meanError = meanError(out, resize(rgb));
+        assertTrue("mean error " + meanError, meanError < 1.0);
+    }
+
+    @Test
+    public void corridorCrop_samplesOnlyTheCrop() {
+        YuvFrame frame = YuvFrame.synthetic(SRC_W, SRC_H, true);
+        ByteBuffer crop = ByteBuffer.allocateDirect(OUT * OUT * 3).order(ByteOrder.nativeOrder());
+        int cropLeft = (int) (SRC_W * 0.2f);
+        int cropWidth = (int) (SRC_W * 0.8f) - cropLeft;
+
+        ImageUtils.yuvToRgb(
+                frame.yPlane, frame.yRowStride, 1,
+                frame.uPlane, frame.vPlane, frame.uvRowStride, frame.uvPixelStride,
+                cropLeft, 0, cropWidth, SRC_H,
+                crop, OUT, OUT
+        );
+
+        // The synthetic luma ramps left to right, so the first column of the crop
+        // must be brighter than the first column of the full frame.
+        ByteBuffer full = convert(frame);
+        int row = OUT / 2 * OUT * 3;
+        assertTrue((crop.get(row + 1) & 0xFF) > (full.get(row + 1) & 0xFF));
+        // And the crop's last column can't go past the crop's right edge
+        int last = row + (OUT - 1) * 3;
+        assertTrue((crop.get(last + 1) & 0xFF) < (full.get(last + 1) & 0xFF));
+    }
+
+    @Test
+    public void conversion_640x480_allocatesNothingPerFrame() {
+        YuvFrame frame = YuvFrame.synthetic(SRC_W, SRC_H, true);
+        ByteBuffer out = ByteBuffer.allocateDirect(OUT * OUT * 3).order(ByteOrder.nativeOrder());
+
+        for (int i = 0; i < 100; i++) frame.convertInto(out);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        int iterations = 200;
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) frame.convertInto(out);
+        long bytesPerFrame = (threads.getThreadAllocatedBytes(threadId) - bytesBefore) / iterations;
+
+        assertTrue("allocated " + bytesPerFrame + " B/frame", bytesPerFrame < 64);
+    }
+
+    @Test
+    public void benchmark_640x480_perFrameTime() {
+        Benchmarks.assumeEnabled();
+        YuvFrame frame = YuvFrame.synthetic(SRC_W, SRC_H, true);
+        ByteBuffer out = ByteBuffer.allocateDirect(OUT * OUT * 3).order(ByteOrder.nativeOrder());
+
+        for (int i = 0; i < 100; i++) frame.convertInto(out);
+
+        int iterations = 200;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) frame.convertInto(out);
+        double perFrameMs = (System.nanoTime() - start) / 1e6 / iterations;
+
+        System.out.printf("yuvToRgb 640x480 -> 300x300: %.3f ms/frame%n", perFrameMs);
+        // Well inside a 30 fps frame budget
+        assertTrue("conversion took " + perFrameMs + " ms", perFrameMs < 10);
+    }
+
+    private static ByteBuffer convert(YuvFrame frame) {
+        ByteBuffer out = ByteBuffer.allocateDirect(OUT * OUT * 3).order(ByteOrder.nativeOrder());
+        frame.convertInto(out);
+        return out;
+    }
+
+    private static double meanError(ByteBuffer actual, int[] expected) {
+        long total = 0;
+        for (int i = 0; i < expected.length; i++) total += Math.abs((actual.get(i) & 0xFF) - expected[i]);
+        return (double) total / expected.length;
+    }
+
+    /** Nearest-neighbour resize of the same frame, for comparison. */
+    private static ByteBuffer nearest(YuvFrame frame) {
+        ByteBuffer out = ByteBuffer.allocate(OUT * OUT * 3);
+        for (int oy = 0; oy < OUT; oy++) {
+            int sy = ((2 * oy + 1) * SRC_H) / (2 * OUT);
+            for (int ox = 0; ox < OUT; ox++) {
+                int sx = ((2 * ox + 1) * SRC_W) / (2 * OUT);
+                float luma = frame.y(sx, sy);
+                float cb = frame.u(sx, sy) - 128f;
+                float cr = frame.v(sx, sy) - 128f;
+                out.put((byte) clamp(luma + 1.402f * cr));
+                out.put((byte) clamp(luma - 0.344136f * cb - 0.714136f * cr));
+                out.put((byte) clamp(luma + 1.772f * cb));
+            }
+        }
+        return out;
+    }
+
+    private static int clamp(float value) {
+        return Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    private static int[] reference(YuvFrame frame) {
+        float[] rgb = new float[SRC_W * SRC_H * 3];
+        for (int y = 0; y < SRC_H; y++) {
+            for (int x = 0; x < SRC_W; x++) {
+                float luma = frame.y(x, y);
+                float cb = frame.u(x, y) - 128f;
+                float cr = frame.v(x, y) - 128f;
+                int i = (y * SRC_W + x) * 3;
+                rgb[i] = luma + 1.402f * cr;
+                rgb[i + 1] = luma - 0.344136f * cb - 0.714136f * cr;
+                rgb[i + 2] = luma + 1.772f * cb;
+            }
+        }
+        return resize(rgb);
+    }
+
+    /** Bilinear resize of full-resolution float RGB to OUT x OUT, rounded and clamped. */
+    private static int[] resize(float[] rgb) {
+        int[] out = new int[OUT * OUT * 3];
+        for (int oy = 0; oy < OUT; oy++) {
+            float fy = Math.max(0f, (oy + 0.5f) * SRC_H / OUT - 0.5f);
+            int y0 = Math.min((int) fy, SRC_H - 2);
+            float wy = fy - y0;
+            for (int ox = 0; ox < OUT; ox++) {
+                float fx = Math.max(0f, (ox + 0.5f) * SRC_W / OUT - 0.5f);
+                int x0 = Math.min((int) fx, SRC_W - 2);
+                float wx = fx - x0;
+                for (int c = 0; c < 3; c++) {
+                    float top = lerp(rgb[(y0 * SRC_W + x0) * 3 + c], rgb[(y0 * SRC_W + x0 + 1) * 3 + c], wx);
+                    float bottom = lerp(rgb[((y0 + 1) * SRC_W + x0) * 3 + c], rgb[((y0 + 1) * SRC_W + x0 + 1) * 3 + c], wx);
+                    float value = lerp(top, bottom, wy);
+                    out[(oy * OUT + ox) * 3 + c] = Math.max(0, Math.min(255, Math.round(value)));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+
+    /** A YUV_420_888 frame laid out the way camera HALs hand it over (padded rows). */
+    static final class YuvFrame {
+        final int width;
+        final int height;
+        final ByteBuffer yPlane;
+        final ByteBuffer uPlane;
+        final ByteBuffer vPlane;
+        final int yRowStride;
+        final int uvRowStride;
+        final int uvPixelStride;
+
+        private YuvFrame(int width, int height, boolean interleaved) {
+            this.width = width;
+            this.height = height;
+            this.yRowStride = width + ROW_PADDING;
+            this.uvPixelStride = interleaved ? 2 : 1;
+            this.uvRowStride = interleaved ? yRowStride : yRowStride / 2;
+
+            yPlane = ByteBuffer.allocateDirect(yRowStride * height);
+            if (interleaved) {
+                // NV21: V and U share one buffer, U is offset by one byte
+                ByteBuffer vu = ByteBuffer.allocateDirect(uvRowStride * height / 2);
+                vPlane = vu.duplicate();
+                vu.position(1);
+                uPlane = vu.slice();
+            } else {
+                uPlane = ByteBuffer.allocateDirect(uvRowStride * height / 2);
+                vPlane = ByteBuffer.allocateDirect(uvRowStride * height / 2);
+            }
+        }
+
+        static YuvFrame synthetic(int width, int height, boolean interleaved) {
+            YuvFrame frame = new YuvFrame(width, height, interleaved);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int luma = 40 + (x * 150) / width + (y * 50) / height;
+                    frame.yPlane.put(y * frame.yRowStride + x, (byte) luma);
+                }
+            }
+            frame.fillChroma();
+            return frame;
+        }
+
+        /** Random luma per pixel (grass, gravel, carpet at worst) over the smooth chroma. */
+        static YuvFrame textured(int width, int height, long seed) {
+            YuvFrame frame = new YuvFrame(width, height, true);
+            java.util.Random random = new java.util.Random(seed);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    frame.yPlane.put(y * frame.yRowStride + x, (byte) (40 + random.nextInt(176)));
+                }
+            }
+            frame.fillChroma();
+            return frame;
+        }
+
+        private void fillChroma() {
+            YuvFrame frame = this;
+            for (int y = 0; y < height / 2; y++) {
+                for (int x = 0; x < width / 2; x++) {
+                    int index = y * frame.uvRowStride + x * frame.uvPixelStride;
+                    frame.uPlane.put(index, (byte) (100 + (x * 60) / (width / 2)));
+                    frame.vPlane.put(index, (byte) (150 - (y * 50) / (height / 2)));
+                }
+            }
+        }
+
+        int y(int x, int y) {
+            return yPlane.get(y * yRowStride + x) & 0xFF;
+        }
+
+        int u(int x, int y) {
+            return uPlane.get((y / 2) * uvRowStride + (x / 2) * uvPixelStride) & 0xFF;
+        }
+
+        int v(int x, int y) {
+            return vPlane.get((y / 2) * uvRowStride + (x / 2) * uvPixelStride) & 0xFF;
+        }
+
+        void convertInto(ByteBuffer out) {
+            ImageUtils.yuvToRgb(
+                    yPlane, yRowStride, 1,
+                    uPlane, vPlane, uvRowStride, uvPixelStride,
+                    width, height,
+                    out, OUT, OUT
+            );
+        }
+    }
+}
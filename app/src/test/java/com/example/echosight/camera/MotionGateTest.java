@@ -0,0 +1,76 @@
+package com.example.echosight.camera;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+
+    private static final int W = 640;
+    private static final int H = 480;
+    private static final int STRIDE = 672;
+    private static final long MS = 1_000_000L;
+
+    private static ByteBuffer frame(int offsetX, int brightness) {
+        ByteBuffer y = ByteBuffer.allocateDirect(STRIDE * H);
+        for (int row = 0; row < H; row++) {
+            for (int col = 0; col < W; col++) {
+                // Vertical bars so horizontal motion changes the signature
+                int luma = (((col + offsetX) / 40) % 2 == 0 ? 60 : 180) + brightness;
+                y.put(row * STRIDE + col, (byte) Math.min(255, luma));
+            }
+        }
+        return y;
+    }
+
+    @Test
+    public void staticScene_isSkippedUntilRefresh() {
+        MotionGate gate = new MotionGate(6f, 1000);
+        ByteBuffer still = frame(0, 0);
+
+        assertTrue(gate.shouldInfer(still, STRIDE, 1, W, H, 0));
+        for (int i = 1; i < 10; i++) {
+            assertFalse(gate.shouldInfer(still, STRIDE, 1, W, H, i * 33 * MS));
+        }
+        // Forced refresh
+        assertTrue(gate.shouldInfer(still, STRIDE, 1, W, H, 1000 * MS));
+        assertEquals(9f / 11f, gate.getSkipRatio(), 1e-3f);
+    }
+
+    @Test
+    public void movingScene_isInferred() {
+        MotionGate gate = new MotionGate(6f, 1000);
+
+        assertTrue(gate.shouldInfer(frame(0, 0), STRIDE, 1, W, H, 0));
+        assertTrue(gate.shouldInfer(frame(20, 0), STRIDE, 1, W, H, 33 * MS));
+    }
+
+    @Test
+    public void exposureDrift_isNotMotion() {
+        MotionGate gate = new MotionGate(6f, 1000);
+
+        assertTrue(gate.shouldInfer(frame(0, 0), STRIDE, 1, W, H, 0));
+        assertFalse(gate.shouldInfer(frame(0, 15), STRIDE, 1, W, H, 33 * MS));
+    }
+
+    @Test
+    public void benchmark_gateCostPerFrame() {
+        Benchmarks.assumeEnabled();
+        MotionGate gate = new MotionGate(6f, Long.MAX_VALUE / MS);
+        ByteBuffer still = frame(0, 0);
+
+        for (int i = 0; i < 2000; i++) gate.shouldInfer(still, STRIDE, 1, W, H, i);
+
+        int iterations = 5000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) gate.shouldInfer(still, STRIDE, 1, W, H, i);
+        double perFrameMs = (System.nanoTime() - start) / 1e6 / iterations;
+
+        System.out.printf("MotionGate: %.4f ms/frame, skip ratio %.2f%n", perFrameMs, gate.getSkipRatio());
+        assertTrue("gate took " + perFrameMs + " ms", perFrameMs < 0.5);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.echosight.camera;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResequencerTest {
+
+    private final List<Long> released = new ArrayList<>();
+    private final List<Long> late = new ArrayList<>();
+    private final Resequencer resequencer = new Resequencer(
+            4,
+            slot -> released.add(slot.sequence),
+            slot -> late.add(slot.sequence)
+    );
+
+    private static FrameSlot slot(long sequence) {
+        FrameSlot slot = new FrameSlot(null, null);
+        slot.sequence = sequence;
+        return slot;
+    }
+
+    @Test
+    public void outOfOrderCompletions_areReleasedInOrder() {
+        resequencer.complete(slot(1));
+        resequencer.complete(slot(2));
+        assertTrue(released.isEmpty());
+
+        resequencer.complete(slot(0));
+        assertEquals(List.of(0L, 1L, 2L), released);
+    }
+
+    @Test
+    public void skippedFrames_doNotBlockLaterOnes() {
+        resequencer.complete(slot(0));
+        resequencer.complete(slot(2));
+        resequencer.skip(1);
+
+        assertEquals(List.of(0L, 2L), released);
+    }
+
+    @Test
+    public void stuckFrame_isGivenUpOnAndArrivesLate() {
+        // Frame 0 is stuck in inference while 1..4 complete
+        for (long seq = 1; seq <= 4; seq++) resequencer.complete(slot(seq));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), released);
+
+        resequencer.complete(slot(0));
+        assertEquals(List.of(0L), late);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.echosight.detection;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Raw-anchor decoding and class-aware NMS on synthetic YOLOv8-sized outputs
+ * (640 input: 8400 candidates, 80 classes).
+ */
+public class AnchorPostprocessorTest {
+
+    private static final int CANDIDATES = 8400;
+    private static final int CLASSES = 80;
+    private static final int INPUT = 640;
+
+    @Test
+    public void overlappingCandidates_collapseToTheBestPerClass() {
+        Output out = new Output(CANDIDATES, CLASSES, true);
+        // A person seen by three neighbouring anchors, plus a chair overlapping it
+        out.set(10, 320, 240, 100, 300, 0, 0.90f);
+        out.set(11, 324, 236, 104, 296, 0, 0.85f);
+        out.set(12, 316, 244, 96, 304, 0, 0.70f);
+        out.set(20, 330, 260, 110, 280, 56, 0.80f);
+        // Below threshold: never decoded
+        out.set(30, 100, 100, 50, 50, 2, 0.20f);
+
+        AnchorPostprocessor post = new AnchorPostprocessor(out.buffer, CANDIDATES, CLASSES, true,
+                INPUT, INPUT, 0.5f, 0.45f, 10, null);
+
+        assertEquals(2, post.run());
+        assertEquals(0, post.keptClass(0));
+        assertEquals(0.90f, post.keptScore(0), 0f);
+        assertEquals((320 - 50) / (float) INPUT, post.keptLeft(0), 1e-6f);
+        assertEquals((240 + 150) / (float) INPUT, post.keptBottom(0), 1e-6f);
+        // Class-aware: the chair survives although it overlaps the person
+        assertEquals(56, post.keptClass(1));
+    }
+
+    @Test
+    public void decode_mapsClassesThroughTheLabelMap_andBoxesIntoTheCrop() {
+        // labelmap.txt style: a placeholder first line the model's class 0 skips
+        LabelMap labels = new LabelMap(Arrays.asList("???", "person", "bicycle", "car"), 1);
+        Output out = new Output(100, 3, true);
+        out.set(5, 320, 320, 64, 128, 0, 0.9f);
+        out.set(6, 160, 480, 32, 32, 2, 0.8f);
+
+        AnchorPostprocessor post = new AnchorPostprocessor(out.buffer, 100, 3, true,
+                INPUT, INPUT, 0.5f, 0.45f, 10, labels);
+        DetectionResults results = new DetectionResults(10);
+        // A 384 px square corridor crop at (128, 48) in a 640x480 frame
+        post.decode(128, 48, 384, 384, results);
+
+        assertEquals(2, results.size());
+        DetectionResult person = results.get(0);
+        assertEquals("person", person.getLabel());
+        assertEquals(labels.classIdFor(0), person.getClassId());
+        assertEquals(0.9f, person.getConfidence(), 0f);
+        // Input pixels / 640 * 384 + crop offset
+        assertEquals(128 + 288 * 0.6f, person.getLeft(), 1e-3f);
+        assertEquals(48 + 256 * 0.6f, person.getTop(), 1e-3f);
+        assertEquals(128 + 352 * 0.6f, person.getRight(), 1e-3f);
+        assertEquals(48 + 384 * 0.6f, person.getBottom(), 1e-3f);
+
+        DetectionResult car = results.get(1);
+        assertEquals("car", car.getLabel());
+        assertEquals(128 + 144 * 0.6f, car.getLeft(), 1e-3f);
+        assertEquals(48 + 496 * 0.6f, car.getBottom(), 1e-3f);
+    }
+
+    @Test
+    public void channelsLast_decodesTheSameDetections() {
+        Random random = new Random(3);
+        Output first = new Output(CANDIDATES, CLASSES, true);
+        Output last = new Output(CANDIDATES, CLASSES, false);
+        fillScene(random, first, last);
+
+        AnchorPostprocessor a = new AnchorPostprocessor(first.buffer, CANDIDATES, CLASSES, true,
+                INPUT, INPUT, 0.5f, 0.45f, 10, null);
+        AnchorPostprocessor b = new AnchorPostprocessor(last.buffer, CANDIDATES, CLASSES, false,
+                INPUT, INPUT, 0.5f, 0.45f, 10, null);
+
+        int count = a.run();
+        assertEquals(count, b.run());
+        assertTrue(count > 0);
+        for (int k = 0; k < count; k++) {
+            assertEquals(a.keptClass(k), b.keptClass(k));
+            assertEquals(a.keptScore(k), b.keptScore(k), 0f);
+            assertEquals(a.keptLeft(k), b.keptLeft(k), 0f);
+            assertEquals(a.keptTop(k), b.keptTop(k), 0f);
+        }
+    }
+
+    @Test
+    public void maxDetections_capsTheOutput() {
+        Output out = new Output(CANDIDATES, CLASSES, true);
+        for (int i = 0; i < 50; i++) {
+            // Disjoint boxes, all confident
+            out.set(i, 20 + (i % 10) * 60, 20 + (i / 10) * 60, 40, 40, i % CLASSES, 0.6f + i * 0.005f);
+        }
+        AnchorPostprocessor post = new AnchorPostprocessor(out.buffer, CANDIDATES, CLASSES, true,
+                INPUT, INPUT, 0.5f, 0.45f, 10, null);
+
+        assertEquals(10, post.run());
+        // Highest scores first
+        assertEquals(0.6f + 49 * 0.005f, post.keptScore(0), 1e-6f);
+    }
+
+    @Test
+    public void benchmark_decodeAndNmsAt8400Candidates() {
+        Benchmarks.assumeEnabled();
+        Random random = new Random(7);
+        Output first = new Output(CANDIDATES, CLASSES, true);
+        Output last = new Output(CANDIDATES, CLASSES, false);
+        fillScene(random, first, last);
+
+        AnchorPostprocessor channelsFirst = new AnchorPostprocessor(first.buffer, CANDIDATES, CLASSES, true,
+                INPUT, INPUT, 0.25f, 0.45f, 100, null);
+        AnchorPostprocessor channelsLast = new AnchorPostprocessor(last.buffer, CANDIDATES, CLASSES, false,
+                INPUT, INPUT, 0.25f, 0.45f, 100, null);
+
+        int runs = 200;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int kept = 0;
+            for (int i = 0; i < runs; i++) kept = channelsFirst.run();
+            long firstNs = (System.nanoTime() - start) / runs;
+
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) channelsLast.run();
+            long lastNs = (System.nanoTime() - start) / runs;
+
+            if (round == 1) {
+                System.out.printf("raw anchors %d x %d classes: decode + NMS %.3f ms channels-first, "
+                                + "%.3f ms channels-last, %d kept%n",
+                        CANDIDATES, CLASSES, firstNs / 1e6, lastNs / 1e6, kept);
+                assertTrue("decode + NMS " + firstNs / 1e6 + " ms", firstNs < 20_000_000L);
+            }
+        }
+    }
+
+    /**
+     * Low background scores everywhere, and 30 objects each picked up by a
+     * cluster of neighbouring anchors with slightly shifted boxes.
+     */
+    private static void fillScene(Random random, Output... outputs) {
+        for (int n = 0; n < CANDIDATES; n++) {
+            float cx = random.nextFloat() * INPUT;
+            float cy = random.nextFloat() * INPUT;
+            float w = 10 + random.nextFloat() * 100;
+            float h = 10 + random.nextFloat() * 100;
+            for (Output out : outputs) out.setBox(n, cx, cy, w, h);
+            for (int c = 0; c < CLASSES; c++) {
+                float score = random.nextFloat() * 0.05f;
+                for (Output out : outputs) out.setScore(n, c, score);
+            }
+        }
+        for (int object = 0; object < 30; object++) {
+            float cx = 50 + random.nextFloat() * 540;
+            float cy = 50 + random.nextFloat() * 540;
+            float size = 40 + random.nextFloat() * 150;
+            int cls = random.nextInt(CLASSES);
+            for (int j = 0; j < 20; j++) {
+                int n = random.nextInt(CANDIDATES);
+                float score = 0.3f + random.nextFloat() * 0.65f;
+                float x = cx + random.nextFloat() * 6 - 3;
+                float y = cy + random.nextFloat() * 6 - 3;
+                for (Output out : outputs) out.set(n, x, y, size, size * 1.3f, cls, score);
+            }
+        }
+    }
+
+    /** Output tensor in either layout, in input pixels. */
+    private static final class Output {
+        final ByteBuffer buffer;
+        final FloatBuffer values;
+        final int candidates;
+        final int classes;
+        final boolean channelsFirst;
+
+        Output(int candidates, int classes, boolean channelsFirst) {
+            this.candidates = candidates;
+            this.classes = classes;
+            this.channelsFirst = channelsFirst;
+            buffer = ByteBuffer.allocateDirect(candidates * (4 + classes) * 4).order(ByteOrder.nativeOrder());
+            values = buffer.asFloatBuffer();
+        }
+
+        void set(int n, float cx, float cy, float w, float h, int cls, float score) {
+            setBox(n, cx, cy, w, h);
+            for (int c = 0; c < classes; c++) setScore(n, c, c == cls ? score : 0.01f);
+        }
+
+        void setBox(int n, float cx, float cy, float w, float h) {
+            put(n, 0, cx);
+            put(n, 1, cy);
+            put(n, 2, w);
+            put(n, 3, h);
+        }
+
+        void setScore(int n, int cls, float score) {
+            put(n, 4 + cls, score);
+        }
+
+        private void put(int n, int channel, float value) {
+            int index = channelsFirst ? channel * candidates + n : n * (4 + classes) + channel;
+            values.put(index, value);
+        }
+    }
+}
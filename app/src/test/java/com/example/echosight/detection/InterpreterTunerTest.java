@@ -0,0 +1,159 @@
+package com.example.echosight.detection;
+
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * The persist / lookup / force path with a fake benchmark: the real one
+ * needs the TFLite runtime, which the JVM tests don't have.
+ */
+public class InterpreterTunerTest {
+
+    private static final ByteBuffer MODEL = ByteBuffer.wrap(new byte[]{1, 2, 3, 4});
+
+    /** Pretends more threads are faster and XNNPACK with FP16 is fastest of all; records what it timed. */
+    private static class FakeBenchmark implements InterpreterTuner.Benchmark {
+        final List<InterpreterTuner.Config> timed = new ArrayList<>();
+
+        @Override
+        public float run(ByteBuffer model, InterpreterTuner.Config config) throws Exception {
+            timed.add(config);
+            if (!config.useXnnpack && config.allowFp16) throw new IllegalStateException("delegate refused");
+            return 100f / config.numThreads - (config.useXnnpack ? 5 : 0) - (config.allowFp16 ? 1 : 0);
+        }
+    }
+
+    @Test
+    public void firstCall_tunesAndPersists_laterCallsOnlyLookUp() {
+        FakePrefs prefs = new FakePrefs();
+        FakeBenchmark benchmark = new FakeBenchmark();
+        InterpreterTuner tuner = new InterpreterTuner(prefs, "Pixel", benchmark);
+
+        InterpreterTuner.Config first = tuner.getConfig(MODEL, 4, false);
+        assertEquals("threads=4 xnnpack=true fp16=true", first.toString());
+        // 1, 2 and 4 threads x XNNPACK x FP16
+        assertEquals(12, benchmark.timed.size());
+
+        String report = tuner.getReport(MODEL, 4);
+        assertEquals(12, report.split("\n").length);
+        assertTrue(report, report.contains("threads=1 xnnpack=false fp16=true: failed (delegate refused)"));
+        assertTrue(report, report.contains("threads=4 xnnpack=true fp16=true: 19.0 ms"));
+
+        // A new tuner on the same storage, as on the next launch
+        FakeBenchmark next = new FakeBenchmark();
+        InterpreterTuner.Config saved = new InterpreterTuner(prefs, "Pixel", next).getConfig(MODEL, 4, false);
+        assertEquals(first.toString(), saved.toString());
+        assertTrue(next.timed.isEmpty());
+    }
+
+    @Test
+    public void forceRetune_benchmarksAgainAndReplacesTheSavedResult() {
+        FakePrefs prefs = new FakePrefs();
+        new InterpreterTuner(prefs, "Pixel", new FakeBenchmark()).getConfig(MODEL, 4, false);
+
+        // The phone got slower with more threads (e.g. after a thermal change)
+        FakeBenchmark slower = new FakeBenchmark() {
+            @Override
+            public float run(ByteBuffer model, InterpreterTuner.Config config) throws Exception {
+                timed.add(config);
+                return config.numThreads;
+            }
+        };
+        InterpreterTuner tuner = new InterpreterTuner(prefs, "Pixel", slower);
+        assertEquals(4, tuner.getConfig(MODEL, 4, false).numThreads);
+        assertTrue(slower.timed.isEmpty());
+
+        assertEquals(1, tuner.getConfig(MODEL, 4, true).numThreads);
+        assertEquals(12, slower.timed.size());
+        assertEquals(1, new InterpreterTuner(prefs, "Pixel", new FakeBenchmark()).getConfig(MODEL, 4, false).numThreads);
+    }
+
+    @Test
+    public void threadBudget_limitsTheCandidates_andIsTunedSeparately() {
+        FakePrefs prefs = new FakePrefs();
+        FakeBenchmark benchmark = new FakeBenchmark();
+        InterpreterTuner tuner = new InterpreterTuner(prefs, "Pixel", benchmark);
+
+        // One of two pooled detectors on a four-core phone
+        assertEquals(2, tuner.getConfig(MODEL, 2, false).numThreads);
+        for (InterpreterTuner.Config timed : benchmark.timed) assertTrue(timed.numThreads <= 2);
+        assertNull(tuner.getReport(MODEL, 4));
+
+        benchmark.timed.clear();
+        assertEquals(4, tuner.getConfig(MODEL, 4, false).numThreads);
+        assertEquals(12, benchmark.timed.size());
+    }
+
+    @Test
+    public void otherModelOrDevice_isNotAnsweredFromTheSavedResult() {
+        FakePrefs prefs = new FakePrefs();
+        new InterpreterTuner(prefs, "Pixel", new FakeBenchmark()).getConfig(MODEL, 1, false);
+
+        FakeBenchmark benchmark = new FakeBenchmark();
+        new InterpreterTuner(prefs, "Pixel", benchmark).getConfig(ByteBuffer.wrap(new byte[]{4, 3, 2, 1}), 1, false);
+        assertEquals(4, benchmark.timed.size());
+
+        benchmark.timed.clear();
+        new InterpreterTuner(prefs, "Galaxy", benchmark).getConfig(MODEL, 1, false);
+        assertEquals(4, benchmark.timed.size());
+    }
+
+    @Test
+    public void corruptEntry_isRetuned() {
+        FakePrefs prefs = new FakePrefs();
+        InterpreterTuner tuner = new InterpreterTuner(prefs, "Pixel", new FakeBenchmark());
+        tuner.getConfig(MODEL, 1, false);
+        for (String key : new ArrayList<>(prefs.values.keySet())) {
+            if (!key.endsWith("|report")) prefs.values.put(key, "garbage");
+        }
+
+        FakeBenchmark benchmark = new FakeBenchmark();
+        assertEquals(1, new InterpreterTuner(prefs, "Pixel", benchmark).getConfig(MODEL, 1, false).numThreads);
+        assertEquals(4, benchmark.timed.size());
+    }
+
+    /** In-memory SharedPreferences; only strings are used by the tuner. */
+    private static class FakePrefs implements SharedPreferences {
+        final Map<String, Object> values = new HashMap<>();
+
+        @Override public Map<String, ?> getAll() { return values; }
+        @Override public String getString(String key, String defValue) {
+            return values.containsKey(key) ? (String) values.get(key) : defValue;
+        }
+        @Override public Set<String> getStringSet(String key, Set<String> defValues) { return defValues; }
+        @Override public int getInt(String key, int defValue) { return defValue; }
+        @Override public long getLong(String key, long defValue) { return defValue; }
+        @Override public float getFloat(String key, float defValue) { return defValue; }
+        @Override public boolean getBoolean(String key, boolean defValue) { return defValue; }
+        @Override public boolean contains(String key) { return values.containsKey(key); }
+        @Override public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener l) { }
+        @Override public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener l) { }
+
+        @Override
+        public Editor edit() {
+            Map<String, Object> pending = new HashMap<>();
+            return new Editor() {
+                @Override public Editor putString(String key, String value) { pending.put(key, value); return this; }
+                @Override public Editor putStringSet(String key, Set<String> values) { return this; }
+                @Override public Editor putInt(String key, int value) { return this; }
+                @Override public Editor putLong(String key, long value) { return this; }
+                @Override public Editor putFloat(String key, float value) { return this; }
+                @Override public Editor putBoolean(String key, boolean value) { return this; }
+                @Override public Editor remove(String key) { return this; }
+                @Override public Editor clear() { return this; }
+                @Override public boolean commit() { apply(); return true; }
+                @Override public void apply() { values.putAll(pending); }
+            };
+        }
+    }
+}
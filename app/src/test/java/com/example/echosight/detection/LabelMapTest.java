@@ -0,0 +1,50 @@
+package com.example.echosight.detection;
+
+import com.example.echosight.logic.SemanticMapper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LabelMapTest {
+
+    // Head of the COCO labelmap.txt bundled with the app
+    private static final List<String> COCO_HEAD = Arrays.asList(
+            "???", "person", "bicycle", "car", "motorcycle", "airplane", "bus", "train", "truck", "boat");
+
+    @Test
+    public void labelOffset_isAppliedOnce() {
+        LabelMap map = new LabelMap(COCO_HEAD, 1);
+
+        assertEquals(COCO_HEAD.size() - 1, map.size());
+        assertEquals("person", map.displayName(map.classIdFor(0)));
+        assertEquals("boat", map.displayName(map.classIdFor(8)));
+    }
+
+    @Test
+    public void outOfRangeClasses_mapToUnknown() {
+        LabelMap map = new LabelMap(COCO_HEAD, 1);
+
+        assertEquals(LabelMap.UNKNOWN, map.classIdFor(-1));
+        assertEquals(LabelMap.UNKNOWN, map.classIdFor(COCO_HEAD.size() - 1));
+        assertEquals("Unknown", map.displayName(LabelMap.UNKNOWN));
+        // Unknown objects are obstacles, as in SemanticMapper
+        assertEquals(SemanticMapper.SemanticType.OBSTACLE, map.semanticType(LabelMap.UNKNOWN));
+    }
+
+    @Test
+    public void tables_matchTheStringClassifier() {
+        LabelMap map = new LabelMap(COCO_HEAD, 1);
+
+        for (int id = 0; id < map.size(); id++) {
+            String label = COCO_HEAD.get(id + 1);
+            assertEquals(label, SemanticMapper.classify(label), map.semanticType(id));
+            assertEquals(label, SemanticMapper.priority(label), map.priority(id));
+            assertEquals(id, map.classIdOf(label));
+        }
+        assertTrue(map.priority(map.classIdOf("person")) > map.priority(map.classIdOf("car")));
+    }
+}
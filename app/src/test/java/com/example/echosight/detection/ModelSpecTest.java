@@ -0,0 +1,50 @@
+package com.example.echosight.detection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Host-side checks for the per-dtype channel tables used by preprocessing.
+ */
+public class ModelSpecTest {
+
+    @Test
+    public void uint8WithoutNormalization_passesPixelsThrough() {
+        byte[] table = ModelSpec.quantizedTable(Float.NaN, Float.NaN, 0.0078125f, 128, 0, 255, 0);
+
+        for (int value = 0; value < 256; value++) {
+            assertEquals(value, table[value] & 0xFF);
+        }
+    }
+
+    @Test
+    public void int8WithoutNormalization_shiftsToSignedRange() {
+        byte[] table = ModelSpec.quantizedTable(Float.NaN, Float.NaN, 0.00392f, -128, -128, 127, -128);
+
+        assertEquals(-128, table[0]);
+        assertEquals(0, table[128]);
+        assertEquals(127, table[255]);
+    }
+
+    @Test
+    public void int8WithNormalization_quantizesTheNormalizedValue() {
+        // [-1, 1] input quantized with scale 1/128 and zero point 0
+        byte[] table = ModelSpec.quantizedTable(127.5f, 127.5f, 1f / 128f, 0, -128, 127, -128);
+
+        assertEquals(-128, table[0]);
+        assertEquals(127, table[255]);
+        for (int value = 0; value < 256; value++) {
+            float expected = (value - 127.5f) / 127.5f * 128f;
+            assertEquals(expected, table[value], 1.01f);
+        }
+    }
+
+    @Test
+    public void floatTable_normalizes() {
+        float[] table = ModelSpec.floatTable(127.5f, 127.5f);
+
+        assertEquals(-1f, table[0], 1e-6f);
+        assertEquals(1f, table[255], 1e-6f);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.echosight.feedback;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FeedbackQueueTest {
+
+    @Test
+    public void packing_roundTripsTheFrameState() {
+        long event = FeedbackQueue.frame(2, -0.4f, 0.73f);
+
+        assertEquals(FeedbackQueue.FRAME, FeedbackQueue.type(event));
+        assertEquals(2, FeedbackQueue.level(event));
+        assertEquals(-0.4f, FeedbackQueue.pan(event), 1e-4f);
+        assertEquals(0.73f, FeedbackQueue.score(event), 0f);
+
+        assertEquals(1f, FeedbackQueue.pan(FeedbackQueue.frame(0, 3f, 0f)), 0f);
+        assertEquals(FeedbackQueue.CLEAR, FeedbackQueue.type(FeedbackQueue.clear()));
+    }
+
+    @Test
+    public void fullRing_keepsTheNewestEvent() {
+        FeedbackQueue queue = new FeedbackQueue(6);
+        assertEquals(8, queue.capacity());
+
+        for (int i = 0; i < 8; i++) assertTrue(queue.offer(i));
+        assertFalse(queue.offer(8));
+        assertFalse(queue.offer(9));
+        assertEquals(1, queue.getDropped());
+
+        long[] out = new long[16];
+        assertEquals(9, queue.drain(out));
+        assertArrayEquals(new long[]{0, 1, 2, 3, 4, 5, 6, 7, 9}, Arrays.copyOf(out, 9));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void partlyDrainedRing_putsTheNewestLast() {
+        FeedbackQueue queue = new FeedbackQueue(8);
+        for (int i = 0; i < 9; i++) queue.offer(i);
+
+        // 8 waits behind the events still in the ring, and goes when something newer arrives
+        long[] out = new long[5];
+        assertEquals(5, queue.drain(out));
+        assertArrayEquals(new long[]{0, 1, 2, 3, 4}, out);
+        assertTrue(queue.offer(10));
+        assertEquals(1, queue.getDropped());
+        assertEquals(4, queue.drain(out));
+        assertArrayEquals(new long[]{5, 6, 7, 10}, Arrays.copyOf(out, 4));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void concurrentConsumer_seesEventsInOrder_endingWithTheNewest() throws Exception {
+        FeedbackQueue queue = new FeedbackQueue(16);
+        int count = 200_000;
+        long[] result = new long[3];   // events seen, out-of-order count, last seen
+
+        // Yielding rather than spinning, so this also runs on a single core
+        Thread consumer = new Thread(() -> {
+            long[] out = new long[16];
+            long seen = 0;
+            long last = -1;
+            int disorder = 0;
+            while (last < count - 1) {
+                int n = queue.drain(out);
+                if (n == 0) Thread.yield();
+                for (int i = 0; i < n; i++) {
+                    if (out[i] <= last) disorder++;
+                    last = out[i];
+                    seen++;
+                }
+            }
+            result[0] = seen;
+            result[1] = disorder;
+            result[2] = last;
+        });
+        consumer.start();
+
+        for (long i = 0; i < count; i++) {
+            queue.offer(i);
+            if (i % 8 == 0) Thread.yield();
+        }
+        consumer.join(10_000);
+
+        assertEquals(count - 1, result[2]);
+        assertEquals(0, result[1]);
+        // Whatever the consumer missed was replaced by something newer, and counted
+        assertEquals(count, result[0] + queue.getDropped());
+    }
+
+    @Test
+    public void benchmark_analyzerCostPerFrame() {
+        Benchmarks.assumeEnabled();
+        // The analyzer offers one event per frame and the feedback thread drains every
+        // few ms, so an offer normally finds room; time just that path, draining between batches
+        FeedbackQueue queue = new FeedbackQueue(64);
+        long[] out = new long[64];
+        int batches = 200_000;
+        long sink = 0;
+
+        double perFrameNs = 0;
+        for (int round = 0; round < 3; round++) {
+            long offerNs = 0;
+            for (int b = 0; b < batches; b++) {
+                long start = System.nanoTime();
+                for (int f = 0; f < 48; f++) {
+                    queue.offer(FeedbackQueue.frame(f % 3, (f % 20) / 10f - 1f, f / 48f));
+                }
+                offerNs += System.nanoTime() - start;
+                sink += out[queue.drain(out) - 1];
+            }
+            perFrameNs = offerNs / (batches * 48.0);
+        }
+
+        System.out.printf("feedback queue: %.1f ns per frame on the analyzer (%d)%n", perFrameNs, sink % 10);
+        assertEquals(0, queue.getDropped());
+        assertTrue(perFrameNs < 50);
+    }
+}
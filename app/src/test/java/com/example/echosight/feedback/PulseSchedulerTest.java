@@ -0,0 +1,88 @@
+package com.example.echosight.feedback;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PulseSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final int FAR = 0, MID = 1, NEAR = 2;
+
+    private final PulseScheduler pulses = new PulseScheduler(new long[]{150, 1000, 650}, 150);
+
+    @Test
+    public void repeatedLevel_pulsesOnce() {
+        pulses.request(FAR);
+        assertEquals(FAR, pulses.poll(0));
+        for (int t = 1; t < 50; t++) {
+            pulses.request(FAR);
+            assertEquals(PulseScheduler.NONE, pulses.poll(t * 100 * MS));
+        }
+        assertEquals(Long.MAX_VALUE, pulses.nextDueNs());
+    }
+
+    @Test
+    public void rise_cutsInStraightAway() {
+        pulses.request(FAR);
+        assertEquals(FAR, pulses.poll(0));
+
+        // Within FAR's 150 ms waveform plus the 150 ms gap
+        pulses.request(NEAR);
+        assertEquals(Long.MIN_VALUE, pulses.nextDueNs());
+        assertEquals(NEAR, pulses.poll(100 * MS));
+    }
+
+    @Test
+    public void fallWithinTheGap_coalescesToTheLatestLevel() {
+        pulses.request(NEAR);
+        assertEquals(NEAR, pulses.poll(0));
+
+        // NEAR's 650 ms waveform plus the 150 ms gap
+        pulses.request(FAR);
+        assertEquals(PulseScheduler.NONE, pulses.poll(100 * MS));
+        pulses.request(MID);
+        assertEquals(PulseScheduler.NONE, pulses.poll(700 * MS));
+        assertEquals(800 * MS, pulses.nextDueNs());
+        assertEquals(MID, pulses.poll(800 * MS));
+    }
+
+    @Test
+    public void flickerBackWithinTheGap_playsNothing() {
+        pulses.request(MID);
+        assertEquals(MID, pulses.poll(0));
+        pulses.request(NEAR);
+        pulses.request(MID);
+        assertEquals(PulseScheduler.NONE, pulses.poll(2000 * MS));
+    }
+
+    @Test
+    public void onlyRisesCutIn_andAtMostTwiceBeforeAGap() {
+        long lastEnd = Long.MIN_VALUE;
+        int lastLevel = PulseScheduler.NONE;
+        int cutIns = 0;
+        long[] durations = {150, 1000, 650};
+        for (int t = 0; t < 10_000; t += 7) {
+            pulses.request((t / 7) % 3);
+            int level = pulses.poll(t * MS);
+            if (level == PulseScheduler.NONE) continue;
+            if (t * MS < lastEnd + 150 * MS) {
+                assertTrue("fall cut in at " + t + " ms", level > lastLevel);
+                assertTrue("buzz at " + t + " ms", ++cutIns <= 2);
+            } else {
+                cutIns = 0;
+            }
+            lastEnd = (t + durations[level]) * MS;
+            lastLevel = level;
+        }
+    }
+
+    @Test
+    public void reset_letsTheSameLevelPulseAgain() {
+        pulses.request(NEAR);
+        assertEquals(NEAR, pulses.poll(0));
+        pulses.reset();
+        pulses.request(NEAR);
+        assertEquals(NEAR, pulses.poll(MS));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.echosight.feedback;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ToneSynthTest {
+
+    private static final int RATE = 48000;
+    private static final int BURST = 240;   // 5 ms, a typical low-latency burst
+
+    @Test
+    public void pan_movesTheCueBetweenChannels() {
+        double[] left = energy(-1f, 0.5f);
+        assertTrue(left[0] > 0);
+        assertEquals(0, left[1], left[0] * 1e-6);
+
+        double[] centre = energy(0f, 0.5f);
+        assertEquals(centre[0], centre[1], centre[0] * 0.01);
+
+        double[] right = energy(0.5f, 0.5f);
+        assertTrue(right[1] > 3 * right[0]);
+        // Equal power: the total stays put as the cue moves
+        assertEquals(centre[0] + centre[1], right[0] + right[1], (centre[0] + centre[1]) * 0.05);
+    }
+
+    @Test
+    public void closerObjects_pulseFasterAtHigherPitch() {
+        int[] far = pulsesAndCrossings(0.2f);
+        int[] mid = pulsesAndCrossings(0.45f);
+        int[] near = pulsesAndCrossings(0.75f);
+
+        assertTrue(far[0] < mid[0] && mid[0] < near[0]);
+        // Crossings per sounding sample track the pitch
+        assertTrue(far[1] < mid[1] && mid[1] < near[1]);
+        assertEquals(ToneSynth.MIN_RATE * 2, far[0], 1);
+        assertTrue("near pulses per 2 s: " + near[0], near[0] >= 16);
+    }
+
+    @Test
+    public void cueFromSilence_startsInTheFirstBlock() {
+        ToneSynth synth = new ToneSynth(RATE);
+        short[] block = new short[BURST * 2];
+
+        assertEquals(-1, synth.render(block, BURST));
+        synth.setTarget(0f, 0.6f);
+        assertEquals(0, synth.render(block, BURST));
+
+        int firstAudible = -1;
+        for (int i = 0; i < BURST && firstAudible < 0; i++) {
+            if (block[i * 2] != 0) firstAudible = i;
+        }
+        assertTrue("first audible frame " + firstAudible, firstAudible >= 0 && firstAudible < 10);
+        // Already sounding: no new onset
+        assertEquals(-1, synth.render(block, BURST));
+    }
+
+    @Test
+    public void movingTargetAndSilence_neverClick() {
+        ToneSynth synth = new ToneSynth(RATE);
+        short[] block = new short[BURST * 2];
+        int maxStep = 0;
+        int previous = 0;
+
+        for (int b = 0; b < 400; b++) {
+            if (b < 300) {
+                // Sweeps left to right while approaching
+                synth.setTarget(-1f + b / 150f, 0.1f + b / 400f);
+            } else if (b == 300) {
+                synth.silence();
+            }
+            synth.render(block, BURST);
+            for (int i = 0; i < BURST; i++) {
+                maxStep = Math.max(maxStep, Math.abs(block[i * 2] - previous));
+                previous = block[i * 2];
+            }
+        }
+
+        assertFalse(synth.isSounding());
+        assertEquals(0, previous);
+        // A 1.3 kHz tone at full gain moves at most about this much per sample
+        assertTrue("largest step " + maxStep, maxStep < 0.7 * Short.MAX_VALUE * 2 * Math.PI * 1320 / RATE * 1.3);
+    }
+
+    @Test
+    public void benchmark_renderCostPerBurst() {
+        Benchmarks.assumeEnabled();
+        ToneSynth synth = new ToneSynth(RATE);
+        short[] block = new short[BURST * 2];
+        synth.setTarget(0.3f, 0.6f);
+        int bursts = RATE / BURST * 60;   // one minute of audio
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            long sink = 0;
+            for (int b = 0; b < bursts; b++) {
+                synth.setTarget((b % 200) / 100f - 1f, 0.4f + (b % 50) / 100f);
+                synth.render(block, BURST);
+                sink += block[BURST];
+            }
+            long elapsed = System.nanoTime() - start;
+
+            if (round == 1) {
+                double perBurstUs = elapsed / 1e3 / bursts;
+                System.out.printf("tone synth: %.2f us per %d-frame burst (%.3f%% of real time), %d%n",
+                        perBurstUs, BURST, perBurstUs / (BURST * 1e6 / RATE) * 100, sink % 10);
+                assertTrue(perBurstUs < BURST * 1e6 / RATE * 0.1);
+            }
+        }
+    }
+
+    /** Left and right energy over one second. */
+    private static double[] energy(float pan, float score) {
+        ToneSynth synth = new ToneSynth(RATE);
+        short[] block = new short[BURST * 2];
+        synth.setTarget(pan, score);
+        double[] energy = new double[2];
+        for (int b = 0; b < RATE / BURST; b++) {
+            synth.render(block, BURST);
+            for (int i = 0; i < BURST; i++) {
+                energy[0] += block[i * 2] * (double) block[i * 2];
+                energy[1] += block[i * 2 + 1] * (double) block[i * 2 + 1];
+            }
+        }
+        return energy;
+    }
+
+    /** Pulses in two seconds, and zero crossings per 1000 sounding samples. */
+    private static int[] pulsesAndCrossings(float score) {
+        ToneSynth synth = new ToneSynth(RATE);
+        short[] block = new short[BURST * 2];
+        synth.setTarget(0f, score);
+        int pulses = 0;
+        int crossings = 0;
+        int sounding = 0;
+        int silentRun = Integer.MAX_VALUE;
+        int previous = 0;
+        for (int b = 0; b < 2 * RATE / BURST; b++) {
+            synth.render(block, BURST);
+            for (int i = 0; i < BURST; i++) {
+                int sample = block[i * 2];
+                if (sample == 0) {
+                    silentRun++;
+                    continue;
+                }
+                // A pulse starts after a gap longer than any run of zeros inside one
+                if (silentRun > 20) pulses++;
+                silentRun = 0;
+                sounding++;
+                if ((sample > 0) != (previous > 0)) crossings++;
+                previous = sample;
+            }
+        }
+        return new int[]{pulses, crossings * 1000 / Math.max(1, sounding)};
+    }
+}
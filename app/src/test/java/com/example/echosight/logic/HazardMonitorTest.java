@@ -0,0 +1,180 @@
+package com.example.echosight.logic;
+
+import com.example.echosight.camera.FrameScheduler;
+import com.example.echosight.camera.MotionGate;
+import com.example.echosight.detection.DetectionResult;
+import com.example.echosight.detection.DetectionResults;
+import com.example.echosight.detection.LabelMap;
+import com.example.echosight.feedback.FeedbackQueue;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class HazardMonitorTest {
+
+    private static final long FRAME_NS = 100_000_000L;   // 10 fps analysis
+    private static final long COOLDOWN_MS = 3000;
+    private static final int FRAME_W = 640;
+    private static final int FRAME_H = 480;
+    private static final int CAPACITY = 10;
+
+    private static final LabelMap LABELS = new LabelMap(
+            Arrays.asList("person", "bicycle", "car", "chair", "bench", "potted plant", "tv"), 0);
+    private static final int PERSON = 0;
+    private static final int CHAIR = 3;
+
+    private final float[] boxes = new float[CAPACITY * 4];
+    private final float[] scores = new float[CAPACITY];
+    private final int[] classes = new int[CAPACITY];
+
+    @Test
+    public void blockingTrack_isAnnouncedOnceConfirmed_thenAfterTheCooldown() {
+        HazardMonitor monitor = new HazardMonitor(CAPACITY, LABELS, 2.5f, COOLDOWN_MS);
+        set(0, 220, 150, 420, 470, 0.9f, CHAIR);
+
+        int announcements = 0;
+        for (int frame = 0; frame < 40; frame++) {
+            boolean announce = monitor.update(1, boxes, scores, classes, FRAME_W, FRAME_H, frame * FRAME_NS);
+            // Confirmed on the third frame, then quiet for the cooldown
+            assertEquals(frame == 2 || frame == 33, announce);
+            if (!announce) continue;
+
+            announcements++;
+            assertEquals(CHAIR, monitor.announcedClassId());
+            // A new track cuts in; repeating it doesn't
+            assertEquals(frame == 2, monitor.isAnnouncementUrgent());
+        }
+        assertEquals(2, announcements);
+        assertEquals(1, monitor.trackCount());
+        // Centred in the frame, for the audio cue
+        assertEquals(0f, monitor.nearestPan(), 0.01f);
+        assertEquals(ProximityEstimator.score(220, 150, 420, 470, FRAME_W, FRAME_H), monitor.nearestScore(), 0.01f);
+    }
+
+    @Test
+    public void changedAlertLevel_isAnnouncedStraightAway() {
+        HazardMonitor monitor = new HazardMonitor(CAPACITY, LABELS, 2.5f, COOLDOWN_MS);
+        long now = 0;
+        for (int frame = 0; frame < 3; frame++, now += FRAME_NS) {
+            set(0, 240, 180, 400, 400, 0.9f, PERSON);
+            monitor.update(1, boxes, scores, classes, FRAME_W, FRAME_H, now);
+        }
+        ProximityEstimator.Proximity first = monitor.announcedAlert();
+
+        // The person steps right up to the camera
+        boolean announced = false;
+        for (int frame = 0; frame < 5 && !announced; frame++, now += FRAME_NS) {
+            set(0, 120, 40, 520, 480, 0.9f, PERSON);
+            announced = monitor.update(1, boxes, scores, classes, FRAME_W, FRAME_H, now);
+        }
+        assertTrue(announced);
+        assertNotEquals(first, monitor.announcedAlert());
+        assertEquals(ProximityEstimator.Proximity.NEAR, monitor.announcedAlert());
+        assertTrue(monitor.isAnnouncementUrgent());
+    }
+
+    /**
+     * Only meaningful with escape analysis off (ART has none; HotSpot's can
+     * hide the allocations this is here to catch), so it runs in the
+     * allocationTest Gradle task and is skipped elsewhere.
+     */
+    @Test
+    public void steadyState_allocatesNothingPerFrame() {
+        Assume.assumeTrue(ManagementFactory.getRuntimeMXBean().getInputArguments().contains("-XX:-DoEscapeAnalysis"));
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        HazardMonitor monitor = new HazardMonitor(CAPACITY, LABELS, 2.5f, COOLDOWN_MS);
+        FrameScheduler scheduler = new FrameScheduler();
+        MotionGate motionGate = new MotionGate();
+        ByteBuffer luma = ByteBuffer.allocateDirect(FRAME_W * FRAME_H);
+        DetectionResults detections = new DetectionResults(CAPACITY);
+        FeedbackQueue queue = new FeedbackQueue(16);
+        long[] batch = new long[16];
+
+        // What FrameAnalyzer and the feedback thread do with each camera frame, minus the Android calls
+        int frames = 20_000;
+        long announcements = 0;
+        long allocated = 0;
+        long overhead = 0;
+        long now = 0;
+        for (int round = 0; round < 3; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            overhead = threads.getThreadAllocatedBytes(thread) - before;
+
+            before = threads.getThreadAllocatedBytes(thread);
+            for (int frame = 0; frame < frames; frame++, now += FRAME_NS) {
+                scene(frame);
+                fill(detections);
+                luma.put((frame * 7919) % luma.capacity(), (byte) frame);
+                scheduler.shouldAnalyze(now);
+                boolean infer = motionGate.shouldInfer(luma, FRAME_W, 1, FRAME_W, FRAME_H, now);
+                // Every fourth inference is a full-frame scan, the rest look at the corridor
+                boolean fullScan = frame % 4 == 0;
+                boolean announce = infer
+                        ? monitor.update(detections, fullScan ? 0 : 128, fullScan ? 0 : 48,
+                                fullScan ? FRAME_W : 512, fullScan ? FRAME_H : 432, FRAME_W, FRAME_H, now)
+                        : monitor.reuse(FRAME_W, FRAME_H, now);
+                scheduler.recordInferenceTime(30_000_000L);
+                if (monitor.trackCount() == 0) {
+                    queue.offer(FeedbackQueue.clear());
+                } else {
+                    scheduler.recordScene(true, monitor.nearest() == ProximityEstimator.Proximity.NEAR, now);
+                    queue.offer(FeedbackQueue.frame(monitor.nearest().ordinal(),
+                            monitor.nearestPan(), monitor.nearestScore()));
+                }
+                if (announce) announcements += monitor.announcedClassId() + monitor.announcedTrackId();
+                for (int i = queue.drain(batch) - 1; i >= 0; i--) {
+                    announcements += FeedbackQueue.level(batch[i]) + (long) FeedbackQueue.pan(batch[i]);
+                }
+            }
+            allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+        }
+
+        assertTrue(monitor.trackCount() > 0);
+        assertTrue(announcements > 0);
+        assertEquals("bytes allocated over " + frames + " frames", 0, allocated);
+    }
+
+    /**
+     * Ten objects drifting across the frame, some of them approaching in the
+     * path, with detections flickering in and out.
+     */
+    private void scene(int frame) {
+        for (int i = 0; i < CAPACITY; i++) {
+            float phase = (frame + i * 37) % 200 / 200f;
+            float size = 40 + 200 * phase;
+            float cx = 80 + i * 55 + 10 * (float) Math.sin(frame * 0.05 + i);
+            float cy = 240 + 40 * phase;
+            set(i, cx - size / 2, cy - size / 2, cx + size / 2, cy + size / 2,
+                    (frame + i) % 9 == 0 ? 0.3f : 0.9f, i % LABELS.size());
+        }
+    }
+
+    /** The scene as the detector would hand it over. */
+    private void fill(DetectionResults detections) {
+        detections.clear();
+        for (int i = 0; i < CAPACITY; i++) {
+            detections.add(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3], scores[i],
+                    classes[i], LABELS.displayName(classes[i]), DetectionResult.NO_TRACK, Float.POSITIVE_INFINITY);
+        }
+    }
+
+    private void set(int i, float l, float t, float r, float b, float score, int cls) {
+        boxes[i * 4] = l;
+        boxes[i * 4 + 1] = t;
+        boxes[i * 4 + 2] = r;
+        boxes[i * 4 + 3] = b;
+        scores[i] = score;
+        classes[i] = cls;
+    }
+}
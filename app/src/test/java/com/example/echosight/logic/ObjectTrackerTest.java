@@ -0,0 +1,232 @@
+package com.example.echosight.logic;
+
+import com.example.echosight.utils.Constants;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ObjectTrackerTest {
+
+    private static final long FRAME_NS = 100_000_000L;   // 10 fps analysis
+
+    // Corridor crop of a 640x480 frame for a square model input, as AnalysisPipeline makes it
+    private static final int FRAME_W = 640;
+    private static final int FRAME_H = 480;
+    private static final float CORRIDOR_W = FRAME_W * (Constants.CORRIDOR_RIGHT - Constants.CORRIDOR_LEFT);
+    private static final float CORRIDOR_LEFT = (FRAME_W - CORRIDOR_W) / 2;
+    private static final float CORRIDOR_TOP = (FRAME_H - CORRIDOR_W) / 2;
+
+    private final float[] boxes = new float[16];
+    private final float[] scores = new float[4];
+    private final int[] classes = new int[4];
+
+    @Test
+    public void track_isConfirmedAfterThreeHits() {
+        ObjectTracker tracker = new ObjectTracker(4);
+
+        for (int frame = 0; frame < 3; frame++) {
+            set(0, 100, 100, 200, 300, 0.8f, 1);
+            tracker.update(1, boxes, scores, classes, frame * FRAME_NS);
+            assertEquals(1, tracker.size());
+            assertEquals(frame == 2, tracker.isConfirmed(0));
+        }
+    }
+
+    @Test
+    public void lowConfidenceDetections_doNotStartTracks() {
+        ObjectTracker tracker = new ObjectTracker(4);
+
+        set(0, 100, 100, 200, 300, 0.5f, 1);
+        tracker.update(1, boxes, scores, classes, 0);
+
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void twoObjects_keepTheirIdsWhileMoving() {
+        ObjectTracker tracker = new ObjectTracker(4);
+        int personId = -1;
+        int chairId = -1;
+
+        for (int frame = 0; frame < 20; frame++) {
+            // A person walks right across the frame, a chair grows as it approaches;
+            // detection order flips every frame so ids can't come from the index
+            float shift = frame * 8f;
+            float grow = frame * 4f;
+            int person = frame % 2;
+            int chair = 1 - person;
+            set(person, 50 + shift, 100, 150 + shift, 400, 0.9f, 1);
+            set(chair, 400 - grow, 250 - grow, 500 + grow, 350 + grow, 0.7f, 62);
+            tracker.update(2, boxes, scores, classes, frame * FRAME_NS);
+
+            assertEquals(2, tracker.size());
+            int p = indexOfClass(tracker, 1);
+            int c = indexOfClass(tracker, 62);
+            if (frame == 0) {
+                personId = tracker.trackId(p);
+                chairId = tracker.trackId(c);
+                assertNotEquals(personId, chairId);
+            }
+            assertEquals(personId, tracker.trackId(p));
+            assertEquals(chairId, tracker.trackId(c));
+        }
+
+        // The constant-velocity prediction keeps up with the moving box
+        int p = indexOfClass(tracker, 1);
+        float lastLeft = 50 + 19 * 8f;
+        assertEquals(lastLeft, tracker.left(p), 4f);
+    }
+
+    @Test
+    public void jitteryDetections_areSmoothed() {
+        ObjectTracker tracker = new ObjectTracker(4);
+        float rawError = 0f;
+        float trackedError = 0f;
+
+        for (int frame = 0; frame < 30; frame++) {
+            float jitter = frame % 2 == 0 ? 10f : -10f;
+            set(0, 200 + jitter, 100, 300 + jitter, 300, 0.9f, 1);
+            tracker.update(1, boxes, scores, classes, frame * FRAME_NS);
+
+            if (frame >= 10) {
+                rawError += Math.abs(jitter);
+                trackedError += Math.abs(tracker.left(0) - 200);
+            }
+        }
+
+        assertTrue("tracked " + trackedError + " raw " + rawError, trackedError < rawError * 0.6f);
+    }
+
+    @Test
+    public void missedTracks_areRetiredAndIdsAreNotReused() {
+        ObjectTracker tracker = new ObjectTracker(4);
+
+        set(0, 100, 100, 200, 300, 0.8f, 1);
+        for (int frame = 0; frame < 3; frame++) {
+            tracker.update(1, boxes, scores, classes, frame * FRAME_NS);
+        }
+        int firstId = tracker.trackId(0);
+
+        // A confirmed track survives a short dropout...
+        for (int frame = 3; frame < 6; frame++) {
+            tracker.update(0, boxes, scores, classes, frame * FRAME_NS);
+            assertEquals(1, tracker.size());
+        }
+        // ...but not a long one
+        tracker.update(0, boxes, scores, classes, 6 * FRAME_NS);
+        assertEquals(0, tracker.size());
+
+        tracker.update(1, boxes, scores, classes, 7 * FRAME_NS);
+        assertEquals(1, tracker.size());
+        assertNotEquals(firstId, tracker.trackId(0));
+        assertFalse(tracker.isConfirmed(0));
+    }
+
+    @Test
+    public void differentClasses_areNeverMatched() {
+        ObjectTracker tracker = new ObjectTracker(4);
+
+        set(0, 100, 100, 200, 300, 0.8f, 1);
+        tracker.update(1, boxes, scores, classes, 0);
+        int id = tracker.trackId(0);
+
+        set(0, 100, 100, 200, 300, 0.8f, 2);
+        tracker.update(1, boxes, scores, classes, FRAME_NS);
+
+        assertEquals(2, tracker.size());
+        assertEquals(1, tracker.misses(indexOfClass(tracker, 1)));
+        assertNotEquals(id, tracker.trackId(indexOfClass(tracker, 2)));
+    }
+
+    @Test
+    public void sideTrack_survivesCorridorInferences_betweenFullScans() {
+        ObjectTracker withRegion = new ObjectTracker(4);
+        ObjectTracker withoutRegion = new ObjectTracker(4);
+        int sideId = -1;
+
+        for (int inference = 0; inference < 6 * Constants.FULL_SCAN_INTERVAL; inference++) {
+            boolean fullScan = isFullScan(inference);
+            // A chair in the corridor is seen every time, a person by the wall only by full scans
+            set(0, 280, 200, 360, 320, 0.8f, 62);
+            set(1, 20, 100, 90, 400, 0.9f, 1);
+            int n = fullScan ? 2 : 1;
+
+            corridorUpdate(withRegion, n, fullScan, inference * FRAME_NS);
+            withoutRegion.update(n, boxes, scores, classes, inference * FRAME_NS);
+
+            int side = indexOf(withRegion, 1);
+            if (side < 0) {
+                assertTrue("inference " + inference, inference < Constants.FULL_SCAN_INTERVAL);
+                continue;
+            }
+            if (sideId < 0) sideId = withRegion.trackId(side);
+            assertEquals(sideId, withRegion.trackId(side));
+        }
+
+        assertTrue(withRegion.isConfirmed(indexOf(withRegion, 1)));
+        // Counting the corridor inferences as misses retires it before every full scan
+        int side = indexOf(withoutRegion, 1);
+        assertTrue(side < 0 || !withoutRegion.isConfirmed(side));
+    }
+
+    @Test
+    public void boxCutByTheCorridor_keepsTheTrackWidthAndTimeToCollision() {
+        ObjectTracker withRegion = new ObjectTracker(4);
+        ObjectTracker withoutRegion = new ObjectTracker(4);
+
+        // From the first full scan: a track started on a cut box is as narrow as that until one shows all of it
+        for (int inference = Constants.FULL_SCAN_INTERVAL - 1; inference < 6 * Constants.FULL_SCAN_INTERVAL; inference++) {
+            boolean fullScan = isFullScan(inference);
+            // A standing object across the corridor's left side; the corridor shows only its right part
+            set(0, fullScan ? 60 : CORRIDOR_LEFT, 150, 200, 400, 0.9f, 1);
+
+            corridorUpdate(withRegion, 1, fullScan, inference * FRAME_NS);
+            withoutRegion.update(1, boxes, scores, classes, inference * FRAME_NS);
+        }
+
+        assertEquals(1, withRegion.size());
+        assertEquals(140f, withRegion.right(0) - withRegion.left(0), 5f);
+        assertEquals(TimeToCollision.NONE, withRegion.timeToCollision(0), 0f);
+        // Fed the cut widths, the track shrinks and looks like it is coming closer every full scan
+        assertTrue(withoutRegion.right(0) - withoutRegion.left(0) < 120f);
+    }
+
+    /** The pipeline's cadence: every FULL_SCAN_INTERVALth inference sees the whole frame. */
+    private static boolean isFullScan(int inference) {
+        return inference % Constants.FULL_SCAN_INTERVAL == Constants.FULL_SCAN_INTERVAL - 1;
+    }
+
+    private void corridorUpdate(ObjectTracker tracker, int n, boolean fullScan, long nowNs) {
+        if (fullScan) {
+            tracker.update(n, boxes, scores, classes, 0, 0, FRAME_W, FRAME_H, nowNs);
+        } else {
+            tracker.update(n, boxes, scores, classes,
+                    CORRIDOR_LEFT, CORRIDOR_TOP, CORRIDOR_LEFT + CORRIDOR_W, CORRIDOR_TOP + CORRIDOR_W, nowNs);
+        }
+    }
+
+    private void set(int i, float left, float top, float right, float bottom, float score, int classId) {
+        boxes[i * 4] = left;
+        boxes[i * 4 + 1] = top;
+        boxes[i * 4 + 2] = right;
+        boxes[i * 4 + 3] = bottom;
+        scores[i] = score;
+        classes[i] = classId;
+    }
+
+    private static int indexOf(ObjectTracker tracker, int classId) {
+        for (int i = 0; i < tracker.size(); i++) {
+            if (tracker.classId(i) == classId) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfClass(ObjectTracker tracker, int classId) {
+        for (int i = 0; i < tracker.size(); i++) {
+            if (tracker.classId(i) == classId) return i;
+        }
+        fail("no track of class " + classId);
+        return -1;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.echosight.logic;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SceneEvaluatorTest {
+
+    private static final int FRAME_W = 640;
+    private static final int FRAME_H = 480;
+    private static final int N = 10;
+    private static final float HORIZON_S = 2.5f;
+
+    private final float[] boxes = new float[N * 4];
+    private final float[] ttc = new float[N];
+    private final int[] priorities = new int[N];
+    private final boolean[] ignored = new boolean[N];
+
+    @Test
+    public void outputs_matchTheSingleObjectEstimatorsExactly() {
+        SceneEvaluator scene = new SceneEvaluator(N, HORIZON_S);
+        Random random = new Random(5);
+        int[][] frames = {{FRAME_W, FRAME_H}, {300, 300}, {481, 333}, {0, 0}};
+
+        for (int round = 0; round < 2000; round++) {
+            int[] frame = frames[round % frames.length];
+            randomScene(random, frame[0], frame[1]);
+            scene.evaluate(N, boxes, ttc, priorities, ignored, frame[0], frame[1]);
+
+            for (int i = 0; i < N; i++) {
+                float l = boxes[i * 4], t = boxes[i * 4 + 1], r = boxes[i * 4 + 2], b = boxes[i * 4 + 3];
+                assertEquals(DirectionEstimator.estimateDirection(l, r, frame[0]), scene.direction(i));
+                assertEquals(ObstacleDecision.isBlocking(l, t, r, b, frame[0], frame[1]), scene.isBlocking(i));
+                if (frame[0] > 0) {
+                    float score = ProximityEstimator.score(l, t, r, b, frame[0], frame[1]);
+                    assertEquals(Float.floatToIntBits(score), Float.floatToIntBits(scene.proximityScore(i)));
+                    assertEquals(ProximityEstimator.fromScore(score), scene.proximity(i));
+                } else {
+                    assertEquals(ProximityEstimator.Proximity.FAR, scene.proximity(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hazards_areRankedByAlertThenPriorityThenSize() {
+        SceneEvaluator scene = new SceneEvaluator(N, HORIZON_S);
+        Arrays.fill(ttc, Float.POSITIVE_INFINITY);
+
+        // 0: large car in the path (MID); 1: person in the path, same zone, smaller
+        // 2: small bin far ahead but closing fast; 3: huge box on the left, not in the path
+        // 4: ignored class in the path
+        set(0, 230, 200, 430, 400, 1, false);
+        set(1, 250, 200, 390, 400, 3, false);
+        set(2, 300, 200, 340, 240, 2, false);
+        ttc[2] = 1.5f;
+        set(3, 0, 0, 180, 480, 2, false);
+        set(4, 220, 100, 420, 480, 0, true);
+
+        scene.evaluate(5, boxes, ttc, priorities, ignored, FRAME_W, FRAME_H);
+
+        assertEquals(ProximityEstimator.Proximity.FAR, scene.proximity(2));
+        assertEquals(ProximityEstimator.Proximity.NEAR, scene.alert(2));
+        assertFalse(scene.isBlocking(2));
+        assertEquals(0f, scene.pathOverlap(3), 0f);
+        assertEquals(1f, scene.pathOverlap(2), 0f);
+
+        assertEquals(3, scene.hazardCount());
+        assertEquals(2, scene.hazard(0));   // imminent beats everything
+        assertEquals(1, scene.hazard(1));   // person before car in the same zone
+        assertEquals(0, scene.hazard(2));
+        // The ignored object still counts for feedback
+        assertEquals(ProximityEstimator.Proximity.NEAR, scene.nearest());
+    }
+
+    @Test
+    public void benchmark_wholeSceneAgainstPerObjectCalls() {
+        Benchmarks.assumeEnabled();
+        SceneEvaluator scene = new SceneEvaluator(N, HORIZON_S);
+        randomScene(new Random(9), FRAME_W, FRAME_H);
+        int frames = 200_000;
+        int sink = 0;
+
+        for (int warm = 0; warm < 2; warm++) {
+            long start = System.nanoTime();
+            for (int f = 0; f < frames; f++) {
+                scene.evaluate(N, boxes, ttc, priorities, ignored, FRAME_W, FRAME_H);
+                sink += scene.hazardCount();
+            }
+            long batched = System.nanoTime() - start;
+
+            // What FrameAnalyzer did before: the three estimators per object, keeping the top hazard
+            start = System.nanoTime();
+            for (int f = 0; f < frames; f++) {
+                int nearest = 0;
+                int best = -1;
+                int bestAlert = 0;
+                for (int i = 0; i < N; i++) {
+                    float l = boxes[i * 4], t = boxes[i * 4 + 1], r = boxes[i * 4 + 2], b = boxes[i * 4 + 3];
+                    sink += DirectionEstimator.estimateDirection(l, r, FRAME_W).ordinal();
+                    int alert = ProximityEstimator.fromScore(ProximityEstimator.score(l, t, r, b, FRAME_W, FRAME_H)).ordinal();
+                    boolean imminent = ttc[i] < HORIZON_S && ObstacleDecision.isInPath(l, r, FRAME_W);
+                    if (imminent) alert = 2;
+                    nearest = Math.max(nearest, alert);
+                    if (ignored[i]) continue;
+                    if (!imminent && !ObstacleDecision.isBlocking(l, t, r, b, FRAME_W, FRAME_H)) continue;
+                    if (best < 0 || alert > bestAlert || (alert == bestAlert && priorities[i] > priorities[best])) {
+                        best = i;
+                        bestAlert = alert;
+                    }
+                }
+                sink += nearest + best;
+            }
+            long separate = System.nanoTime() - start;
+
+            if (warm == 1) {
+                System.out.printf("scene of %d objects: evaluator %.3f us/frame (with ranking), "
+                                + "per-object estimators %.3f us/frame (%d)%n",
+                        N, batched / 1e3 / frames, separate / 1e3 / frames, sink % 10);
+                // A negligible slice of a 33 ms frame even with the ranking
+                double perFrameUs = batched / 1e3 / frames;
+                assertTrue("evaluator took " + perFrameUs + " us/frame", perFrameUs < 5);
+            }
+        }
+    }
+
+    private void randomScene(Random random, int frameW, int frameH) {
+        int w = Math.max(frameW, 1);
+        int h = Math.max(frameH, 1);
+        for (int i = 0; i < N; i++) {
+            // Includes boxes hanging off the frame and a few inverted ones
+            float l = random.nextFloat() * w * 1.1f - w * 0.05f;
+            float t = random.nextFloat() * h * 1.1f - h * 0.05f;
+            float r = l + (random.nextFloat() - 0.05f) * w * 0.8f;
+            float b = t + (random.nextFloat() - 0.05f) * h * 0.8f;
+            set(i, l, t, r, b, random.nextInt(4), random.nextInt(8) == 0);
+            ttc[i] = random.nextBoolean() ? Float.POSITIVE_INFINITY : random.nextFloat() * 6f;
+        }
+    }
+
+    private void set(int i, float l, float t, float r, float b, int priority, boolean ignore) {
+        boxes[i * 4] = l;
+        boxes[i * 4 + 1] = t;
+        boxes[i * 4 + 2] = r;
+        boxes[i * 4 + 3] = b;
+        priorities[i] = priority;
+        ignored[i] = ignore;
+    }
+}
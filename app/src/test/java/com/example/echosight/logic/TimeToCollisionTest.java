@@ -0,0 +1,142 @@
+package com.example.echosight.logic;
+
+import com.example.echosight.utils.Constants;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the estimator on exact data, then replays synthetic walking
+ * sequences (pinhole camera, detector jitter) through {@link ObjectTracker}
+ * to compare when NEAR fires with the proximity thresholds alone and with
+ * time to collision added.
+ */
+public class TimeToCollisionTest {
+
+    private static final int FRAME_W = 640;
+    private static final int FRAME_H = 480;
+    private static final float FOCAL_PX = 500f;
+    private static final float CAMERA_HEIGHT_M = 1.2f;
+    private static final float HORIZON_Y = FRAME_H / 4f;  // phone tilted down a little
+    private static final long FRAME_NS = 100_000_000L;   // 10 fps analysis
+
+    // Someone standing in the way; taller than the phone, so the box fills the frame as it nears
+    private static final float OBJECT_W_M = 0.5f;
+    private static final float OBJECT_H_M = 1.7f;
+    private static final float START_M = 8f;
+    private static final float CONTACT_M = 0.3f;          // phone is held ahead of the body
+
+    @Test
+    public void steadyApproach_givesTheExactTimeToContact() {
+        long[] times = new long[5];
+        float[] sizes = new float[5];
+        for (int i = 0; i < 5; i++) {
+            float distance = 5f - 1.5f * i * 0.1f;   // 1.5 m/s
+            times[i] = i * FRAME_NS;
+            sizes[i] = 100f / distance;
+        }
+
+        float expected = (5f - 1.5f * 0.4f) / 1.5f;
+        assertEquals(expected, TimeToCollision.estimate(times, sizes, 0, 5), 1e-3f);
+    }
+
+    @Test
+    public void steadyOrRecedingObjects_haveNoContact() {
+        long[] times = {0, FRAME_NS, 2 * FRAME_NS, 3 * FRAME_NS};
+
+        assertEquals(TimeToCollision.NONE, TimeToCollision.estimate(times, new float[]{50, 50, 50, 50}, 0, 4), 0f);
+        assertEquals(TimeToCollision.NONE, TimeToCollision.estimate(times, new float[]{60, 55, 50, 45}, 0, 4), 0f);
+        // Too few samples to trust
+        assertEquals(TimeToCollision.NONE, TimeToCollision.estimate(times, new float[]{50, 60}, 0, 2), 0f);
+    }
+
+    @Test
+    public void approachReplay_warnsEarlierThanProximityThresholds() {
+        float[] speeds = {0.8f, 1.2f, 1.6f};
+        for (int s = 0; s < speeds.length; s++) {
+            Result r = replay(speeds[s], 0f, 100 + s);
+            assertTrue("thresholds never fired", r.thresholdLeadMs >= 0);
+            // The thresholds fire at a fixed distance, so their warning shrinks with speed
+            // while time to collision keeps it constant; at a normal pace the gain is large
+            float minGainMs = speeds[s] >= 1.2f ? 500 : 0;
+            assertTrue("at " + speeds[s] + " m/s only " + (r.ttcLeadMs - r.thresholdLeadMs) + " ms earlier",
+                    r.ttcLeadMs - r.thresholdLeadMs >= minGainMs);
+            // Not absurdly early either: within a frame or two of the horizon
+            assertTrue("lead " + r.ttcLeadMs, r.ttcLeadMs <= Constants.TTC_HORIZON_S * 1000 + 300);
+        }
+    }
+
+    @Test
+    public void standingStillOrPassingBy_raisesNoEarlyWarning() {
+        Result still = replay(0f, 0f, 200);
+        assertEquals(-1f, still.ttcLeadMs, 0f);
+
+        // Walking past an obstacle a metre to the side: it grows, but is never in the path
+        Result passing = replay(1.2f, 1.0f, 201);
+        assertEquals(passing.thresholdLeadMs, passing.ttcLeadMs, 0f);
+    }
+
+    // ---------- Replay ----------
+
+    private static final class Result {
+        float thresholdLeadMs = -1f;   // how long before contact NEAR first fired, -1 if never
+        float ttcLeadMs = -1f;
+    }
+
+    private static Result replay(float speed, float lateralM, long seed) {
+        ObjectTracker tracker = new ObjectTracker(4);
+        Random jitter = new Random(seed);
+        float[] box = new float[4];
+        int[] classes = {1};
+        float[] scores = {0.9f};
+        Result result = new Result();
+
+        int frames = speed > 0 ? (int) ((START_M - CONTACT_M) / speed * 10) : 60;
+        for (int frame = 0; frame < frames; frame++) {
+            float distance = START_M - speed * frame * 0.1f;
+            project(distance, lateralM, jitter, box);
+            tracker.update(1, box, scores, classes, frame * FRAME_NS);
+            if (!tracker.isConfirmed(0)) continue;
+
+            float leadMs = speed > 0 ? (distance - CONTACT_M) / speed * 1000 : 0f;
+            boolean thresholdNear = proximityNear(tracker);
+            boolean inPath = ObstacleDecision.isInPath(tracker.left(0), tracker.right(0), FRAME_W);
+            boolean ttcNear = thresholdNear || (inPath && tracker.timeToCollision(0) < Constants.TTC_HORIZON_S);
+
+            if (thresholdNear && result.thresholdLeadMs < 0) result.thresholdLeadMs = leadMs;
+            if (ttcNear && result.ttcLeadMs < 0) result.ttcLeadMs = leadMs;
+        }
+        return result;
+    }
+
+    /** Pinhole projection, plus a few percent of detector jitter. */
+    private static void project(float distance, float lateralM, Random jitter, float[] out) {
+        float centerX = FRAME_W / 2f + FOCAL_PX * lateralM / distance;
+        float width = FOCAL_PX * OBJECT_W_M / distance;
+        float height = FOCAL_PX * OBJECT_H_M / distance;
+        float bottom = HORIZON_Y + FOCAL_PX * CAMERA_HEIGHT_M / distance;
+
+        out[0] = centerX - width / 2;
+        out[1] = bottom - height;
+        out[2] = centerX + width / 2;
+        out[3] = bottom;
+        for (int i = 0; i < 4; i++) {
+            float extent = i % 2 == 0 ? width : height;
+            out[i] += (jitter.nextFloat() - 0.5f) * 0.04f * extent;
+        }
+        // Clip to the frame as the detector does
+        out[0] = Math.max(0, out[0]);
+        out[1] = Math.max(0, out[1]);
+        out[2] = Math.min(FRAME_W, out[2]);
+        out[3] = Math.min(FRAME_H, out[3]);
+    }
+
+    private static boolean proximityNear(ObjectTracker tracker) {
+        float score = ProximityEstimator.score(tracker.left(0), tracker.top(0), tracker.right(0), tracker.bottom(0),
+                FRAME_W, FRAME_H);
+        return score >= ProximityEstimator.NEAR_SCORE;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.echosight.narration;
+
+import com.example.echosight.EnvironmentNarrator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.echosight.narration.NarrationCacheTest.H;
+import static com.example.echosight.narration.NarrationCacheTest.W;
+import static com.example.echosight.narration.NarrationCacheTest.scene;
+import static org.junit.Assert.*;
+
+public class CachedNarratorTest {
+
+    private static final long TTL = 5 * 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Local stand-in for the remote model: answers straight away and counts calls. */
+    private static class StubModel implements SceneModel<int[]> {
+        final List<int[]> seen = new ArrayList<>();
+        boolean fail;
+
+        @Override
+        public void describe(int[] image, EnvironmentNarrator.DescriptionCallback callback) {
+            seen.add(image);
+            if (fail) callback.onError("quota");
+            else callback.onDescriptionReady("Quiet room, description " + seen.size());
+        }
+    }
+
+    private static class Result implements EnvironmentNarrator.DescriptionCallback {
+        String text;
+        String error;
+
+        @Override
+        public void onDescriptionReady(String description) {
+            text = description;
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error = error;
+        }
+    }
+
+    @Test
+    public void nearDuplicateScene_isAnsweredFromTheCache() {
+        StubModel model = new StubModel();
+        AtomicLong clock = new AtomicLong(1_000);
+        CachedNarrator<int[]> narrator = new CachedNarrator<>(model,
+                new NarrationCache(new File(folder.getRoot(), "cache.bin"), 32, TTL, 6, clock.get()), clock::get);
+
+        int[] room = scene(1, 0, 0, 0);
+        Result first = new Result();
+        assertFalse(narrator.describe(PerceptualHash.hash(room, W, H), () -> room, first));
+        assertEquals("Quiet room, description 1", first.text);
+
+        int[] again = scene(1, 12, 2, 5);
+        clock.addAndGet(30_000);
+        Result second = new Result();
+        boolean cached = narrator.describe(PerceptualHash.hash(again, W, H), () -> {
+            throw new AssertionError("image made on a hit");
+        }, second);
+
+        assertTrue(cached);
+        assertEquals("Quiet room, description 1", second.text);
+        assertEquals(1, model.seen.size());
+    }
+
+    @Test
+    public void otherScenesAndExpiredEntries_goToTheModel() {
+        StubModel model = new StubModel();
+        AtomicLong clock = new AtomicLong(0);
+        CachedNarrator<int[]> narrator = new CachedNarrator<>(model,
+                new NarrationCache(null, 32, TTL, 6, 0), clock::get);
+        long room = PerceptualHash.hash(scene(1, 0, 0, 0), W, H);
+
+        narrator.describe(room, () -> new int[0], new Result());
+        narrator.describe(PerceptualHash.hash(scene(2, 0, 0, 0), W, H), () -> new int[0], new Result());
+        assertEquals(2, model.seen.size());
+
+        clock.set(TTL + 1);
+        Result result = new Result();
+        assertFalse(narrator.describe(room, () -> new int[0], result));
+        assertEquals("Quiet room, description 3", result.text);
+    }
+
+    @Test
+    public void errors_areNotCached() {
+        StubModel model = new StubModel();
+        model.fail = true;
+        CachedNarrator<int[]> narrator = new CachedNarrator<>(model, new NarrationCache(null, 32, TTL, 6, 0), () -> 0);
+
+        Result result = new Result();
+        narrator.describe(7L, () -> new int[0], result);
+        assertEquals("quota", result.error);
+
+        model.fail = false;
+        assertFalse(narrator.describe(7L, () -> new int[0], new Result()));
+        assertEquals(2, model.seen.size());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.echosight.narration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NarrationCacheTest {
+
+    static final int W = 160, H = 120;
+    private static final long TTL = 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void hash_nearDuplicatesAreClose_otherScenesFar() {
+        long room = PerceptualHash.hash(scene(1, 0, 0, 0), W, H);
+        // Sensor noise, a little brighter and the phone moved by two pixels
+        long again = PerceptualHash.hash(scene(1, 12, 2, 99), W, H);
+        long otherRoom = PerceptualHash.hash(scene(2, 0, 0, 0), W, H);
+
+        assertTrue("near-duplicate distance " + PerceptualHash.distance(room, again),
+                PerceptualHash.distance(room, again) <= 6);
+        assertTrue("other scene distance " + PerceptualHash.distance(room, otherRoom),
+                PerceptualHash.distance(room, otherRoom) > 12);
+    }
+
+    @Test
+    public void lookup_matchesWithinTheDistanceOnly() {
+        NarrationCache cache = new NarrationCache(null, 8, TTL, 4, 0);
+        cache.put(0b1111L, "quiet office", 0);
+
+        assertEquals("quiet office", cache.lookup(0b1111L, 1));
+        assertEquals("quiet office", cache.lookup(0b1111_0000_0000_1111L, 2));    // 4 bits off
+        assertNull(cache.lookup(0b1_1111_0000_0000_1111L, 3));                    // 5 bits off
+    }
+
+    @Test
+    public void putForANearDuplicate_replacesTheOldDescription() {
+        NarrationCache cache = new NarrationCache(null, 8, TTL, 4, 0);
+        cache.put(0b1111L, "empty corridor", 0);
+        cache.put(0b0111L, "corridor, someone walking towards you", 10);
+
+        assertEquals(1, cache.size());
+        assertEquals("corridor, someone walking towards you", cache.lookup(0b1111L, 20));
+    }
+
+    @Test
+    public void entriesExpireAfterTheTtl() {
+        NarrationCache cache = new NarrationCache(null, 8, TTL, 4, 0);
+        cache.put(1L, "kitchen", 0);
+
+        assertEquals("kitchen", cache.lookup(1L, TTL));
+        assertNull(cache.lookup(1L, TTL + 1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void overCapacity_leastRecentlyUsedGoesFirst() {
+        NarrationCache cache = new NarrationCache(null, 2, TTL, 0, 0);
+        cache.put(1L, "one", 0);
+        cache.put(2L, "two", 1);
+        cache.lookup(1L, 2);
+        cache.put(4L, "four", 3);
+
+        assertEquals("one", cache.lookup(1L, 4));
+        assertNull(cache.lookup(2L, 5));
+        assertEquals("four", cache.lookup(4L, 6));
+    }
+
+    @Test
+    public void persistsAcrossRestarts() throws IOException {
+        File file = new File(folder.getRoot(), "narration_cache.bin");
+        NarrationCache cache = new NarrationCache(file, 2, TTL, 0, 0);
+        cache.put(1L, "café, busy, é and emoji 😀", 0);
+        cache.put(2L, "old", 1);
+        cache.lookup(1L, 2);
+        cache.put(3L, "stale soon", 3);   // evicts 2, the least recently used
+
+        NarrationCache restarted = new NarrationCache(file, 2, TTL, 0, 10);
+        assertEquals(2, restarted.size());
+        assertEquals("café, busy, é and emoji 😀", restarted.lookup(1L, 11));
+        assertNull(restarted.lookup(2L, 12));
+
+        // Expired while the app was closed
+        NarrationCache later = new NarrationCache(file, 2, TTL, 0, TTL + 2);
+        assertEquals(1, later.size());
+        assertEquals("stale soon", later.lookup(3L, TTL + 3));
+
+        // A damaged file starts an empty cache
+        Files.write(file.toPath(), new byte[]{0, 0, 0, 1, 0, 0});
+        assertEquals(0, new NarrationCache(file, 2, TTL, 0, 0).size());
+    }
+
+    /**
+     * A synthetic room: a lit wall gradient with a few dark furniture blocks
+     * laid out by the layout seed.
+     */
+    static int[] scene(int layout, int brighten, int shift, long noiseSeed) {
+        Random shapes = new Random(layout);
+        Random noise = new Random(noiseSeed);
+        int[][] blocks = new int[5][];
+        for (int i = 0; i < blocks.length; i++) {
+            int x = shapes.nextInt(W - 40), y = shapes.nextInt(H - 30);
+            blocks[i] = new int[]{x, y, x + 20 + shapes.nextInt(20), y + 15 + shapes.nextInt(15), 40 + shapes.nextInt(60)};
+        }
+
+        int[] argb = new int[W * H];
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int sx = x - shift;
+                int v = 90 + (layout == 1 ? sx : W - sx) * 100 / W;
+                for (int[] b : blocks) {
+                    if (sx >= b[0] && sx < b[2] && y >= b[1] && y < b[3]) v = b[4];
+                }
+                v = Math.max(0, Math.min(255, v + brighten + (noiseSeed == 0 ? 0 : (int) (noise.nextGaussian() * 6))));
+                argb[y * W + x] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        }
+        return argb;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.echosight.narration;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SentenceSplitterTest {
+
+    private static final String TEXT = "It's a quiet café, mostly people working alone. "
+            + "Someone is about 2.5 metres to your left, typing! Is anyone looking? Not really… "
+            + "Dr. Lee's sign says \"back soon.\" The door is ahead\n"
+            + "Warm light, e.g. from lamps, fills the room";
+
+    private static final List<String> SENTENCES = Arrays.asList(
+            "It's a quiet café, mostly people working alone.",
+            "Someone is about 2.5 metres to your left, typing!",
+            "Is anyone looking?",
+            "Not really…",
+            "Dr. Lee's sign says \"back soon.\"",
+            "The door is ahead",
+            "Warm light, e.g. from lamps, fills the room");
+
+    @Test
+    public void wholeText_splitsAtSentenceEnds_notAbbreviationsOrDecimals() {
+        assertEquals(SENTENCES, split(TEXT, TEXT.length()));
+    }
+
+    @Test
+    public void anyChunking_givesTheSameSentences() {
+        for (int chunk = 1; chunk <= 12; chunk++) {
+            assertEquals("chunks of " + chunk, SENTENCES, split(TEXT, chunk));
+        }
+    }
+
+    @Test
+    public void sentence_isEmittedByTheChunkThatShowsItEnded() {
+        SentenceSplitter splitter = new SentenceSplitter();
+        assertTrue(splitter.accept("The hallway is empty").isEmpty());
+        // Could still be "empty.5" or "empty..."
+        assertTrue(splitter.accept(".").isEmpty());
+        assertEquals(Arrays.asList("The hallway is empty."), splitter.accept(" A"));
+        assertEquals("A", splitter.flush());
+        assertNull(splitter.flush());
+    }
+
+    @Test
+    public void blankLinesAndWhitespace_emitNothing() {
+        SentenceSplitter splitter = new SentenceSplitter();
+        assertTrue(splitter.accept("\n\n   \n").isEmpty());
+        assertEquals(Arrays.asList("Busy."), splitter.accept("Busy.\n\n"));
+        assertNull(splitter.flush());
+    }
+
+    private static List<String> split(String text, int chunk) {
+        SentenceSplitter splitter = new SentenceSplitter();
+        List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += chunk) {
+            sentences.addAll(splitter.accept(text.substring(i, Math.min(text.length(), i + chunk))));
+        }
+        String rest = splitter.flush();
+        if (rest != null) sentences.add(rest);
+        return sentences;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.echosight.narration;
+
+import com.example.echosight.EnvironmentNarrator;
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Streaming narration against a local fake of the streaming backend: the
+ * description arrives in chunks after a time-to-first-token and a fixed
+ * delay per chunk, and the fake speaker starts each sentence the moment it
+ * is handed over (TTS start-up is the same either way, so it is left out).
+ * The time to the first spoken word is an opt-in benchmark.
+ */
+public class StreamingNarratorTest {
+
+    private static final String DESCRIPTION = "It's a calm, fairly quiet office. "
+            + "Two people are sitting at a desk about three metres ahead, talking quietly. "
+            + "Someone near the window on your right glanced over but went back to their screen. "
+            + "The path in front of you is clear.";
+
+    private static final long FIRST_TOKEN_MS = 150;
+    private static final long CHUNK_MS = 30;
+    private static final int WORDS_PER_CHUNK = 3;
+
+    /** Streams a fixed text in word chunks from its own thread, like the remote model. */
+    private static class FakeBackend implements StreamingSceneModel<String> {
+        final List<String> chunks = new ArrayList<>();
+        final AtomicInteger emitted = new AtomicInteger();
+        final AtomicInteger cancels = new AtomicInteger();
+        volatile String failAfter;   // error instead of this chunk
+
+        FakeBackend(String text) {
+            String[] words = text.split("(?<= )");
+            for (int i = 0; i < words.length; i += WORDS_PER_CHUNK) {
+                StringBuilder chunk = new StringBuilder();
+                for (int w = i; w < Math.min(words.length, i + WORDS_PER_CHUNK); w++) chunk.append(words[w]);
+                chunks.add(chunk.toString());
+            }
+        }
+
+        @Override
+        public Stream stream(String image, Listener listener) {
+            Thread thread = new Thread(() -> {
+                try {
+                    Thread.sleep(FIRST_TOKEN_MS);
+                    for (int i = 0; i < chunks.size(); i++) {
+                        if (i > 0) Thread.sleep(CHUNK_MS);
+                        if (chunks.get(i).equals(failAfter)) {
+                            listener.onError("connection reset");
+                            return;
+                        }
+                        emitted.incrementAndGet();
+                        listener.onText(chunks.get(i));
+                    }
+                    listener.onComplete();
+                } catch (InterruptedException e) {
+                    // Cancelled: generation stops here
+                }
+            }, "fake-backend");
+            thread.start();
+            return () -> {
+                cancels.incrementAndGet();
+                thread.interrupt();
+            };
+        }
+
+        /** The non-streaming request: the whole text once the last chunk is generated. */
+        @Override
+        public void describe(String image, EnvironmentNarrator.DescriptionCallback callback) {
+            StringBuilder text = new StringBuilder();
+            CountDownLatch done = new CountDownLatch(1);
+            stream(image, new Listener() {
+                @Override
+                public void onText(String chunk) {
+                    text.append(chunk);
+                }
+
+                @Override
+                public void onComplete() {
+                    done.countDown();
+                }
+
+                @Override
+                public void onError(String error) {
+                    done.countDown();
+                }
+            });
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            callback.onDescriptionReady(text.toString().trim());
+        }
+    }
+
+    private static class FakeSpeaker implements StreamingNarrator.Speaker {
+        final List<String> sentences = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger stops = new AtomicInteger();
+        final CountDownLatch firstSentence = new CountDownLatch(1);
+        volatile AtomicInteger emitted;      // the backend's progress, if given
+        volatile int emittedAtFirstWord = -1;
+        volatile long firstWordNs;
+
+        @Override
+        public void narrate(String sentence) {
+            if (sentences.isEmpty()) {
+                firstWordNs = System.nanoTime();
+                if (emitted != null) emittedAtFirstWord = emitted.get();
+            }
+            sentences.add(sentence);
+            firstSentence.countDown();
+        }
+
+        @Override
+        public void stopNarration() {
+            stops.incrementAndGet();
+        }
+    }
+
+    private static class Result implements EnvironmentNarrator.DescriptionCallback {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile String text;
+        volatile String error;
+
+        @Override
+        public void onDescriptionReady(String description) {
+            text = description;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error = error;
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void firstSentence_isSpokenWhileTheResponseIsStillStreaming() throws InterruptedException {
+        FakeBackend backend = new FakeBackend(DESCRIPTION);
+        FakeSpeaker speaker = new FakeSpeaker();
+        speaker.emitted = backend.emitted;
+        StreamingNarrator<String> narrator = new StreamingNarrator<>(backend, speaker);
+
+        Result streamed = new Result();
+        narrator.describe("frame", streamed);
+        assertTrue(streamed.done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(DESCRIPTION, streamed.text);
+        assertEquals(4, speaker.sentences.size());
+        assertEquals("It's a calm, fairly quiet office.", speaker.sentences.get(0));
+        assertEquals("The path in front of you is clear.", speaker.sentences.get(3));
+        // The first sentence is complete with the second chunk, long before the last one
+        assertEquals(2, speaker.emittedAtFirstWord);
+        assertTrue(speaker.emittedAtFirstWord < backend.chunks.size());
+    }
+
+    @Test
+    public void benchmark_firstWordAgainstTheWholeResponse() throws InterruptedException {
+        Benchmarks.assumeEnabled();
+        FakeBackend backend = new FakeBackend(DESCRIPTION);
+        FakeSpeaker speaker = new FakeSpeaker();
+        StreamingNarrator<String> narrator = new StreamingNarrator<>(backend, speaker);
+
+        long start = System.nanoTime();
+        Result streamed = new Result();
+        narrator.describe("frame", streamed);
+        assertTrue(streamed.done.await(5, TimeUnit.SECONDS));
+        double streamingMs = (speaker.firstWordNs - start) / 1e6;
+
+        // As before: the whole text goes to speech when the response is complete
+        start = System.nanoTime();
+        Result whole = new Result();
+        backend.describe("frame", whole);
+        double wholeMs = (System.nanoTime() - start) / 1e6;
+        assertEquals(DESCRIPTION, whole.text);
+
+        System.out.printf("streaming narration: first word after %.0f ms vs %.0f ms for the whole response "
+                        + "(%d chunks, %d ms to the first, %d ms apart); %s%n",
+                streamingMs, wholeMs, backend.chunks.size(), FIRST_TOKEN_MS, CHUNK_MS, narrator.report());
+        assertTrue(streamingMs < wholeMs / 2);
+    }
+
+    @Test
+    public void cancel_stopsGenerationAndSpeech() throws InterruptedException {
+        FakeBackend backend = new FakeBackend(DESCRIPTION);
+        FakeSpeaker speaker = new FakeSpeaker();
+        StreamingNarrator<String> narrator = new StreamingNarrator<>(backend, speaker);
+
+        Result result = new Result();
+        narrator.describe("frame", result);
+        assertTrue(speaker.firstSentence.await(5, TimeUnit.SECONDS));
+        narrator.cancel();
+        int emitted = backend.emitted.get();
+
+        Thread.sleep(FIRST_TOKEN_MS + CHUNK_MS * 4);
+        assertEquals(1, backend.cancels.get());
+        assertEquals(1, speaker.stops.get());
+        // At most the chunk already on its way when cancelled
+        assertTrue(backend.emitted.get() <= emitted + 1);
+        assertTrue(backend.emitted.get() < backend.chunks.size());
+        assertEquals(1, speaker.sentences.size());
+        // A stopped description is never cached
+        assertEquals(1, result.done.getCount());
+        assertFalse(narrator.isActive());
+    }
+
+    @Test
+    public void cancel_beforeAnySentence_leavesOtherSpeechAlone() throws InterruptedException {
+        FakeBackend backend = new FakeBackend(DESCRIPTION);
+        FakeSpeaker speaker = new FakeSpeaker();
+        StreamingNarrator<String> narrator = new StreamingNarrator<>(backend, speaker);
+
+        narrator.describe("frame", new Result());
+        narrator.cancel();
+        Thread.sleep(FIRST_TOKEN_MS + CHUNK_MS);
+
+        assertEquals(1, backend.cancels.get());
+        assertEquals(0, backend.emitted.get());
+        assertEquals(0, speaker.stops.get());
+        assertTrue(speaker.sentences.isEmpty());
+    }
+
+    @Test
+    public void newDescription_replacesTheOneInProgress() throws InterruptedException {
+        FakeBackend backend = new FakeBackend(DESCRIPTION);
+        FakeSpeaker speaker = new FakeSpeaker();
+        StreamingNarrator<String> narrator = new StreamingNarrator<>(backend, speaker);
+
+        Result first = new Result();
+        narrator.describe("frame 1", first);
+        assertTrue(speaker.firstSentence.await(5, TimeUnit.SECONDS));
+
+        Result second = new Result();
+        narrator.describe("frame 2", second);
+        assertTrue(second.done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(DESCRIPTION, second.text);
+        assertEquals(1, first.done.getCount());
+        assertEquals(1, speaker.stops.get());
+        assertEquals(1 + 4, speaker.sentences.size());
+        assertTrue(narrator.report(), narrator.report().contains("2 started, 1 complete, 1 cancelled"));
+    }
+
+    @Test
+    public void error_midStream_isReported_afterTheSentencesSoFar() throws InterruptedException {
+        FakeBackend backend = new FakeBackend(DESCRIPTION);
+        backend.failAfter = backend.chunks.get(6);
+        FakeSpeaker speaker = new FakeSpeaker();
+        StreamingNarrator<String> narrator = new StreamingNarrator<>(backend, speaker);
+
+        Result result = new Result();
+        narrator.describe("frame", result);
+        assertTrue(result.done.await(5, TimeUnit.SECONDS));
+
+        assertEquals("connection reset", result.error);
+        assertNull(result.text);
+        assertEquals(1, speaker.sentences.size());
+        assertFalse(narrator.isActive());
+    }
+}
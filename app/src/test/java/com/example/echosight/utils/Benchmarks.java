@@ -0,0 +1,21 @@
+package com.example.echosight.utils;
+
+import org.junit.Assume;
+
+/**
+ * Wall-clock benchmarks depend on the machine and its load, so they are
+ * opt-in: run them with -Dechosight.benchmarks=true (the benchmarkTest
+ * Gradle task). The unit tests only check behaviour.
+ */
+public final class Benchmarks {
+
+    public static final String PROPERTY = "echosight.benchmarks";
+
+    private Benchmarks() {
+    }
+
+    /** Skips the calling test unless benchmarks were asked for. */
+    public static void assumeEnabled() {
+        Assume.assumeTrue("benchmarks are opt-in (-D" + PROPERTY + "=true)", Boolean.getBoolean(PROPERTY));
+    }
+}
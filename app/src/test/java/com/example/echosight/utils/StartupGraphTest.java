@@ -0,0 +1,94 @@
+package com.example.echosight.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class StartupGraphTest {
+
+    private final ExecutorService background = Executors.newFixedThreadPool(4);
+    private final ExecutorService main = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        background.shutdownNow();
+        main.shutdownNow();
+    }
+
+    @Test
+    public void dependents_runAfterTheirDependencies() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        StartupGraph graph = new StartupGraph(background, main)
+                .add("model", () -> order.add("model"))
+                .add("warmup", () -> order.add("warmup"), "model")
+                .addOnMain("speech", () -> order.add("speech"))
+                .add("ready", () -> order.add("ready"), "warmup", "speech");
+
+        List<String> failed = await(graph);
+
+        assertTrue(failed.isEmpty());
+        assertEquals(4, order.size());
+        assertTrue(order.indexOf("model") < order.indexOf("warmup"));
+        assertTrue(order.indexOf("warmup") < order.indexOf("ready"));
+        assertTrue(order.indexOf("speech") < order.indexOf("ready"));
+    }
+
+    @Test
+    public void independentSteps_runInParallel() throws Exception {
+        // Each step waits for the other two; run one after another, they would all fail
+        CountDownLatch together = new CountDownLatch(3);
+        StartupGraph graph = new StartupGraph(background, main);
+        for (int i = 0; i < 3; i++) {
+            graph.add("step" + i, () -> {
+                together.countDown();
+                if (!together.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("ran alone");
+            });
+        }
+
+        List<String> failed = await(graph);
+
+        assertTrue(graph.report(), failed.isEmpty());
+    }
+
+    @Test
+    public void failure_skipsOnlyItsDependents() throws Exception {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        StartupGraph graph = new StartupGraph(background, main)
+                .add("model", () -> {
+                    throw new IllegalStateException("no model");
+                })
+                .add("warmup", () -> ran.add("warmup"), "model")
+                .add("haptics", () -> ran.add("haptics"));
+
+        List<String> failed = await(graph);
+
+        assertEquals(2, failed.size());
+        assertTrue(failed.contains("model"));
+        assertTrue(failed.contains("warmup"));
+        assertEquals(Collections.singletonList("haptics"), ran);
+        assertTrue(graph.report().contains("no model"));
+    }
+
+    private static List<String> await(StartupGraph graph) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<List<String>> result = new AtomicReference<>();
+        graph.start((failed, report) -> {
+            result.set(failed);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return result.get();
+    }
+}
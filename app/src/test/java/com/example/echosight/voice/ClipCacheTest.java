@@ -0,0 +1,143 @@
+package com.example.echosight.voice;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ClipCacheTest {
+
+    private static final int SAMPLE_RATE = 16000;   // mono 16-bit: 32000 bytes per second
+    private static final int CLIP_BYTES = 44 + 16000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void overBudget_evictsTheLeastRecentlyPlayedClip() throws IOException {
+        File dir = folder.newFolder();
+        ClipCache cache = new ClipCache(dir, 3L * CLIP_BYTES);
+        List<String> evicted = new ArrayList<>();
+        cache.setEvictionListener(clip -> evicted.add(clip.name));
+
+        add(cache, "Person ahead");
+        add(cache, "Chair ahead");
+        add(cache, "Car ahead");
+        assertNotNull(cache.get("Person ahead"));   // Chair is now the oldest
+        add(cache, "Bench ahead");
+
+        assertEquals(3, cache.size());
+        assertEquals(3L * CLIP_BYTES, cache.getTotalBytes());
+        assertFalse(cache.contains("Chair ahead"));
+        assertFalse(cache.fileFor("Chair ahead").exists());
+        assertEquals(1, evicted.size());
+        assertEquals(ClipCache.keyFor("Chair ahead"), evicted.get(0));
+        assertTrue(cache.contains("Person ahead"));
+    }
+
+    @Test
+    public void hitRate_countsUnloadedClipsAsMisses() throws IOException {
+        ClipCache cache = new ClipCache(folder.newFolder(), 1 << 20);
+
+        assertNull(cache.get("Person ahead"));
+        writeWav(cache.fileFor("Person ahead"), CLIP_BYTES - 44);
+        ClipCache.Clip clip = cache.put("Person ahead");
+        assertNull(cache.get("Person ahead"));      // still decoding in the player
+        clip.loaded = true;
+        assertSame(clip, cache.get("Person ahead"));
+        assertSame(clip, cache.get("Person ahead"));
+
+        assertEquals(0.5f, cache.getHitRate(), 0f);
+        cache.recordFirstAudio(true, 2_000_000L);
+        cache.recordFirstAudio(false, 150_000_000L);
+        cache.recordFirstAudio(false, 250_000_000L);
+        assertEquals(2f, cache.getAverageFirstAudioMs(true), 1e-3f);
+        assertEquals(200f, cache.getAverageFirstAudioMs(false), 1e-3f);
+        assertTrue(cache.report(), cache.report().contains("hit rate 50% (2/4)"));
+    }
+
+    @Test
+    public void emptyOrMissingFiles_areNotCached() throws IOException {
+        ClipCache cache = new ClipCache(folder.newFolder(), 1 << 20);
+
+        assertNull(cache.put("Never written"));
+        writeWav(cache.fileFor("Header only"), 0);
+        assertNull(cache.put("Header only"));
+        assertFalse(cache.fileFor("Header only").exists());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clipsOnDisk_surviveARestartInLruOrder() throws IOException {
+        File dir = folder.newFolder();
+        ClipCache first = new ClipCache(dir, 1 << 20);
+        add(first, "Person ahead");
+        add(first, "Chair ahead");
+        first.fileFor("Person ahead").setLastModified(1_000_000L);
+        first.fileFor("Chair ahead").setLastModified(2_000_000L);
+
+        // A smaller budget on restart drops the older clip
+        ClipCache second = new ClipCache(dir, CLIP_BYTES);
+        assertEquals(1, second.size());
+        assertTrue(second.contains("Chair ahead"));
+        assertFalse(second.contains("Person ahead"));
+        assertEquals(500, second.all()[0].durationMs);
+    }
+
+    @Test
+    public void hits_touchNoFiles_untilTheOrderIsPersisted() throws IOException {
+        File dir = folder.newFolder();
+        ClipCache first = new ClipCache(dir, 1 << 20);
+        add(first, "Person ahead");
+        add(first, "Chair ahead");
+        first.fileFor("Person ahead").setLastModified(1_000_000L);
+        first.fileFor("Chair ahead").setLastModified(2_000_000L);
+
+        assertNotNull(first.get("Person ahead"));
+        assertEquals(1_000_000L, first.fileFor("Person ahead").lastModified());
+
+        first.persistOrder();
+        assertTrue(first.fileFor("Person ahead").lastModified() > first.fileFor("Chair ahead").lastModified());
+
+        // The clip played last is the one kept when a restart's budget fits only one
+        ClipCache second = new ClipCache(dir, CLIP_BYTES);
+        assertTrue(second.contains("Person ahead"));
+        assertFalse(second.contains("Chair ahead"));
+    }
+
+    @Test
+    public void wavDuration_comesFromTheHeader() throws IOException {
+        File file = folder.newFile("clip.wav");
+        writeWav(file, SAMPLE_RATE * 2 * 3 / 2);
+
+        assertEquals(1500, ClipCache.wavDurationMs(file));
+        assertEquals(0, ClipCache.wavDurationMs(new File(file.getParent(), "missing.wav")));
+    }
+
+    private static void add(ClipCache cache, String text) throws IOException {
+        writeWav(cache.fileFor(text), CLIP_BYTES - 44);
+        cache.put(text).loaded = true;
+    }
+
+    /** Mono 16-bit PCM WAV with {@code dataBytes} bytes of silence. */
+    private static void writeWav(File file, int dataBytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(36 + dataBytes).put("WAVE".getBytes());
+        header.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+        header.put("data".getBytes()).putInt(dataBytes);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(header.array());
+            out.write(new byte[dataBytes]);
+        }
+    }
+}
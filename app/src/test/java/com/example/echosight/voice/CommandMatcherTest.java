@@ -0,0 +1,124 @@
+package com.example.echosight.voice;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandMatcherTest {
+
+    @Test
+    public void partials_fireOnTheFirstUnambiguousHit_andIgnoreTheFinal() {
+        CommandMatcher matcher = new CommandMatcher();
+
+        assertNull(matcher.accept("please", false));
+        assertNull(matcher.accept("please st", false));
+        assertNull(matcher.accept("please stop", false));
+        assertEquals("STOP", matcher.accept("please stop now", false));
+        assertNull(matcher.accept("please stop now", false));
+        assertNull(matcher.accept("please stop now", true));
+        assertEquals("STOP", matcher.fired());
+
+        matcher.reset();
+        assertEquals("START", matcher.accept("Start", true));
+    }
+
+    @Test
+    public void growingLastWord_waitsUntilItIsComplete() {
+        CommandMatcher matcher = new CommandMatcher();
+
+        assertNull(matcher.accept("I st", false));
+        assertNull(matcher.accept("I stop", false));
+        assertNull(matcher.accept("I stopped", false));
+        assertNull(matcher.accept("I stopped", true));
+
+        // Ended by punctuation, the next word or the final result
+        matcher.reset();
+        assertEquals("STOP", matcher.accept("I stop.", false));
+        matcher.reset();
+        assertNull(matcher.accept("I stop", false));
+        assertEquals("STOP", matcher.accept("I stop here", false));
+        matcher.reset();
+        assertNull(matcher.accept("I stop", false));
+        assertEquals("STOP", matcher.accept("I stop", true));
+    }
+
+    @Test
+    public void wholeWordsOnly() {
+        CommandMatcher matcher = new CommandMatcher();
+
+        assertNull(matcher.accept("restart the weekend", true));
+        assertNull(matcher.accept("stopwatch", true));
+        matcher.reset();
+        assertEquals("DESCRIBE", matcher.accept("What's around me?", false));
+    }
+
+    @Test
+    public void revisedHypothesis_isScannedAgain() {
+        CommandMatcher matcher = new CommandMatcher();
+
+        assertNull(matcher.accept("i said stock", false));
+        assertNull(matcher.accept("i said stuck there", false));
+        assertEquals("STOP", matcher.accept("i said stop there", false));
+    }
+
+    @Test
+    public void longerPhraseWithAnotherMeaning_waitsForTheNextWordOrTheEnd() {
+        String[][] grammar = {{"stop", "STOP"}, {"stop describing", "DESCRIBE"}};
+
+        CommandMatcher matcher = new CommandMatcher(grammar);
+        assertNull(matcher.accept("stop", false));
+        assertEquals("STOP", matcher.accept("stop now", false));
+
+        matcher = new CommandMatcher(grammar);
+        assertNull(matcher.accept("stop", false));
+        assertNull(matcher.accept("stop desc", false));
+        assertNull(matcher.accept("stop describing", false));
+        assertEquals("DESCRIBE", matcher.accept("stop describing the", false));
+
+        matcher = new CommandMatcher(grammar);
+        assertNull(matcher.accept("stop", false));
+        assertEquals("STOP", matcher.accept("stop", true));
+    }
+
+    @Test
+    public void labelsAndPhrases_mapToCommands() {
+        assertEquals("STOP", CommandMatcher.commandFor("end"));
+        assertEquals("START", CommandMatcher.commandFor("Start navigation"));
+        assertNull(CommandMatcher.commandFor("_silence_"));
+        assertNull(CommandMatcher.commandFor("weekend"));
+    }
+
+    @Test
+    public void benchmark_costPerPartial() {
+        Benchmarks.assumeEnabled();
+        // A recognizer sends the whole hypothesis again with each new word
+        String[] words = "okay so i am walking down the street towards the bus station and now please stop now".split(" ");
+        String[] partials = new String[words.length];
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) text.append(' ');
+            partials[i] = text.append(words[i]).toString();
+        }
+
+        CommandMatcher matcher = new CommandMatcher();
+        int utterances = 20_000;
+        double perPartialUs = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int u = 0; u < utterances; u++) {
+                matcher.reset();
+                for (String partial : partials) {
+                    if (matcher.accept(partial, false) != null) break;
+                }
+            }
+            perPartialUs = (System.nanoTime() - start) / 1e3 / utterances / partials.length;
+        }
+
+        assertEquals("STOP", matcher.fired());
+        System.out.printf("command matcher: %.2f us per partial result over a %d-word utterance%n",
+                perPartialUs, words.length);
+        assertTrue(perPartialUs < 100);
+    }
+}
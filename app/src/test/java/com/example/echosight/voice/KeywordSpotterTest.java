@@ -0,0 +1,299 @@
+package com.example.echosight.voice;
+
+import com.example.echosight.utils.Benchmarks;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * WAV-driven harness for the spotter: recordings are streamed through it in
+ * AudioRecord-sized chunks, and detection latency (from the onset of each
+ * word) is reported; CPU time per second of audio is an opt-in benchmark.
+ *
+ * There is no speech model in the JVM, so the recordings use tone-pair
+ * "words" and {@link ToneModel} stands in for the classifier; the front end,
+ * windowing, smoothing, threshold and refractory logic are the real ones.
+ */
+public class KeywordSpotterTest {
+
+    private static final int RATE = LogMelFrontend.SAMPLE_RATE;
+    private static final int CHUNK = 320;              // 20 ms, as read on the device
+    private static final int WORD_MS = 400;
+
+    private static final String[] LABELS = {"_silence_", "start", "stop", "describe", "_unknown_"};
+    // Two tones per word so a single tone in the background never matches
+    private static final float[][] TONES = {null, {600, 1500}, {800, 2000}, {1000, 2600}, {350, 3400}};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void frontEnd_putsAToneInItsMelBand() {
+        LogMelFrontend frontend = new LogMelFrontend();
+        short[] tone = tone(1500, 100, 0.3f);
+        float[] frame = null;
+        for (short sample : tone) {
+            if (frontend.accept(sample)) frame = frontend.frame();
+        }
+
+        int loudest = 0;
+        for (int m = 1; m < LogMelFrontend.MEL_BINS; m++) {
+            if (frame[m] > frame[loudest]) loudest = m;
+        }
+        assertEquals(LogMelFrontend.bandOf(1500), loudest, 1);
+    }
+
+    @Test
+    public void wavRecording_spotsEachWordOnce_andReportsLatency() throws IOException {
+        // start, stop, describe between background noise and a single-tone hum
+        List<int[]> truth = new ArrayList<>();   // label, onset sample
+        File wav = writeScenario(new int[]{1, 2, 3}, truth, 42);
+
+        Run run = stream(wav, new KeywordSpotter(new ToneModel(), 0.8f));
+
+        assertEquals(truth.size(), run.labels.size());
+        double totalMs = 0;
+        double worstMs = 0;
+        for (int i = 0; i < truth.size(); i++) {
+            assertEquals(truth.get(i)[0], (int) run.labels.get(i));
+            double latencyMs = (run.samples.get(i) - truth.get(i)[1]) * 1000.0 / RATE;
+            assertTrue("detection before the word began: " + latencyMs, latencyMs > 0);
+            totalMs += latencyMs;
+            worstMs = Math.max(worstMs, latencyMs);
+        }
+        // Within 300 ms of the word ending
+        assertTrue("worst latency " + worstMs + " ms, average " + totalMs / truth.size() + " ms",
+                worstMs < WORD_MS + 300);
+    }
+
+    @Test
+    public void benchmark_cpuPerSecondOfAudio() throws IOException {
+        Benchmarks.assumeEnabled();
+        File wav = writeScenario(new int[]{1, 2, 3}, new ArrayList<>(), 42);
+
+        Run run = stream(wav, new KeywordSpotter(new ToneModel(), 0.8f));
+
+        System.out.printf("keyword spotter: %.2f ms CPU per second of audio (%.2f%% of a core), "
+                        + "%.3f ms per evaluation%n",
+                run.cpuMsPerSecond, run.cpuMsPerSecond / 10, run.spotter.averageEvaluationMs());
+        assertTrue(run.cpuMsPerSecond < 100);
+    }
+
+    @Test
+    public void threshold_isConfigurable() throws IOException {
+        File wav = writeScenario(new int[]{1, 2}, new ArrayList<>(), 7);
+
+        assertEquals(2, stream(wav, new KeywordSpotter(new ToneModel(), 0.5f)).labels.size());
+        assertEquals(0, stream(wav, new KeywordSpotter(new ToneModel(), 1.01f)).labels.size());
+    }
+
+    @Test
+    public void backgroundAndUnknownWords_neverFire() throws IOException {
+        // The fourth word is a label the app has no command for
+        File wav = writeScenario(new int[]{4, 4}, new ArrayList<>(), 3);
+
+        Run run = stream(wav, new KeywordSpotter(new ToneModel(), 0.5f));
+        assertEquals(0, run.labels.size());
+        assertTrue(run.spotter.evaluations() > 0);
+    }
+
+    @Test
+    public void longWord_firesOnceInTheRefractoryPeriod() {
+        KeywordSpotter spotter = new KeywordSpotter(new ToneModel(), 0.8f);
+        short[] audio = concat(noise(500, 1), word(2, 900), noise(500, 2));
+
+        int fired = 0;
+        for (int i = 0; i < audio.length; i += CHUNK) {
+            if (spotter.accept(audio, i, Math.min(CHUNK, audio.length - i)) != KeywordSpotter.NONE) fired++;
+        }
+        assertEquals(1, fired);
+    }
+
+    @Test
+    public void commands_mapFromModelLabels() {
+        KeywordSpotter spotter = new KeywordSpotter(new ToneModel(), 0.8f);
+        assertEquals("START", spotter.command(1));
+        assertEquals("STOP", spotter.command(2));
+        assertEquals("DESCRIBE", spotter.command(3));
+        assertNull(spotter.command(0));
+        assertNull(spotter.command(4));
+    }
+
+    // ---------- HARNESS ----------
+
+    private static class Run {
+        KeywordSpotter spotter;
+        List<Integer> labels = new ArrayList<>();
+        List<Long> samples = new ArrayList<>();
+        double cpuMsPerSecond;
+    }
+
+    /** Streams a WAV through the spotter in CHUNK-sized reads, timing its CPU use. */
+    private static Run stream(File wav, KeywordSpotter spotter) throws IOException {
+        short[] audio = readWav(wav);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Run run = new Run();
+        run.spotter = spotter;
+
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < audio.length; i += CHUNK) {
+            int label = spotter.accept(audio, i, Math.min(CHUNK, audio.length - i));
+            if (label == KeywordSpotter.NONE) continue;
+            run.labels.add(label);
+            run.samples.add(spotter.detectedAtSample());
+        }
+        long cpuNs = threads.getCurrentThreadCpuTime() - cpuStart;
+        run.cpuMsPerSecond = cpuNs / 1e6 / (audio.length / (double) RATE);
+        return run;
+    }
+
+    /** Noise, then each word followed by 1.2 s of noise; records each word's label and onset. */
+    private File writeScenario(int[] words, List<int[]> truth, long seed) throws IOException {
+        List<short[]> parts = new ArrayList<>();
+        int length = 0;
+        parts.add(noise(1000, seed));
+        length += parts.get(0).length;
+        for (int w : words) {
+            short[] word = word(w, WORD_MS);
+            short[] gap = noise(1200, seed + w + length);
+            parts.add(word);
+            parts.add(gap);
+            truth.add(new int[]{w, length});
+            length += word.length + gap.length;
+        }
+        File file = folder.newFile();
+        writeWav(file, concat(parts.toArray(new short[0][])));
+        return file;
+    }
+
+    private static short[] word(int label, int ms) {
+        short[] a = tone(TONES[label][0], ms, 0.2f);
+        short[] b = tone(TONES[label][1], ms, 0.2f);
+        short[] noise = noise(ms, label);
+        for (int i = 0; i < a.length; i++) a[i] = (short) (a[i] + b[i] + noise[i]);
+        return a;
+    }
+
+    /** Low white noise with a constant 1500 Hz hum, one of the "start" tones. */
+    private static short[] noise(int ms, long seed) {
+        Random random = new Random(seed);
+        short[] hum = tone(1500, ms, 0.1f);
+        for (int i = 0; i < hum.length; i++) hum[i] += (short) (random.nextGaussian() * 300);
+        return hum;
+    }
+
+    private static short[] tone(float hz, int ms, float gain) {
+        short[] out = new short[RATE * ms / 1000];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (short) (Math.sin(2 * Math.PI * hz * i / RATE) * gain * Short.MAX_VALUE);
+        }
+        return out;
+    }
+
+    private static short[] concat(short[]... parts) {
+        int length = 0;
+        for (short[] part : parts) length += part.length;
+        short[] out = new short[length];
+        int at = 0;
+        for (short[] part : parts) {
+            System.arraycopy(part, 0, out, at, part.length);
+            at += part.length;
+        }
+        return out;
+    }
+
+    private static void writeWav(File file, short[] pcm) throws IOException {
+        ByteBuffer wav = ByteBuffer.allocate(44 + pcm.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes()).putInt(36 + pcm.length * 2).put("WAVE".getBytes());
+        wav.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(RATE).putInt(RATE * 2).putShort((short) 2).putShort((short) 16);
+        wav.put("data".getBytes()).putInt(pcm.length * 2);
+        for (short sample : pcm) wav.putShort(sample);
+        Files.write(file.toPath(), wav.array());
+    }
+
+    /** 16-bit mono PCM from a WAV file, skipping any chunks before "data". */
+    private static short[] readWav(File file) throws IOException {
+        ByteBuffer wav = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        wav.position(12);
+        while (wav.remaining() >= 8) {
+            byte[] id = new byte[4];
+            wav.get(id);
+            int size = wav.getInt();
+            if (new String(id).equals("data")) {
+                short[] pcm = new short[size / 2];
+                wav.asShortBuffer().get(pcm);
+                return pcm;
+            }
+            wav.position(wav.position() + size);
+        }
+        throw new IOException("No data chunk in " + file);
+    }
+
+    /**
+     * Stands in for the keyword model: a word's probability is the share of
+     * the last {@link #WORD_FRAMES} frames in which both of its tone bands
+     * stand well above the frame's median band.
+     */
+    private static class ToneModel implements KeywordModel {
+
+        static final int WORD_FRAMES = 30;
+        static final float MARGIN = 3f;   // natural log units, about 20x the energy
+
+        private final int[][] bands = new int[TONES.length][];
+        private final float[] sorted = new float[LogMelFrontend.MEL_BINS];
+
+        ToneModel() {
+            for (int label = 1; label < TONES.length; label++) {
+                bands[label] = new int[]{LogMelFrontend.bandOf(TONES[label][0]), LogMelFrontend.bandOf(TONES[label][1])};
+            }
+        }
+
+        @Override
+        public int frames() {
+            return 100;
+        }
+
+        @Override
+        public String[] labels() {
+            return LABELS;
+        }
+
+        @Override
+        public void run(float[][] features, float[] probabilities) {
+            float best = 0f;
+            for (int label = 1; label < LABELS.length; label++) {
+                int hits = 0;
+                for (int f = features.length - WORD_FRAMES; f < features.length; f++) {
+                    float[] frame = features[f];
+                    System.arraycopy(frame, 0, sorted, 0, sorted.length);
+                    Arrays.sort(sorted);
+                    float floor = sorted[sorted.length / 2] + MARGIN;
+                    if (frame[bands[label][0]] > floor && frame[bands[label][1]] > floor) hits++;
+                }
+                probabilities[label] = hits / (float) WORD_FRAMES;
+                best = Math.max(best, probabilities[label]);
+            }
+            probabilities[0] = 1f - best;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.echosight.voice;
+
+import com.example.echosight.voice.SpeechArbiter.Priority;
+import com.example.echosight.voice.SpeechArbiter.State;
+import com.example.echosight.voice.SpeechArbiter.Utterance;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class SpeechArbiterTest {
+
+    private static final long TTL_MS = 1500;
+
+    @Test
+    public void urgentAlert_cutsOffNarration_whichResumesAfterwards() {
+        SpeechArbiter arbiter = new SpeechArbiter(TTL_MS);
+        Utterance narration = arbiter.submit("The room is quiet...", Priority.NARRATION, false, 0);
+        assertSame(narration, arbiter.current());
+
+        Utterance alert = arbiter.submit("Watch out, chair nearby", Priority.URGENT, true, 100);
+        assertSame(alert, arbiter.current());
+        assertEquals(State.QUEUED, narration.getState());
+
+        // The engine's onStop for the interrupted narration is ignored
+        assertNull(arbiter.finished(narration.id, 110));
+        assertSame(alert, arbiter.current());
+
+        assertSame(narration, arbiter.finished(alert.id, 1200));
+        assertEquals(State.DONE, alert.getState());
+        assertEquals(State.SPEAKING, arbiter.state(narration.id));
+    }
+
+    @Test
+    public void routineAlert_waitsBehindSpeech_andExpires() {
+        SpeechArbiter arbiter = new SpeechArbiter(TTL_MS);
+        Utterance system = arbiter.submit("Navigation started", Priority.SYSTEM, false, 0);
+        Utterance alert = arbiter.submit("Chair is in front of you", Priority.ALERT, true, 100);
+        assertEquals(State.QUEUED, alert.getState());
+        assertSame(system, arbiter.current());
+
+        Utterance later = arbiter.submit("Chair is some steps ahead", Priority.ALERT, true, 200);
+        assertEquals(State.SUPERSEDED, alert.getState());
+        assertEquals(1, arbiter.queued());
+
+        // Spoken long after it was queued: dropped, nothing else waiting
+        assertNull(arbiter.finished(system.id, 200 + TTL_MS + 1));
+        assertEquals(State.EXPIRED, later.getState());
+        assertFalse(arbiter.isSpeaking());
+        assertTrue(arbiter.report(), arbiter.report().contains("1 superseded, 1 expired"));
+    }
+
+    @Test
+    public void newAlert_supersedesQueuedAlert_butNotQueuedNarration() {
+        SpeechArbiter arbiter = new SpeechArbiter(TTL_MS);
+        Utterance first = arbiter.submit("Person ahead", Priority.URGENT, true, 0);
+        Utterance narration = arbiter.submit("Two people are talking nearby", Priority.NARRATION, false, 10);
+        Utterance queued = arbiter.submit("Person is very near you", Priority.URGENT, true, 20);
+        assertEquals(State.QUEUED, queued.getState());
+
+        // Same priority never preempts
+        arbiter.submit("Careful, person is right in front of you", Priority.URGENT, true, 30);
+        assertSame(first, arbiter.current());
+        assertEquals(State.SUPERSEDED, queued.getState());
+        assertEquals(State.QUEUED, narration.getState());
+
+        Utterance next = arbiter.finished(first.id, 500);
+        assertEquals("Careful, person is right in front of you", next.text);
+        assertSame(narration, arbiter.finished(next.id, 900));
+    }
+
+    @Test
+    public void systemMessage_interruptsNarrationOnly() {
+        SpeechArbiter arbiter = new SpeechArbiter(TTL_MS);
+        Utterance alert = arbiter.submit("Chair is in front of you", Priority.ALERT, true, 0);
+        assertEquals(State.QUEUED, arbiter.submit("Systems ready.", Priority.SYSTEM, false, 10).getState());
+        assertSame(alert, arbiter.current());
+
+        Utterance system = arbiter.finished(alert.id, 20);
+        assertEquals("Systems ready.", system.text);
+        arbiter.finished(system.id, 30);
+
+        Utterance narration = arbiter.submit("A calm office", Priority.NARRATION, false, 40);
+        Utterance stop = arbiter.submit("Navigation stopped", Priority.SYSTEM, false, 50);
+        assertSame(stop, arbiter.current());
+        assertEquals(State.QUEUED, narration.getState());
+
+        // Alerts, though, are lost when interrupted
+        arbiter.finished(stop.id, 60);
+        arbiter.finished(narration.id, 70);
+        Utterance routine = arbiter.submit("Bench ahead", Priority.ALERT, true, 80);
+        arbiter.submit("Bench is extremely close", Priority.URGENT, true, 90);
+        assertEquals(State.PREEMPTED, routine.getState());
+    }
+
+    @Test
+    public void clear_dropsEverything() {
+        SpeechArbiter arbiter = new SpeechArbiter(TTL_MS);
+        Utterance playing = arbiter.submit("A calm office", Priority.NARRATION, false, 0);
+        Utterance waiting = arbiter.submit("Bench ahead", Priority.ALERT, true, 10);
+
+        arbiter.clear();
+
+        assertFalse(arbiter.isSpeaking());
+        assertEquals(0, arbiter.queued());
+        assertEquals(State.PREEMPTED, playing.getState());
+        assertEquals(State.SUPERSEDED, waiting.getState());
+        assertNull(arbiter.finished(playing.id, 20));
+    }
+
+    @Test
+    public void clearNarration_keepsOtherSpeech_andHandsOverTheNext() {
+        SpeechArbiter arbiter = new SpeechArbiter(TTL_MS);
+        Utterance playing = arbiter.submit("The room is calm.", Priority.NARRATION, false, 0);
+        Utterance next = arbiter.submit("Two people are ahead.", Priority.NARRATION, false, 5);
+        Utterance alert = arbiter.submit("Bench ahead", Priority.ALERT, true, 10);
+
+        assertTrue(arbiter.clear(Priority.NARRATION));
+
+        assertEquals(State.PREEMPTED, playing.getState());
+        assertEquals(State.SUPERSEDED, next.getState());
+        assertSame(alert, arbiter.next(20));
+        assertEquals(State.SPEAKING, alert.getState());
+        // Nothing to drop while the alert plays
+        assertFalse(arbiter.clear(Priority.NARRATION));
+        assertNull(arbiter.next(30));
+    }
+
+    @Test
+    public void concurrentCallers_neverHaveTwoUtterancesSpeaking() throws InterruptedException {
+        SpeechArbiter arbiter = new SpeechArbiter(TTL_MS);
+        Priority[] priorities = Priority.values();
+        Set<Utterance> submitted = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        int threads = 4;
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    Priority priority = priorities[(i * 7 + seed) % priorities.length];
+                    submitted.add(arbiter.submit("utterance " + seed + "-" + i, priority, priority.alert, i));
+                    // Like an engine callback: whatever is current finishes
+                    Utterance current = arbiter.current();
+                    if (current != null && i % 3 == 0) arbiter.finished(current.id, i);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        int speaking = 0;
+        for (Utterance utterance : submitted) {
+            if (utterance.getState() == State.SPEAKING) speaking++;
+        }
+        assertEquals(threads * 5000, submitted.size());
+        assertEquals(arbiter.isSpeaking() ? 1 : 0, speaking);
+        if (speaking == 1) assertEquals(State.SPEAKING, arbiter.current().getState());
+    }
+}